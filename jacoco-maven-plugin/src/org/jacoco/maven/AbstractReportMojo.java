@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Locale;
 
 import org.apache.maven.doxia.sink.SinkFactory;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -92,12 +93,26 @@ public abstract class AbstractReportMojo extends AbstractMojo
 	@Parameter(property = "jacoco.skip", defaultValue = "false")
 	boolean skip;
 
+	/**
+	 * If set to <code>true</code> the classes are analyzed and written to the
+	 * report one package at a time. This limits the memory required for large
+	 * projects, but class files are read twice.
+	 */
+	@Parameter(property = "jacoco.streaming", defaultValue = "false")
+	boolean streaming;
+
 	/**
 	 * Maven project.
 	 */
 	@Parameter(property = "project", readonly = true)
 	MavenProject project;
 
+	/**
+	 * Current build session.
+	 */
+	@Parameter(defaultValue = "${session}", readonly = true)
+	MavenSession session;
+
 	public String getDescription(final Locale locale) {
 		return getName(locale) + " Coverage Report.";
 	}
@@ -188,6 +203,8 @@ public abstract class AbstractReportMojo extends AbstractMojo
 			throws MavenReportException {
 		try {
 			final ReportSupport support = new ReportSupport(getLog());
+			support.setStreaming(streaming);
+			support.setSession(session);
 			loadExecutionData(support);
 			addFormatters(support, locale);
 			final IReportVisitor visitor = support.initRootVisitor();
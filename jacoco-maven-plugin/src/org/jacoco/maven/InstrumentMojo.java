@@ -18,7 +18,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -63,6 +68,13 @@ public class InstrumentMojo extends AbstractJacocoMojo {
 	@Parameter
 	private List<String> excludes;
 
+	/**
+	 * Number of threads used to instrument class files. With more than one
+	 * thread class files are instrumented in parallel.
+	 */
+	@Parameter(property = "jacoco.threads", defaultValue = "1")
+	int threads;
+
 	@Override
 	public void executeMojo()
 			throws MojoExecutionException, MojoFailureException {
@@ -90,25 +102,72 @@ public class InstrumentMojo extends AbstractJacocoMojo {
 
 		final Instrumenter instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
-		for (final String fileName : fileNames) {
-			if (fileName.endsWith(".class")) {
-				final File source = new File(classesDir, fileName);
-				final File backup = new File(originalClassesDir, fileName);
-				InputStream input = null;
-				OutputStream output = null;
-				try {
-					FileUtils.copyFile(source, backup);
-					input = new FileInputStream(backup);
-					output = new FileOutputStream(source);
-					instrumenter.instrument(input, output, source.getPath());
-				} catch (final IOException e2) {
-					throw new MojoExecutionException(
-							"Unable to instrument file.", e2);
-				} finally {
-					IOUtil.close(input);
-					IOUtil.close(output);
+		final ForkJoinPool executor = threads > 1 ? new ForkJoinPool(threads)
+				: null;
+		final List<Future<?>> pending = new ArrayList<Future<?>>();
+		try {
+			for (final String fileName : fileNames) {
+				if (fileName.endsWith(".class")) {
+					final File source = new File(classesDir, fileName);
+					final File backup = new File(originalClassesDir, fileName);
+					if (executor == null) {
+						instrument(instrumenter, source, backup);
+					} else {
+						pending.add(executor.submit(new Callable<Void>() {
+							public Void call() throws MojoExecutionException {
+								instrument(instrumenter, source, backup);
+								return null;
+							}
+						}));
+					}
 				}
 			}
+			for (final Future<?> f : pending) {
+				complete(f);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	private static void instrument(final Instrumenter instrumenter,
+			final File source, final File backup)
+			throws MojoExecutionException {
+		InputStream input = null;
+		OutputStream output = null;
+		try {
+			FileUtils.copyFile(source, backup);
+			input = new FileInputStream(backup);
+			output = new FileOutputStream(source);
+			instrumenter.instrument(input, output, source.getPath());
+		} catch (final IOException e2) {
+			throw new MojoExecutionException("Unable to instrument file.",
+					e2);
+		} finally {
+			IOUtil.close(input);
+			IOUtil.close(output);
+		}
+	}
+
+	private static void complete(final Future<?> f)
+			throws MojoExecutionException {
+		try {
+			f.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException(
+					"Interrupted while instrumenting files.", e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof MojoExecutionException) {
+				throw (MojoExecutionException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw (RuntimeException) cause;
 		}
 	}
 
@@ -23,14 +23,26 @@ import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.jacoco.core.analysis.AnalysisContext;
 import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.ClassFileCache;
 import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.PackageAnalyzer;
 import org.jacoco.core.tools.ExecFileLoader;
+import org.jacoco.report.BufferedBundleVisitor;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
@@ -54,9 +66,19 @@ import org.jacoco.report.check.RulesChecker;
  */
 final class ReportSupport {
 
+	/**
+	 * Caches shared by all report executions of a build session, so class
+	 * files of modules contained in several reports (e.g. aggregated reports)
+	 * are only read and analyzed once. A cache is released together with its
+	 * session.
+	 */
+	private static final Map<MavenSession, ClassFileCache> CACHES = new WeakHashMap<MavenSession, ClassFileCache>();
+
 	private final Log log;
 	private final ExecFileLoader loader;
 	private final List<IReportVisitor> formatters;
+	private boolean streaming;
+	private ClassFileCache cache;
 
 	/**
 	 * Construct a new instance with the given log output.
@@ -83,6 +105,39 @@ final class ReportSupport {
 		loader.load(execFile);
 	}
 
+	/**
+	 * Enables the streaming mode where the classes of a project are analyzed
+	 * and emitted to the report one package at a time.
+	 *
+	 * @param streaming
+	 *            <code>true</code> to analyze one package at a time
+	 */
+	public void setStreaming(final boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Shares the cache for class files with all other report executions of
+	 * the given build session.
+	 *
+	 * @param session
+	 *            current build session or <code>null</code> to read all class
+	 *            files again
+	 */
+	public void setSession(final MavenSession session) {
+		if (session == null) {
+			cache = null;
+			return;
+		}
+		synchronized (CACHES) {
+			cache = CACHES.get(session);
+			if (cache == null) {
+				cache = new ClassFileCache();
+				CACHES.put(session, cache);
+			}
+		}
+	}
+
 	public void addVisitor(final IReportVisitor visitor) {
 		formatters.add(visitor);
 	}
@@ -154,13 +209,18 @@ final class ReportSupport {
 			final String bundleName, final MavenProject project,
 			final List<String> includes, final List<String> excludes,
 			final ISourceFileLocator locator) throws IOException {
+		if (streaming) {
+			processProjectStreaming(visitor, bundleName, project, includes,
+					excludes, locator);
+			return;
+		}
 		final CoverageBuilder builder = new CoverageBuilder();
 		final File classesDir = new File(
 				project.getBuild().getOutputDirectory());
 
 		if (classesDir.isDirectory()) {
 			final Analyzer analyzer = new Analyzer(
-					loader.getExecutionDataStore(), builder);
+					loader.getExecutionDataStore(), builder, null, cache);
 			final FileFilter filter = new FileFilter(includes, excludes);
 			for (final File file : filter.getFiles(classesDir)) {
 				analyzer.analyzeAll(file);
@@ -173,7 +233,43 @@ final class ReportSupport {
 		visitor.visitBundle(bundle, locator);
 	}
 
-	private void logBundleInfo(final IBundleCoverage bundle,
+	private void processProjectStreaming(final IReportGroupVisitor visitor,
+			final String bundleName, final MavenProject project,
+			final List<String> includes, final List<String> excludes,
+			final ISourceFileLocator locator) throws IOException {
+		final PackageAnalyzer analyzer = new PackageAnalyzer(
+				loader.getExecutionDataStore(), AnalysisContext.DEFAULT);
+		final CoverageNodeImpl total = new CoverageNodeImpl(
+				ElementType.BUNDLE, bundleName);
+		try {
+			final File classesDir = new File(
+					project.getBuild().getOutputDirectory());
+			if (classesDir.isDirectory()) {
+				final FileFilter filter = new FileFilter(includes, excludes);
+				for (final File file : filter.getFiles(classesDir)) {
+					analyzer.scan(file);
+				}
+			}
+
+			final IReportBundleVisitor bundleVisitor = BufferedBundleVisitor
+					.visitBundle(visitor, bundleName, locator);
+			for (final String packageName : analyzer.getPackageNames()) {
+				final IPackageCoverage coverage = analyzer
+						.analyzePackage(packageName);
+				if (coverage != null) {
+					total.increment(coverage);
+					bundleVisitor.visitPackage(coverage);
+				}
+			}
+			bundleVisitor.visitEnd();
+		} finally {
+			analyzer.close();
+		}
+
+		logBundleInfo(total, analyzer.getNoMatchClasses());
+	}
+
+	private void logBundleInfo(final ICoverageNode bundle,
 			final Collection<IClassCoverage> nomatch) {
 		log.info(format("Analyzed bundle '%s' with %s classes",
 				bundle.getName(),
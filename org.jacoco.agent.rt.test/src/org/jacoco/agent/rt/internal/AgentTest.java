@@ -14,13 +14,18 @@ package org.jacoco.agent.rt.internal;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.lang.management.ManagementFactory;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanServer;
@@ -37,7 +42,9 @@ import org.jacoco.core.runtime.AgentOptions.OutputMode;
 import org.jacoco.core.runtime.RuntimeData;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Unit tests for {@link Agent}.
@@ -50,6 +57,9 @@ public class AgentTest implements IExceptionLogger, IAgentOutput {
 
 	private Exception loggedException;
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Before
 	public void setup() {
 		options = new AgentOptions();
@@ -348,6 +358,73 @@ public class AgentTest implements IExceptionLogger, IAgentOutput {
 		assertNull(loggedException);
 	}
 
+	@Test
+	public void dump_should_flush_class_file_dumper() throws Exception {
+		options.setClassDumpDir(folder.getRoot().getPath());
+		Agent agent = createAgent();
+		agent.startup();
+		agent.getClassFileDumper().dump("Foo", new byte[] { 1, 2, 3 });
+
+		agent.dump(false);
+
+		assertTrue(new File(folder.getRoot(), "Foo.02d361b000000000.class")
+				.isFile());
+		assertNull(loggedException);
+	}
+
+	@Test
+	public void dump_should_flush_class_file_archive() throws Exception {
+		options.setClassDumpDir(folder.getRoot().getPath());
+		options.setClassDumpArchive(true);
+		Agent agent = createAgent();
+		agent.startup();
+		agent.getClassFileDumper().dump("Foo", new byte[] { 1, 2, 3 });
+
+		agent.dump(false);
+
+		final File[] files = folder.getRoot().listFiles();
+		assertEquals(1, files.length);
+		final ZipInputStream in = new ZipInputStream(
+				new FileInputStream(files[0]));
+		assertEquals("Foo.02d361b000000000.class", in.getNextEntry().getName());
+		in.close();
+		assertNull(loggedException);
+	}
+
+	@Test
+	public void shutdown_should_finish_class_file_archive_when_output_fails()
+			throws Exception {
+		options.setClassDumpDir(folder.getRoot().getPath());
+		options.setClassDumpArchive(true);
+		final Exception expected = new Exception();
+		Agent agent = new Agent(options, this) {
+			@Override
+			IAgentOutput createAgentOutput() {
+				return new IAgentOutput() {
+					public void startup(AgentOptions options,
+							RuntimeData data) {
+					}
+
+					public void shutdown() throws Exception {
+						throw expected;
+					}
+
+					public void writeExecutionData(boolean reset) {
+					}
+				};
+			}
+		};
+		agent.startup();
+		agent.getClassFileDumper().dump("Foo", new byte[] { 1, 2, 3 });
+
+		agent.shutdown();
+
+		final ZipFile zip = new ZipFile(folder.getRoot().listFiles()[0]);
+		assertNotNull(zip.getEntry("Foo.02d361b000000000.class"));
+		zip.close();
+		assertSame(expected, loggedException);
+	}
+
 	private Agent createAgent() {
 		return new Agent(options, this) {
 			@Override
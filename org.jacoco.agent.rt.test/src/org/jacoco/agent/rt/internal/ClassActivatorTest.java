@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ClassActivator}.
+ */
+public class ClassActivatorTest {
+
+	private static final String NAME = "org/jacoco/agent/rt/internal/ClassActivatorTest";
+
+	private ExceptionRecorder recorder;
+
+	private List<Class<?>> retransformed;
+
+	private List<Integer> calls;
+
+	private boolean failMultiple;
+
+	private Thread retransformingThread;
+
+	private ClassActivator activator;
+
+	@Before
+	public void setup() {
+		recorder = new ExceptionRecorder();
+		retransformed = new ArrayList<Class<?>>();
+		calls = new ArrayList<Integer>();
+		activator = new ClassActivator(null, recorder) {
+			@Override
+			void retransform(final Class<?>[] classes)
+					throws UnmodifiableClassException {
+				retransformingThread = Thread.currentThread();
+				assertTrue(activator.isActivated(42));
+				if (failMultiple && classes.length > 1) {
+					throw new UnmodifiableClassException();
+				}
+				calls.add(Integer.valueOf(classes.length));
+				retransformed.addAll(Arrays.asList(classes));
+			}
+		};
+	}
+
+	@Test
+	public void classActivated_should_retransform_registered_class_immediately() {
+		activator.register(42, getClass().getClassLoader());
+		assertFalse(activator.isActivated(42));
+
+		activator.classActivated(42, NAME);
+
+		assertTrue(activator.isActivated(42));
+		assertEquals(Arrays.asList(ClassActivatorTest.class), retransformed);
+		assertSame(Thread.currentThread(), retransformingThread);
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void classActivated_should_retransform_class_only_once() {
+		activator.register(42, getClass().getClassLoader());
+
+		activator.classActivated(42, NAME);
+		activator.classActivated(42, NAME);
+
+		assertEquals(Arrays.asList(ClassActivatorTest.class), retransformed);
+	}
+
+	@Test
+	public void classActivated_should_mark_unregistered_class_as_activated() {
+		activator.classActivated(42, NAME);
+
+		assertTrue(activator.isActivated(42));
+		assertEquals(0, retransformed.size());
+	}
+
+	@Test
+	public void classActivated_should_log_exceptions() {
+		activator.register(42, getClass().getClassLoader());
+
+		activator.classActivated(42, "org/example/DoesNotExist");
+
+		recorder.assertException(ClassNotFoundException.class,
+				"org.example.DoesNotExist");
+		assertEquals(0, retransformed.size());
+	}
+
+	@Test
+	public void classActivated_should_retransform_classes_of_all_loaders_at_once() {
+		activator.register(42, getClass().getClassLoader());
+		activator.register(42, getClass().getClassLoader());
+
+		activator.classActivated(42, NAME);
+
+		assertEquals(Arrays.asList(Integer.valueOf(2)), calls);
+	}
+
+	@Test
+	public void classActivated_should_retransform_classes_individually_on_failure() {
+		failMultiple = true;
+		activator.register(42, getClass().getClassLoader());
+		activator.register(42, getClass().getClassLoader());
+
+		activator.classActivated(42, NAME);
+
+		assertEquals(Arrays.asList(Integer.valueOf(1), Integer.valueOf(1)),
+				calls);
+		recorder.assertNoException();
+	}
+
+}
@@ -13,12 +13,23 @@
 package org.jacoco.agent.rt.internal;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -33,46 +44,198 @@ public class ClassFileDumperTest {
 	@Rule
 	public TemporaryFolder folder = new TemporaryFolder();
 
+	private ExceptionRecorder recorder;
+
+	private File location;
+
+	private ClassFileDumper dumper;
+
 	private byte[] contents;
 
 	@Before
 	public void setup() throws IOException {
+		recorder = new ExceptionRecorder();
+		location = new File(folder.getRoot(), "classes");
+		dumper = new ClassFileDumper(location.toString(), recorder);
 		contents = "just some bytes".getBytes("UTF-8");
 	}
 
 	@Test
-	public void testDumpClassWithPackage() throws IOException {
-		final File location = new File(folder.getRoot(), "classes");
-		final ClassFileDumper dumper = new ClassFileDumper(location.toString());
+	public void testDumpClassWithPackage() throws Exception {
 		dumper.dump("org/jacoco/examples/Foo$Inner", contents);
-		assertContents(location,
-				"org/jacoco/examples/Foo$Inner.aff06045a340cd62.class");
+		dumper.flush();
+
+		assertArrayEquals(contents, readFile(
+				"org/jacoco/examples/Foo$Inner.aff06045a340cd62.class"));
+		recorder.assertNoException();
 	}
 
 	@Test
-	public void testDumpClassInDefaultPackage() throws IOException {
-		final File location = new File(folder.getRoot(), "classes");
-		final ClassFileDumper dumper = new ClassFileDumper(location.toString());
+	public void testDumpClassInDefaultPackage() throws Exception {
 		dumper.dump("Main", contents);
-		assertContents(location, "Main.aff06045a340cd62.class");
+		dumper.flush();
+
+		assertArrayEquals(contents, readFile("Main.aff06045a340cd62.class"));
+		recorder.assertNoException();
 	}
 
 	@Test
-	public void testNoDumps() throws IOException {
-		final ClassFileDumper dumper = new ClassFileDumper(null);
+	public void testDumpIdenticalClassOnce() throws Exception {
+		dumper.dump("Main", contents);
 		dumper.dump("Main", contents);
+		dumper.dump("Other", "other bytes".getBytes("UTF-8"));
+		dumper.flush();
+
+		assertEquals(2, location.listFiles().length);
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void testDumpWhenQueueIsFull() throws Exception {
+		dumper = new ClassFileDumper(location.toString(), false, 0,
+				recorder);
+		dumper.dump("Main", contents);
+
+		assertArrayEquals(contents, readFile("Main.aff06045a340cd62.class"));
+		dumper.shutdown();
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void testDumpArchiveClassWithPackage() throws Exception {
+		dumper = new ClassFileDumper(location.toString(), true,
+				ClassFileDumper.QUEUE_LIMIT, recorder);
+		dumper.dump("org/jacoco/examples/Foo$Inner", contents);
+		dumper.flush();
+
+		final Map<String, byte[]> entries = readArchive();
+		assertEquals(1, entries.size());
+		assertArrayEquals(contents, entries
+				.get("org/jacoco/examples/Foo$Inner.aff06045a340cd62.class"));
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void testDumpArchiveIdenticalClassOnce() throws Exception {
+		dumper = new ClassFileDumper(location.toString(), true,
+				ClassFileDumper.QUEUE_LIMIT, recorder);
+		dumper.dump("Main", contents);
+		dumper.dump("Main", contents);
+		dumper.dump("Other", "other bytes".getBytes("UTF-8"));
+		dumper.flush();
+
+		assertEquals(2, readArchive().size());
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void testDumpArchiveWhenQueueIsFull() throws Exception {
+		dumper = new ClassFileDumper(location.toString(), true, 1, recorder);
+		dumper.dump("Main", contents);
+		dumper.dump("Other", "other bytes".getBytes("UTF-8"));
+		dumper.dump("Third", "third bytes".getBytes("UTF-8"));
+		dumper.flush();
+
+		assertEquals(3, readArchive().size());
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void testShutdownFinishesArchive() throws Exception {
+		dumper = new ClassFileDumper(location.toString(), true,
+				ClassFileDumper.QUEUE_LIMIT, recorder);
+		dumper.dump("Main", contents);
+		dumper.shutdown();
+
+		final ZipFile zip = new ZipFile(getArchive());
+		try {
+			assertNotNull(zip.getEntry("Main.aff06045a340cd62.class"));
+		} finally {
+			zip.close();
+		}
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void testDumpAfterShutdown() throws Exception {
+		dumper.shutdown();
+		dumper.dump("Main", contents);
+		dumper.flush();
+
+		assertFalse(location.exists());
+	}
+
+	@Test
+	public void testDumpWithInvalidLocation() throws Exception {
+		final List<Exception> logged = new ArrayList<Exception>();
+		dumper = new ClassFileDumper(location.toString(),
+				new IExceptionLogger() {
+					public void logExeption(final Exception ex) {
+						logged.add(ex);
+					}
+				});
+		assertTrue(location.createNewFile());
+		dumper.dump("Main", contents);
+		dumper.flush();
+		dumper.dump("Other", contents);
+		dumper.shutdown();
+
+		assertEquals(1, logged.size());
+		assertTrue(logged.get(0) instanceof IOException);
+	}
+
+	@Test
+	public void testNoDumps() throws Exception {
+		dumper = new ClassFileDumper(null, recorder);
+		dumper.dump("Main", contents);
+		dumper.flush();
+		dumper.shutdown();
+
+		assertFalse(location.exists());
+	}
+
+	private byte[] readFile(final String name) throws IOException {
+		final InputStream in = new FileInputStream(new File(location, name));
+		try {
+			return readFully(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	private File getArchive() {
+		final File[] files = location.listFiles();
+		assertEquals(1, files.length);
+		assertTrue(files[0].getName().endsWith(".zip"));
+		return files[0];
+	}
+
+	/**
+	 * Reads the archive like the report tools do without relying on the
+	 * central directory, which is only written on shutdown.
+	 */
+	private Map<String, byte[]> readArchive() throws IOException {
+		final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		final ZipInputStream in = new ZipInputStream(
+				new FileInputStream(getArchive()));
+		try {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				entries.put(entry.getName(), readFully(in));
+			}
+		} finally {
+			in.close();
+		}
+		return entries;
 	}
 
-	private void assertContents(File location, String filename)
-			throws IOException {
-		InputStream in = new FileInputStream(new File(location, filename));
-		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	private static byte[] readFully(final InputStream in) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 		int b;
 		while ((b = in.read()) != -1) {
 			buffer.write(b);
 		}
-		in.close();
-		assertArrayEquals(contents, buffer.toByteArray());
+		return buffer.toByteArray();
 	}
 
 }
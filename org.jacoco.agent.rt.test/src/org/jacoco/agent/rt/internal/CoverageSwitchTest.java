@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CoverageSwitch}.
+ */
+public class CoverageSwitchTest {
+
+	private static final String NAME = "org/jacoco/agent/rt/internal/CoverageSwitchTest$Target";
+
+	private ExceptionRecorder recorder;
+
+	private RuntimeData data;
+
+	private List<Integer> batches;
+
+	private List<Class<?>> retransformed;
+
+	private boolean failBatches;
+
+	private Runnable onRetransform;
+
+	private CoverageSwitch coverageSwitch;
+
+	@Before
+	public void setup() {
+		recorder = new ExceptionRecorder();
+		data = new RuntimeData();
+		batches = new ArrayList<Integer>();
+		retransformed = new ArrayList<Class<?>>();
+		coverageSwitch = new CoverageSwitch(null, data, false, recorder) {
+			@Override
+			void retransform(final Class<?>[] classes)
+					throws UnmodifiableClassException {
+				if (failBatches && classes.length > 1) {
+					throw new UnmodifiableClassException();
+				}
+				if (onRetransform != null) {
+					onRetransform.run();
+				}
+				batches.add(Integer.valueOf(classes.length));
+				retransformed.addAll(Arrays.asList(classes));
+			}
+		};
+	}
+
+	@Test
+	public void setEnabled_should_retransform_registered_classes() {
+		coverageSwitch.register(NAME, getClass().getClassLoader());
+		assertFalse(coverageSwitch.isEnabled());
+
+		coverageSwitch.setEnabled(true);
+
+		assertTrue(coverageSwitch.isEnabled());
+		assertEquals(Arrays.asList(Target.class), retransformed);
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void setEnabled_should_not_retransform_classes_if_unchanged() {
+		coverageSwitch.register(NAME, getClass().getClassLoader());
+
+		coverageSwitch.setEnabled(false);
+
+		assertEquals(0, retransformed.size());
+	}
+
+	@Test
+	public void setEnabled_should_retransform_classes_in_batches() {
+		for (int i = 0; i <= CoverageSwitch.BATCH_SIZE; i++) {
+			coverageSwitch.register(NAME, getClass().getClassLoader());
+		}
+
+		coverageSwitch.setEnabled(true);
+
+		assertEquals(Arrays.asList(Integer.valueOf(CoverageSwitch.BATCH_SIZE),
+				Integer.valueOf(1)), batches);
+	}
+
+	@Test
+	public void setEnabled_should_retransform_classes_of_failed_batch_individually() {
+		failBatches = true;
+		coverageSwitch.register(NAME, getClass().getClassLoader());
+		coverageSwitch.register(NAME, getClass().getClassLoader());
+
+		coverageSwitch.setEnabled(true);
+
+		assertEquals(Arrays.asList(Integer.valueOf(1), Integer.valueOf(1)),
+				batches);
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void setEnabled_should_allow_registration_during_retransformation()
+			throws Exception {
+		coverageSwitch.register(NAME, getClass().getClassLoader());
+		onRetransform = new Runnable() {
+			public void run() {
+				// Classes are loaded by other threads while switching
+				final Thread loader = new Thread() {
+					@Override
+					public void run() {
+						coverageSwitch.register(NAME,
+								getClass().getClassLoader());
+					}
+				};
+				loader.start();
+				try {
+					loader.join(5000);
+				} catch (final InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				assertFalse(loader.isAlive());
+			}
+		};
+
+		coverageSwitch.setEnabled(true);
+
+		onRetransform = null;
+		retransformed.clear();
+		coverageSwitch.setEnabled(false);
+		assertEquals(Arrays.asList(Target.class, Target.class),
+				retransformed);
+	}
+
+	@Test
+	public void setEnabled_should_skip_interfaces() {
+		coverageSwitch.register(
+				"org/jacoco/agent/rt/internal/CoverageSwitchTest$TargetInterface",
+				getClass().getClassLoader());
+
+		coverageSwitch.setEnabled(true);
+
+		assertEquals(0, retransformed.size());
+	}
+
+	@Test
+	public void setEnabled_should_log_exceptions() {
+		coverageSwitch.register("org/example/DoesNotExist",
+				getClass().getClassLoader());
+
+		coverageSwitch.setEnabled(true);
+
+		recorder.assertException(ClassNotFoundException.class,
+				"org.example.DoesNotExist");
+		assertEquals(0, retransformed.size());
+	}
+
+	@Test
+	public void setEnabled_should_release_probes_when_turned_off() {
+		coverageSwitch.setEnabled(true);
+		coverageSwitch.register(NAME, getClass().getClassLoader());
+		Target.$jacocoData = data.getExecutionData(Long.valueOf(42), NAME, 1)
+				.getProbes();
+		Target.$jacocoSet = new HashSet<?>[1];
+		data.getExecutionData(Long.valueOf(43), "Other", 1);
+
+		coverageSwitch.setEnabled(false);
+
+		assertNull(Target.$jacocoData);
+		assertNull(Target.$jacocoSet);
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		assertNull(store.get(42));
+		assertNotNull(store.get(43));
+		recorder.assertNoException();
+	}
+
+	static class Target {
+
+		static boolean[] $jacocoData;
+
+		static HashSet<?>[] $jacocoSet;
+
+	}
+
+	interface TargetInterface {
+	}
+
+}
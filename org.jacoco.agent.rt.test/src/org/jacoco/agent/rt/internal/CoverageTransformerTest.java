@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.jacoco.agent.rt.internal;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -26,11 +27,18 @@ import java.lang.instrument.IllegalClassFormatException;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.jacoco.core.JaCoCo;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.runtime.AbstractRuntime;
 import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.ProbeSlab;
+import org.jacoco.core.runtime.RuntimeData;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -239,6 +247,135 @@ public class CoverageTransformerTest {
 		}
 	}
 
+	@Test
+	public void testTransformCached() throws Exception {
+		final File cacheDir = new File(System.getProperty("java.io.tmpdir"),
+				"jacoco-cache-" + System.nanoTime());
+		options.setClassCacheDir(cacheDir.toString());
+		try {
+			final byte[] source = getClassData(getClass());
+			createTransformer().transform(classLoader,
+					"org/jacoco/agent/SomeClass", null, protectionDomain,
+					source);
+			final File[] files = cacheDir.listFiles();
+			assertEquals(1, files.length);
+
+			// Cached classes are served without instrumentation:
+			final byte[] marker = "cached".getBytes("UTF-8");
+			FileUtils.writeByteArrayToFile(files[0], marker);
+			assertArrayEquals(marker,
+					createTransformer().transform(classLoader,
+							"org/jacoco/agent/SomeClass", null,
+							protectionDomain, source));
+		} finally {
+			FileUtils.deleteDirectory(cacheDir);
+		}
+	}
+
+	@Test
+	public void testTransformProbeSlab() throws Exception {
+		options.setClassCacheDir(
+				new File(System.getProperty("java.io.tmpdir"), "unused")
+						.toString());
+		final ProbeSlab slab = new ProbeSlab();
+		final CoverageTransformer t = new CoverageTransformer(runtime,
+				options, recorder, null, new ClassFileDumper(null, recorder),
+				null, slab);
+		recorder.assertException(IllegalStateException.class,
+				"Option classcachedir is ignored with probeslab.");
+		recorder.clear();
+		final Instrumenter instrumenter = new Instrumenter(runtime);
+		instrumenter.setProbeSlab(slab);
+		final byte[] source = getClassData(getClass());
+
+		assertArrayEquals(instrumenter.instrument(source, ""),
+				t.transform(classLoader, "org/jacoco/agent/SomeClass", null,
+						protectionDomain, source));
+		assertEquals(1, slab.getChunkCount());
+	}
+
+	@Test
+	public void testTransformLazy() throws Exception {
+		final List<Class<?>> retransformed = new ArrayList<Class<?>>();
+		final ClassActivator activator = new ClassActivator(null, recorder) {
+			@Override
+			void retransform(final Class<?>[] classes) {
+				retransformed.addAll(Arrays.asList(classes));
+			}
+		};
+		final CoverageTransformer t = new CoverageTransformer(runtime,
+				options, recorder, activator,
+				new ClassFileDumper(null, recorder), null, null);
+		final Instrumenter instrumenter = new Instrumenter(runtime);
+		final byte[] source = getClassData(getClass());
+
+		assertArrayEquals(instrumenter.instrumentDeferred(source, ""),
+				t.transform(classLoader, "org/jacoco/agent/SomeClass", null,
+						protectionDomain, source));
+
+		activator.classActivated(CRC64.classId(source),
+				"org/jacoco/agent/rt/internal/CoverageTransformerTest");
+		assertEquals(Arrays.asList(CoverageTransformerTest.class),
+				retransformed);
+		assertArrayEquals(instrumenter.instrumentActivated(source, ""),
+				t.transform(classLoader, "org/jacoco/agent/SomeClass",
+						getClass(), protectionDomain, source));
+	}
+
+	@Test
+	public void testTransformSwitchable() throws Exception {
+		final List<Class<?>> retransformed = new ArrayList<Class<?>>();
+		final CoverageSwitch coverageSwitch = new CoverageSwitch(null,
+				new RuntimeData(), false, recorder) {
+			@Override
+			void retransform(final Class<?>[] classes) {
+				retransformed.addAll(Arrays.asList(classes));
+			}
+		};
+		final CoverageTransformer t = new CoverageTransformer(runtime,
+				options, recorder, null, new ClassFileDumper(null, recorder),
+				coverageSwitch, null);
+		final Instrumenter instrumenter = new Instrumenter(runtime);
+		// Just pick any non-system class outside our namespace
+		final Class<?> target = JaCoCo.class;
+		final byte[] source = getClassData(target);
+
+		assertArrayEquals(instrumenter.instrumentDisabled(source, ""),
+				t.transform(classLoader, "org/jacoco/core/JaCoCo", null,
+						protectionDomain, source));
+
+		coverageSwitch.setEnabled(true);
+		assertEquals(Arrays.asList(target), retransformed);
+		assertArrayEquals(instrumenter.instrumentActivated(source, ""),
+				t.transform(classLoader, "org/jacoco/core/JaCoCo", target,
+						protectionDomain, source));
+
+		coverageSwitch.setEnabled(false);
+		assertArrayEquals(instrumenter.instrumentDisabled(source, ""),
+				t.transform(classLoader, "org/jacoco/core/JaCoCo", target,
+						protectionDomain, source));
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void testTransformSwitchableIgnoresInlineSize() throws Exception {
+		options.setInlineSize(35);
+		final CoverageSwitch coverageSwitch = new CoverageSwitch(null,
+				new RuntimeData(), true, recorder);
+		final CoverageTransformer t = new CoverageTransformer(runtime,
+				options, recorder, null, new ClassFileDumper(null, recorder),
+				coverageSwitch, null);
+		recorder.assertException(IllegalStateException.class,
+				"Option inlinesize is ignored with lazy and retransform.");
+		recorder.clear();
+		final byte[] source = getClassData(JaCoCo.class);
+
+		assertArrayEquals(
+				new Instrumenter(runtime).instrumentActivated(source, ""),
+				t.transform(classLoader, "org/jacoco/core/JaCoCo", null,
+						protectionDomain, source));
+	}
+
 	@Test
 	public void testRedefinedClass() throws Exception {
 		CoverageTransformer t = createTransformer();
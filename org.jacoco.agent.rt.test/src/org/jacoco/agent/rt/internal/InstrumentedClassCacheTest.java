@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link InstrumentedClassCache}.
+ */
+public class InstrumentedClassCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File location;
+
+	private byte[] source;
+
+	private byte[] instrumented;
+
+	@Before
+	public void setup() throws IOException {
+		location = new File(folder.getRoot(), "cache");
+		source = "original bytes".getBytes("UTF-8");
+		instrumented = "instrumented bytes".getBytes("UTF-8");
+	}
+
+	@Test
+	public void get_should_return_stored_class() throws IOException {
+		final InstrumentedClassCache cache = new InstrumentedClassCache(
+				location.toString(), 1024, "f1");
+
+		assertNull(cache.get(source));
+		cache.put(source, instrumented);
+
+		assertArrayEquals(instrumented, cache.get(source));
+		assertArrayEquals(instrumented,
+				new InstrumentedClassCache(location.toString(), 1024, "f1")
+						.get(source));
+	}
+
+	@Test
+	public void get_should_not_return_class_of_other_fingerprint()
+			throws IOException {
+		new InstrumentedClassCache(location.toString(), 1024, "f1").put(source,
+				instrumented);
+
+		assertNull(new InstrumentedClassCache(location.toString(), 1024, "f2")
+				.get(source));
+	}
+
+	@Test
+	public void put_should_evict_oldest_classes() throws IOException {
+		final InstrumentedClassCache cache = new InstrumentedClassCache(
+				location.toString(), 50, "f1");
+		final byte[] other = "other bytes".getBytes("UTF-8");
+		cache.put(source, instrumented);
+		for (final File f : location.listFiles()) {
+			f.setLastModified(f.lastModified() - 10000);
+		}
+
+		cache.put(other, instrumented);
+		cache.put(instrumented, instrumented);
+
+		assertNull(cache.get(source));
+		assertArrayEquals(instrumented, cache.get(other));
+		assertArrayEquals(instrumented, cache.get(instrumented));
+	}
+
+	@Test
+	public void put_should_disable_cache_on_failure() throws IOException {
+		final File file = folder.newFile();
+		final InstrumentedClassCache cache = new InstrumentedClassCache(
+				file.toString(), 1024, "f1");
+
+		try {
+			cache.put(source, instrumented);
+		} catch (final IOException e) {
+			// expected
+		}
+		cache.put(source, instrumented);
+
+		assertNull(cache.get(source));
+	}
+
+	@Test
+	public void get_and_put_should_do_nothing_without_location()
+			throws IOException {
+		final InstrumentedClassCache cache = new InstrumentedClassCache(null,
+				1024, "f1");
+
+		cache.put(source, instrumented);
+
+		assertNull(cache.get(source));
+	}
+
+	@Test
+	public void fingerprint_should_depend_on_all_values() {
+		assertEquals(InstrumentedClassCache.fingerprint("a", "b"),
+				InstrumentedClassCache.fingerprint("a", "b"));
+		assertFalse(InstrumentedClassCache.fingerprint("a", "b")
+				.equals(InstrumentedClassCache.fingerprint("ab")));
+	}
+
+}
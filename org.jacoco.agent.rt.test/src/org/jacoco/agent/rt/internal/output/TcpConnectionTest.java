@@ -26,6 +26,7 @@ import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.ExecutionDataWriter;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.ICoverageSwitch;
 import org.jacoco.core.runtime.RemoteControlReader;
 import org.jacoco.core.runtime.RemoteControlWriter;
 import org.jacoco.core.runtime.RuntimeData;
@@ -256,4 +257,74 @@ public class TcpConnectionTest extends ExecutorTestBase {
 		f.get();
 	}
 
+	@Test
+	public void testRemoteCoverage() throws Exception {
+		final StringBuilder switched = new StringBuilder();
+		data.setCoverageSwitch(new ICoverageSwitch() {
+			public void setEnabled(final boolean enabled) {
+				switched.append(enabled);
+			}
+		});
+
+		final RemoteControlWriter remoteWriter = new RemoteControlWriter(
+				mockConnection.getSocketB().getOutputStream());
+
+		final TcpConnection con = new TcpConnection(mockConnection.getSocketA(),
+				data);
+		con.init();
+
+		final Future<Void> f = executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				con.run();
+				return null;
+			}
+		});
+
+		assertBlocks(f);
+
+		remoteWriter.visitCoverageCommand(false);
+
+		final RemoteControlReader remoteReader = new RemoteControlReader(
+				mockConnection.getSocketB().getInputStream());
+		assertTrue(remoteReader.read());
+		assertTrue(remoteReader.isCoverageSwitched());
+		assertEquals("false", switched.toString());
+
+		con.close();
+		f.get();
+	}
+
+	@Test
+	public void testRemoteCoverageWithoutSwitch() throws Exception {
+		final RemoteControlWriter remoteWriter = new RemoteControlWriter(
+				mockConnection.getSocketB().getOutputStream());
+
+		final TcpConnection con = new TcpConnection(mockConnection.getSocketA(),
+				data);
+		con.init();
+
+		final Future<Void> f = executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				con.run();
+				return null;
+			}
+		});
+
+		assertBlocks(f);
+
+		remoteWriter.visitCoverageCommand(true);
+
+		final RemoteControlReader remoteReader = new RemoteControlReader(
+				mockConnection.getSocketB().getInputStream());
+		assertTrue(remoteReader.read());
+		assertFalse(remoteReader.isCoverageSwitched());
+
+		// The connection is still usable:
+		remoteWriter.visitDumpCommand(false, false);
+		assertTrue(remoteReader.read());
+
+		con.close();
+		f.get();
+	}
+
 }
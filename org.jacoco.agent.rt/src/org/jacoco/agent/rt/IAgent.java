@@ -68,4 +68,17 @@ public interface IAgent {
 	 */
 	void dump(boolean reset) throws IOException;
 
+	/**
+	 * Turns coverage recording on or off by retransformation of the
+	 * instrumented classes. This requires the agent option
+	 * <code>retransform</code>. When coverage is turned off the execution
+	 * data of the affected classes is removed, so it should be dumped before.
+	 *
+	 * @param enabled
+	 *            <code>true</code> if coverage should be recorded
+	 * @throws IllegalStateException
+	 *             if coverage can't be switched at runtime
+	 */
+	void setCoverageEnabled(boolean enabled) throws IllegalStateException;
+
 }
@@ -14,6 +14,7 @@ package org.jacoco.agent.rt.internal;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.InetAddress;
 import java.util.concurrent.Callable;
 
@@ -28,6 +29,7 @@ import org.jacoco.core.data.ExecutionDataWriter;
 import org.jacoco.core.runtime.AbstractRuntime;
 import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.AgentOptions.OutputMode;
+import org.jacoco.core.runtime.ProbeSlab;
 import org.jacoco.core.runtime.RuntimeData;
 
 /**
@@ -85,6 +87,8 @@ public class Agent implements IAgent {
 
 	private final RuntimeData data;
 
+	private final ClassFileDumper classFileDumper;
+
 	private IAgentOutput output;
 
 	private Callable<Void> jmxRegistration;
@@ -101,6 +105,12 @@ public class Agent implements IAgent {
 		this.options = options;
 		this.logger = logger;
 		this.data = new RuntimeData();
+		if (options.getProbeSlab()) {
+			data.setProbeSlab(new ProbeSlab());
+		}
+		this.classFileDumper = new ClassFileDumper(options.getClassDumpDir(),
+				options.getClassDumpArchive(), ClassFileDumper.QUEUE_LIMIT,
+				logger);
 	}
 
 	/**
@@ -112,6 +122,16 @@ public class Agent implements IAgent {
 		return data;
 	}
 
+	/**
+	 * Returns the dumper for class files seen by this agent, which is flushed
+	 * on every dump and finished on shutdown.
+	 *
+	 * @return class file dumper of this agent
+	 */
+	ClassFileDumper getClassFileDumper() {
+		return classFileDumper;
+	}
+
 	/**
 	 * Initializes this agent.
 	 *
@@ -147,10 +167,15 @@ public class Agent implements IAgent {
 	 */
 	public void shutdown() {
 		try {
-			if (options.getDumpOnExit()) {
-				output.writeExecutionData(false);
+			try {
+				if (options.getDumpOnExit()) {
+					output.writeExecutionData(false);
+				}
+				output.shutdown();
+			} finally {
+				// Class files are finished even if the output fails
+				classFileDumper.shutdown();
 			}
-			output.shutdown();
 			if (jmxRegistration != null) {
 				jmxRegistration.call();
 			}
@@ -224,6 +249,19 @@ public class Agent implements IAgent {
 
 	public void dump(final boolean reset) throws IOException {
 		output.writeExecutionData(reset);
+		try {
+			classFileDumper.flush();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	public void setCoverageEnabled(final boolean enabled) {
+		if (!data.setCoverageEnabled(enabled)) {
+			throw new IllegalStateException(
+					"Coverage can't be switched without option retransform.");
+		}
 	}
 
 }
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jacoco.core.runtime.IClassActivationListener;
+
+/**
+ * Keeps track of classes with deferred instrumentation and retransforms them
+ * when they are initialized for the first time. Class loaders are only weakly
+ * referenced, so classes which are never initialized can still be unloaded.
+ * Activated classes are retransformed by the initializing thread before their
+ * static initializer continues, so no method runs without probes. The static
+ * initializer itself is already instrumented in the prepared version.
+ */
+class ClassActivator implements IClassActivationListener {
+
+	private final Instrumentation inst;
+
+	private final IExceptionLogger logger;
+
+	/** Loaders of classes with deferred instrumentation by class id */
+	private final Map<Long, List<WeakReference<ClassLoader>>> deferred = new HashMap<Long, List<WeakReference<ClassLoader>>>();
+
+	private final Set<Long> activated = new HashSet<Long>();
+
+	/**
+	 * Creates a new activator.
+	 *
+	 * @param inst
+	 *            instrumentation used to retransform classes
+	 * @param logger
+	 *            logger for exceptions during retransformation
+	 */
+	ClassActivator(final Instrumentation inst, final IExceptionLogger logger) {
+		this.inst = inst;
+		this.logger = logger;
+	}
+
+	/**
+	 * Registers a class which has been loaded with deferred instrumentation.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param loader
+	 *            defining loader of the class
+	 */
+	synchronized void register(final long id, final ClassLoader loader) {
+		final Long key = Long.valueOf(id);
+		List<WeakReference<ClassLoader>> loaders = deferred.get(key);
+		if (loaders == null) {
+			loaders = new ArrayList<WeakReference<ClassLoader>>(1);
+			deferred.put(key, loaders);
+		}
+		loaders.add(new WeakReference<ClassLoader>(loader));
+	}
+
+	/**
+	 * Checks whether a class with the given id has been initialized, in which
+	 * case it must be fully instrumented.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @return <code>true</code> if the class has been activated
+	 */
+	synchronized boolean isActivated(final long id) {
+		return activated.contains(Long.valueOf(id));
+	}
+
+	public void classActivated(final long id, final String name) {
+		final List<WeakReference<ClassLoader>> loaders;
+		synchronized (this) {
+			final Long key = Long.valueOf(id);
+			activated.add(key);
+			loaders = deferred.remove(key);
+		}
+		if (loaders == null) {
+			return;
+		}
+		// The monitor is not held, as the transformer calls isActivated():
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		for (final WeakReference<ClassLoader> ref : loaders) {
+			final ClassLoader loader = ref.get();
+			if (loader == null) {
+				continue;
+			}
+			try {
+				classes.add(
+						Class.forName(name.replace('/', '.'), false, loader));
+			} catch (final ClassNotFoundException e) {
+				logger.logExeption(e);
+			}
+		}
+		if (!classes.isEmpty()) {
+			retransformAll(classes);
+		}
+	}
+
+	private void retransformAll(final List<Class<?>> classes) {
+		// Exceptions must not break the static initializer of the class:
+		try {
+			retransform(classes.toArray(new Class<?>[classes.size()]));
+		} catch (final Exception e) {
+			if (classes.size() == 1) {
+				logger.logExeption(e);
+				return;
+			}
+			// A single class must not prevent the activation of the others:
+			for (final Class<?> c : classes) {
+				retransformAll(Collections.<Class<?>> singletonList(c));
+			}
+		}
+	}
+
+	/**
+	 * Retransforms the given classes, which results in a call to the
+	 * registered transformers.
+	 *
+	 * @param classes
+	 *            classes to retransform
+	 * @throws UnmodifiableClassException
+	 *             if a class can't be modified
+	 */
+	void retransform(final Class<?>[] classes)
+			throws UnmodifiableClassException {
+		inst.retransformClasses(classes);
+	}
+
+}
@@ -12,66 +12,308 @@
  *******************************************************************************/
 package org.jacoco.agent.rt.internal;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.jacoco.core.internal.data.CRC64;
 
 /**
- * Internal dumper for class files.
+ * Internal dumper for class files. To keep class loading fast the class files
+ * are only queued by {@link #dump(String, byte[])} and written in batches by a
+ * background thread. If the queue is full a class file is written by the
+ * calling thread, so the queue never holds more than a fixed number of class
+ * files. Identical class files are dumped only once.
+ *
+ * By default every class file is written to a separate file in a directory
+ * structure of its package. Alternatively all class files of a JVM are written
+ * to a single ZIP archive in the dump directory. After every batch the archive
+ * is flushed, so the entries written so far can be read with a streaming ZIP
+ * reader even before the archive is finished by {@link #shutdown()}.
  */
 class ClassFileDumper {
 
+	/**
+	 * Default maximum number of class files waiting to be written.
+	 */
+	static final int QUEUE_LIMIT = 1024;
+
 	private final File location;
 
+	private final boolean archive;
+
+	private final int queueLimit;
+
+	private final IExceptionLogger logger;
+
+	/** Class files waiting to be written */
+	private List<Entry> queue = new ArrayList<Entry>();
+
+	/** Ids of all class files dumped so far */
+	private final Set<Long> ids = new HashSet<Long>();
+
+	private Thread worker;
+
+	/** Guards the archive, which is shared by all writing threads */
+	private final Object archiveLock = new Object();
+
+	private ZipOutputStream zip;
+
+	/** Number of batches currently written */
+	private int writing;
+
+	/** <code>true</code> if no more class files are accepted */
+	private boolean closed;
+
+	/** <code>true</code> after the first write error */
+	private boolean failed;
+
+	/**
+	 * Create a new dumper for the given location, which writes separate class
+	 * files.
+	 *
+	 * @param location
+	 *            relative path to dump directory. <code>null</code> if no dumps
+	 *            should be written
+	 * @param logger
+	 *            logger for problems while writing class files
+	 */
+	ClassFileDumper(final String location, final IExceptionLogger logger) {
+		this(location, false, QUEUE_LIMIT, logger);
+	}
+
 	/**
 	 * Create a new dumper for the given location.
 	 *
 	 * @param location
 	 *            relative path to dump directory. <code>null</code> if no dumps
 	 *            should be written
+	 * @param archive
+	 *            <code>true</code> if all class files should be written to a
+	 *            single ZIP archive
+	 * @param queueLimit
+	 *            maximum number of class files waiting to be written
+	 * @param logger
+	 *            logger for problems while writing class files
 	 */
-	ClassFileDumper(final String location) {
+	ClassFileDumper(final String location, final boolean archive,
+			final int queueLimit, final IExceptionLogger logger) {
 		if (location == null) {
 			this.location = null;
 		} else {
 			this.location = new File(location);
 		}
+		this.archive = archive;
+		this.queueLimit = queueLimit;
+		this.logger = logger;
 	}
 
 	/**
-	 * Dumps the given binary content under the given name if a non-
-	 * <code>null</code> location has been specified.
+	 * Queues the given binary content under the given name if a non-
+	 * <code>null</code> location has been specified. If the queue is full the
+	 * content is written before this method returns.
 	 *
 	 * @param name
 	 *            qualified class name in VM notation
 	 * @param contents
 	 *            binary contents
-	 * @throws IOException
-	 *             in case of problems while dumping the file
 	 */
-	void dump(final String name, final byte[] contents) throws IOException {
-		if (location != null) {
-			final File outputdir;
-			final String localname;
-			final int pkgpos = name.lastIndexOf('/');
-			if (pkgpos != -1) {
-				outputdir = new File(location, name.substring(0, pkgpos));
-				localname = name.substring(pkgpos + 1);
+	void dump(final String name, final byte[] contents) {
+		if (location == null) {
+			return;
+		}
+		final long id = CRC64.classId(contents);
+		final Entry entry = new Entry(name, id, contents);
+		synchronized (this) {
+			if (closed || !ids.add(Long.valueOf(id))) {
+				return;
+			}
+			if (queue.size() < queueLimit) {
+				queue.add(entry);
+				if (worker == null) {
+					startWorker();
+				}
+				notifyAll();
+				return;
+			}
+			writing++;
+		}
+		write(Collections.singletonList(entry));
+	}
+
+	/**
+	 * Waits until all queued class files have been written.
+	 *
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting
+	 */
+	synchronized void flush() throws InterruptedException {
+		while (!queue.isEmpty() || writing > 0) {
+			wait();
+		}
+	}
+
+	/**
+	 * Writes all queued class files and finishes the archive. Class files
+	 * dumped afterwards are ignored.
+	 *
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting
+	 */
+	void shutdown() throws InterruptedException {
+		final Thread w;
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+			w = worker;
+		}
+		if (w != null) {
+			w.join();
+		}
+		flush();
+		synchronized (archiveLock) {
+			if (zip != null) {
+				try {
+					zip.close();
+				} catch (final IOException e) {
+					logger.logExeption(e);
+				}
+				zip = null;
+			}
+		}
+	}
+
+	private void startWorker() {
+		worker = new Thread(new Runnable() {
+			public void run() {
+				List<Entry> batch;
+				while ((batch = nextBatch()) != null) {
+					write(batch);
+				}
+			}
+		});
+		worker.setName(getClass().getName());
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	private synchronized List<Entry> nextBatch() {
+		while (queue.isEmpty() && !closed) {
+			try {
+				wait();
+			} catch (final InterruptedException e) {
+				// Pending class files are still written
+				closed = true;
+			}
+		}
+		if (queue.isEmpty()) {
+			return null;
+		}
+		final List<Entry> batch = queue;
+		queue = new ArrayList<Entry>();
+		writing++;
+		return batch;
+	}
+
+	private void write(final List<Entry> batch) {
+		try {
+			if (archive) {
+				writeArchive(batch);
 			} else {
-				outputdir = location;
-				localname = name;
+				for (final Entry e : batch) {
+					writeFile(e);
+				}
 			}
-			outputdir.mkdirs();
-			final Long id = Long.valueOf(CRC64.classId(contents));
-			final File file = new File(outputdir,
-					String.format("%s.%016x.class", localname, id));
-			final OutputStream out = new FileOutputStream(file);
-			out.write(contents);
+		} catch (final IOException e) {
+			if (disable()) {
+				logger.logExeption(e);
+			}
+		}
+		synchronized (this) {
+			writing--;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Stops dumping after a write error.
+	 *
+	 * @return <code>true</code> for the first error
+	 */
+	private synchronized boolean disable() {
+		closed = true;
+		queue.clear();
+		if (failed) {
+			return false;
+		}
+		failed = true;
+		return true;
+	}
+
+	private void writeFile(final Entry e) throws IOException {
+		final File outputdir;
+		final String localname;
+		final int pkgpos = e.name.lastIndexOf('/');
+		if (pkgpos != -1) {
+			outputdir = new File(location, e.name.substring(0, pkgpos));
+			localname = e.name.substring(pkgpos + 1);
+		} else {
+			outputdir = location;
+			localname = e.name;
+		}
+		outputdir.mkdirs();
+		final File file = new File(outputdir, String.format("%s.%016x.class",
+				localname, Long.valueOf(e.id)));
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(e.contents);
+		} finally {
 			out.close();
 		}
 	}
 
+	private void writeArchive(final List<Entry> batch) throws IOException {
+		synchronized (archiveLock) {
+			if (zip == null) {
+				location.mkdirs();
+				final File file = File.createTempFile("classes-", ".zip",
+						location);
+				zip = new ZipOutputStream(
+						new BufferedOutputStream(new FileOutputStream(file)));
+			}
+			for (final Entry e : batch) {
+				zip.putNextEntry(new ZipEntry(String.format("%s.%016x.class",
+						e.name, Long.valueOf(e.id))));
+				zip.write(e.contents);
+				zip.closeEntry();
+			}
+			zip.flush();
+		}
+	}
+
+	private static final class Entry {
+
+		final String name;
+
+		final long id;
+
+		final byte[] contents;
+
+		Entry(final String name, final long id, final byte[] contents) {
+			this.name = name;
+			this.id = id;
+			this.contents = contents;
+		}
+
+	}
+
 }
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.jacoco.core.runtime.ICoverageSwitch;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * Turns coverage recording on and off by retransformation of all classes which
+ * have been loaded in a switchable form. The original class file seen by the
+ * transformer does not change on retransformation, so the class ids stay
+ * stable. When coverage is turned off the probe arrays and caller sets
+ * referenced by the classes are released, the data recorded so far is dumped
+ * until the next reset. Classes which hold their probe array in a dynamic
+ * constant keep it, as constants can't be cleared, and are not released.
+ */
+class CoverageSwitch implements ICoverageSwitch {
+
+	/** Maximum number of classes retransformed at once */
+	static final int BATCH_SIZE = 100;
+
+	private final Instrumentation inst;
+
+	private final RuntimeData data;
+
+	private final IExceptionLogger logger;
+
+	/** Loaders of switchable classes by VM class name */
+	private final Map<String, List<WeakReference<ClassLoader>>> registered = new HashMap<String, List<WeakReference<ClassLoader>>>();
+
+	/** Serializes switches, so that retransformations don't interleave */
+	private final Object switching = new Object();
+
+	private volatile boolean enabled;
+
+	/**
+	 * Creates a new switch.
+	 *
+	 * @param inst
+	 *            instrumentation used to retransform classes
+	 * @param data
+	 *            runtime data which holds the execution data of the classes
+	 * @param enabled
+	 *            initial state of coverage recording
+	 * @param logger
+	 *            logger for exceptions during retransformation
+	 */
+	CoverageSwitch(final Instrumentation inst, final RuntimeData data,
+			final boolean enabled, final IExceptionLogger logger) {
+		this.inst = inst;
+		this.data = data;
+		this.enabled = enabled;
+		this.logger = logger;
+	}
+
+	/**
+	 * Registers a class which has been loaded in a switchable form. Must be
+	 * called before {@link #isEnabled()} is checked for the class, so that
+	 * the class is not missed by a concurrent switch.
+	 *
+	 * @param name
+	 *            VM name of the class
+	 * @param loader
+	 *            defining loader of the class
+	 */
+	synchronized void register(final String name, final ClassLoader loader) {
+		List<WeakReference<ClassLoader>> loaders = registered.get(name);
+		if (loaders == null) {
+			loaders = new ArrayList<WeakReference<ClassLoader>>(1);
+			registered.put(name, loaders);
+		}
+		loaders.add(new WeakReference<ClassLoader>(loader));
+	}
+
+	/**
+	 * Checks whether classes should currently be instrumented.
+	 *
+	 * @return <code>true</code> if coverage is recorded
+	 */
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(final boolean enabled) {
+		// Classes are resolved and retransformed outside of the monitor, as
+		// register() is called by the transformer while class loaders hold
+		// their locks.
+		synchronized (switching) {
+			final Map<String, List<ClassLoader>> loaders;
+			synchronized (this) {
+				if (this.enabled == enabled) {
+					return;
+				}
+				this.enabled = enabled;
+				loaders = getRegisteredLoaders();
+			}
+			final List<Class<?>> loaded = resolve(loaders);
+			for (int i = 0; i < loaded.size(); i += BATCH_SIZE) {
+				retransformBatch(loaded.subList(i,
+						Math.min(i + BATCH_SIZE, loaded.size())));
+			}
+			if (!enabled) {
+				release(loaded);
+			}
+		}
+	}
+
+	private Map<String, List<ClassLoader>> getRegisteredLoaders() {
+		final Map<String, List<ClassLoader>> result = new HashMap<String, List<ClassLoader>>();
+		final Iterator<Map.Entry<String, List<WeakReference<ClassLoader>>>> entries = registered
+				.entrySet().iterator();
+		while (entries.hasNext()) {
+			final Map.Entry<String, List<WeakReference<ClassLoader>>> entry = entries
+					.next();
+			final List<ClassLoader> alive = new ArrayList<ClassLoader>(1);
+			final Iterator<WeakReference<ClassLoader>> loaders = entry
+					.getValue().iterator();
+			while (loaders.hasNext()) {
+				final ClassLoader loader = loaders.next().get();
+				if (loader == null) {
+					loaders.remove();
+				} else {
+					alive.add(loader);
+				}
+			}
+			if (alive.isEmpty()) {
+				entries.remove();
+			} else {
+				result.put(entry.getKey(), alive);
+			}
+		}
+		return result;
+	}
+
+	private List<Class<?>> resolve(
+			final Map<String, List<ClassLoader>> loaders) {
+		final List<Class<?>> loaded = new ArrayList<Class<?>>();
+		for (final Map.Entry<String, List<ClassLoader>> entry : loaders
+				.entrySet()) {
+			final String name = entry.getKey().replace('/', '.');
+			for (final ClassLoader loader : entry.getValue()) {
+				try {
+					final Class<?> c = Class.forName(name, false, loader);
+					// Interfaces are always instrumented
+					if (!c.isInterface()) {
+						loaded.add(c);
+					}
+				} catch (final ClassNotFoundException e) {
+					logger.logExeption(e);
+				}
+			}
+		}
+		return loaded;
+	}
+
+	private void retransformBatch(final List<Class<?>> batch) {
+		try {
+			retransform(batch.toArray(new Class<?>[batch.size()]));
+		} catch (final Exception e) {
+			if (batch.size() == 1) {
+				logger.logExeption(e);
+				return;
+			}
+			// A single class must not prevent switching the other classes:
+			for (final Class<?> c : batch) {
+				retransformBatch(Collections.<Class<?>> singletonList(c));
+			}
+		}
+	}
+
+	private void release(final List<Class<?>> loaded) {
+		final Set<String> names = new HashSet<String>();
+		for (final Class<?> c : loaded) {
+			try {
+				if (clearField(c, InstrSupport.DATAFIELD_NAME)) {
+					clearField(c, InstrSupport.SET_DATA_FIELD_NAME);
+					names.add(c.getName().replace('.', '/'));
+				}
+			} catch (final Exception e) {
+				logger.logExeption(e);
+			}
+		}
+		data.release(names);
+	}
+
+	private static boolean clearField(final Class<?> c, final String name)
+			throws IllegalAccessException {
+		final Field field;
+		try {
+			field = c.getDeclaredField(name);
+		} catch (final NoSuchFieldException e) {
+			// Probe arrays in dynamic constants can't be released
+			return false;
+		}
+		field.setAccessible(true);
+		field.set(null, null);
+		return true;
+	}
+
+	/**
+	 * Retransforms the given classes, which results in a call to the
+	 * registered transformers.
+	 *
+	 * @param classes
+	 *            classes to retransform
+	 * @throws UnmodifiableClassException
+	 *             if a class can't be modified
+	 */
+	void retransform(final Class<?>[] classes)
+			throws UnmodifiableClassException {
+		inst.retransformClasses(classes);
+	}
+
+}
@@ -12,15 +12,24 @@
  *******************************************************************************/
 package org.jacoco.agent.rt.internal;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
+import java.net.URL;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
 
+import org.jacoco.core.JaCoCo;
 import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.InputStreams;
+import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.CompiledWildcardMatcher;
 import org.jacoco.core.runtime.IRuntime;
-import org.jacoco.core.runtime.WildcardMatcher;
+import org.jacoco.core.runtime.ProbeSlab;
 
 /**
  * Class file transformer to instrument classes for code coverage analysis.
@@ -38,14 +47,23 @@ public class CoverageTransformer implements ClassFileTransformer {
 
 	private final IExceptionLogger logger;
 
-	private final WildcardMatcher includes;
+	private final CompiledWildcardMatcher includes;
 
-	private final WildcardMatcher excludes;
+	private final CompiledWildcardMatcher excludes;
 
-	private final WildcardMatcher exclClassloader;
+	private final CompiledWildcardMatcher exclClassloader;
 
 	private final ClassFileDumper classFileDumper;
 
+	private final InstrumentedClassCache classCache;
+
+	private final ClassActivator activator;
+
+	private final CoverageSwitch coverageSwitch;
+
+	/** Whether instrumented classes must be compatible for retransformation */
+	private final boolean retransformable;
+
 	private final boolean inclBootstrapClasses;
 
 	private final boolean inclNoLocationClasses;
@@ -62,13 +80,76 @@ public class CoverageTransformer implements ClassFileTransformer {
 	 */
 	public CoverageTransformer(final IRuntime runtime,
 			final AgentOptions options, final IExceptionLogger logger) {
+		this(runtime, options, logger, null,
+				new ClassFileDumper(options.getClassDumpDir(),
+						options.getClassDumpArchive(),
+						ClassFileDumper.QUEUE_LIMIT, logger),
+				null, null);
+	}
+
+	/**
+	 * New transformer with the given delegates which defers instrumentation
+	 * if an activator is given or loads classes in a switchable form if a
+	 * coverage switch is given. In both cases the transformer must be
+	 * registered for retransformation.
+	 *
+	 * @param runtime
+	 *            coverage runtime
+	 * @param options
+	 *            configuration options for the generator
+	 * @param logger
+	 *            logger for exceptions during instrumentation
+	 * @param activator
+	 *            activator for classes with deferred instrumentation or
+	 *            <code>null</code> to instrument classes immediately
+	 * @param classFileDumper
+	 *            dumper for the original class files
+	 * @param coverageSwitch
+	 *            switch which decides whether classes are instrumented or
+	 *            <code>null</code> to always instrument classes
+	 * @param probeSlab
+	 *            slab of the runtime for the probes of regular classes or
+	 *            <code>null</code> for a probe array per class
+	 */
+	CoverageTransformer(final IRuntime runtime, final AgentOptions options,
+			final IExceptionLogger logger, final ClassActivator activator,
+			final ClassFileDumper classFileDumper,
+			final CoverageSwitch coverageSwitch, final ProbeSlab probeSlab) {
 		this.instrumenter = new Instrumenter(runtime);
 		this.logger = logger;
 		// Class names will be reported in VM notation:
-		includes = new WildcardMatcher(toVMName(options.getIncludes()));
-		excludes = new WildcardMatcher(toVMName(options.getExcludes()));
-		exclClassloader = new WildcardMatcher(options.getExclClassloader());
-		classFileDumper = new ClassFileDumper(options.getClassDumpDir());
+		includes = new CompiledWildcardMatcher(
+				toVMName(options.getIncludes()));
+		excludes = new CompiledWildcardMatcher(
+				toVMName(options.getExcludes()));
+		exclClassloader = new CompiledWildcardMatcher(
+				options.getExclClassloader());
+		this.classFileDumper = classFileDumper;
+		this.activator = activator;
+		this.coverageSwitch = coverageSwitch;
+		retransformable = activator != null || coverageSwitch != null;
+		// Compact probes add a method, which retransformation can't do:
+		final int inlineSize = retransformable ? 0 : options.getInlineSize();
+		if (inlineSize != options.getInlineSize()) {
+			logger.logExeption(new IllegalStateException(
+					"Option inlinesize is ignored with lazy and retransform."));
+		}
+		instrumenter.setInlineSize(inlineSize);
+		instrumenter.setProbeSlab(probeSlab);
+		// Probe offsets in the slab differ from run to run:
+		String cacheDir = options.getClassCacheDir();
+		if (probeSlab != null && cacheDir != null) {
+			logger.logExeption(new IllegalStateException(
+					"Option classcachedir is ignored with probeslab."));
+			cacheDir = null;
+		}
+		classCache = new InstrumentedClassCache(cacheDir,
+				options.getClassCacheSize() * 1024L * 1024L,
+				cacheDir == null ? null
+						: InstrumentedClassCache.fingerprint(JaCoCo.VERSION,
+								getAgentId(), runtime.getClass().getName(),
+								String.valueOf(retransformable),
+								String.valueOf(inlineSize)));
 		inclBootstrapClasses = options.getInclBootstrapClasses();
 		inclNoLocationClasses = options.getInclNoLocationClasses();
 	}
@@ -78,8 +159,9 @@ public class CoverageTransformer implements ClassFileTransformer {
 			final ProtectionDomain protectionDomain,
 			final byte[] classfileBuffer) throws IllegalClassFormatException {
 
-		// We do not support class retransformation:
-		if (classBeingRedefined != null) {
+		// Classes are only retransformed for deferred instrumentation or to
+		// switch coverage:
+		if (classBeingRedefined != null && !retransformable) {
 			return null;
 		}
 
@@ -92,7 +174,9 @@ public class CoverageTransformer implements ClassFileTransformer {
 		// }
 
 		try {
-			classFileDumper.dump(classname, classfileBuffer);
+			if (classBeingRedefined == null) {
+				classFileDumper.dump(classname, classfileBuffer);
+			}
 			// if (classname.contains(
 			// "com/icar/finance/maintenance/base/MaintenanceResult")) {
 			// System.out.println("start gen MaintenanceResult.class file");
@@ -105,7 +189,30 @@ public class CoverageTransformer implements ClassFileTransformer {
 			// FileUtils.writeByteArrayToFile(new File(filePath), bytes);
 			// return bytes;
 			// }
-			return instrumenter.instrument(classfileBuffer, classname);
+			if (coverageSwitch != null && loader != null) {
+				if (classBeingRedefined == null) {
+					coverageSwitch.register(classname, loader);
+				}
+				if (!coverageSwitch.isEnabled()) {
+					return instrumenter.instrumentDisabled(classfileBuffer,
+							classname);
+				}
+				return instrument(classfileBuffer, classname);
+			}
+			if (activator == null) {
+				return instrument(classfileBuffer, classname);
+			}
+			// Bootstrap classes can't be looked up for activation
+			final long classId = CRC64.classId(classfileBuffer);
+			if (loader == null || activator.isActivated(classId)) {
+				return instrument(classfileBuffer, classname);
+			}
+			final byte[] prepared = instrumenter
+					.instrumentDeferred(classfileBuffer, classname);
+			if (classBeingRedefined == null) {
+				activator.register(classId, loader);
+			}
+			return prepared;
 		} catch (final Exception ex) {
 			final IllegalClassFormatException wrapper = new IllegalClassFormatException(
 					ex.getMessage());
@@ -116,6 +223,27 @@ public class CoverageTransformer implements ClassFileTransformer {
 		}
 	}
 
+	private byte[] instrument(final byte[] source, final String classname)
+			throws IOException {
+		final byte[] cached = classCache.get(source);
+		if (cached != null) {
+			return cached;
+		}
+		// With deferred or switchable instrumentation all classes must be
+		// compatible with the prepared version, as the same class might be
+		// loaded by a different loader later.
+		final byte[] instrumented = retransformable
+				? instrumenter.instrumentActivated(source, classname)
+				: instrumenter.instrument(source, classname);
+		try {
+			classCache.put(source, instrumented);
+		} catch (final IOException e) {
+			// The cache is disabled, instrumentation still works
+			logger.logExeption(e);
+		}
+		return instrumented;
+	}
+
 	/**
 	 * Checks whether this class should be instrumented.
 	 *
@@ -169,6 +297,36 @@ public class CoverageTransformer implements ClassFileTransformer {
 		return codeSource.getLocation() != null;
 	}
 
+	/**
+	 * Identifies the agent build by the checksum of its JAR file, as the
+	 * version is not changed for every build.
+	 *
+	 * @return checksum of the agent JAR or an empty string if not available
+	 */
+	private static String getAgentId() {
+		try {
+			final CodeSource source = CoverageTransformer.class
+					.getProtectionDomain().getCodeSource();
+			final URL location = source == null ? null : source.getLocation();
+			if (location == null || !"file".equals(location.getProtocol())) {
+				return "";
+			}
+			final File file = new File(location.toURI());
+			if (!file.isFile()) {
+				return "";
+			}
+			final InputStream in = new FileInputStream(file);
+			try {
+				return Long.toHexString(
+						CRC64.classId(InputStreams.readFully(in)));
+			} finally {
+				in.close();
+			}
+		} catch (final Exception e) {
+			return "";
+		}
+	}
+
 	private static String toVMName(final String srcName) {
 		return srcName.replace('.', '/');
 	}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.jacoco.core.internal.InputStreams;
+import org.jacoco.core.internal.data.CRC64;
+
+/**
+ * Internal cache for instrumented class files which is kept on disk across JVM
+ * runs. Entries are identified by the id and length of the original class file
+ * and a fingerprint of the agent and its configuration, so the cache directory
+ * can be shared by different agents. Files are written to a temporary file
+ * first and then renamed, so several JVMs can use the same directory
+ * concurrently. If the total size of the directory exceeds the limit the
+ * oldest entries are deleted.
+ */
+class InstrumentedClassCache {
+
+	private static final String SUFFIX = ".class";
+
+	/** Age after which temporary files are considered abandoned */
+	private static final long TMP_TIMEOUT = 60000;
+
+	/** Cache directory, <code>null</code> if disabled */
+	private volatile File location;
+
+	private final long maxSize;
+
+	private final String fingerprint;
+
+	/** Size of the directory, -1 if not calculated yet */
+	private long size = -1;
+
+	/**
+	 * Create a new cache for the given location.
+	 *
+	 * @param location
+	 *            relative path to the cache directory. <code>null</code> if
+	 *            no classes should be cached
+	 * @param maxSize
+	 *            maximum size of the cache directory in bytes
+	 * @param fingerprint
+	 *            fingerprint of everything the instrumented classes depend on
+	 *            besides the original class file
+	 */
+	InstrumentedClassCache(final String location, final long maxSize,
+			final String fingerprint) {
+		this.location = location == null ? null : new File(location);
+		this.maxSize = maxSize;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Calculates a fingerprint from the given values.
+	 *
+	 * @param values
+	 *            values the instrumented classes depend on
+	 * @return fingerprint
+	 */
+	static String fingerprint(final String... values) {
+		final StringBuilder buffer = new StringBuilder();
+		for (final String v : values) {
+			buffer.append(v).append('\n');
+		}
+		try {
+			return String.format("%016x", Long.valueOf(
+					CRC64.classId(buffer.toString().getBytes("UTF-8"))));
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the instrumented version of the given class file if it has been
+	 * cached before.
+	 *
+	 * @param source
+	 *            original class file
+	 * @return instrumented class file or <code>null</code>
+	 */
+	byte[] get(final byte[] source) {
+		final File dir = location;
+		if (dir == null) {
+			return null;
+		}
+		final File file = getFile(dir, source);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			final InputStream in = new FileInputStream(file);
+			try {
+				return InputStreams.readFully(in);
+			} finally {
+				in.close();
+			}
+		} catch (final IOException e) {
+			// Might have been deleted by another JVM in the meantime
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the instrumented version of the given class file. If writing
+	 * fails the cache is disabled.
+	 *
+	 * @param source
+	 *            original class file
+	 * @param instrumented
+	 *            instrumented class file
+	 * @throws IOException
+	 *             in case of problems while writing the file
+	 */
+	synchronized void put(final byte[] source, final byte[] instrumented)
+			throws IOException {
+		final File dir = location;
+		if (dir == null) {
+			return;
+		}
+		try {
+			write(dir, source, instrumented);
+		} catch (final IOException e) {
+			location = null;
+			throw e;
+		}
+	}
+
+	private void write(final File dir, final byte[] source,
+			final byte[] instrumented) throws IOException {
+		final File file = getFile(dir, source);
+		if (file.isFile()) {
+			return;
+		}
+		dir.mkdirs();
+		final File tmp = File.createTempFile("class", ".tmp", dir);
+		final OutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write(instrumented);
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			// Written by another JVM in the meantime
+			tmp.delete();
+			return;
+		}
+		if (size == -1) {
+			size = getSize(dir);
+		} else {
+			size += instrumented.length;
+		}
+		if (size > maxSize) {
+			evict(dir);
+		}
+	}
+
+	/**
+	 * Deletes the oldest entries until a quarter of the limit is free again.
+	 */
+	private void evict(final File dir) {
+		final File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		final long[] modified = new long[files.length];
+		final Integer[] order = new Integer[files.length];
+		for (int i = 0; i < files.length; i++) {
+			modified[i] = files[i].lastModified();
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(final Integer a, final Integer b) {
+				final long ma = modified[a.intValue()];
+				final long mb = modified[b.intValue()];
+				return ma < mb ? -1 : (ma == mb ? 0 : 1);
+			}
+		});
+		long total = 0;
+		for (final File f : files) {
+			total += f.length();
+		}
+		final long target = maxSize - maxSize / 4;
+		final long now = System.currentTimeMillis();
+		for (final Integer i : order) {
+			if (total <= target) {
+				break;
+			}
+			final File f = files[i.intValue()];
+			final long length = f.length();
+			// Temporary files might still be written by another JVM
+			final boolean deletable = f.getName().endsWith(SUFFIX)
+					|| modified[i.intValue()] < now - TMP_TIMEOUT;
+			if (deletable && f.delete()) {
+				total -= length;
+			}
+		}
+		size = total;
+	}
+
+	private static long getSize(final File dir) {
+		long total = 0;
+		final File[] files = dir.listFiles();
+		if (files != null) {
+			for (final File f : files) {
+				total += f.length();
+			}
+		}
+		return total;
+	}
+
+	private File getFile(final File dir, final byte[] source) {
+		return new File(dir,
+				String.format("%016x-%x-%s%s",
+						Long.valueOf(CRC64.classId(source)),
+						Integer.valueOf(source.length), fingerprint, SUFFIX));
+	}
+
+}
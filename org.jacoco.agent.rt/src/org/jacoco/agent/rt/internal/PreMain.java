@@ -21,6 +21,7 @@ import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.IRuntime;
 import org.jacoco.core.runtime.InjectedClassRuntime;
 import org.jacoco.core.runtime.ModifiedSystemClassRuntime;
+import org.jacoco.core.runtime.ProbeSlab;
 import org.jacoco.core.runtime.ChainNodeHandle;
 
 /**
@@ -56,8 +57,36 @@ public final class PreMain {
 
 		final IRuntime runtime = createRuntime(inst);
 		runtime.startup(agent.getData());
-		inst.addTransformer(new CoverageTransformer(runtime, agentOptions,
-				IExceptionLogger.SYSTEM_ERR));
+		final ProbeSlab probeSlab = agent.getData().getProbeSlab();
+		if (agentOptions.getRetransform() && agentOptions.getLazy()) {
+			IExceptionLogger.SYSTEM_ERR.logExeption(new IllegalStateException(
+					"Option lazy is ignored with retransform."));
+		}
+		// Switchable and deferred instrumentation require retransformation,
+		// otherwise all classes are instrumented when they are loaded:
+		if (agentOptions.getRetransform()
+				&& inst.isRetransformClassesSupported()) {
+			final CoverageSwitch coverageSwitch = new CoverageSwitch(inst,
+					agent.getData(), agentOptions.getEnabled(),
+					IExceptionLogger.SYSTEM_ERR);
+			agent.getData().setCoverageSwitch(coverageSwitch);
+			inst.addTransformer(new CoverageTransformer(runtime, agentOptions,
+					IExceptionLogger.SYSTEM_ERR, null,
+					agent.getClassFileDumper(), coverageSwitch, probeSlab),
+					true);
+		} else if (agentOptions.getLazy()
+				&& inst.isRetransformClassesSupported()) {
+			final ClassActivator activator = new ClassActivator(inst,
+					IExceptionLogger.SYSTEM_ERR);
+			agent.getData().setActivationListener(activator);
+			inst.addTransformer(new CoverageTransformer(runtime, agentOptions,
+					IExceptionLogger.SYSTEM_ERR, activator,
+					agent.getClassFileDumper(), null, probeSlab), true);
+		} else {
+			inst.addTransformer(new CoverageTransformer(runtime, agentOptions,
+					IExceptionLogger.SYSTEM_ERR, null,
+					agent.getClassFileDumper(), null, probeSlab));
+		}
 	}
 
 	private static IRuntime createRuntime(final Instrumentation inst)
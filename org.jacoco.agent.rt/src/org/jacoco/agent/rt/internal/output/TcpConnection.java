@@ -17,6 +17,7 @@ import java.net.Socket;
 import java.net.SocketException;
 
 import org.jacoco.core.runtime.IRemoteCommandVisitor;
+import org.jacoco.core.runtime.IRemoteCoverageCommandVisitor;
 import org.jacoco.core.runtime.RemoteControlReader;
 import org.jacoco.core.runtime.RemoteControlWriter;
 import org.jacoco.core.runtime.RuntimeData;
@@ -24,7 +25,8 @@ import org.jacoco.core.runtime.RuntimeData;
 /**
  * Handler for a single socket based remote connection.
  */
-class TcpConnection implements IRemoteCommandVisitor {
+class TcpConnection
+		implements IRemoteCommandVisitor, IRemoteCoverageCommandVisitor {
 
 	private final RuntimeData data;
 
@@ -95,7 +97,7 @@ class TcpConnection implements IRemoteCommandVisitor {
 		}
 	}
 
-	// === IRemoteCommandVisitor ===
+	// === IRemoteCommandVisitor and IRemoteCoverageCommandVisitor ===
 
 	public void visitDumpCommand(final boolean dump, final boolean reset)
 			throws IOException {
@@ -109,4 +111,11 @@ class TcpConnection implements IRemoteCommandVisitor {
 		writer.sendCmdOk();
 	}
 
+	public void visitCoverageCommand(final boolean enabled)
+			throws IOException {
+		// Agents without option retransform answer with false
+		writer.sendCoverageState(data.setCoverageEnabled(enabled));
+		writer.sendCmdOk();
+	}
+
 }
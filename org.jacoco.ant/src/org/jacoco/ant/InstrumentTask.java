@@ -18,7 +18,14 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
@@ -40,6 +47,8 @@ public class InstrumentTask extends Task {
 
 	private boolean removesignatures = true;
 
+	private int threads = 1;
+
 	/**
 	 * Sets the location of the instrumented classes.
 	 *
@@ -60,6 +69,17 @@ public class InstrumentTask extends Task {
 		this.removesignatures = removesignatures;
 	}
 
+	/**
+	 * Sets the number of threads used for instrumentation. With more than one
+	 * thread class files and archive entries are instrumented in parallel.
+	 *
+	 * @param threads
+	 *            number of threads
+	 */
+	public void setThreads(final int threads) {
+		this.threads = threads;
+	}
+
 	/**
 	 * This task accepts any number of class file resources.
 	 *
@@ -80,20 +100,57 @@ public class InstrumentTask extends Task {
 		final Instrumenter instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
 		instrumenter.setRemoveSignatures(removesignatures);
-		final Iterator<?> resourceIterator = files.iterator();
-		while (resourceIterator.hasNext()) {
-			final Resource resource = (Resource) resourceIterator.next();
-			if (resource.isDirectory()) {
-				continue;
+		final ForkJoinPool executor = threads > 1 ? new ForkJoinPool(threads)
+				: null;
+		final List<Future<Integer>> pending = new ArrayList<Future<Integer>>();
+		try {
+			final Iterator<?> resourceIterator = files.iterator();
+			while (resourceIterator.hasNext()) {
+				final Resource resource = (Resource) resourceIterator.next();
+				if (resource.isDirectory()) {
+					continue;
+				}
+				if (executor != null && resource.getName().endsWith(".class")) {
+					pending.add(executor.submit(new Callable<Integer>() {
+						public Integer call() {
+							return Integer.valueOf(
+									instrument(instrumenter, resource, null));
+						}
+					}));
+				} else {
+					total += instrument(instrumenter, resource, executor);
+				}
+			}
+			for (final Future<Integer> f : pending) {
+				total += complete(f);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
-			total += instrument(instrumenter, resource);
 		}
 		log(format("Instrumented %s classes to %s", Integer.valueOf(total),
 				destdir.getAbsolutePath()));
 	}
 
+	private int complete(final Future<Integer> f) {
+		try {
+			return f.get().intValue();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BuildException("Interrupted while instrumenting", e,
+					getLocation());
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw (RuntimeException) cause;
+		}
+	}
+
 	private int instrument(final Instrumenter instrumenter,
-			final Resource resource) {
+			final Resource resource, final Executor executor) {
 		final File file = new File(destdir, resource.getName());
 		file.getParentFile().mkdirs();
 		try {
@@ -103,7 +160,7 @@ public class InstrumentTask extends Task {
 				input = resource.getInputStream();
 				output = new FileOutputStream(file);
 				return instrumenter.instrumentAll(input, output,
-						resource.getName());
+						resource.getName(), executor);
 			} finally {
 				FileUtils.close(input);
 				FileUtils.close(output);
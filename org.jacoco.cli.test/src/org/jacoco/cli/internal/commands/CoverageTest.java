@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.cli.internal.commands;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.jacoco.cli.internal.CommandTestBase;
+import org.jacoco.core.runtime.IRemoteCommandVisitor;
+import org.jacoco.core.runtime.IRemoteCoverageCommandVisitor;
+import org.jacoco.core.runtime.RemoteControlReader;
+import org.jacoco.core.runtime.RemoteControlWriter;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Coverage}.
+ */
+public class CoverageTest extends CommandTestBase {
+
+	private ServerSocket serverSocket;
+
+	private volatile String requested;
+
+	@After
+	public void after() throws IOException {
+		if (serverSocket != null) {
+			serverSocket.close();
+		}
+	}
+
+	@Test
+	public void should_turn_coverage_on() throws Exception {
+		int port = startMockServer(true);
+
+		execute("coverage", "--port", String.valueOf(port));
+
+		assertOk();
+		assertContains("[INFO] Connecting to ", out);
+		assertContains("[INFO] Coverage recording turned on.", out);
+		assertEquals("true", requested);
+	}
+
+	@Test
+	public void should_turn_coverage_off() throws Exception {
+		int port = startMockServer(true);
+
+		execute("coverage", "--port", String.valueOf(port), "--off");
+
+		assertOk();
+		assertContains("[INFO] Coverage recording turned off.", out);
+		assertEquals("false", requested);
+	}
+
+	@Test
+	public void should_fail_when_agent_can_not_switch_coverage()
+			throws Exception {
+		int port = startMockServer(false);
+
+		execute("coverage", "--port", String.valueOf(port));
+
+		assertFailure();
+		assertContains("[ERROR] Coverage can't be switched", err);
+	}
+
+	private int startMockServer(final boolean switchable)
+			throws IOException {
+		serverSocket = new ServerSocket(0, 0, InetAddress.getByName(null));
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					serveRequest(serverSocket.accept(), switchable);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}.start();
+		return serverSocket.getLocalPort();
+	}
+
+	private void serveRequest(Socket socket, final boolean switchable)
+			throws IOException {
+		final RemoteControlWriter writer = new RemoteControlWriter(
+				socket.getOutputStream());
+		final RemoteControlReader reader = new RemoteControlReader(
+				socket.getInputStream());
+		reader.setRemoteCommandVisitor(new Visitor() {
+
+			public void visitDumpCommand(boolean dump, boolean reset)
+					throws IOException {
+				writer.sendCmdOk();
+			}
+
+			public void visitCoverageCommand(boolean enabled)
+					throws IOException {
+				requested = String.valueOf(enabled);
+				writer.sendCoverageState(switchable);
+				writer.sendCmdOk();
+			}
+		});
+		while (reader.read()) {
+		}
+	}
+
+	private interface Visitor
+			extends IRemoteCommandVisitor, IRemoteCoverageCommandVisitor {
+	}
+
+}
@@ -95,6 +95,21 @@ public class InstrumentTest extends CommandTestBase {
 		assertInstrumented(new File(destdir, "InstrumentTest.class"));
 	}
 
+	@Test
+	public void should_instrument_class_files_in_parallel_when_threads_option_is_provided()
+			throws Exception {
+		File destdir = tmp.getRoot();
+
+		execute("instrument", "--dest", destdir.getAbsolutePath(),
+				"--threads", "4", getClassPath());
+
+		assertOk();
+		assertContains("[INFO] 14 classes instrumented to "
+				+ destdir.getAbsolutePath(), out);
+		assertInstrumented(new File(destdir,
+				"org/jacoco/cli/internal/commands/InstrumentTest.class"));
+	}
+
 	@Test
 	public void should_not_instrument_anything_when_no_source_is_given()
 			throws Exception {
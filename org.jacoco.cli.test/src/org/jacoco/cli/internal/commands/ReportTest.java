@@ -90,6 +90,25 @@ public class ReportTest extends CommandTestBase {
 				out);
 	}
 
+	@Test
+	public void should_analyze_classes_in_parallel_when_threads_option_is_provided()
+			throws Exception {
+		execute("report", "--classfiles", getClassPath(), "--threads", "4");
+
+		assertOk();
+		assertContains("[INFO] Analyzing 14 classes.", out);
+	}
+
+	@Test
+	public void should_analyze_repeated_class_files_once_when_cache_option_is_provided()
+			throws Exception {
+		execute("report", "--classfiles", getClassPath(), "--classfiles",
+				getClassPath(), "--cache");
+
+		assertOk();
+		assertContains("[INFO] Analyzing 14 classes.", out);
+	}
+
 	@Test
 	public void should_create_xml_report_when_xml_option_is_provided()
 			throws Exception {
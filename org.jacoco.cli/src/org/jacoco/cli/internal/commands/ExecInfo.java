@@ -72,8 +72,8 @@ public class ExecInfo extends Command {
 			public void visitClassExecution(final ExecutionData data) {
 				out.printf("%016x  %3d of %3d   %s%n",
 						Long.valueOf(data.getId()),
-						Integer.valueOf(getHitCount(data.getProbes())),
-						Integer.valueOf(data.getProbes().length),
+						Integer.valueOf(getHitCount(data.getProbeBits())),
+						Integer.valueOf(data.getProbeCount()),
 						data.getName());
 			}
 		});
@@ -82,12 +82,10 @@ public class ExecInfo extends Command {
 		out.println();
 	}
 
-	private int getHitCount(final boolean[] data) {
+	private int getHitCount(final long[] bits) {
 		int count = 0;
-		for (final boolean hit : data) {
-			if (hit) {
-				count++;
-			}
+		for (final long word : bits) {
+			count += Long.bitCount(word);
 		}
 		return count;
 	}
@@ -18,10 +18,15 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.jacoco.cli.internal.Command;
 import org.jacoco.core.instr.Instrumenter;
@@ -40,8 +45,17 @@ public class Instrument extends Command {
 	@Argument(usage = "list of folder or files to instrument recusively", metaVar = "<sourcefiles>")
 	List<File> source = new ArrayList<File>();
 
+	@Option(name = "--threads", usage = "number of threads used to instrument class files (default 1)", metaVar = "<n>")
+	int threads = 1;
+
 	private Instrumenter instrumenter;
 
+	/** executor for parallel instrumentation, <code>null</code> otherwise */
+	private ForkJoinPool executor;
+
+	/** class files instrumented by the executor */
+	private List<Future<Integer>> pending;
+
 	@Override
 	public String description() {
 		return "Off-line instrumentation of Java class files and JAR files.";
@@ -53,12 +67,24 @@ public class Instrument extends Command {
 		final File absoluteDest = dest.getAbsoluteFile();
 		instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
+		executor = threads > 1 ? new ForkJoinPool(threads) : null;
+		pending = new ArrayList<Future<Integer>>();
 		int total = 0;
-		for (final File s : source) {
-			if (s.isFile()) {
-				total += instrument(s, new File(absoluteDest, s.getName()));
-			} else {
-				total += instrumentRecursive(s, absoluteDest);
+		try {
+			for (final File s : source) {
+				if (s.isFile()) {
+					total += instrument(s,
+							new File(absoluteDest, s.getName()));
+				} else {
+					total += instrumentRecursive(s, absoluteDest);
+				}
+			}
+			for (final Future<Integer> f : pending) {
+				total += complete(f);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
 		}
 		out.printf("[INFO] %s classes instrumented to %s.%n",
@@ -81,13 +107,46 @@ public class Instrument extends Command {
 	}
 
 	private int instrument(final File src, final File dest) throws IOException {
+		if (executor == null || !src.getName().endsWith(".class")) {
+			// Archives are read by this thread, their entries are
+			// instrumented by the executor
+			return instrumentFile(src, dest);
+		}
+		pending.add(executor.submit(new Callable<Integer>() {
+			public Integer call() throws IOException {
+				return Integer.valueOf(instrumentFile(src, dest));
+			}
+		}));
+		return 0;
+	}
+
+	private static int complete(final Future<Integer> f) throws IOException {
+		try {
+			return f.get().intValue();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw (RuntimeException) cause;
+		}
+	}
+
+	private int instrumentFile(final File src, final File dest)
+			throws IOException {
 		dest.getParentFile().mkdirs();
 		final InputStream input = new FileInputStream(src);
 		try {
 			final OutputStream output = new FileOutputStream(dest);
 			try {
 				return instrumenter.instrumentAll(input, output,
-						src.getAbsolutePath());
+						src.getAbsolutePath(), executor);
 			} finally {
 				output.close();
 			}
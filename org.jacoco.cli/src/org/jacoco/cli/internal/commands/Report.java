@@ -20,19 +20,26 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import com.test.diff.common.util.JacksonUtil;
 import com.test.diff.common.domain.ClassInfo;
 import org.apache.commons.lang3.StringUtils;
 import org.jacoco.cli.internal.Command;
+import org.jacoco.core.analysis.AnalysisContext;
 import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.ClassFileCache;
 import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.PackageAnalyzer;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.tools.ExecFileLoader;
+import org.jacoco.report.BufferedBundleVisitor;
 import org.jacoco.report.DirectorySourceFileLocator;
 import org.jacoco.report.FileMultiReportOutput;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.MultiReportVisitor;
@@ -81,6 +88,15 @@ public class Report extends Command {
 	@Option(name = "--filterRules", usage = "When the amount is full, filter unneeded classes", metaVar = "<charset>")
 	String filterRules;
 
+	@Option(name = "--threads", usage = "number of threads used to analyze class files (default 1)", metaVar = "<n>")
+	int threads = 1;
+
+	@Option(name = "--streaming", usage = "analyze and report one package at a time to limit memory usage")
+	boolean streaming;
+
+	@Option(name = "--cache", usage = "read and analyze classes contained in several class file locations only once, not used with --streaming")
+	boolean cache;
+
 	@Override
 	public String description() {
 		return "Generate reports in different formats by reading exec and Java class files.";
@@ -90,6 +106,10 @@ public class Report extends Command {
 	public int execute(final PrintWriter out, final PrintWriter err)
 			throws IOException {
 		final ExecFileLoader loader = loadExecutionData(out);
+		if (streaming) {
+			writeReportsStreaming(loader, out);
+			return 0;
+		}
 		final IBundleCoverage bundle = analyze(loader.getExecutionDataStore(),
 				out);
 		writeReports(bundle, loader, out);
@@ -111,25 +131,40 @@ public class Report extends Command {
 		return loader;
 	}
 
-	private IBundleCoverage analyze(final ExecutionDataStore data,
-			final PrintWriter out) throws IOException {
-		final CoverageBuilder builder = new CoverageBuilder();
+	private AnalysisContext createContext() {
 		// 设置增量信息
+		List<ClassInfo> diffList = null;
 		if (StringUtils.isNotBlank(diffFiles)) {
-			List<ClassInfo> diffList = JacksonUtil.deserializeArray(diffFiles,
-					ClassInfo.class);
-			CoverageBuilder.setDiffList(diffList);
-			CoverageBuilder.setType(CoverageBuilder.TypeEnum.REPORT);
+			diffList = JacksonUtil.deserializeArray(diffFiles, ClassInfo.class);
 		}
 		// 设置全量时类过滤规则
+		List<String> rules = null;
 		if (StringUtils.isNotBlank(filterRules)) {
-			List<String> rules = JacksonUtil.deserializeArray(filterRules,
-					String.class);
-			CoverageBuilder.setFilterRulesLocal(rules);
+			rules = JacksonUtil.deserializeArray(filterRules, String.class);
 		}
-		final Analyzer analyzer = new Analyzer(data, builder);
-		for (final File f : classfiles) {
-			analyzer.analyzeAll(f);
+		return new AnalysisContext(diffList, rules,
+				diffList == null ? null : CoverageBuilder.TypeEnum.REPORT);
+	}
+
+	private IBundleCoverage analyze(final ExecutionDataStore data,
+			final PrintWriter out) throws IOException {
+		final AnalysisContext context = createContext();
+		final CoverageBuilder builder = new CoverageBuilder(context);
+		final Analyzer analyzer = new Analyzer(data, builder, context,
+				cache ? new ClassFileCache() : null);
+		if (threads > 1) {
+			final ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				for (final File f : classfiles) {
+					analyzer.analyzeAll(f, pool);
+				}
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			for (final File f : classfiles) {
+				analyzer.analyzeAll(f);
+			}
 		}
 		printNoMatchWarning(builder.getNoMatchClasses(), out);
 		return builder.getBundle(name);
@@ -162,6 +197,41 @@ public class Report extends Command {
 		visitor.visitEnd();
 	}
 
+	/**
+	 * Analyzes the class files package by package and emits every package to
+	 * the report formatters directly, so the coverage data of the whole bundle
+	 * is never held in memory.
+	 */
+	private void writeReportsStreaming(final ExecFileLoader loader,
+			final PrintWriter out) throws IOException {
+		final PackageAnalyzer analyzer = new PackageAnalyzer(
+				loader.getExecutionDataStore(), createContext());
+		try {
+			for (final File f : classfiles) {
+				analyzer.scan(f);
+			}
+			out.printf("[INFO] Analyzing %s classes.%n",
+					Integer.valueOf(analyzer.getClassCount()));
+			final IReportVisitor visitor = createReportVisitor();
+			visitor.visitInfo(loader.getSessionInfoStore().getInfos(),
+					loader.getExecutionDataStore().getContents());
+			final IReportBundleVisitor bundleVisitor = BufferedBundleVisitor
+					.visitBundle(visitor, name, getSourceLocator());
+			for (final String packageName : analyzer.getPackageNames()) {
+				final IPackageCoverage coverage = analyzer
+						.analyzePackage(packageName);
+				if (coverage != null) {
+					bundleVisitor.visitPackage(coverage);
+				}
+			}
+			bundleVisitor.visitEnd();
+			visitor.visitEnd();
+		} finally {
+			analyzer.close();
+		}
+		printNoMatchWarning(analyzer.getNoMatchClasses(), out);
+	}
+
 	private IReportVisitor createReportVisitor() throws IOException {
 		final List<IReportVisitor> visitors = new ArrayList<IReportVisitor>();
 
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.test.diff.common.domain.ClassInfo;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AnalysisContext}.
+ */
+public class AnalysisContextTest {
+
+	@After
+	public void teardown() {
+		CoverageBuilder.setDiffList(null);
+		CoverageBuilder.setFilterRulesLocal(null);
+		CoverageBuilder.setType(null);
+	}
+
+	@Test
+	public void default_context_should_analyze_all_classes() {
+		final AnalysisContext context = AnalysisContext.DEFAULT;
+
+		assertNull(context.getDiffList());
+		assertNull(context.getFilterRules());
+		assertNull(context.getType());
+		assertFalse(context.isDiff());
+		assertNull(context.getClassNameFilter());
+	}
+
+	@Test
+	public void forRules_should_create_rules_filter() {
+		final AnalysisContext context = AnalysisContext
+				.forRules(Arrays.asList("org.jacoco.*", "*Test"));
+
+		assertFalse(context.isDiff());
+		assertTrue(context.getClassNameFilter().accept("org/jacoco/Foo"));
+		assertFalse(context.getClassNameFilter().accept("org/jacoco/FooTest"));
+	}
+
+	@Test
+	public void forDiff_should_create_diff_filter() {
+		final AnalysisContext context = AnalysisContext
+				.forDiff(Collections.<ClassInfo> emptyList());
+
+		assertTrue(context.isDiff());
+		assertEquals(CoverageBuilder.TypeEnum.REPORT, context.getType());
+		assertFalse(context.getClassNameFilter().accept("org/jacoco/Foo"));
+	}
+
+	@Test
+	public void diff_should_take_precedence_over_rules() {
+		final AnalysisContext context = new AnalysisContext(
+				Collections.<ClassInfo> emptyList(), Arrays.asList("*", ""),
+				null);
+
+		assertFalse(context.getClassNameFilter().accept("org/jacoco/Foo"));
+	}
+
+	@Test
+	public void should_not_reflect_later_changes_of_given_lists() {
+		final List<String> rules = new ArrayList<String>(
+				Arrays.asList("org.jacoco.*", ""));
+		final AnalysisContext context = AnalysisContext.forRules(rules);
+		rules.set(0, "*");
+
+		assertEquals(Arrays.asList("org.jacoco.*", ""),
+				context.getFilterRules());
+		assertFalse(context.getClassNameFilter().accept("org/Foo"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void getFilterRules_should_be_unmodifiable() {
+		AnalysisContext.forRules(Arrays.asList("*", "")).getFilterRules()
+				.add("x");
+	}
+
+	@Test
+	public void static_settings_should_create_thread_context() {
+		assertSame(AnalysisContext.DEFAULT, CoverageBuilder.currentContext());
+
+		CoverageBuilder.setFilterRulesLocal(Arrays.asList("org.*", ""));
+		CoverageBuilder.setType(CoverageBuilder.TypeEnum.MERGE);
+
+		final AnalysisContext context = CoverageBuilder.currentContext();
+		assertEquals(Arrays.asList("org.*", ""), context.getFilterRules());
+		assertEquals(CoverageBuilder.TypeEnum.MERGE, context.getType());
+		assertEquals(1, CoverageBuilder.getFilterRulesLocal().size());
+		assertSame(context, new CoverageBuilder().getContext());
+	}
+
+	@Test
+	public void static_settings_should_not_apply_to_explicit_context() {
+		CoverageBuilder.setFilterRulesLocal(Arrays.asList("org.*", ""));
+
+		final CoverageBuilder builder = new CoverageBuilder(
+				AnalysisContext.DEFAULT);
+
+		assertSame(AnalysisContext.DEFAULT, builder.getContext());
+	}
+
+	@Test
+	public void resetting_static_settings_should_restore_default() {
+		CoverageBuilder.setFilterRulesLocal(Arrays.asList("org.*", ""));
+		CoverageBuilder.setFilterRulesLocal(null);
+
+		assertSame(AnalysisContext.DEFAULT, CoverageBuilder.currentContext());
+	}
+
+}
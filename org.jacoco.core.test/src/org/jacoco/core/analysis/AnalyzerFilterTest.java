@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the selection of classes by {@link Analyzer} according to
+ * the filter rules of its {@link AnalysisContext}.
+ */
+public class AnalyzerFilterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Analyzer analyzer;
+
+	private Map<String, IClassCoverage> classes;
+
+	private ExecutionDataStore executionData;
+
+	private class EmptyStructureVisitor implements ICoverageVisitor {
+
+		public void visitCoverage(IClassCoverage coverage) {
+			final String name = coverage.getName();
+			assertNull("Class already processed: " + name,
+					classes.put(name, coverage));
+		}
+	}
+
+	@Before
+	public void setup() {
+		classes = new HashMap<String, IClassCoverage>();
+		executionData = new ExecutionDataStore();
+		analyzer = new Analyzer(executionData, new EmptyStructureVisitor());
+	}
+
+	@After
+	public void teardown() {
+		CoverageBuilder.setFilterRulesLocal(null);
+	}
+
+	@Test
+	public void analyzeAll_should_not_read_filtered_class_files_in_zip_stream()
+			throws IOException {
+		analyzer = new Analyzer(executionData, new EmptyStructureVisitor(),
+				AnalysisContext.forRules(Arrays
+						.asList("org.jacoco.core.analysis.AnalyzerTest", "")));
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zip = new ZipOutputStream(buffer);
+		zip.putNextEntry(new ZipEntry(
+				"BOOT-INF/classes/org/jacoco/core/analysis/AnalyzerTest.class"));
+		zip.write(TargetLoader.getClassDataAsBytes(AnalyzerTest.class));
+		zip.putNextEntry(new ZipEntry("org/jacoco/core/analysis/Broken.class"));
+		zip.write(createBrokenClass());
+		zip.finish();
+
+		final int count = analyzer.analyzeAll(
+				new ByteArrayInputStream(buffer.toByteArray()), "Test");
+
+		assertEquals(2, count);
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest");
+	}
+
+	@Test
+	public void analyzeAll_should_not_read_filtered_class_files_in_zip_file()
+			throws IOException {
+		CoverageBuilder.setFilterRulesLocal(
+				Arrays.asList("org.jacoco.core.analysis.AnalyzerTest", ""));
+		final File file = new File(folder.getRoot(), "test.jar");
+		final ZipOutputStream zip = new ZipOutputStream(
+				new FileOutputStream(file));
+		zip.putNextEntry(
+				new ZipEntry("org/jacoco/core/analysis/AnalyzerTest.class"));
+		zip.write(TargetLoader.getClassDataAsBytes(AnalyzerTest.class));
+		zip.putNextEntry(new ZipEntry("org/jacoco/core/analysis/Broken.class"));
+		zip.write(createBrokenClass());
+		zip.putNextEntry(new ZipEntry("org/jacoco/core/analysis/"));
+		zip.close();
+
+		final int count = analyzer.analyzeAll(file);
+
+		assertEquals(2, count);
+		assertClasses("org/jacoco/core/analysis/AnalyzerTest");
+	}
+
+	@Test
+	public void analyzeAll_should_use_context_independent_of_calling_thread()
+			throws Exception {
+		analyzer = new Analyzer(executionData, new EmptyStructureVisitor(),
+				AnalysisContext.forRules(Arrays.asList("*", "*AnalyzerTest")));
+		final Exception[] error = new Exception[1];
+		final Thread worker = new Thread() {
+			@Override
+			public void run() {
+				try {
+					analyzer.analyzeClass(TargetLoader
+							.getClassDataAsBytes(AnalyzerTest.class), "Test");
+					analyzer.analyzeClass(
+							TargetLoader.getClassDataAsBytes(Analyzer.class),
+							"Test");
+				} catch (Exception e) {
+					error[0] = e;
+				}
+			}
+		};
+		worker.start();
+		worker.join();
+
+		assertNull(error[0]);
+		assertClasses("org/jacoco/core/analysis/Analyzer");
+	}
+
+	@Test
+	public void analyzeAll_should_report_broken_entries_of_zip_file()
+			throws IOException {
+		CoverageBuilder.setFilterRulesLocal(Arrays.asList("*", ""));
+		final File file = new File(folder.getRoot(), "test.jar");
+		final ZipOutputStream zip = new ZipOutputStream(
+				new FileOutputStream(file));
+		zip.putNextEntry(new ZipEntry("org/jacoco/core/analysis/Broken.class"));
+		zip.write(createBrokenClass());
+		zip.close();
+
+		try {
+			analyzer.analyzeAll(file);
+			fail("expected exception");
+		} catch (IOException e) {
+			assertEquals("Error while analyzing " + file.getPath()
+					+ "@org/jacoco/core/analysis/Broken.class.",
+					e.getMessage());
+		}
+	}
+
+	private static byte[] createBrokenClass() throws IOException {
+		final byte[] brokenclass = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		brokenclass[10] = 0x23;
+		return brokenclass;
+	}
+
+	private void assertClasses(String... classNames) {
+		assertEquals(new HashSet<String>(Arrays.asList(classNames)),
+				classes.keySet());
+	}
+
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link Analyzer#analyzeAll(File, java.util.concurrent.Executor)}.
+ */
+public class AnalyzerParallelTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ExecutionDataStore executionData;
+
+	private List<String> names;
+
+	private Analyzer analyzer;
+
+	private ExecutorService executor;
+
+	@Before
+	public void setup() {
+		executionData = new ExecutionDataStore();
+		names = new ArrayList<String>();
+		final Thread caller = Thread.currentThread();
+		analyzer = new Analyzer(executionData, new ICoverageVisitor() {
+			public void visitCoverage(final IClassCoverage coverage) {
+				assertSame(caller, Thread.currentThread());
+				names.add(coverage.getName());
+			}
+		});
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdown();
+		CoverageBuilder.setFilterRulesLocal(null);
+	}
+
+	@Test
+	public void analyzeAll_should_analyze_classes_in_parallel_in_read_order()
+			throws IOException {
+		final File file = createJar(AnalyzerTest.class, Analyzer.class,
+				CoverageBuilder.class, AnalysisContext.class);
+
+		final int count = analyzer.analyzeAll(file, executor);
+
+		assertEquals(4, count);
+		assertEquals(Arrays.asList("org/jacoco/core/analysis/AnalyzerTest",
+				"org/jacoco/core/analysis/Analyzer",
+				"org/jacoco/core/analysis/CoverageBuilder",
+				"org/jacoco/core/analysis/AnalysisContext"), names);
+	}
+
+	@Test
+	public void analyzeAll_should_use_static_settings_of_calling_thread()
+			throws IOException {
+		CoverageBuilder.setFilterRulesLocal(
+				Arrays.asList("org.jacoco.core.analysis.Analyzer", ""));
+		final File file = createJar(AnalyzerTest.class, Analyzer.class,
+				CoverageBuilder.class, AnalysisContext.class);
+
+		analyzer.analyzeAll(file, executor);
+
+		assertEquals(Arrays.asList("org/jacoco/core/analysis/Analyzer"),
+				names);
+	}
+
+	@Test
+	public void analyzeAll_should_use_static_settings_of_calling_thread_for_class_folders()
+			throws IOException {
+		CoverageBuilder.setFilterRulesLocal(
+				Arrays.asList("org.jacoco.core.analysis.Analyzer", ""));
+		for (final Class<?> type : new Class<?>[] { AnalyzerTest.class,
+				Analyzer.class }) {
+			final FileOutputStream out = new FileOutputStream(new File(
+					folder.getRoot(), type.getSimpleName() + ".class"));
+			out.write(TargetLoader.getClassDataAsBytes(type));
+			out.close();
+		}
+
+		analyzer.analyzeAll(folder.getRoot(), executor);
+
+		assertEquals(Arrays.asList("org/jacoco/core/analysis/Analyzer"),
+				names);
+	}
+
+	@Test
+	public void analyzeAll_should_report_broken_class_in_parallel_mode()
+			throws IOException {
+		final File file = new File(folder.getRoot(), "test.jar");
+		final ZipOutputStream zip = new ZipOutputStream(
+				new FileOutputStream(file));
+		zip.putNextEntry(new ZipEntry("org/jacoco/core/analysis/Broken.class"));
+		final byte[] brokenclass = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		brokenclass[10] = 0x23;
+		zip.write(brokenclass);
+		zip.close();
+
+		try {
+			analyzer.analyzeAll(file, executor);
+			fail("expected exception");
+		} catch (IOException e) {
+			assertEquals("Error while analyzing " + file.getPath()
+					+ "@org/jacoco/core/analysis/Broken.class.",
+					e.getMessage());
+		}
+	}
+
+	private File createJar(final Class<?>... types) throws IOException {
+		final File file = new File(folder.getRoot(), "test.jar");
+		final ZipOutputStream zip = new ZipOutputStream(
+				new FileOutputStream(file));
+		for (final Class<?> type : types) {
+			zip.putNextEntry(new ZipEntry(
+					type.getName().replace('.', '/') + ".class"));
+			zip.write(TargetLoader.getClassDataAsBytes(type));
+		}
+		zip.close();
+		return file;
+	}
+
+}
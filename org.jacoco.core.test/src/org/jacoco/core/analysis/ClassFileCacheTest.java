@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ClassFileCache}.
+ */
+public class ClassFileCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private byte[] bytes;
+
+	private ExecutionDataStore executionData;
+
+	private List<IClassCoverage> classes;
+
+	@Before
+	public void setup() throws IOException {
+		bytes = TargetLoader.getClassDataAsBytes(ClassFileCacheTest.class);
+		executionData = new ExecutionDataStore();
+		classes = new ArrayList<IClassCoverage>();
+	}
+
+	@Test
+	public void getClass_should_return_stored_class() throws IOException {
+		final ClassFileCache cache = new ClassFileCache();
+
+		final long id = cache.putClass(bytes);
+
+		assertEquals(CRC64.classId(bytes), id);
+		assertSame(bytes, cache.getClass(id));
+		assertEquals(bytes.length, cache.getMemoryUsage());
+	}
+
+	@Test
+	public void getClass_should_read_evicted_class_from_directory()
+			throws IOException {
+		final ClassFileCache cache = new ClassFileCache(0, 10,
+				folder.getRoot());
+
+		final long id = cache.putClass(bytes);
+
+		assertEquals(0, cache.getMemoryUsage());
+		assertArrayEquals(bytes, cache.getClass(id));
+	}
+
+	@Test
+	public void getClass_should_return_null_for_evicted_class_without_directory()
+			throws IOException {
+		final ClassFileCache cache = new ClassFileCache(0, 10, null);
+
+		final long id = cache.putClass(bytes);
+
+		assertNull(cache.getClass(id));
+	}
+
+	@Test
+	public void getContent_should_return_null_when_file_was_modified()
+			throws IOException {
+		final ClassFileCache cache = new ClassFileCache();
+		final File file = createJar();
+		final ClassFileCache.Content content = new ClassFileCache.Content();
+		content.add(cache.putClass(bytes), "a.jar@Foo.class");
+		cache.putContent(file, null, content.complete(1));
+		assertSame(content, cache.getContent(file, null));
+
+		file.setLastModified(file.lastModified() - 10000);
+
+		assertNull(cache.getContent(file, null));
+	}
+
+	@Test
+	public void analyzeAll_should_reuse_results_of_same_file()
+			throws IOException {
+		final ClassFileCache cache = new ClassFileCache();
+		final File file = createJar();
+
+		assertEquals(1, createAnalyzer(cache).analyzeAll(file));
+		assertNotNull(cache.getContent(file, null));
+		assertEquals(1, createAnalyzer(cache).analyzeAll(file));
+
+		assertEquals(2, classes.size());
+		// Every bundle gets a copy of its own:
+		assertNotSame(classes.get(0), classes.get(1));
+		assertEquals("org/jacoco/core/analysis/ClassFileCacheTest",
+				classes.get(1).getName());
+		assertEquals(classes.get(0).getInstructionCounter(),
+				classes.get(1).getInstructionCounter());
+		assertEquals(classes.get(0).getMethods().size(),
+				classes.get(1).getMethods().size());
+	}
+
+	@Test
+	public void analyzeAll_should_reuse_results_for_equal_filters()
+			throws IOException {
+		final List<IClassCoverage> hits = new ArrayList<IClassCoverage>();
+		final ClassFileCache cache = new ClassFileCache() {
+			@Override
+			synchronized IClassCoverage getResult(final ResultKey key) {
+				final IClassCoverage result = super.getResult(key);
+				if (result != null) {
+					hits.add(result);
+				}
+				return result;
+			}
+		};
+		final File file = createJar();
+
+		createAnalyzer(cache, createRulesContext()).analyzeAll(file);
+		createAnalyzer(cache, createRulesContext()).analyzeAll(file);
+
+		assertEquals(2, classes.size());
+		assertEquals(1, hits.size());
+	}
+
+	private static AnalysisContext createRulesContext() {
+		return new AnalysisContext(null,
+				Arrays.asList("org.jacoco.*", "*Dummy"), null);
+	}
+
+	@Test
+	public void analyzeAll_should_not_reuse_results_for_different_execution_data()
+			throws IOException {
+		final ClassFileCache cache = new ClassFileCache();
+		final File file = createJar();
+
+		createAnalyzer(cache).analyzeAll(file);
+		executionData.put(new ExecutionData(42,
+				"org/jacoco/core/analysis/ClassFileCacheTest", 1));
+		createAnalyzer(cache).analyzeAll(file);
+
+		assertEquals(2, classes.size());
+		assertFalse(classes.get(0).isNoMatch());
+		assertTrue(classes.get(1).isNoMatch());
+	}
+
+	@Test
+	public void analyzeAll_should_read_file_again_when_class_was_evicted()
+			throws IOException {
+		final boolean[] evict = new boolean[1];
+		final ClassFileCache cache = new ClassFileCache() {
+			@Override
+			synchronized byte[] getClass(final long id) throws IOException {
+				// Evicted after the content has been looked up:
+				return evict[0] ? null : super.getClass(id);
+			}
+		};
+		final File file = createJar();
+		createAnalyzer(cache).analyzeAll(file);
+		executionData.put(new ExecutionData(42,
+				"org/jacoco/core/analysis/ClassFileCacheTest", 1));
+
+		evict[0] = true;
+		assertEquals(1, createAnalyzer(cache).analyzeAll(file));
+
+		assertEquals(2, classes.size());
+		assertTrue(classes.get(1).isNoMatch());
+	}
+
+	private Analyzer createAnalyzer(final ClassFileCache cache) {
+		return createAnalyzer(cache, AnalysisContext.DEFAULT);
+	}
+
+	private Analyzer createAnalyzer(final ClassFileCache cache,
+			final AnalysisContext context) {
+		return new Analyzer(executionData, new ICoverageVisitor() {
+			public void visitCoverage(final IClassCoverage coverage) {
+				classes.add(coverage);
+			}
+		}, context, cache);
+	}
+
+	private File createJar() throws IOException {
+		final File file = new File(folder.getRoot(), "test.jar");
+		final ZipOutputStream zip = new ZipOutputStream(
+				new FileOutputStream(file));
+		zip.putNextEntry(new ZipEntry(
+				"org/jacoco/core/analysis/ClassFileCacheTest.class"));
+		zip.write(bytes);
+		zip.close();
+		return file;
+	}
+
+}
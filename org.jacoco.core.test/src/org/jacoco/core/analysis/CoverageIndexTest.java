@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CoverageIndex}.
+ */
+public class CoverageIndexTest {
+
+	private CoverageIndex index;
+
+	private CoverageBuilder builder;
+
+	private Map<String, IClassCoverage> store;
+
+	private List<Collection<String>> loads;
+
+	private IClassCoverageLoader loader;
+
+	@Before
+	public void setup() {
+		index = new CoverageIndex();
+		builder = new CoverageBuilder(AnalysisContext.DEFAULT);
+		store = new HashMap<String, IClassCoverage>();
+		loads = new ArrayList<Collection<String>>();
+		loader = new IClassCoverageLoader() {
+			public void load(final Collection<String> classNames,
+					final ICoverageVisitor visitor) {
+				loads.add(new HashSet<String>(classNames));
+				for (final String name : classNames) {
+					visitor.visitCoverage(store.get(name));
+				}
+			}
+		};
+		// Both classes share line 6 of the same source file
+		addClass(1, "org/example/A", "A.java", method(true, 5, 6));
+		addClass(2, "org/example/A$1", "A.java", method(false, 6, 7));
+		addClass(3, "org/example/B", null, method(false, 1, 2));
+		addClass(4, "org/other/C", "C.java", method(true, 3));
+	}
+
+	@Test
+	public void getBundle_should_calculate_same_counters_as_builder() {
+		final IBundleCoverage expected = builder.getBundle("test");
+		final IBundleCoverage actual = index.getBundle("test", loader);
+
+		assertCounters(expected, actual);
+		assertEquals(2, actual.getPackages().size());
+		for (final IPackageCoverage p : actual.getPackages()) {
+			assertCounters(getPackage(expected, p.getName()), p);
+		}
+		assertEquals(0, loads.size());
+	}
+
+	@Test
+	public void getClasses_should_load_classes_of_package_once() {
+		final IBundleCoverage bundle = index.getBundle("test", loader);
+		final IPackageCoverage p = getPackage(bundle, "org/example");
+
+		assertEquals(3, p.getClasses().size());
+		assertEquals(1, p.getSourceFiles().size());
+		assertEquals(1, loads.size());
+		assertEquals(set("org/example/A", "org/example/A$1", "org/example/B"),
+				loads.get(0));
+		final ISourceFileCoverage source = p.getSourceFiles().iterator()
+				.next();
+		assertEquals(3, source.getLineCounter().getTotalCount());
+		assertEquals(ICounter.PARTLY_COVERED, source.getLine(6).getStatus());
+	}
+
+	@Test
+	public void getClasses_should_wrap_loader_errors() {
+		final IBundleCoverage bundle = index.getBundle("test",
+				new IClassCoverageLoader() {
+					public void load(final Collection<String> classNames,
+							final ICoverageVisitor visitor) throws IOException {
+						throw new IOException("broken");
+					}
+				});
+		try {
+			getPackage(bundle, "org/other").getClasses();
+			fail("IllegalStateException expected");
+		} catch (IllegalStateException e) {
+			assertEquals("Error while loading coverage of package org/other.",
+					e.getMessage());
+			assertEquals("broken", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void read_should_restore_written_index() throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		index.write(buffer);
+
+		final CoverageIndex copy = CoverageIndex
+				.read(new ByteArrayInputStream(buffer.toByteArray()));
+
+		assertEquals(new HashSet<String>(index.getClassNames()),
+				new HashSet<String>(copy.getClassNames()));
+		final IBundleCoverage expected = builder.getBundle("test");
+		final IBundleCoverage actual = copy.getBundle("test", loader);
+		assertCounters(expected, actual);
+		for (final IPackageCoverage p : actual.getPackages()) {
+			assertCounters(getPackage(expected, p.getName()), p);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void read_should_reject_invalid_header() throws IOException {
+		CoverageIndex.read(new ByteArrayInputStream(new byte[] { 0x01, 0x02,
+				0x03, 0x04 }));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void visitCoverage_should_throw_exception_after_getBundle() {
+		index.getBundle("test", loader);
+		addClass(5, "org/example/D", null, method(true, 1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void visitCoverage_should_throw_exception_for_different_class_with_same_name() {
+		addClass(5, "org/example/A", "A.java", method(true, 5));
+	}
+
+	@Test
+	public void visitCoverage_should_ignore_same_class_twice() {
+		addClass(1, "org/example/A", "A.java", method(true, 5, 6));
+
+		assertCounters(builder.getBundle("test"),
+				index.getBundle("test", loader));
+	}
+
+	private static MethodCoverageImpl method(final boolean covered,
+			final int... lines) {
+		final MethodCoverageImpl method = new MethodCoverageImpl("doit", "()V",
+				null);
+		for (final int line : lines) {
+			method.increment(
+					covered ? CounterImpl.COUNTER_0_1 : CounterImpl.COUNTER_1_0,
+					CounterImpl.COUNTER_0_0, line);
+		}
+		method.incrementMethodCounter();
+		return method;
+	}
+
+	private void addClass(final long id, final String name,
+			final String source, final MethodCoverageImpl... methods) {
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(name, id,
+				false);
+		coverage.setSourceFileName(source);
+		for (final MethodCoverageImpl m : methods) {
+			coverage.addMethod(m);
+		}
+		if (!store.containsKey(name)) {
+			store.put(name, coverage);
+			builder.visitCoverage(coverage);
+		}
+		index.visitCoverage(coverage);
+	}
+
+	private static IPackageCoverage getPackage(final IBundleCoverage bundle,
+			final String name) {
+		for (final IPackageCoverage p : bundle.getPackages()) {
+			if (p.getName().equals(name)) {
+				return p;
+			}
+		}
+		throw new AssertionError("Missing package " + name);
+	}
+
+	private static Set<String> set(final String... values) {
+		final Set<String> set = new HashSet<String>();
+		for (final String v : values) {
+			set.add(v);
+		}
+		return set;
+	}
+
+	private static void assertCounters(final ICoverageNode expected,
+			final ICoverageNode actual) {
+		for (final ICoverageNode.CounterEntity entity : ICoverageNode.CounterEntity
+				.values()) {
+			assertEquals(expected.getName() + " " + entity,
+					expected.getCounter(entity), actual.getCounter(entity));
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.InputStreams;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.test.TargetLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link PackageAnalyzer}.
+ */
+public class PackageAnalyzerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ExecutionDataStore executionData;
+
+	private PackageAnalyzer analyzer;
+
+	@Before
+	public void setup() {
+		executionData = new ExecutionDataStore();
+		analyzer = new PackageAnalyzer(executionData, AnalysisContext.DEFAULT);
+	}
+
+	@After
+	public void teardown() throws IOException {
+		analyzer.close();
+	}
+
+	@Test
+	public void scan_should_find_packages_of_archive() throws IOException {
+		final File jar = createJar(PackageAnalyzerTest.class,
+				TargetLoader.class);
+
+		assertEquals(2, analyzer.scan(jar));
+
+		assertEquals(2, analyzer.getClassCount());
+		assertEquals(Arrays.asList("org/jacoco/core/analysis",
+				"org/jacoco/core/test"),
+				new ArrayList<String>(analyzer.getPackageNames()));
+	}
+
+	@Test
+	public void scan_should_apply_class_filter() throws IOException {
+		analyzer = new PackageAnalyzer(executionData, AnalysisContext
+				.forRules(Arrays.asList("org.jacoco.core.test.*", "")));
+		final File jar = createJar(PackageAnalyzerTest.class,
+				TargetLoader.class);
+
+		analyzer.scan(jar);
+
+		assertEquals(1, analyzer.getClassCount());
+		assertEquals(Arrays.asList("org/jacoco/core/test"),
+				new ArrayList<String>(analyzer.getPackageNames()));
+	}
+
+	@Test
+	public void analyzePackage_should_analyze_classes_of_package_only()
+			throws IOException {
+		analyzer.scan(
+				createJar(PackageAnalyzerTest.class, TargetLoader.class));
+		analyzer.scan(createClassFile(ClassFileCacheTest.class));
+
+		final IPackageCoverage coverage = analyzer
+				.analyzePackage("org/jacoco/core/analysis");
+
+		assertEquals("org/jacoco/core/analysis", coverage.getName());
+		final List<String> names = new ArrayList<String>();
+		for (final IClassCoverage c : coverage.getClasses()) {
+			names.add(c.getName());
+		}
+		assertEquals(2, names.size());
+		assertTrue(names
+				.contains("org/jacoco/core/analysis/PackageAnalyzerTest"));
+		assertTrue(
+				names.contains("org/jacoco/core/analysis/ClassFileCacheTest"));
+	}
+
+	@Test
+	public void analyzePackage_should_analyze_classes_of_nested_archive()
+			throws IOException {
+		final File inner = createJar(PackageAnalyzerTest.class,
+				TargetLoader.class);
+		final File outer = folder.newFile();
+		final ZipOutputStream zip = new ZipOutputStream(
+				new FileOutputStream(outer));
+		zip.putNextEntry(new ZipEntry("lib/inner.jar"));
+		final InputStream in = new FileInputStream(inner);
+		zip.write(InputStreams.readFully(in));
+		in.close();
+		zip.close();
+		analyzer.scan(outer);
+
+		final IPackageCoverage coverage = analyzer
+				.analyzePackage("org/jacoco/core/test");
+
+		assertEquals(1, coverage.getClasses().size());
+		assertEquals("org/jacoco/core/test/TargetLoader",
+				coverage.getClasses().iterator().next().getName());
+	}
+
+	@Test
+	public void analyzePackage_should_reuse_archive_for_all_packages()
+			throws IOException {
+		analyzer.scan(
+				createJar(PackageAnalyzerTest.class, TargetLoader.class));
+
+		assertEquals(1, analyzer.analyzePackage("org/jacoco/core/analysis")
+				.getClasses().size());
+		assertEquals(1, analyzer.analyzePackage("org/jacoco/core/test")
+				.getClasses().size());
+	}
+
+	@Test
+	public void analyzePackage_should_return_null_for_unknown_package()
+			throws IOException {
+		analyzer.scan(createJar(PackageAnalyzerTest.class));
+
+		assertNull(analyzer.analyzePackage("org/jacoco/core/test"));
+	}
+
+	@Test
+	public void analyzePackage_should_collect_no_match_classes()
+			throws IOException {
+		executionData.put(new ExecutionData(
+				CRC64.classId(new byte[] { 1 }),
+				"org/jacoco/core/test/TargetLoader", 1));
+		analyzer.scan(createJar(TargetLoader.class));
+
+		analyzer.analyzePackage("org/jacoco/core/test");
+
+		assertEquals(1, analyzer.getNoMatchClasses().size());
+	}
+
+	private File createJar(final Class<?>... classes) throws IOException {
+		final File file = folder.newFile();
+		final ZipOutputStream zip = new ZipOutputStream(
+				new FileOutputStream(file));
+		for (final Class<?> c : classes) {
+			zip.putNextEntry(
+					new ZipEntry(c.getName().replace('.', '/') + ".class"));
+			zip.write(TargetLoader.getClassDataAsBytes(c));
+		}
+		zip.close();
+		return file;
+	}
+
+	private File createClassFile(final Class<?> c) throws IOException {
+		final File file = new File(folder.newFolder(),
+				c.getSimpleName() + ".class");
+		final OutputStream out = new FileOutputStream(file);
+		out.write(TargetLoader.getClassDataAsBytes(c));
+		out.close();
+		return file;
+	}
+
+}
@@ -24,6 +24,8 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Random;
 
 import org.junit.Before;
@@ -264,6 +266,21 @@ public class ExecutionDataReaderWriterTest {
 		assertArrayEquals(data, store.get(3).getProbes());
 	}
 
+	@Test
+	public void testCalledFlagsWithoutCallers() throws IOException {
+		final boolean[] data = createData(3);
+		final HashSet[] calledFlags = new HashSet[3];
+		calledFlags[1] = new HashSet(Collections.singleton("Caller.m()V"));
+		writer.visitClassExecution(
+				new ExecutionData(3, "Sample", data, calledFlags));
+		assertFalse(createReaderWithVisitors().read());
+		final HashSet[] actual = store.get(3).getCalledFlags();
+		assertEquals(3, actual.length);
+		assertTrue(actual[0].isEmpty());
+		assertEquals(Collections.singleton("Caller.m()V"), actual[1]);
+		assertTrue(actual[2].isEmpty());
+	}
+
 	@Test
 	public void testTwoClasses() throws IOException {
 		final boolean[] data1 = createData(15);
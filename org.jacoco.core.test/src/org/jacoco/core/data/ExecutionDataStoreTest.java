@@ -102,6 +102,18 @@ public class ExecutionDataStoreTest implements IExecutionDataVisitor {
 		assertSame(data, store.get(1000));
 	}
 
+	@Test
+	public void testGetByName() {
+		final ExecutionData data1 = new ExecutionData(1000, "Sample",
+				new boolean[] {});
+		final ExecutionData data2 = new ExecutionData(1001, "Sample",
+				new boolean[] {});
+		store.put(data1);
+		store.put(data2);
+		assertSame(data1, store.get("Sample"));
+		assertNull(store.get("Other"));
+	}
+
 	@Test
 	public void testGetWithCreate() {
 		final Long id = Long.valueOf(1000);
@@ -218,6 +230,28 @@ public class ExecutionDataStoreTest implements IExecutionDataVisitor {
 		assertFalse(data2[2]);
 	}
 
+	@Test
+	public void testRemove() {
+		final ExecutionData a1 = new ExecutionData(1000, "A", new boolean[1]);
+		final ExecutionData b = new ExecutionData(1001, "B", new boolean[1]);
+		final ExecutionData a2 = new ExecutionData(1002, "A", new boolean[1]);
+		final ExecutionData c = new ExecutionData(1003, "C", new boolean[1]);
+		store.put(a1);
+		store.put(b);
+		store.put(a2);
+		store.put(c);
+
+		store.remove(Arrays.asList("A", "C"));
+
+		assertNull(store.get(1000));
+		assertNull(store.get(1002));
+		assertNull(store.get(1003));
+		assertSame(b, store.get(1001));
+		assertFalse(store.contains("A"));
+		assertSame(b, store.get("B"));
+		assertEquals(Arrays.asList(b), store.getContents());
+	}
+
 	// === IExecutionDataOutput ===
 
 	public void visitClassExecution(final ExecutionData data) {
@@ -12,11 +12,19 @@
  *******************************************************************************/
 package org.jacoco.core.data;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
 import org.junit.Test;
 
 /**
@@ -54,6 +62,32 @@ public class ExecutionDataTest {
 		assertFalse(e.getProbes()[2]);
 	}
 
+	@Test
+	public void testResetCalledFlags() {
+		final HashSet[] calledFlags = new HashSet[] {
+				new HashSet(Collections.singleton("Caller.m()V")), null };
+		final ExecutionData e = new ExecutionData(5, "Example",
+				new boolean[] { true, false }, calledFlags);
+		e.reset();
+		assertSame(calledFlags, e.getCalledFlags());
+		assertNull(calledFlags[0]);
+		assertNull(calledFlags[1]);
+	}
+
+	@Test
+	public void testResetFilledCalledFlags() {
+		final HashSet[] calledFlags = new HashSet[] {
+				new HashSet(Collections.singleton("Caller.m()V")),
+				new HashSet() };
+		final ExecutionData e = new ExecutionData(5, "Example",
+				new boolean[] { true, false }, calledFlags);
+		final HashSet set = calledFlags[0];
+		e.reset();
+		assertSame(set, calledFlags[0]);
+		assertTrue(set.isEmpty());
+		assertNotNull(calledFlags[1]);
+	}
+
 	@Test
 	public void testHasHits() {
 		final boolean[] probes = new boolean[] { false, false, false };
@@ -70,6 +104,26 @@ public class ExecutionDataTest {
 		assertFalse(e.hasHits());
 	}
 
+	@Test
+	public void testMergeCalledFlags() {
+		final HashSet[] calledFlagsA = new HashSet[] {
+				new HashSet(Collections.singleton("A.m()V")), null, null };
+		final HashSet[] calledFlagsB = new HashSet[] {
+				new HashSet(Collections.singleton("B.m()V")),
+				new HashSet(Collections.singleton("B.m()V")), null };
+		final ExecutionData a = new ExecutionData(5, "Example",
+				new boolean[3], calledFlagsA);
+		final ExecutionData b = new ExecutionData(5, "Example",
+				new boolean[3], calledFlagsB);
+		a.merge(b);
+
+		assertEquals(new HashSet(Arrays.asList("A.m()V", "B.m()V")),
+				calledFlagsA[0]);
+		assertEquals(Collections.singleton("B.m()V"), calledFlagsA[1]);
+		assertNotSame(calledFlagsB[1], calledFlagsA[1]);
+		assertNull(calledFlagsA[2]);
+	}
+
 	@Test
 	public void testMerge() {
 		final ExecutionData a = new ExecutionData(5, "Example",
@@ -112,6 +166,73 @@ public class ExecutionDataTest {
 		assertTrue(b.getProbes()[3]);
 	}
 
+	@Test
+	public void testPackedGetProbes() {
+		final ExecutionData e = new ExecutionData(5, "Example",
+				new long[] { 0x5L }, 3);
+		assertEquals(3, e.getProbeCount());
+		assertTrue(e.hasHits());
+
+		final boolean[] probes = e.getProbes();
+
+		assertArrayEquals(new boolean[] { true, false, true }, probes);
+		assertSame(probes, e.getProbes());
+		assertArrayEquals(new long[] { 0x5L }, e.getProbeBits());
+	}
+
+	@Test
+	public void testPackedReset() {
+		final ExecutionData e = new ExecutionData(5, "Example",
+				new long[] { 0x5L }, 3);
+		e.reset();
+		assertFalse(e.hasHits());
+		assertArrayEquals(new boolean[3], e.getProbes());
+	}
+
+	@Test
+	public void testPackedMerge() {
+		final ExecutionData a = new ExecutionData(5, "Example",
+				new long[] { 0xAL, 0x1L }, 65);
+		final ExecutionData b = new ExecutionData(5, "Example",
+				new long[] { 0xCL, 0x0L }, 65);
+		a.merge(b);
+		assertArrayEquals(new long[] { 0xEL, 0x1L }, a.getProbeBits());
+		assertArrayEquals(new long[] { 0xCL, 0x0L }, b.getProbeBits());
+
+		a.merge(b, false);
+		assertArrayEquals(new long[] { 0x2L, 0x1L }, a.getProbeBits());
+	}
+
+	@Test
+	public void testPackedMergeUnpacked() {
+		final ExecutionData a = new ExecutionData(5, "Example",
+				new boolean[] { false, true, false, true });
+		final ExecutionData b = new ExecutionData(5, "Example",
+				new long[] { 0xCL }, 4);
+		a.merge(b);
+		assertArrayEquals(new boolean[] { false, true, true, true },
+				a.getProbes());
+
+		b.merge(new ExecutionData(5, "Example",
+				new boolean[] { true, false, false, false }));
+		assertArrayEquals(new long[] { 0xDL }, b.getProbeBits());
+	}
+
+	@Test
+	public void testIntersect() {
+		final ExecutionData a = new ExecutionData(5, "Example",
+				new boolean[] { false, true, false, true });
+		final ExecutionData b = new ExecutionData(5, "Example",
+				new long[] { 0xCL }, 4);
+		a.intersect(b);
+		assertArrayEquals(new boolean[] { false, false, false, true },
+				a.getProbes());
+
+		b.intersect(new ExecutionData(5, "Example",
+				new boolean[] { false, false, true, false }));
+		assertArrayEquals(new long[] { 0x4L }, b.getProbeBits());
+	}
+
 	@Test
 	public void testAssertCompatibility() {
 		final ExecutionData a = new ExecutionData(5, "Example",
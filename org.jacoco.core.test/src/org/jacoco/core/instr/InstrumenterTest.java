@@ -14,7 +14,9 @@ package org.jacoco.core.instr;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
@@ -25,7 +27,14 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.CRC32;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -34,15 +43,27 @@ import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import org.jacoco.core.analysis.AnalyzerTest;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.internal.InputStreams;
 import org.jacoco.core.internal.Pack200Streams;
 import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.instr.InstrSupport;
+import org.jacoco.core.runtime.IClassActivationListener;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.ProbeSlab;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.runtime.SystemPropertiesRuntime;
 import org.jacoco.core.test.TargetLoader;
 import org.junit.AssumptionViolatedException;
 import org.junit.Before;
 import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
@@ -71,6 +92,39 @@ public class InstrumenterTest {
 
 	}
 
+	public static class DeferredTarget {
+
+		static final StringBuilder LOG = new StringBuilder("init");
+
+		@Override
+		public String toString() {
+			return LOG.toString();
+		}
+
+	}
+
+	public static class InlineTarget {
+
+		private int value;
+
+		public int getValue() {
+			return value;
+		}
+
+		public int sum(final int[] values) {
+			int sum = 0;
+			for (final int v : values) {
+				if (v > 0) {
+					sum += v;
+				} else {
+					sum -= v;
+				}
+			}
+			return sum + value;
+		}
+
+	}
+
 	private static final class AccessorGenerator
 			implements IExecutionDataAccessorGenerator {
 
@@ -144,6 +198,289 @@ public class InstrumenterTest {
 		assertEquals("org.jacoco.core.instr.InstrumenterTest", clazz.getName());
 	}
 
+	@Test
+	public void instrumentDeferred_should_notify_runtime_before_static_initializer()
+			throws Exception {
+		final IRuntime runtime = new SystemPropertiesRuntime();
+		final RuntimeData data = new RuntimeData();
+		runtime.startup(data);
+		final List<String> activated = new ArrayList<String>();
+		data.setActivationListener(new IClassActivationListener() {
+			public void classActivated(final long id, final String name) {
+				final ExecutionDataStore store = new ExecutionDataStore();
+				data.collect(store, new SessionInfoStore(), false);
+				assertNull(store.get(id));
+				activated.add(name);
+			}
+		});
+		instrumenter = new Instrumenter(runtime);
+		final TargetLoader loader = new TargetLoader();
+		final Class<?> withClinit = loader.add(DeferredTarget.class,
+				instrumenter.instrumentDeferred(
+						TargetLoader.getClassDataAsBytes(DeferredTarget.class),
+						"Test"));
+		final Class<?> withoutClinit = loader.add(SerializationTarget.class,
+				instrumenter.instrumentDeferred(TargetLoader
+						.getClassDataAsBytes(SerializationTarget.class),
+						"Test"));
+
+		assertEquals(0, activated.size());
+		assertEquals("init", withClinit.newInstance().toString());
+		withoutClinit.getConstructor(String.class, int.class)
+				.newInstance("", Integer.valueOf(0));
+		runtime.shutdown();
+
+		assertEquals(Arrays.asList(
+				"org/jacoco/core/instr/InstrumenterTest$DeferredTarget",
+				"org/jacoco/core/instr/InstrumenterTest$SerializationTarget"),
+				activated);
+		// Only the static initializer is instrumented in this version:
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		assertEquals(1, store.getContents().size());
+		assertTrue(store.get(CRC64.classId(
+				TargetLoader.getClassDataAsBytes(DeferredTarget.class)))
+				.hasHits());
+	}
+
+	@Test
+	public void instrumentActivated_should_declare_same_members_as_instrumentDeferred()
+			throws Exception {
+		for (final Class<?> c : new Class<?>[] { DeferredTarget.class,
+				SerializationTarget.class }) {
+			final byte[] source = TargetLoader.getClassDataAsBytes(c);
+			final byte[] deferred = instrumenter.instrumentDeferred(source,
+					"Test");
+			final byte[] activated = instrumenter.instrumentActivated(source,
+					"Test");
+
+			assertEquals(getMembers(deferred), getMembers(activated));
+		}
+	}
+
+	@Test
+	public void instrumentDeferred_should_instrument_interfaces_immediately()
+			throws Exception {
+		final byte[] source = TargetLoader
+				.getClassDataAsBytes(IExecutionDataAccessorGenerator.class);
+
+		assertArrayEquals(instrumenter.instrument(source, "Test"),
+				instrumenter.instrumentDeferred(source, "Test"));
+	}
+
+	@Test
+	public void instrumentDisabled_should_not_record_coverage()
+			throws Exception {
+		final IRuntime runtime = new SystemPropertiesRuntime();
+		final RuntimeData data = new RuntimeData();
+		runtime.startup(data);
+		final List<String> activated = new ArrayList<String>();
+		data.setActivationListener(new IClassActivationListener() {
+			public void classActivated(final long id, final String name) {
+				activated.add(name);
+			}
+		});
+		instrumenter = new Instrumenter(runtime);
+		final TargetLoader loader = new TargetLoader();
+		final Class<?> withClinit = loader.add(DeferredTarget.class,
+				instrumenter.instrumentDisabled(
+						TargetLoader.getClassDataAsBytes(DeferredTarget.class),
+						"Test"));
+		final Class<?> withoutClinit = loader.add(SerializationTarget.class,
+				instrumenter.instrumentDisabled(TargetLoader
+						.getClassDataAsBytes(SerializationTarget.class),
+						"Test"));
+
+		assertEquals("init", withClinit.newInstance().toString());
+		withoutClinit.getConstructor(String.class, int.class)
+				.newInstance("", Integer.valueOf(0));
+		runtime.shutdown();
+
+		assertEquals(0, activated.size());
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		assertEquals(0, store.getContents().size());
+	}
+
+	@Test
+	public void instrumentActivated_should_declare_same_members_as_instrumentDisabled()
+			throws Exception {
+		for (final Class<?> c : new Class<?>[] { DeferredTarget.class,
+				SerializationTarget.class }) {
+			final byte[] source = TargetLoader.getClassDataAsBytes(c);
+			final byte[] disabled = instrumenter.instrumentDisabled(source,
+					"Test");
+			final byte[] activated = instrumenter.instrumentActivated(source,
+					"Test");
+
+			assertEquals(getMembers(disabled), getMembers(activated));
+		}
+	}
+
+	@Test
+	public void instrument_should_store_probes_in_slab() throws Exception {
+		final ExecutionDataStore expected = runTargets(null);
+		final ProbeSlab slab = new ProbeSlab(4);
+		final RuntimeData data = new RuntimeData();
+		final ExecutionDataStore actual = runTargets(slab, data);
+
+		assertEquals(0, data.getStore().getContents().size());
+		assertEquals(2, actual.getContents().size());
+		for (final ExecutionData e : expected.getContents()) {
+			assertArrayEquals(e.getProbes(),
+					actual.get(e.getId()).getProbes());
+		}
+
+		data.reset();
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		for (final ExecutionData e : store.getContents()) {
+			assertFalse(e.hasHits());
+		}
+	}
+
+	private ExecutionDataStore runTargets(final ProbeSlab slab)
+			throws Exception {
+		return runTargets(slab, new RuntimeData());
+	}
+
+	private ExecutionDataStore runTargets(final ProbeSlab slab,
+			final RuntimeData data) throws Exception {
+		final IRuntime runtime = new SystemPropertiesRuntime();
+		data.setProbeSlab(slab);
+		runtime.startup(data);
+		instrumenter = new Instrumenter(runtime);
+		instrumenter.setProbeSlab(slab);
+		final TargetLoader loader = new TargetLoader();
+		final Class<?> deferred = loader.add(DeferredTarget.class,
+				instrumenter.instrument(
+						TargetLoader.getClassDataAsBytes(DeferredTarget.class),
+						"Test"));
+		final Class<?> serialization = loader.add(SerializationTarget.class,
+				instrumenter.instrument(TargetLoader
+						.getClassDataAsBytes(SerializationTarget.class),
+						"Test"));
+
+		assertEquals("init", deferred.newInstance().toString());
+		serialization.getConstructor(String.class, int.class)
+				.newInstance("", Integer.valueOf(0));
+		runtime.shutdown();
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		return store;
+	}
+
+	@Test
+	public void instrument_should_insert_compact_probes_into_methods_exceeding_inline_size()
+			throws Exception {
+		instrumenter.setInlineSize(35);
+		final byte[] bytes = instrumenter.instrument(
+				TargetLoader.getClassDataAsBytes(InlineTarget.class), "Test");
+
+		assertEquals(Collections.singleton("getValue"), getCallers(bytes, InstrSupport.HITMETHOD_NAME));
+		assertTrue(getMembers(bytes).contains(InstrSupport.INITMETHOD_ACC
+				+ " $jacocoHit(I)V"));
+		// Trigger verification of the compact probes
+		new TargetLoader().add(InlineTarget.class, bytes).newInstance();
+	}
+
+	@Test
+	public void instrument_should_call_chain_hooks_of_compact_methods_through_hook_methods()
+			throws Exception {
+		instrumenter.setInlineSize(35);
+		final byte[] bytes = instrumenter.instrument(
+				TargetLoader.getClassDataAsBytes(InlineTarget.class), "Test");
+
+		assertEquals(Collections.singleton("getValue"),
+				getCallers(bytes, "$jacocoEnter$0"));
+		assertEquals(Collections.singleton("getValue"),
+				getCallers(bytes, "$jacocoExit$0"));
+		assertFalse(getCallers(bytes, InstrSupport.ADD_CHAIN_NODE_METHOD_NAME)
+				.contains("getValue"));
+		assertFalse(getCallers(bytes, InstrSupport.SET_CALLED_NODE_METHOD_NAME)
+				.contains("getValue"));
+		final List<String> members = getMembers(bytes);
+		assertTrue(members.contains(
+				InstrSupport.INITMETHOD_ACC + " $jacocoEnter$0()V"));
+		assertTrue(members
+				.contains(InstrSupport.INITMETHOD_ACC + " $jacocoExit$0()V"));
+		// Trigger verification of the hook methods
+		new TargetLoader().add(InlineTarget.class, bytes).newInstance();
+	}
+
+	@Test
+	public void instrument_should_not_insert_compact_probes_by_default()
+			throws Exception {
+		final byte[] bytes = instrumenter.instrument(
+				TargetLoader.getClassDataAsBytes(InlineTarget.class), "Test");
+
+		assertEquals(Collections.emptySet(), getCallers(bytes, InstrSupport.HITMETHOD_NAME));
+		assertFalse(getMembers(bytes).contains(InstrSupport.INITMETHOD_ACC
+				+ " $jacocoHit(I)V"));
+	}
+
+	@Test
+	public void instrumentActivated_should_not_insert_compact_probes()
+			throws Exception {
+		instrumenter.setInlineSize(35);
+		final byte[] source = TargetLoader
+				.getClassDataAsBytes(InlineTarget.class);
+
+		assertEquals(
+				getMembers(instrumenter.instrumentDeferred(source, "Test")),
+				getMembers(instrumenter.instrumentActivated(source, "Test")));
+	}
+
+	private static Set<String> getCallers(final byte[] bytes,
+			final String method) {
+		final Set<String> callers = new HashSet<String>();
+		new ClassReader(bytes).accept(
+				new ClassVisitor(InstrSupport.ASM_API_VERSION) {
+					@Override
+					public MethodVisitor visitMethod(final int access,
+							final String name, final String descriptor,
+							final String signature,
+							final String[] exceptions) {
+						return new MethodVisitor(InstrSupport.ASM_API_VERSION) {
+							@Override
+							public void visitMethodInsn(final int opcode,
+									final String owner, final String mname,
+									final String mdesc, final boolean itf) {
+								if (method.equals(mname)) {
+									callers.add(name);
+								}
+							}
+						};
+					}
+				}, 0);
+		return callers;
+	}
+
+	private static List<String> getMembers(final byte[] bytes) {
+		final List<String> members = new ArrayList<String>();
+		final ClassVisitor visitor = new ClassVisitor(
+				InstrSupport.ASM_API_VERSION) {
+			@Override
+			public FieldVisitor visitField(final int access, final String name,
+					final String descriptor, final String signature,
+					final Object value) {
+				members.add(access + " " + name + descriptor);
+				return null;
+			}
+
+			@Override
+			public MethodVisitor visitMethod(final int access,
+					final String name, final String descriptor,
+					final String signature, final String[] exceptions) {
+				members.add(access + " " + name + descriptor);
+				return null;
+			}
+		};
+		new ClassReader(bytes).accept(visitor, 0);
+		return members;
+	}
+
 	/**
 	 * Triggers exception in {@link Instrumenter#instrument(byte[], String)}.
 	 */
@@ -516,4 +853,107 @@ public class InstrumenterTest {
 		assertNull(zipin.getNextEntry());
 	}
 
+	@Test
+	public void instrumentAll_should_write_entries_in_original_order_in_parallel_mode()
+			throws IOException {
+		final ByteArrayOutputStream nested = new ByteArrayOutputStream();
+		final ZipOutputStream nestedout = new ZipOutputStream(nested);
+		nestedout.putNextEntry(new ZipEntry("Nested1.class"));
+		nestedout.write(TargetLoader.getClassDataAsBytes(getClass()));
+		nestedout.putNextEntry(new ZipEntry("Nested2.class"));
+		nestedout.write(TargetLoader.getClassDataAsBytes(Instrumenter.class));
+		nestedout.finish();
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zipout = new ZipOutputStream(buffer);
+		zipout.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+		zipout.putNextEntry(new ZipEntry("META-INF/ALIAS.SF"));
+		for (int i = 0; i < 300; i++) {
+			final ZipEntry entry = new ZipEntry("Test" + i + ".class");
+			final byte[] bytes = TargetLoader.getClassDataAsBytes(
+					i % 2 == 0 ? getClass() : Instrumenter.class);
+			if (i % 3 == 0) {
+				entry.setMethod(ZipEntry.STORED);
+				entry.setSize(bytes.length);
+				entry.setCrc(crc(bytes));
+			}
+			zipout.putNextEntry(entry);
+			zipout.write(bytes);
+			if (i == 100) {
+				zipout.putNextEntry(new ZipEntry("resource.txt"));
+				zipout.write("text".getBytes());
+				zipout.putNextEntry(new ZipEntry("nested.jar"));
+				zipout.write(nested.toByteArray());
+			}
+		}
+		zipout.finish();
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		final int expectedCount = instrumenter.instrumentAll(
+				new ByteArrayInputStream(buffer.toByteArray()), expected,
+				"Test");
+		final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		final int count;
+		try {
+			count = instrumenter.instrumentAll(
+					new ByteArrayInputStream(buffer.toByteArray()), actual,
+					"Test", executor);
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(302, expectedCount);
+		assertEquals(expectedCount, count);
+		assertEquals(getEntries(expected.toByteArray()),
+				getEntries(actual.toByteArray()));
+	}
+
+	@Test
+	public void instrumentAll_should_report_broken_class_in_parallel_mode()
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zipout = new ZipOutputStream(buffer);
+		zipout.putNextEntry(new ZipEntry("Test.class"));
+		final byte[] brokenclass = TargetLoader.getClassDataAsBytes(getClass());
+		brokenclass[10] = 0x23;
+		zipout.write(brokenclass);
+		zipout.finish();
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			instrumenter.instrumentAll(
+					new ByteArrayInputStream(buffer.toByteArray()),
+					new ByteArrayOutputStream(), "test.zip", executor);
+			fail("exception expected");
+		} catch (IOException e) {
+			assertEquals("Error while instrumenting test.zip@Test.class.",
+					e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static long crc(final byte[] bytes) {
+		final CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	private static List<String> getEntries(final byte[] zip)
+			throws IOException {
+		final List<String> entries = new ArrayList<String>();
+		final ZipInputStream zipin = new ZipInputStream(
+				new ByteArrayInputStream(zip));
+		ZipEntry entry;
+		while ((entry = zipin.getNextEntry()) != null) {
+			final byte[] content = InputStreams.readFully(zipin);
+			final String nested = entry.getName().endsWith(".jar")
+					? getEntries(content).toString()
+					: Long.toHexString(crc(content));
+			entries.add(entry.getName() + " " + entry.getMethod() + " "
+					+ nested);
+		}
+		return entries;
+	}
+
 }
@@ -15,12 +15,16 @@ package org.jacoco.core.internal.analysis;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.jacoco.core.analysis.ICoverageNode;
 import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.data.MethodProbesInfo;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -113,6 +117,36 @@ public class ClassCoverageImplTest {
 		assertEquals(CounterImpl.COUNTER_0_1, node.getClassCounter());
 	}
 
+	@Test
+	public void copy_should_not_share_nodes() {
+		node.setSignature("LSample;");
+		node.setSourceFileName("Sample.java");
+		node.setInterfaces(new String[] { "A" });
+		final MethodCoverageImpl m = new MethodCoverageImpl("sample", "()V",
+				null);
+		m.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 3);
+		m.incrementMethodCounter();
+		node.addMethod(m);
+
+		final ClassCoverageImpl copy = node.copy();
+		copy.addMethod(createMethod(false));
+
+		assertEquals("Sample", copy.getName());
+		assertEquals(12345, copy.getId());
+		assertEquals("LSample;", copy.getSignature());
+		assertEquals("Sample.java", copy.getSourceFileName());
+		assertArrayEquals(new String[] { "A" }, copy.getInterfaceNames());
+		assertEquals(2, copy.getMethods().size());
+		assertEquals(CounterImpl.COUNTER_0_1,
+				copy.getMethods().iterator().next().getLine(3)
+						.getInstructionCounter());
+		assertEquals(1, node.getMethods().size());
+		assertEquals(CounterImpl.COUNTER_0_1, node.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(1, 1),
+				copy.getInstructionCounter());
+		assertEquals(CounterImpl.COUNTER_0_1, copy.getLineCounter());
+	}
+
 	private MethodCoverageImpl createMethod(boolean covered) {
 		final MethodCoverageImpl m = new MethodCoverageImpl("sample", "()V",
 				null);
@@ -122,4 +156,47 @@ public class ClassCoverageImplTest {
 		return m;
 	}
 
+	@Test
+	public void getMethodProbesInfo_should_distinguish_overloaded_methods() {
+		final MethodProbesInfo a = createInfo("foo", "()V");
+		final MethodProbesInfo b = createInfo("foo", "(I)V");
+		node.getMethodProbesInfos().add(a);
+		node.getMethodProbesInfos().add(b);
+
+		assertSame(a, node.getMethodProbesInfo("foo", "()V"));
+		assertSame(b, node.getMethodProbesInfo("foo", "(I)V"));
+		assertNull(node.getMethodProbesInfo("foo", "(J)V"));
+	}
+
+	@Test
+	public void getMethodProbesInfo_should_find_infos_added_later() {
+		node.getMethodProbesInfos().add(createInfo("foo", "()V"));
+		assertNull(node.getMethodProbesInfo("bar", "()V"));
+
+		final MethodProbesInfo bar = createInfo("bar", "()V");
+		node.getMethodProbesInfos().add(bar);
+
+		assertSame(bar, node.getMethodProbesInfo("bar", "()V"));
+	}
+
+	@Test
+	public void setMethodProbesInfos_should_replace_infos() {
+		node.getMethodProbesInfos().add(createInfo("foo", "()V"));
+		assertTrue(node.getMethodProbesInfo("foo", "()V") != null);
+
+		final MethodProbesInfo bar = createInfo("bar", "()V");
+		node.setMethodProbesInfos(Arrays.asList(bar));
+
+		assertNull(node.getMethodProbesInfo("foo", "()V"));
+		assertSame(bar, node.getMethodProbesInfo("bar", "()V"));
+	}
+
+	private static MethodProbesInfo createInfo(final String name,
+			final String desc) {
+		final MethodProbesInfo info = new MethodProbesInfo();
+		info.setMethodName(name);
+		info.setDesc(desc);
+		return info;
+	}
+
 }
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ClassNameFilter}.
+ */
+public class ClassNameFilterTest {
+
+	@Test
+	public void forDiff_should_return_null_without_diff() {
+		assertNull(ClassNameFilter.forDiff(null));
+	}
+
+	@Test
+	public void forRules_should_return_null_without_rules() {
+		assertNull(ClassNameFilter.forRules(null));
+	}
+
+	@Test
+	public void forRules_should_accept_included_and_not_excluded_classes() {
+		final ClassNameFilter filter = ClassNameFilter.forRules(
+				Arrays.asList("org.jacoco.*", "org.jacoco.core.test.*"));
+
+		assertTrue(filter.accept("org/jacoco/core/Foo"));
+		assertFalse(filter.accept("org/jacoco/core/test/Foo"));
+		assertFalse(filter.accept("com/example/Foo"));
+	}
+
+	@Test
+	public void forRules_should_accept_classes_matched_by_any_pair() {
+		final ClassNameFilter filter = ClassNameFilter.forRules(Arrays
+				.asList("org.jacoco.*", "*Test", "com.example.*", ""));
+
+		assertTrue(filter.accept("org/jacoco/Foo"));
+		assertFalse(filter.accept("org/jacoco/FooTest"));
+		assertTrue(filter.accept("com/example/FooTest"));
+		assertFalse(filter.accept("net/Foo"));
+	}
+
+	@Test
+	public void getFingerprint_should_compare_filter_criteria() {
+		final ClassNameFilter filter = ClassNameFilter
+				.forRules(Arrays.asList("org.jacoco.*", "*Test"));
+
+		assertEquals(filter.getFingerprint(), ClassNameFilter
+				.forRules(Arrays.asList("org.jacoco.*", "*Test"))
+				.getFingerprint());
+		assertNotEquals(filter.getFingerprint(), ClassNameFilter
+				.forRules(Arrays.asList("org.jacoco.*", "*IT"))
+				.getFingerprint());
+		assertEquals(
+				ClassNameFilter.forClasses(Arrays.asList("A", "B"))
+						.getFingerprint(),
+				ClassNameFilter.forClasses(Arrays.asList("B", "A"))
+						.getFingerprint());
+		assertNotEquals(filter.getFingerprint(),
+				filter.restrict(Arrays.asList("A")).getFingerprint());
+	}
+
+	@Test
+	public void forClasses_should_only_accept_given_classes() {
+		final ClassNameFilter filter = ClassNameFilter
+				.forClasses(Arrays.asList("org/jacoco/Foo"));
+
+		assertTrue(filter.accept("org/jacoco/Foo"));
+		assertFalse(filter.accept("org/jacoco/Bar"));
+		assertTrue(filter.acceptPath("classes/org/jacoco/Foo.class"));
+		assertFalse(filter.acceptPath("classes/org/jacoco/Bar.class"));
+	}
+
+	@Test
+	public void restrict_should_apply_rules_and_given_classes() {
+		final ClassNameFilter filter = ClassNameFilter
+				.forRules(Arrays.asList("org.jacoco.*", "*Test"))
+				.restrict(Arrays.asList("org/jacoco/Foo", "org/jacoco/FooTest",
+						"com/example/Foo"));
+
+		assertTrue(filter.accept("org/jacoco/Foo"));
+		assertFalse(filter.accept("org/jacoco/FooTest"));
+		assertFalse(filter.accept("com/example/Foo"));
+		assertFalse(filter.accept("org/jacoco/Bar"));
+	}
+
+	@Test
+	public void restrict_should_intersect_with_previous_restriction() {
+		final ClassNameFilter filter = ClassNameFilter
+				.forClasses(Arrays.asList("Foo", "Bar"))
+				.restrict(Arrays.asList("Bar", "Baz"));
+
+		assertFalse(filter.accept("Foo"));
+		assertTrue(filter.accept("Bar"));
+		assertFalse(filter.accept("Baz"));
+	}
+
+}
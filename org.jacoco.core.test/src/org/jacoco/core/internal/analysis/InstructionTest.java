@@ -36,6 +36,24 @@ public class InstructionTest {
 		assertEquals(123, instruction.getLine());
 	}
 
+	@Test
+	public void reset_should_restore_state_of_new_instance() {
+		final Instruction successor = new Instruction(124);
+		instruction.addBranch(successor, 0);
+		instruction.addBranch(true, 1);
+		successor.addBranch(true, 0);
+
+		successor.reset(200);
+		instruction.reset(201);
+		successor.addBranch(true, 0);
+
+		assertEquals(200, successor.getLine());
+		assertEquals(201, instruction.getLine());
+		assertEquals(CounterImpl.COUNTER_1_0,
+				instruction.getInstructionCounter());
+		assertEquals(CounterImpl.COUNTER_0_0, instruction.getBranchCounter());
+	}
+
 	@Test
 	public void new_instance_should_have_no_coverage_and_no_branches() {
 		assertEquals(CounterImpl.COUNTER_1_0,
@@ -13,6 +13,7 @@
 package org.jacoco.core.internal.analysis;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.Map;
 
@@ -187,4 +188,30 @@ public class InstructionsBuilderTest {
 				map.get(i1).getInstructionCounter());
 	}
 
+	@Test
+	public void reset_should_reuse_instructions_without_previous_state() {
+		InsnNode i1 = new InsnNode(Opcodes.NOP);
+		builder.setCurrentLine(10);
+		builder.addInstruction(i1);
+		Label l = new Label();
+		builder.addJump(l, 1);
+		builder.addLabel(l);
+		builder.addInstruction(new InsnNode(Opcodes.NOP));
+		builder.addProbe(1, 0);
+		final Instruction previous = builder.getInstructions().get(i1);
+
+		builder.reset(new boolean[] { false, false });
+		InsnNode i2 = new InsnNode(Opcodes.NOP);
+		builder.addInstruction(i2);
+		builder.addProbe(1, 0);
+
+		Map<AbstractInsnNode, Instruction> map = builder.getInstructions();
+		assertEquals(1, map.size());
+		assertSame(previous, map.get(i2));
+		assertEquals(ISourceNode.UNKNOWN_LINE, map.get(i2).getLine());
+		assertEquals(CounterImpl.COUNTER_1_0,
+				map.get(i2).getInstructionCounter());
+		assertEquals(CounterImpl.COUNTER_0_0, map.get(i2).getBranchCounter());
+	}
+
 }
@@ -223,4 +223,62 @@ public class SourceNodeImplTest {
 		assertEquals(CounterImpl.getInstance(0, 1), node.getLineCounter());
 	}
 
+	@Test
+	public void increment_should_keep_lines_when_counters_exceed_packed_range() {
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS,
+				"Foo");
+		node.increment(CounterImpl.getInstance(1, 2),
+				CounterImpl.getInstance(3, 4), 10);
+		node.increment(CounterImpl.getInstance(0, 255),
+				CounterImpl.COUNTER_0_0, 12);
+
+		node.increment(CounterImpl.getInstance(1000, 0),
+				CounterImpl.getInstance(0, 70000), 12);
+		node.increment(CounterImpl.getInstance(1, 1),
+				CounterImpl.COUNTER_0_0, 8);
+
+		assertEquals(8, node.getFirstLine());
+		assertEquals(12, node.getLastLine());
+		assertEquals(CounterImpl.getInstance(1, 1),
+				node.getLine(8).getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(1, 2),
+				node.getLine(10).getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(3, 4),
+				node.getLine(10).getBranchCounter());
+		assertEquals(LineImpl.EMPTY, node.getLine(11));
+		assertEquals(CounterImpl.getInstance(1000, 255),
+				node.getLine(12).getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(0, 70000),
+				node.getLine(12).getBranchCounter());
+		assertEquals(CounterImpl.getInstance(0, 3), node.getLineCounter());
+	}
+
+	@Test
+	public void increment_should_add_lines_of_packed_child_to_wide_node() {
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS,
+				"Foo");
+		node.increment(CounterImpl.getInstance(300, 0),
+				CounterImpl.COUNTER_0_0, 20);
+		node.increment(CounterImpl.getInstance(2, 0), CounterImpl.COUNTER_0_0,
+				21);
+		final SourceNodeImpl child = new SourceNodeImpl(ElementType.CLASS,
+				"Foo");
+		child.increment(CounterImpl.getInstance(0, 1),
+				CounterImpl.COUNTER_0_0, 21);
+		child.increment(CounterImpl.getInstance(1, 0),
+				CounterImpl.COUNTER_0_0, 23);
+
+		node.increment(child);
+
+		assertEquals(20, node.getFirstLine());
+		assertEquals(23, node.getLastLine());
+		assertEquals(CounterImpl.getInstance(300, 0),
+				node.getLine(20).getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(2, 1),
+				node.getLine(21).getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(1, 0),
+				node.getLine(23).getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(2, 1), node.getLineCounter());
+	}
+
 }
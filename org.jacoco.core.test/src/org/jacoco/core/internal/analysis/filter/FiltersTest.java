@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Evgeny Mandrikov - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis.filter;
+
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.junit.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Unit tests for {@link Filters}.
+ */
+public class FiltersTest extends FilterTestBase {
+
+	private final IFilter filter = Filters.all();
+
+	private final MethodNode m = new MethodNode(InstrSupport.ASM_API_VERSION, 0,
+			"example", "()V", null, null);
+
+	@Test
+	public void should_apply_kotlin_filters_to_classes_with_kotlin_metadata() {
+		context.classAnnotations
+				.add(KotlinGeneratedFilter.KOTLIN_METADATA_DESC);
+		final Range range = createNotNullOperator();
+
+		filter.filter(m, context, output);
+
+		assertIgnored(range);
+	}
+
+	@Test
+	public void should_apply_kotlin_filters_to_classes_with_kotlin_source() {
+		context.sourceFileName = "Foo.kt";
+		final Range range = createNotNullOperator();
+
+		filter.filter(m, context, output);
+
+		assertIgnored(range);
+	}
+
+	@Test
+	public void should_not_apply_kotlin_filters_to_java_classes() {
+		createNotNullOperator();
+
+		filter.filter(m, context, output);
+
+		assertIgnored();
+	}
+
+	@Test
+	public void should_apply_filters_when_required_opcodes_are_present() {
+		m.visitInsn(Opcodes.NOP);
+		m.visitFieldInsn(Opcodes.GETSTATIC, "Foo", "$assertionsDisabled",
+				"Z");
+		final Label end = new Label();
+		m.visitJumpInsn(Opcodes.IFNE, end);
+		final Range range = new Range(m.instructions.getLast(),
+				m.instructions.getLast());
+		m.visitInsn(Opcodes.NOP);
+		m.visitLabel(end);
+		m.visitInsn(Opcodes.RETURN);
+
+		filter.filter(m, context, output);
+
+		assertIgnored(range);
+	}
+
+	@Test
+	public void none_should_not_filter() {
+		context.classAnnotations
+				.add(KotlinGeneratedFilter.KOTLIN_METADATA_DESC);
+		createNotNullOperator();
+
+		Filters.NONE.filter(m, context, output);
+
+		assertIgnored();
+	}
+
+	/**
+	 * <pre>
+	 *     return x!!.length
+	 * </pre>
+	 */
+	private Range createNotNullOperator() {
+		final Label line = new Label();
+		m.visitLabel(line);
+		m.visitLineNumber(1, line);
+		m.visitVarInsn(Opcodes.ALOAD, 1);
+		m.visitInsn(Opcodes.DUP);
+
+		final Range range = new Range();
+		final Label label = new Label();
+		m.visitJumpInsn(Opcodes.IFNONNULL, label);
+		range.fromInclusive = m.instructions.getLast();
+		m.visitMethodInsn(Opcodes.INVOKESTATIC,
+				"kotlin/jvm/internal/Intrinsics", "throwNpe", "()V", false);
+		range.toInclusive = m.instructions.getLast();
+
+		m.visitLabel(label);
+		m.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length",
+				"()I", false);
+		m.visitInsn(Opcodes.IRETURN);
+		return range;
+	}
+
+}
@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.jacoco.core.internal.data;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
@@ -121,6 +122,40 @@ public class CompactDataInputOutputTest {
 		}
 	}
 
+	@Test
+	public void testReadBits() throws IOException {
+		final boolean[] values = new boolean[70];
+		values[0] = true;
+		values[9] = true;
+		values[63] = true;
+		values[69] = true;
+		out.writeBooleanArray(values);
+		out.close();
+		assertEquals(70, in.readVarInt());
+		assertArrayEquals(ProbeBits.pack(values), in.readBits(70));
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void testReadBitsIgnoresPadding() throws IOException {
+		out.writeByte(0xFF);
+		out.close();
+		assertArrayEquals(new long[] { 0x07L }, in.readBits(3));
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void testWriteBits() throws IOException {
+		final boolean[] values = new boolean[70];
+		values[1] = true;
+		values[64] = true;
+		out.writeVarInt(values.length);
+		out.writeBits(ProbeBits.pack(values), values.length);
+		out.close();
+		assertArrayEquals(values, in.readBooleanArray());
+		assertEquals(-1, in.read());
+	}
+
 	@Test
 	public void testSetArray() throws IOException {
 		HashSet[] sets = new HashSet[15];
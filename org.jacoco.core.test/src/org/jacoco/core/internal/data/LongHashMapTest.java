@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LongHashMap}.
+ */
+public class LongHashMapTest {
+
+	private LongHashMap<String> map;
+
+	@Before
+	public void setup() {
+		map = new LongHashMap<String>();
+	}
+
+	@Test
+	public void get_should_return_null_for_empty_map() {
+		assertNull(map.get(0));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void get_should_return_stored_values() {
+		assertNull(map.put(0, "zero"));
+		assertNull(map.put(-1, "minus"));
+		assertNull(map.put(Long.MAX_VALUE, "max"));
+
+		assertEquals("zero", map.get(0));
+		assertEquals("minus", map.get(-1));
+		assertEquals("max", map.get(Long.MAX_VALUE));
+		assertNull(map.get(1));
+		assertEquals(3, map.size());
+	}
+
+	@Test
+	public void put_should_replace_value_of_existing_key() {
+		map.put(42, "a");
+
+		assertEquals("a", map.put(42, "b"));
+
+		assertEquals("b", map.get(42));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void put_should_grow_map() {
+		for (long i = 0; i < 10000; i++) {
+			map.put(i << 32, String.valueOf(i));
+		}
+
+		assertEquals(10000, map.size());
+		for (long i = 0; i < 10000; i++) {
+			assertEquals(String.valueOf(i), map.get(i << 32));
+		}
+		assertNull(map.get(10000L << 32));
+	}
+
+	@Test
+	public void values_should_return_values_in_insertion_order() {
+		map.put(3, "c");
+		map.put(1, "a");
+		map.put(2, "b");
+		map.put(1, "x");
+
+		final List<String> values = map.values();
+
+		assertEquals(Arrays.asList("c", "x", "b"), values);
+	}
+
+	@Test
+	public void clear_should_remove_all_entries() {
+		for (long i = 0; i < 100; i++) {
+			map.put(i, String.valueOf(i));
+		}
+
+		map.clear();
+
+		assertEquals(0, map.size());
+		assertNull(map.get(42));
+		assertEquals(Arrays.asList(), map.values());
+		map.put(42, "a");
+		assertEquals("a", map.get(42));
+		assertEquals(1, map.size());
+	}
+
+}
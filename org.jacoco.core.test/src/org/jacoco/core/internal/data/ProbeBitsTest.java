@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ProbeBits}.
+ */
+public class ProbeBitsTest {
+
+	@Test
+	public void words_should_round_up() {
+		assertEquals(0, ProbeBits.words(0));
+		assertEquals(1, ProbeBits.words(1));
+		assertEquals(1, ProbeBits.words(64));
+		assertEquals(2, ProbeBits.words(65));
+	}
+
+	@Test
+	public void pack_and_unpack_should_be_symmetric() {
+		final boolean[] probes = new boolean[130];
+		probes[0] = true;
+		probes[63] = true;
+		probes[64] = true;
+		probes[129] = true;
+
+		final long[] bits = ProbeBits.pack(probes);
+
+		assertArrayEquals(new long[] { 0x8000000000000001L, 0x1L, 0x2L },
+				bits);
+		assertArrayEquals(probes, ProbeBits.unpack(bits, 130));
+	}
+
+	@Test
+	public void set_should_apply_flag_for_set_bits() {
+		final boolean[] probes = new boolean[] { true, true, false, false };
+
+		ProbeBits.set(probes, new long[] { 0x6L }, false);
+
+		assertArrayEquals(new boolean[] { true, false, false, false },
+				probes);
+	}
+
+	@Test
+	public void or_andNot_and_should_combine_words() {
+		final long[] bits = new long[] { 0x3L, 0x0L };
+
+		ProbeBits.or(bits, new long[] { 0x4L, 0x1L });
+		assertArrayEquals(new long[] { 0x7L, 0x1L }, bits);
+
+		ProbeBits.andNot(bits, new long[] { 0x1L, 0x0L });
+		assertArrayEquals(new long[] { 0x6L, 0x1L }, bits);
+
+		ProbeBits.and(bits, new long[] { 0x2L, 0x0L });
+		assertArrayEquals(new long[] { 0x2L, 0x0L }, bits);
+	}
+
+	@Test
+	public void any_should_detect_set_bits() {
+		assertFalse(ProbeBits.any(new long[0]));
+		assertFalse(ProbeBits.any(new long[] { 0, 0 }));
+		assertTrue(ProbeBits.any(new long[] { 0, 1 }));
+	}
+
+}
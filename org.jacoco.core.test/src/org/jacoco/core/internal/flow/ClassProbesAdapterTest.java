@@ -16,6 +16,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+
+import org.jacoco.core.data.MethodProbesInfo;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
 import org.junit.Test;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Label;
@@ -147,6 +151,51 @@ public class ClassProbesAdapterTest {
 		assertFalse(mv.frame);
 	}
 
+	@Test
+	public void should_record_probe_range_of_every_method() {
+		final MockClassVisitor cv = new MockClassVisitor() {
+			@Override
+			public MethodProbesVisitor visitMethod(int access, String name,
+					String desc, String signature, String[] exceptions) {
+				return new MockMethodVisitor();
+			}
+		};
+		final ClassCoverageImpl coverage = new ClassCoverageImpl("Foo", 0,
+				false);
+		final ClassProbesAdapter adapter = new ClassProbesAdapter(cv, false,
+				coverage, null);
+		adapter.visit(Opcodes.V1_5, 0, "Foo", null, "java/lang/Object", null);
+		writeMethod(adapter); // 1 probe
+		writeMethodWithBranch(adapter); // 3 probes
+		adapter.visitEnd();
+
+		final List<MethodProbesInfo> infos = coverage.getMethodProbesInfos();
+		assertEquals(2, infos.size());
+		assertEquals("Foo.foo()V", infos.get(0).getMethodUri());
+		assertEquals(0, infos.get(0).getStartIndex());
+		assertEquals(0, infos.get(0).getEndIndex());
+		assertEquals(1, infos.get(1).getStartIndex());
+		assertEquals(3, infos.get(1).getEndIndex());
+		assertEquals(4, cv.count);
+		assertFalse(infos.get(0).getFingerprint() == infos.get(1)
+				.getFingerprint());
+	}
+
+	@Test
+	public void should_not_record_probe_range_for_methods_without_visitor() {
+		final MockClassVisitor cv = new MockClassVisitor();
+		final ClassCoverageImpl coverage = new ClassCoverageImpl("Foo", 0,
+				false);
+		final ClassProbesAdapter adapter = new ClassProbesAdapter(cv, false,
+				coverage, null);
+		adapter.visit(Opcodes.V1_5, 0, "Foo", null, "java/lang/Object", null);
+		writeMethodWithBranch(adapter); // 3 probes
+		adapter.visitEnd();
+
+		assertTrue(coverage.getMethodProbesInfos().isEmpty());
+		assertEquals(3, cv.count);
+	}
+
 	private void writeMethod(final ClassVisitor cv) {
 		MethodVisitor mv = cv.visitMethod(0, "foo", "()V", null, null);
 		mv.visitCode();
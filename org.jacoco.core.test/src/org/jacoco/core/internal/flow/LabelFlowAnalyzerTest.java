@@ -22,6 +22,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
 
 /**
  * Unit tests for {@link LabelFlowAnalyzer}.
@@ -393,4 +394,60 @@ public class LabelFlowAnalyzerTest {
 		assertFalse(analyzer.first);
 	}
 
+	@Test
+	public void hasBranchProbes_should_return_false_for_jumps_to_single_targets() {
+		final MethodNode method = new MethodNode(0, "m", "()V", null, null);
+		method.visitInsn(ICONST_0);
+		method.visitJumpInsn(IFEQ, label);
+		method.visitInsn(RETURN);
+		method.visitLabel(label);
+		method.visitInsn(RETURN);
+		LabelFlowAnalyzer.markLabels(method);
+
+		assertFalse(LabelFlowAnalyzer.hasBranchProbes(method));
+	}
+
+	@Test
+	public void hasBranchProbes_should_return_true_for_jumps_to_multi_targets() {
+		final MethodNode method = new MethodNode(0, "m", "()V", null, null);
+		method.visitLabel(label);
+		method.visitInsn(ICONST_0);
+		method.visitJumpInsn(IFEQ, label);
+		method.visitInsn(RETURN);
+		LabelFlowAnalyzer.markLabels(method);
+
+		assertTrue(LabelFlowAnalyzer.hasBranchProbes(method));
+	}
+
+	@Test
+	public void hasBranchProbes_should_return_true_for_tableswitch_to_multi_targets() {
+		final MethodNode method = new MethodNode(0, "m", "()V", null, null);
+		final Label dflt = new Label();
+		method.visitInsn(ICONST_0);
+		method.visitTableSwitchInsn(0, 0, dflt, label);
+		method.visitLabel(label);
+		method.visitInsn(NOP);
+		method.visitLabel(dflt);
+		method.visitInsn(RETURN);
+		LabelFlowAnalyzer.markLabels(method);
+
+		assertTrue(LabelFlowAnalyzer.hasBranchProbes(method));
+	}
+
+	@Test
+	public void hasBranchProbes_should_return_true_for_lookupswitch_to_multi_targets() {
+		final MethodNode method = new MethodNode(0, "m", "()V", null, null);
+		final Label dflt = new Label();
+		method.visitInsn(ICONST_0);
+		method.visitLookupSwitchInsn(dflt, new int[] { 0 },
+				new Label[] { label });
+		method.visitLabel(label);
+		method.visitInsn(NOP);
+		method.visitLabel(dflt);
+		method.visitInsn(RETURN);
+		LabelFlowAnalyzer.markLabels(method);
+
+		assertTrue(LabelFlowAnalyzer.hasBranchProbes(method));
+	}
+
 }
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.junit.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Unit tests for {@link MethodFingerprint}.
+ */
+public class MethodFingerprintTest {
+
+	@Test
+	public void should_be_equal_for_same_code() {
+		assertEquals(MethodFingerprint.compute(createMethod(1, 2, false)),
+				MethodFingerprint.compute(createMethod(1, 2, false)));
+	}
+
+	@Test
+	public void should_ignore_line_numbers() {
+		assertEquals(MethodFingerprint.compute(createMethod(1, 2, false)),
+				MethodFingerprint.compute(createMethod(10, 20, false)));
+	}
+
+	@Test
+	public void should_ignore_line_numbers_and_frames_before_jump_targets() {
+		assertEquals(MethodFingerprint.compute(createMethod(1, 2, false)),
+				MethodFingerprint.compute(createMethod(1, 2, false, true)));
+	}
+
+	@Test
+	public void should_differ_for_different_operands() {
+		final MethodNode m = createMethod(1, 2, false);
+		final long before = MethodFingerprint.compute(m);
+
+		m.visitVarInsn(Opcodes.ILOAD, 2);
+
+		assertFalse(before == MethodFingerprint.compute(m));
+	}
+
+	@Test
+	public void should_differ_for_different_jump_targets() {
+		assertFalse(MethodFingerprint.compute(
+				createMethod(1, 2, false)) == MethodFingerprint
+						.compute(createMethod(1, 2, true)));
+	}
+
+	/**
+	 * Creates a method with a conditional jump to the second or third
+	 * instruction after the jump.
+	 */
+	private static MethodNode createMethod(final int line1, final int line2,
+			final boolean farTarget) {
+		return createMethod(line1, line2, farTarget, false);
+	}
+
+	private static MethodNode createMethod(final int line1, final int line2,
+			final boolean farTarget, final boolean extraLine) {
+		final MethodNode m = new MethodNode(InstrSupport.ASM_API_VERSION, 0,
+				"foo", "()V", null, null);
+		final Label start = new Label();
+		m.visitLabel(start);
+		m.visitLineNumber(line1, start);
+		m.visitVarInsn(Opcodes.ILOAD, 1);
+		if (extraLine) {
+			final Label extra = new Label();
+			m.visitLabel(extra);
+			m.visitLineNumber(line1 + 1, extra);
+			m.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		}
+		final Label target = new Label();
+		m.visitJumpInsn(Opcodes.IFEQ, target);
+		final Label next = new Label();
+		m.visitLabel(next);
+		m.visitLineNumber(line2, next);
+		if (farTarget) {
+			m.visitInsn(Opcodes.NOP);
+			m.visitLabel(target);
+		} else {
+			m.visitLabel(target);
+			m.visitInsn(Opcodes.NOP);
+		}
+		m.visitInsn(Opcodes.RETURN);
+		return m;
+	}
+
+}
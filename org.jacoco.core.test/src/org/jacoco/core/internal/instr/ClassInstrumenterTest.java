@@ -67,9 +67,17 @@ public class ClassInstrumenterTest implements IProbeArrayStrategy {
 		return 0;
 	}
 
+	public int loadCalledFlags(MethodVisitor mv, int variable) {
+		return 0;
+	}
+
 	public void addMembers(ClassVisitor cv, int probeCount) {
 	}
 
+	public int getProbeOffset() {
+		return 0;
+	}
+
 	@Override
 	public void callChainHandleMethod(MethodVisitor mv, String uri) {
 
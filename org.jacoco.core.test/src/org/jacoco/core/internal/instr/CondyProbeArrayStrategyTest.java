@@ -23,6 +23,7 @@ import org.objectweb.asm.Handle;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 import org.objectweb.asm.tree.VarInsnNode;
@@ -54,7 +55,7 @@ public class CondyProbeArrayStrategyTest {
 		assertEquals("ClassName", bootstrapMethod.getOwner());
 		assertEquals("$jacocoInit", bootstrapMethod.getName());
 		assertEquals(
-				"(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)[Z",
+				"(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;",
 				bootstrapMethod.getDesc());
 		assertTrue(bootstrapMethod.isInterface());
 
@@ -71,6 +72,48 @@ public class CondyProbeArrayStrategyTest {
 		assertEquals(3, m.instructions.size());
 	}
 
+	@Test
+	public void should_load_called_flags_using_same_bootstrap_method() {
+		final MethodNode data = new MethodNode();
+		strategy.storeInstance(data, false, 1);
+		final MethodNode m = new MethodNode();
+		final int maxStack = strategy.loadCalledFlags(m, 1);
+
+		assertEquals(1, maxStack);
+
+		final ConstantDynamic constantDynamic = (ConstantDynamic) ((LdcInsnNode) m.instructions
+				.get(0)).cst;
+		assertEquals("$jacocoSet", constantDynamic.getName());
+		assertEquals("Ljava/lang/Object;", constantDynamic.getDescriptor());
+		assertEquals(
+				((ConstantDynamic) ((LdcInsnNode) data.instructions
+						.get(0)).cst).getBootstrapMethod(),
+				constantDynamic.getBootstrapMethod());
+
+		final TypeInsnNode castInstruction = (TypeInsnNode) m.instructions
+				.get(1);
+		assertEquals(Opcodes.CHECKCAST, castInstruction.getOpcode());
+		assertEquals("[Ljava/util/HashSet;", castInstruction.desc);
+
+		assertEquals(2, m.instructions.size());
+	}
+
+	@Test
+	public void should_call_chain_handle() {
+		final MethodNode m = new MethodNode();
+		strategy.callChainHandleMethod(m, "ClassName#m()V");
+		strategy.SetCalledNodeMethod(m, "ClassName#m()V");
+
+		assertEquals("ClassName#m()V",
+				((LdcInsnNode) m.instructions.get(0)).cst);
+		final MethodInsnNode add = (MethodInsnNode) m.instructions.get(1);
+		assertEquals("org/jacoco/core/runtime/ChainNodeHandle", add.owner);
+		assertEquals("addChainNode", add.name);
+		final MethodInsnNode called = (MethodInsnNode) m.instructions.get(3);
+		assertEquals("setCalledNode", called.name);
+		assertEquals(4, m.instructions.size());
+	}
+
 	@Test
 	public void should_not_add_fields() {
 		final ClassNode c = new ClassNode();
@@ -91,7 +134,7 @@ public class CondyProbeArrayStrategyTest {
 				| Opcodes.ACC_STATIC, m.access);
 		assertEquals("$jacocoInit", m.name);
 		assertEquals(
-				"(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)[Z",
+				"(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;",
 				m.desc);
 
 		assertEquals(4, m.maxStack);
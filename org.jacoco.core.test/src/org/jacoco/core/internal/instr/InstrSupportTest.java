@@ -91,6 +91,41 @@ public class InstrSupportTest {
 				}, bytes);
 	}
 
+	@Test
+	public void getClassName_should_read_name_from_constant_pool() {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_8, 0, "org/jacoco/Klass\u00e4\u20ac", null,
+				"java/lang/Object", null);
+		writer.visitField(0, "l", "J", null, Long.valueOf(1)).visitEnd();
+		writer.visitField(0, "d", "D", null, Double.valueOf(2)).visitEnd();
+		writer.visitField(0, "f", "F", null, Float.valueOf(3)).visitEnd();
+		writer.visitEnd();
+		final byte[] bytes = writer.toByteArray();
+
+		assertEquals("org/jacoco/Klass\u00e4\u20ac",
+				InstrSupport.getClassName(bytes));
+		assertEquals(new ClassReader(bytes).getClassName(),
+				InstrSupport.getClassName(bytes));
+	}
+
+	@Test
+	public void getClassName_should_throw_IllegalArgumentException_for_unknown_constant_pool_tag() {
+		final byte[] bytes = new byte[] { //
+				(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, // magic
+				0x00, 0x00, // minor_version
+				0x00, 0x34, // major_version
+				0x00, 0x02, // constant_pool_count
+				0x42 // constant_pool
+		};
+
+		try {
+			InstrSupport.getClassName(bytes);
+			fail("IllegalArgumentException expected");
+		} catch (final IllegalArgumentException e) {
+			assertEquals("Unknown constant pool tag 66.", e.getMessage());
+		}
+	}
+
 	@Test
 	public void getMajorVersion_should_read_major_version_from_ClassReader_at_offset_relative_to_constant_pool() {
 		final byte[] bytes = new byte[] { //
@@ -155,6 +155,8 @@ public class ProbeArrayStrategyFactoryTest {
 		assertEquals(InterfaceFieldProbeArrayStrategy.class,
 				strategy.getClass());
 		assertDataField(InstrSupport.DATAFIELD_INTF_ACC);
+		assertSetDataField(InstrSupport.DATAFIELD_INTF_ACC);
+		assertSetInitMethod();
 		assertInitAndClinitMethods();
 
 		strategy.storeInstance(cv.visitMethod(0, null, null, null, null), false,
@@ -206,6 +208,8 @@ public class ProbeArrayStrategyFactoryTest {
 		assertEquals(InterfaceFieldProbeArrayStrategy.class,
 				strategy.getClass());
 		assertDataField(InstrSupport.DATAFIELD_INTF_ACC);
+		assertSetDataField(InstrSupport.DATAFIELD_INTF_ACC);
+		assertSetInitMethod();
 		assertInitAndClinitMethods();
 
 		strategy.storeInstance(cv.visitMethod(0, "<clinit>", null, null, null),
@@ -343,7 +347,10 @@ public class ProbeArrayStrategyFactoryTest {
 
 		private int fieldAccess;
 		private String fieldName;
+		private int setFieldAccess;
+		private String setFieldName;
 		private final List<AddedMethod> methods = new ArrayList<AddedMethod>();
+		private AddedMethod setInitMethod;
 
 		ClassVisitorMock() {
 			super(InstrSupport.ASM_API_VERSION);
@@ -352,6 +359,13 @@ public class ProbeArrayStrategyFactoryTest {
 		@Override
 		public FieldVisitor visitField(int access, String name, String desc,
 				String signature, Object value) {
+			if (InstrSupport.SET_DATA_FIELD_NAME.equals(name)) {
+				assertNull(setFieldName);
+				assertEquals(InstrSupport.SET_DATA_FIELD_DESC, desc);
+				setFieldAccess = access;
+				setFieldName = name;
+				return null;
+			}
 			assertNull(fieldName);
 			fieldAccess = access;
 			fieldName = name;
@@ -362,7 +376,12 @@ public class ProbeArrayStrategyFactoryTest {
 		public MethodVisitor visitMethod(int access, String name, String desc,
 				String signature, String[] exceptions) {
 			final AddedMethod m = new AddedMethod(access, name, desc);
-			methods.add(m);
+			if (InstrSupport.INITSETMETHOD_NAME.equals(name)) {
+				assertNull(setInitMethod);
+				setInitMethod = m;
+			} else {
+				methods.add(m);
+			}
 			return new MethodVisitor(InstrSupport.ASM_API_VERSION) {
 				@Override
 				public void visitFrame(int type, int nLocal, Object[] local,
@@ -373,6 +392,10 @@ public class ProbeArrayStrategyFactoryTest {
 				@Override
 				public void visitFieldInsn(int opcode, String owner,
 						String name, String desc) {
+					if (InstrSupport.SET_DATA_FIELD_NAME.equals(name)) {
+						assertEquals(InstrSupport.SET_DATA_FIELD_DESC, desc);
+						return;
+					}
 					assertEquals(InstrSupport.DATAFIELD_NAME, name);
 					assertEquals(InstrSupport.DATAFIELD_DESC, desc);
 
@@ -395,7 +418,8 @@ public class ProbeArrayStrategyFactoryTest {
 				@Override
 				public void visitMethodInsn(int opcode, String owner,
 						String name, String desc, boolean itf) {
-					if ("getProbes".equals(name)) {
+					if ("getProbes".equals(name) || InstrSupport.CHAIN_HANDLE_CLASSNAME
+							.equals(owner)) {
 						// method's owner is not interface:
 						assertFalse(itf);
 						return;
@@ -419,6 +443,17 @@ public class ProbeArrayStrategyFactoryTest {
 
 	void assertNoDataField() {
 		assertNull(cv.fieldName);
+		assertNull(cv.setFieldName);
+	}
+
+	void assertSetDataField(int access) {
+		assertEquals(InstrSupport.SET_DATA_FIELD_NAME, cv.setFieldName);
+		assertEquals(access, cv.setFieldAccess);
+	}
+
+	void assertSetInitMethod() {
+		assertEquals(InstrSupport.INITSETMETHOD_DESC, cv.setInitMethod.desc);
+		assertEquals(InstrSupport.INITMETHOD_ACC, cv.setInitMethod.access);
 	}
 
 	void assertInitMethod(boolean frames) {
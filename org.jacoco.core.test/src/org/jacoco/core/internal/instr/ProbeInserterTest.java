@@ -48,9 +48,18 @@ public class ProbeInserterTest {
 				return 5;
 			}
 
+			public int loadCalledFlags(MethodVisitor mv, int variable) {
+				mv.visitLdcInsn("calledFlags");
+				return 1;
+			}
+
 			public void addMembers(ClassVisitor delegate, int probeCount) {
 			}
 
+			public int getProbeOffset() {
+				return 0;
+			}
+
 			@Override
 			public void callChainHandleMethod(MethodVisitor mv, String uri) {
 
@@ -318,6 +327,82 @@ public class ProbeInserterTest {
 						0, new Object[] {});
 	}
 
+	@Test
+	public void testCompactProbe() {
+		ProbeInserter pi = new ProbeInserter(0, "m", "()V", actualVisitor,
+				arrayStrategy);
+		pi.setClassName("Foo");
+		pi.setCompact(0);
+		pi.insertProbe(3);
+
+		expectedVisitor.visitInsn(Opcodes.ICONST_3);
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "Foo",
+				"$jacocoHit", "(I)V", false);
+	}
+
+	@Test
+	public void testCompactVisitCode() {
+		ProbeInserter pi = new ProbeInserter(0, "m", "()V", actualVisitor,
+				arrayStrategy);
+		pi.setClassName("Foo");
+		pi.setCompact(2);
+		pi.visitCode();
+
+		// The chain hook is called through a method of the class
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "Foo",
+				"$jacocoEnter$2", "()V", false);
+		expectedVisitor.visitCode();
+	}
+
+	@Test
+	public void testCompactVisitInsnReturn() {
+		ProbeInserter pi = new ProbeInserter(0, "m", "()V", actualVisitor,
+				arrayStrategy);
+		pi.setClassName("Foo");
+		pi.setCompact(2);
+		pi.visitInsn(Opcodes.RETURN);
+
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "Foo",
+				"$jacocoExit$2", "()V", false);
+		expectedVisitor.visitInsn(Opcodes.RETURN);
+	}
+
+	@Test
+	public void testCompactVisitVarIns() {
+		ProbeInserter pi = new ProbeInserter(0, "m", "(II)V", actualVisitor,
+				arrayStrategy);
+		pi.setCompact(0);
+		pi.visitVarInsn(Opcodes.ALOAD, 3);
+
+		// No probe variable is added in compact mode
+		expectedVisitor.visitVarInsn(Opcodes.ALOAD, 3);
+	}
+
+	@Test
+	public void testCompactVisitMaxs() {
+		ProbeInserter pi = new ProbeInserter(0, "m", "(II)V", actualVisitor,
+				arrayStrategy);
+		pi.setCompact(0);
+		pi.visitMaxs(10, 8);
+
+		expectedVisitor.visitMaxs(11, 8);
+	}
+
+	@Test
+	public void testCompactVisitFrame() {
+		ProbeInserter pi = new ProbeInserter(0, "m", "(J)V", actualVisitor,
+				arrayStrategy);
+		pi.setCompact(0);
+
+		pi.visitFrame(Opcodes.F_NEW, 3,
+				new Object[] { "Foo", Opcodes.LONG, "java/lang/String" }, 0,
+				new Object[0]);
+
+		expectedVisitor.visitFrame(Opcodes.F_NEW, 3,
+				new Object[] { "Foo", Opcodes.LONG, "java/lang/String" }, 0,
+				new Object[0]);
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testVisitFrame_invalidType() {
 		ProbeInserter pi = new ProbeInserter(0, "m", "()V", actualVisitor,
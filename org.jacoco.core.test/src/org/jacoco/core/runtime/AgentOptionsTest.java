@@ -52,6 +52,15 @@ public class AgentOptionsTest {
 		assertEquals(AgentOptions.DEFAULT_ADDRESS, options.getAddress());
 		assertEquals(AgentOptions.DEFAULT_PORT, options.getPort());
 		assertNull(options.getClassDumpDir());
+		assertFalse(options.getClassDumpArchive());
+		assertNull(options.getClassCacheDir());
+		assertEquals(AgentOptions.DEFAULT_CLASSCACHESIZE,
+				options.getClassCacheSize());
+		assertFalse(options.getLazy());
+		assertEquals(0, options.getInlineSize());
+		assertFalse(options.getRetransform());
+		assertFalse(options.getProbeSlab());
+		assertTrue(options.getEnabled());
 		assertFalse(options.getJmx());
 
 		assertEquals("", options.toString());
@@ -388,6 +397,118 @@ public class AgentOptionsTest {
 		assertEquals("classdumpdir=target/dump", options.toString());
 	}
 
+	@Test
+	public void testGetClassDumpArchive() {
+		AgentOptions options = new AgentOptions("classdumparchive=true");
+		assertTrue(options.getClassDumpArchive());
+	}
+
+	@Test
+	public void testSetClassDumpArchive() {
+		AgentOptions options = new AgentOptions();
+		options.setClassDumpArchive(true);
+		assertTrue(options.getClassDumpArchive());
+		assertEquals("classdumparchive=true", options.toString());
+	}
+
+	@Test
+	public void testGetClassCacheDir() {
+		AgentOptions options = new AgentOptions("classcachedir=target/cache");
+		assertEquals("target/cache", options.getClassCacheDir());
+	}
+
+	@Test
+	public void testSetClassCacheDir() {
+		AgentOptions options = new AgentOptions();
+		options.setClassCacheDir("target/cache");
+		assertEquals("target/cache", options.getClassCacheDir());
+		assertEquals("classcachedir=target/cache", options.toString());
+	}
+
+	@Test
+	public void testGetClassCacheSize() {
+		AgentOptions options = new AgentOptions("classcachesize=64");
+		assertEquals(64, options.getClassCacheSize());
+	}
+
+	@Test
+	public void testSetClassCacheSize() {
+		AgentOptions options = new AgentOptions();
+		options.setClassCacheSize(64);
+		assertEquals(64, options.getClassCacheSize());
+		assertEquals("classcachesize=64", options.toString());
+	}
+
+	@Test
+	public void testGetLazy() {
+		AgentOptions options = new AgentOptions("lazy=true");
+		assertTrue(options.getLazy());
+	}
+
+	@Test
+	public void testSetLazy() {
+		AgentOptions options = new AgentOptions();
+		options.setLazy(true);
+		assertTrue(options.getLazy());
+		assertEquals("lazy=true", options.toString());
+	}
+
+	@Test
+	public void testGetInlineSize() {
+		AgentOptions options = new AgentOptions("inlinesize=35");
+		assertEquals(35, options.getInlineSize());
+	}
+
+	@Test
+	public void testSetInlineSize() {
+		AgentOptions options = new AgentOptions();
+		options.setInlineSize(325);
+		assertEquals(325, options.getInlineSize());
+		assertEquals("inlinesize=325", options.toString());
+	}
+
+	@Test
+	public void testGetRetransform() {
+		AgentOptions options = new AgentOptions("retransform=true");
+		assertTrue(options.getRetransform());
+	}
+
+	@Test
+	public void testSetRetransform() {
+		AgentOptions options = new AgentOptions();
+		options.setRetransform(true);
+		assertTrue(options.getRetransform());
+		assertEquals("retransform=true", options.toString());
+	}
+
+	@Test
+	public void testGetProbeSlab() {
+		AgentOptions options = new AgentOptions("probeslab=true");
+		assertTrue(options.getProbeSlab());
+	}
+
+	@Test
+	public void testSetProbeSlab() {
+		AgentOptions options = new AgentOptions();
+		options.setProbeSlab(true);
+		assertTrue(options.getProbeSlab());
+		assertEquals("probeslab=true", options.toString());
+	}
+
+	@Test
+	public void testGetEnabled() {
+		AgentOptions options = new AgentOptions("enabled=false");
+		assertFalse(options.getEnabled());
+	}
+
+	@Test
+	public void testSetEnabled() {
+		AgentOptions options = new AgentOptions();
+		options.setEnabled(false);
+		assertFalse(options.getEnabled());
+		assertEquals("enabled=false", options.toString());
+	}
+
 	@Test
 	public void testGetJmx() {
 		AgentOptions options = new AgentOptions("jmx=true");
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ChainNodeHandle}.
+ */
+public class ChainNodeHandleTest {
+
+	@After
+	public void teardown() {
+		// Completes the chain of the current thread:
+		ChainNodeHandle.setCalledNode("Callee.m()V");
+		ChainNodeHandle.setCalledNode("Caller.m()V");
+		ChainNodeHandle.chainsSet.clear();
+	}
+
+	@Test
+	public void setCalledFlags_should_create_set_with_first_caller() {
+		ChainNodeHandle.addChainNode("Caller.m()V");
+		ChainNodeHandle.addChainNode("Callee.m()V");
+		final HashSet[] sets = new HashSet[2];
+
+		ChainNodeHandle.setCalledFlags(sets, 1);
+		final HashSet set = sets[1];
+		ChainNodeHandle.setCalledFlags(sets, 1);
+
+		assertNull(sets[0]);
+		assertSame(set, sets[1]);
+		assertEquals(Collections.singleton("Caller.m()V"), set);
+	}
+
+	@Test
+	public void setCalledFlags_should_not_create_set_without_chain() {
+		final HashSet[] sets = new HashSet[1];
+
+		ChainNodeHandle.setCalledFlags(sets, 0);
+
+		assertNull(sets[0]);
+	}
+
+	@Test
+	public void setCalledFlags_should_record_callers_for_earlier_versions() {
+		final RuntimeData data = new RuntimeData();
+		final Object[] args = new Object[] { Long.valueOf(42), "Foo",
+				Integer.valueOf(2) };
+		data.getCalledSets(args);
+		final HashSet[] sets = (HashSet[]) args[0];
+		assertNotNull(sets[0]);
+		assertNotNull(sets[1]);
+
+		// Earlier versions load the set of the probe for every hit:
+		ChainNodeHandle.addChainNode("Caller.m()V");
+		ChainNodeHandle.addChainNode("Callee.m()V");
+		ChainNodeHandle.setCalledFlags(sets[1]);
+		assertEquals(Collections.singleton("Caller.m()V"), sets[1]);
+
+		data.reset();
+
+		assertSame(sets, data.getExecutionData(Long.valueOf(42), "Foo", 2)
+				.getCalledFlags());
+		assertTrue(sets[1].isEmpty());
+		ChainNodeHandle.setCalledFlags(sets[1]);
+		assertEquals(Collections.singleton("Caller.m()V"), sets[1]);
+	}
+
+	@Test
+	public void getCalledFlags_should_return_sets_of_slab_class() {
+		final ProbeSlab slab = new ProbeSlab(8);
+		slab.reserve(1, "A", 3);
+		slab.reserve(2, "B", 2);
+		final boolean[] chunk = slab.activate(1, "A", 3);
+
+		final HashSet[] sets = ChainNodeHandle.getCalledFlags(chunk, 2, 2);
+
+		assertEquals(2, sets.length);
+		assertSame(sets, ChainNodeHandle.getCalledFlags(chunk, 2, 2));
+		assertNotSame(sets, ChainNodeHandle.getCalledFlags(chunk, 1, 3));
+	}
+
+	@Test
+	public void getCalledFlags_should_return_new_sets_for_unknown_chunk() {
+		final boolean[] chunk = new boolean[4];
+
+		final HashSet[] sets = ChainNodeHandle.getCalledFlags(chunk, 1, 4);
+
+		assertEquals(4, sets.length);
+		assertNotSame(sets, ChainNodeHandle.getCalledFlags(chunk, 1, 4));
+	}
+
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CompiledWildcardMatcherTest {
+
+	@Test
+	public void empty_expression_should_match_any_string() {
+		assertTrue(new CompiledWildcardMatcher("").matches(""));
+		assertFalse(new CompiledWildcardMatcher("").matches("abc"));
+	}
+
+	@Test
+	public void expressions_without_wildcards_should_match_exactly() {
+		assertTrue(new CompiledWildcardMatcher("abc/def.txt")
+				.matches("abc/def.txt"));
+		assertFalse(new CompiledWildcardMatcher("abc/def.txt")
+				.matches("/abc/def.txt"));
+	}
+
+	@Test
+	public void should_match_case_sensitive() {
+		assertFalse(new CompiledWildcardMatcher("abcdef").matches("abcDef"));
+		assertFalse(new CompiledWildcardMatcher("abc*").matches("abCdef"));
+		assertFalse(new CompiledWildcardMatcher("*def").matches("abcDef"));
+	}
+
+	@Test
+	public void should_not_use_regex_characters() {
+		assertFalse(new CompiledWildcardMatcher("rst.xyz").matches("rstAxyz"));
+		assertTrue(new CompiledWildcardMatcher("(x)+").matches("(x)+"));
+		assertTrue(new CompiledWildcardMatcher("(x)+*").matches("(x)+y"));
+	}
+
+	@Test
+	public void asterix_should_match_any_number_of_any_character() {
+		assertTrue(new CompiledWildcardMatcher("*").matches(""));
+		assertTrue(new CompiledWildcardMatcher("*").matches("java/lang/Object"));
+		assertTrue(new CompiledWildcardMatcher("*Test")
+				.matches("jacoco/MatcherTest"));
+		assertTrue(new CompiledWildcardMatcher("Matcher*").matches("Matcher"));
+		assertTrue(
+				new CompiledWildcardMatcher("Matcher*").matches("MatcherTest"));
+		assertTrue(new CompiledWildcardMatcher("a*b*a").matches("a-b-b-a"));
+		assertFalse(new CompiledWildcardMatcher("a*b*a").matches("alaska"));
+	}
+
+	@Test
+	public void prefix_expressions_should_match_strings_starting_with_prefix() {
+		final CompiledWildcardMatcher matcher = new CompiledWildcardMatcher(
+				"org/jacoco/core/*:org/jacoco/report/*:com/*");
+
+		assertTrue(matcher.matches("org/jacoco/core/Foo"));
+		assertTrue(matcher.matches("org/jacoco/report/html/Bar"));
+		assertTrue(matcher.matches("com/"));
+		assertFalse(matcher.matches("org/jacoco/agent/Foo"));
+		assertFalse(matcher.matches("org/jacoco/core"));
+		assertFalse(matcher.matches("co"));
+	}
+
+	@Test
+	public void suffix_expressions_should_match_strings_ending_with_suffix() {
+		final CompiledWildcardMatcher matcher = new CompiledWildcardMatcher(
+				"*Test:*IT");
+
+		assertTrue(matcher.matches("org/FooTest"));
+		assertTrue(matcher.matches("org/FooIT"));
+		assertTrue(matcher.matches("IT"));
+		assertFalse(matcher.matches("org/FooTests"));
+		assertFalse(matcher.matches("T"));
+	}
+
+	@Test
+	public void questionmark_should_match_any_single_character() {
+		assertTrue(new CompiledWildcardMatcher("Hello?orld")
+				.matches("HelloWorld"));
+		assertFalse(new CompiledWildcardMatcher("Hello?orld")
+				.matches("Helloorld"));
+		assertFalse(new CompiledWildcardMatcher("Hello?orld")
+				.matches("HelloWWWorld"));
+		assertTrue(new CompiledWildcardMatcher("Hello?").matches("Hello!"));
+		assertFalse(new CompiledWildcardMatcher("Hello?").matches("Hello!!"));
+	}
+
+	@Test
+	public void should_match_any_expression_when_multiple_expressions_are_given() {
+		assertTrue(new CompiledWildcardMatcher("Hello:World").matches("World"));
+		assertTrue(new CompiledWildcardMatcher("*Test:*Foo").matches("UnitTest"));
+		assertTrue(new CompiledWildcardMatcher("a*b*a:Foo:Bar*:*Baz")
+				.matches("a-b-a"));
+		assertFalse(new CompiledWildcardMatcher("foo:bar").matches("foo:bar"));
+	}
+
+	@Test
+	public void should_match_dollar_sign() {
+		assertTrue(new CompiledWildcardMatcher("*$*")
+				.matches("java/util/Map$Entry"));
+		assertTrue(new CompiledWildcardMatcher("*$$$*")
+				.matches("org/example/Enity$$$generated123"));
+	}
+
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ProbeSlab}.
+ */
+public class ProbeSlabTest {
+
+	private ProbeSlab slab;
+
+	@Before
+	public void setup() {
+		slab = new ProbeSlab(8);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_should_reject_empty_chunks() {
+		new ProbeSlab(0);
+	}
+
+	@Test
+	public void reserve_should_pack_classes_into_chunks() {
+		assertEquals(0, slab.reserve(1, "A", 3));
+		assertEquals(3, slab.reserve(2, "B", 5));
+		assertEquals(1, slab.getChunkCount());
+
+		assertEquals(0, slab.reserve(3, "C", 1));
+		assertEquals(2, slab.getChunkCount());
+		assertNotSame(slab.activate(1, "A", 3), slab.activate(3, "C", 1));
+		assertSame(slab.activate(1, "A", 3), slab.activate(2, "B", 5));
+	}
+
+	@Test
+	public void reserve_should_give_large_classes_own_chunk() {
+		slab.reserve(1, "A", 3);
+		assertEquals(0, slab.reserve(2, "B", 20));
+		assertEquals(20, slab.activate(2, "B", 20).length);
+		assertEquals(3, slab.reserve(3, "C", 2));
+		assertEquals(2, slab.getChunkCount());
+	}
+
+	@Test
+	public void reserve_should_return_same_offset_for_same_class() {
+		slab.reserve(1, "A", 3);
+		assertEquals(3, slab.reserve(2, "B", 2));
+		assertEquals(3, slab.reserve(2, "B", 2));
+	}
+
+	@Test
+	public void reserve_should_reject_different_class_with_same_id() {
+		slab.reserve(1, "A", 3);
+		try {
+			slab.reserve(1, "A", 4);
+			fail("IllegalStateException expected");
+		} catch (IllegalStateException e) {
+			assertEquals(
+					"Different class A with same id 0000000000000001 already reserved.",
+					e.getMessage());
+		}
+	}
+
+	@Test
+	public void activate_should_return_null_for_unknown_class() {
+		slab.reserve(1, "A", 3);
+		assertNull(slab.activate(2, "A", 3));
+		assertNull(slab.activate(1, "B", 3));
+		assertNull(slab.activate(1, "A", 4));
+	}
+
+	@Test
+	public void accept_should_emit_copies_of_active_ranges() {
+		slab.reserve(1, "A", 3);
+		slab.reserve(2, "B", 2);
+		slab.reserve(3, "C", 2);
+		final boolean[] chunk = slab.activate(1, "A", 3);
+		slab.activate(2, "B", 2);
+		chunk[1] = true;
+		chunk[4] = true;
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		slab.accept(store);
+
+		assertEquals(2, store.getContents().size());
+		assertEquals("A", store.get(1).getName());
+		assertArrayEquals(new boolean[] { false, true, false },
+				store.get(1).getProbes());
+		assertArrayEquals(new boolean[] { false, true },
+				store.get(2).getProbes());
+		assertNull(store.get(3));
+
+		store.get(1).getProbes()[0] = true;
+		assertFalse(chunk[0]);
+	}
+
+	@Test
+	public void reset_should_clear_probes_and_callers() {
+		slab.reserve(1, "A", 3);
+		final boolean[] chunk = slab.activate(1, "A", 3);
+		final HashSet[] calledFlags = slab.getCalledFlags(1);
+		calledFlags[2] = new HashSet(Collections.singleton("X.m()V"));
+		chunk[2] = true;
+
+		slab.reset();
+
+		assertFalse(chunk[2]);
+		assertSame(calledFlags, slab.getCalledFlags(1));
+		assertNull(calledFlags[2]);
+		final ExecutionDataStore store = new ExecutionDataStore();
+		slab.accept(store);
+		assertFalse(store.get(1).hasHits());
+	}
+
+	@Test
+	public void release_should_emit_clear_and_deactivate_given_classes() {
+		slab.reserve(1, "A", 3);
+		slab.reserve(2, "B", 2);
+		slab.reserve(3, "C", 2);
+		final boolean[] chunk = slab.activate(1, "A", 3);
+		slab.activate(2, "B", 2);
+		slab.activate(3, "C", 2);
+		Arrays.fill(chunk, 0, 5, true);
+		final HashSet[] calledFlags = slab.getCalledFlags(1);
+
+		final ExecutionDataStore released = new ExecutionDataStore();
+		slab.release(Arrays.asList("A", "C"), released);
+
+		assertEquals(1, released.getContents().size());
+		assertArrayEquals(new boolean[] { true, true, true },
+				released.get(1).getProbes());
+		assertSame(calledFlags, released.get(1).getCalledFlags());
+		assertNotSame(calledFlags, slab.getCalledFlags(1));
+		final ExecutionDataStore store = new ExecutionDataStore();
+		slab.accept(store);
+		assertNull(store.get(1));
+		assertTrue(store.get(2).hasHits());
+		assertFalse(chunk[0]);
+		assertEquals(3, slab.reserve(2, "B", 2));
+		assertSame(chunk, slab.activate(1, "A", 3));
+	}
+
+	@Test
+	public void getCalledFlags_should_return_null_for_unknown_class() {
+		assertNull(slab.getCalledFlags(1));
+	}
+
+}
@@ -85,6 +85,44 @@ public class RemoteControlReaderWriterTest
 		assertEquals("cmd(" + doDump + "," + doReset + ")", calls.toString());
 	}
 
+	@Test(expected = IOException.class)
+	public void testNoRemoteCommandVisitorForCoverage() throws IOException {
+		writer.visitCoverageCommand(true);
+		final RemoteControlReader reader = createReader();
+		reader.read();
+	}
+
+	@Test(expected = IOException.class)
+	public void testNoRemoteCoverageCommandVisitor() throws IOException {
+		writer.visitCoverageCommand(true);
+		final RemoteControlReader reader = createReader();
+		reader.setRemoteCommandVisitor(new IRemoteCommandVisitor() {
+
+			public void visitDumpCommand(boolean dump, boolean reset) {
+			}
+		});
+		reader.read();
+	}
+
+	@Test
+	public void testVisitCoverage1() throws IOException {
+		testVisitCoverage(false);
+	}
+
+	@Test
+	public void testVisitCoverage2() throws IOException {
+		testVisitCoverage(true);
+	}
+
+	private void testVisitCoverage(boolean doEnable) throws IOException {
+		writer.visitCoverageCommand(doEnable);
+		final RemoteControlReader reader = createReader();
+		final StringBuilder calls = new StringBuilder();
+		reader.setRemoteCommandVisitor(new CommandRecorder(calls));
+		assertFalse(reader.read());
+		assertEquals("coverage(" + doEnable + ")", calls.toString());
+	}
+
 	@Test
 	public void testSendCmdOk() throws IOException {
 		writer.sendCmdOk();
@@ -92,6 +130,16 @@ public class RemoteControlReaderWriterTest
 		assertTrue(reader.read());
 	}
 
+	@Test
+	public void testSendCoverageState() throws IOException {
+		writer.sendCoverageState(true);
+		writer.sendCmdOk();
+		final RemoteControlReader reader = createReader();
+		assertFalse(reader.isCoverageSwitched());
+		assertTrue(reader.read());
+		assertTrue(reader.isCoverageSwitched());
+	}
+
 	@Override
 	protected RemoteControlReader createReader() throws IOException {
 		return new RemoteControlReader(
@@ -104,4 +152,23 @@ public class RemoteControlReaderWriterTest
 		return new RemoteControlWriter(out);
 	}
 
+	private static class CommandRecorder
+			implements IRemoteCommandVisitor, IRemoteCoverageCommandVisitor {
+
+		private final StringBuilder calls;
+
+		CommandRecorder(final StringBuilder calls) {
+			this.calls = calls;
+		}
+
+		public void visitDumpCommand(boolean dump, boolean reset) {
+			calls.append("cmd(" + dump + "," + reset + ")");
+		}
+
+		public void visitCoverageCommand(boolean enabled) {
+			calls.append("coverage(" + enabled + ")");
+		}
+
+	}
+
 }
@@ -15,11 +15,18 @@ package org.jacoco.core.runtime;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.concurrent.Callable;
 
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.instr.InstrSupport;
 import org.jacoco.core.test.TargetLoader;
 import org.junit.Before;
 import org.junit.Test;
@@ -68,6 +75,180 @@ public class RuntimeDataTest {
 		assertEquals("Foo", storage.getData(123).getName());
 	}
 
+	@Test
+	public void testGetProbesActivation() {
+		final StringBuilder activated = new StringBuilder();
+		data.setActivationListener(new IClassActivationListener() {
+			public void classActivated(final long id, final String name) {
+				activated.append(id).append(name);
+			}
+		});
+		Object[] args = new Object[] { Long.valueOf(123), "Foo",
+				Integer.valueOf(InstrSupport.ACTIVATION_PROBECOUNT) };
+		data.equals(args);
+
+		assertNull(args[0]);
+		assertEquals("123Foo", activated.toString());
+		data.collect(storage, storage, false);
+		storage.assertSize(0);
+	}
+
+	@Test
+	public void testSetCoverageEnabled() {
+		final StringBuilder switched = new StringBuilder();
+		data.setCoverageSwitch(new ICoverageSwitch() {
+			public void setEnabled(final boolean enabled) {
+				switched.append(enabled);
+			}
+		});
+
+		assertTrue(data.setCoverageEnabled(false));
+
+		assertEquals("false", switched.toString());
+	}
+
+	@Test
+	public void testSetCoverageEnabledWithoutSwitch() {
+		assertFalse(data.setCoverageEnabled(true));
+	}
+
+	@Test
+	public void testRelease() {
+		data.getExecutionData(Long.valueOf(123), "Foo", 1);
+		data.getExecutionData(Long.valueOf(456), "Bar", 1);
+
+		data.release(Collections.singleton("Foo"));
+
+		data.collect(storage, storage, false);
+		storage.assertSize(1);
+		assertEquals("Bar", storage.getData(456).getName());
+	}
+
+	@Test
+	public void testReleaseKeepsHitsUntilReset() {
+		data.getExecutionData(Long.valueOf(123), "Foo", 1).getProbes()[0] = true;
+
+		data.release(Collections.singleton("Foo"));
+
+		data.collect(storage, storage, false);
+		storage.assertSize(1);
+		assertTrue(storage.getData(123).getProbes()[0]);
+
+		data.reset();
+
+		storage = new TestStorage();
+		data.collect(storage, storage, false);
+		storage.assertSize(0);
+	}
+
+	@Test
+	public void testReleaseRemovesChainsOfReleasedClasses() {
+		recordChain("Foo.a()V", "Bar.b()V");
+		recordChain("Baz.a()V", "Qux.b()V");
+		try {
+			data.release(Collections.singleton("Bar"));
+
+			assertEquals(1, ChainNodeHandle.chainsSet.size());
+			assertEquals("Qux.b()V",
+					ChainNodeHandle.chainsSet.iterator().next().getUri());
+
+			// Chains of released classes are still dumped until reset:
+			final ExecutionDataStore info = new ExecutionDataStore();
+			data.collect(storage, storage, info, false);
+			assertEquals(2, info.getCallChainSets().size());
+
+			data.reset();
+
+			final ExecutionDataStore empty = new ExecutionDataStore();
+			data.collect(storage, storage, empty, false);
+			assertEquals(0, empty.getCallChainSets().size());
+		} finally {
+			ChainNodeHandle.chainsSet.clear();
+		}
+	}
+
+	private static void recordChain(final String caller,
+			final String callee) {
+		ChainNodeHandle.addChainNode(caller);
+		ChainNodeHandle.addChainNode(callee);
+		ChainNodeHandle.setCalledNode(callee);
+		ChainNodeHandle.setCalledNode(caller);
+	}
+
+	@Test
+	public void testReleaseSlabClass() {
+		final ProbeSlab slab = new ProbeSlab();
+		data.setProbeSlab(slab);
+		slab.reserve(123, "Foo", 2);
+		final Object[] args = new Object[] { Long.valueOf(123), "Foo",
+				Integer.valueOf(2) };
+		data.getProbes(args);
+		final boolean[] chunk = (boolean[]) args[0];
+		final HashSet[] calledFlags = ChainNodeHandle.getCalledFlags(chunk,
+				123, 2);
+		calledFlags[1] = new HashSet(Collections.singleton("Caller.m()V"));
+		chunk[1] = true;
+
+		data.release(Collections.singleton("Foo"));
+
+		assertFalse(chunk[1]);
+		assertNotSame(calledFlags,
+				ChainNodeHandle.getCalledFlags(chunk, 123, 2));
+		data.collect(storage, storage, false);
+		storage.assertSize(1);
+		assertTrue(storage.getData(123).getProbes()[1]);
+		assertSame(calledFlags, storage.getData(123).getCalledFlags());
+	}
+
+	@Test
+	public void testGetCalledFlagsByProbes() {
+		final ExecutionData exec = data.getExecutionData(Long.valueOf(123),
+				"Foo", 2);
+
+		final HashSet[] calledFlags = ChainNodeHandle
+				.getCalledFlags(exec.getProbes());
+
+		assertEquals(2, calledFlags.length);
+		assertSame(calledFlags, exec.getCalledFlags());
+		final Object[] args = new Object[] { Long.valueOf(123), "Foo",
+				Integer.valueOf(2) };
+		data.getCalledSets(args);
+		assertSame(calledFlags, args[0]);
+	}
+
+	@Test
+	public void testGetCalledFlagsByUnknownProbes() {
+		final HashSet[] calledFlags = ChainNodeHandle
+				.getCalledFlags(new boolean[3]);
+
+		assertEquals(3, calledFlags.length);
+	}
+
+	@Test
+	public void testGetConstant() {
+		final ExecutionData exec = data.getExecutionData(Long.valueOf(123),
+				"Foo", 1);
+
+		assertSame(exec.getProbes(), ChainNodeHandle
+				.getConstant(exec.getProbes(), InstrSupport.DATAFIELD_NAME));
+		final Object calledFlags = ChainNodeHandle.getConstant(
+				exec.getProbes(), InstrSupport.SET_DATA_FIELD_NAME);
+		assertNotNull(calledFlags);
+		assertSame(exec.getCalledFlags(), calledFlags);
+	}
+
+	@Test
+	public void testGetCalledFlagsAfterRelease() {
+		final ExecutionData exec = data.getExecutionData(Long.valueOf(123),
+				"Foo", 1);
+
+		data.release(Collections.singleton("Foo"));
+
+		assertNotSame(ChainNodeHandle.getCalledFlags(exec.getProbes()),
+				ChainNodeHandle.getCalledFlags(exec.getProbes()));
+		assertNull(exec.getCalledFlags());
+	}
+
 	@Test
 	public void testCollectEmpty() {
 		data.collect(storage, storage, false);
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+
+/**
+ * Measures put, merge and get operations of {@link ExecutionDataStore} for a
+ * large number of classes. A {@link HashMap} with boxed keys is used as
+ * reference.
+ */
+public class ExecutionDataStoreScenario extends TimedScenario {
+
+	/** Operation to measure */
+	public enum Operation {
+		PUT, MERGE, GET
+	}
+
+	private final Operation operation;
+
+	private final ExecutionData[] data;
+
+	protected ExecutionDataStoreScenario(final Operation operation,
+			final int count) {
+		super(String.format("execution data store %s of %s classes",
+				operation.name().toLowerCase(), Integer.valueOf(count)));
+		this.operation = operation;
+		this.data = new ExecutionData[count];
+		final Random random = new Random(0);
+		for (int i = 0; i < count; i++) {
+			data[i] = new ExecutionData(random.nextLong(), "Target" + i,
+					new boolean[8]);
+		}
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		final ExecutionDataStore prepared = new ExecutionDataStore();
+		for (final ExecutionData d : data) {
+			prepared.put(d);
+		}
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				switch (operation) {
+				case PUT:
+					final ExecutionDataStore store = new ExecutionDataStore();
+					for (final ExecutionData d : data) {
+						store.put(d);
+					}
+					break;
+				case MERGE:
+					for (final ExecutionData d : data) {
+						prepared.put(d);
+					}
+					break;
+				case GET:
+					for (final ExecutionData d : data) {
+						prepared.get(Long.valueOf(d.getId()), d.getName(), 8);
+					}
+					break;
+				}
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		final Map<Long, ExecutionData> prepared = new HashMap<Long, ExecutionData>();
+		for (final ExecutionData d : data) {
+			prepared.put(Long.valueOf(d.getId()), d);
+		}
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				switch (operation) {
+				case PUT:
+					final Map<Long, ExecutionData> map = new HashMap<Long, ExecutionData>();
+					for (final ExecutionData d : data) {
+						map.put(Long.valueOf(d.getId()), d);
+					}
+					break;
+				case MERGE:
+					for (final ExecutionData d : data) {
+						prepared.get(Long.valueOf(d.getId())).merge(d);
+					}
+					break;
+				case GET:
+					for (final ExecutionData d : data) {
+						prepared.get(Long.valueOf(d.getId()))
+								.assertCompatibility(d.getId(), d.getName(), 8);
+					}
+					break;
+				}
+				return null;
+			}
+		};
+	}
+
+}
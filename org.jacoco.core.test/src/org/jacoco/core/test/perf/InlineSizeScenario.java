@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.test.TargetLoader;
+
+/**
+ * This scenario runs a given target instrumented with compact probes for all
+ * methods which would exceed the given inline size. The same target
+ * instrumented with regular probes only is used as reference. The runtime
+ * records every call of the target as one call chain, so the target is called
+ * repeatedly to keep the chains short. The chains printed by the runtime are
+ * discarded.
+ */
+public class InlineSizeScenario extends TimedScenario {
+
+	private static final int CALLS = 10000;
+
+	private final Class<? extends Callable<Void>> target;
+
+	private final int inlineSize;
+
+	protected InlineSizeScenario(final Class<? extends Callable<Void>> target,
+			final int inlineSize) {
+		super(String.format("compact probes for inline size %s",
+				Integer.valueOf(inlineSize)));
+		this.target = target;
+		this.inlineSize = inlineSize;
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		return instrument(inlineSize);
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		return instrument(0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Callable<Void> instrument(final int size) throws Exception {
+		final IRuntime runtime = new LoggerRuntime();
+		runtime.startup(new RuntimeData());
+		final Instrumenter instr = new Instrumenter(runtime);
+		instr.setInlineSize(size);
+		final byte[] original = TargetLoader.getClassDataAsBytes(target);
+		final byte[] instrumentedBuffer = instr.instrument(original, "");
+		final TargetLoader loader = new TargetLoader();
+		final Callable<Void> callable = (Callable<Void>) loader
+				.add(target, instrumentedBuffer).newInstance();
+
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				final PrintStream out = System.out;
+				System.setOut(new PrintStream(new OutputStream() {
+					@Override
+					public void write(final int b) {
+					}
+
+					@Override
+					public void write(final byte[] b, final int off,
+							final int len) {
+					}
+				}));
+				try {
+					for (int i = 0; i < CALLS; i++) {
+						callable.call();
+					}
+				} finally {
+					System.setOut(out);
+				}
+				return null;
+			}
+		};
+	}
+
+}
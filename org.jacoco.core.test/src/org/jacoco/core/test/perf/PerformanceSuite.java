@@ -14,9 +14,11 @@ package org.jacoco.core.test.perf;
 
 import java.io.PrintWriter;
 
+import org.jacoco.core.test.perf.ExecutionDataStoreScenario.Operation;
 import org.jacoco.core.test.perf.targets.Target01;
 import org.jacoco.core.test.perf.targets.Target02;
 import org.jacoco.core.test.perf.targets.Target03;
+import org.jacoco.core.test.perf.targets.Target04;
 
 /**
  * The main test suite.
@@ -33,6 +35,11 @@ public class PerformanceSuite implements IPerfScenario {
 		new InstrumentationSizeSzenario(Target03.class).run(output);
 		new InstrumentationTimeScenario(Target03.class, 1000).run(output);
 		new AnalysisTimeScenario(Target03.class, 1000).run(output);
+		new ExecutionDataStoreScenario(Operation.PUT, 100000).run(output);
+		new ExecutionDataStoreScenario(Operation.MERGE, 100000).run(output);
+		new ExecutionDataStoreScenario(Operation.GET, 100000).run(output);
+		new WildcardMatcherScenario(500).run(output);
+		new InlineSizeScenario(Target04.class, 35).run(output);
 	}
 
 	public static void main(String[] args) throws Exception {
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.runtime.CompiledWildcardMatcher;
+import org.jacoco.core.runtime.WildcardMatcher;
+
+/**
+ * Matches class names against a large list of package patterns with
+ * {@link CompiledWildcardMatcher}. {@link WildcardMatcher} is used as
+ * reference.
+ */
+public class WildcardMatcherScenario extends TimedScenario {
+
+	private static final int CLASSES = 10000;
+
+	private final String expression;
+
+	private final String[] names;
+
+	protected WildcardMatcherScenario(final int patterns) {
+		super(String.format("matching %s classes against %s patterns",
+				Integer.valueOf(CLASSES), Integer.valueOf(patterns)));
+		final StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < patterns; i++) {
+			if (i > 0) {
+				buffer.append(':');
+			}
+			buffer.append("com/example/module").append(i).append("/*");
+		}
+		buffer.append(":*Test");
+		this.expression = buffer.toString();
+		this.names = new String[CLASSES];
+		for (int i = 0; i < CLASSES; i++) {
+			names[i] = "com/example/module" + (i % (patterns * 2))
+					+ "/service/Service" + i;
+		}
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		final CompiledWildcardMatcher matcher = new CompiledWildcardMatcher(
+				expression);
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (final String name : names) {
+					matcher.matches(name);
+				}
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		final WildcardMatcher matcher = new WildcardMatcher(expression);
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (final String name : names) {
+					matcher.matches(name);
+				}
+				return null;
+			}
+		};
+	}
+
+}
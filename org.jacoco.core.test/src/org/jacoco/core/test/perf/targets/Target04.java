@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf.targets;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Small methods which fit the inlining limit of the JIT compiler before
+ * instrumentation, called in a short loop.
+ */
+public class Target04 implements Callable<Void> {
+
+	private int value;
+
+	public Void call() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			add(i);
+		}
+		return null;
+	}
+
+	private void add(final int i) {
+		if (isEven(i)) {
+			value += i;
+		} else {
+			value -= i;
+		}
+	}
+
+	private static boolean isEven(final int i) {
+		return (i & 1) == 0;
+	}
+
+}
@@ -29,6 +29,7 @@ import java.util.List;
 
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.runtime.IRemoteCommandVisitor;
+import org.jacoco.core.runtime.IRemoteCoverageCommandVisitor;
 import org.jacoco.core.runtime.RemoteControlReader;
 import org.jacoco.core.runtime.RemoteControlWriter;
 import org.junit.After;
@@ -45,6 +46,8 @@ public class ExecDumpClientTest {
 
 	private boolean dumpRequested;
 	private boolean resetRequested;
+	private String coverageRequested;
+	private boolean coverageSwitchable;
 
 	private ServerSocket server;
 
@@ -128,6 +131,21 @@ public class ExecDumpClientTest {
 		assertTrue(resetRequested);
 	}
 
+	@Test
+	public void testSwitchCoverage() throws IOException {
+		coverageSwitchable = true;
+		int port = createExecServer();
+		assertTrue(client.switchCoverage((String) null, port, false));
+		assertEquals("false", coverageRequested);
+	}
+
+	@Test
+	public void testSwitchCoverageNotSupported() throws IOException {
+		int port = createExecServer();
+		assertFalse(client.switchCoverage((String) null, port, true));
+		assertEquals("true", coverageRequested);
+	}
+
 	@Test
 	public void should_throw_IOException_when_server_closes_connection_without_response()
 			throws IOException {
@@ -167,7 +185,7 @@ public class ExecDumpClientTest {
 				socket.getOutputStream());
 		final RemoteControlReader reader = new RemoteControlReader(
 				socket.getInputStream());
-		reader.setRemoteCommandVisitor(new IRemoteCommandVisitor() {
+		reader.setRemoteCommandVisitor(new Visitor() {
 			public void visitDumpCommand(boolean dump, boolean reset)
 					throws IOException {
 				dumpRequested = dump;
@@ -178,6 +196,13 @@ public class ExecDumpClientTest {
 				}
 				writer.sendCmdOk();
 			}
+
+			public void visitCoverageCommand(boolean enabled)
+					throws IOException {
+				coverageRequested = String.valueOf(enabled);
+				writer.sendCoverageState(coverageSwitchable);
+				writer.sendCmdOk();
+			}
 		});
 		reader.read();
 	}
@@ -209,4 +234,8 @@ public class ExecDumpClientTest {
 		return server.getLocalPort();
 	}
 
+	private interface Visitor
+			extends IRemoteCommandVisitor, IRemoteCoverageCommandVisitor {
+	}
+
 }
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link MethodSignatureMatcher}.
+ */
+public class MethodSignatureMatcherTest {
+
+	private MethodSignatureMatcher matcher;
+
+	@Before
+	public void setup() {
+		matcher = new MethodSignatureMatcher();
+	}
+
+	@Test
+	public void new_matcher_should_be_empty() {
+		assertTrue(matcher.isEmpty());
+		assertFalse(matcher.matches("Foo", "run", "()V"));
+	}
+
+	@Test
+	public void should_match_method_without_parameters() {
+		matcher.add("org/Foo", "run", "");
+
+		assertFalse(matcher.isEmpty());
+		assertTrue(matcher.matches("org/Foo", "run", "()V"));
+		assertFalse(matcher.matches("org/Foo", "run", "(I)V"));
+		assertFalse(matcher.matches("org/Bar", "run", "()V"));
+		assertFalse(matcher.matches("org/Foo", "Run", "()V"));
+	}
+
+	@Test
+	public void should_match_primitive_and_object_parameters() {
+		matcher.add("org/Foo", "run", "int;String;java.util.List");
+
+		assertTrue(matcher.matches("org/Foo", "run",
+				"(ILjava/lang/String;Ljava/util/List;)V"));
+		assertFalse(matcher.matches("org/Foo", "run",
+				"(JLjava/lang/String;Ljava/util/List;)V"));
+		assertFalse(matcher.matches("org/Foo", "run",
+				"(ILjava/lang/MyString;Ljava/util/List;)V"));
+	}
+
+	@Test
+	public void should_match_generic_parameters_by_erasure() {
+		matcher.add("org/Foo", "run", "Map<String, List<Integer>>;List<?>");
+
+		assertTrue(matcher.matches("org/Foo", "run",
+				"(Ljava/util/Map;Ljava/util/List;)V"));
+	}
+
+	@Test
+	public void should_match_inner_class_parameters() {
+		matcher.add("org/Foo", "run", "Map.Entry<K, V>;Outer.Inner");
+
+		assertTrue(matcher.matches("org/Foo", "run",
+				"(Ljava/util/Map$Entry;Lorg/Outer$Inner;)V"));
+	}
+
+	@Test
+	public void should_match_array_and_varargs_parameters() {
+		matcher.add("org/Foo", "run", "int[][];String...");
+
+		assertTrue(matcher.matches("org/Foo", "run",
+				"([[I[Ljava/lang/String;)V"));
+		assertFalse(matcher.matches("org/Foo", "run",
+				"([ILjava/lang/String;)V"));
+	}
+
+	@Test
+	public void should_match_type_variables_with_any_reference_type() {
+		matcher.add("org/Foo", "run", "T;int;E[]");
+
+		assertTrue(matcher.matches("org/Foo", "run",
+				"(Ljava/lang/Object;I[Ljava/lang/Comparable;)V"));
+		assertFalse(matcher.matches("org/Foo", "run",
+				"(II[Ljava/lang/Object;)V"));
+		assertFalse(matcher.matches("org/Foo", "run",
+				"(Ljava/lang/Object;ILjava/lang/Object;)V"));
+		assertFalse(matcher.matches("org/Foo", "run",
+				"(Ljava/lang/Object;I[[Ljava/lang/Object;)V"));
+	}
+
+	@Test
+	public void should_distinguish_overloads() {
+		matcher.add("org/Foo", "run", "int");
+
+		assertTrue(matcher.matches("org/Foo", "run", "(I)V"));
+		assertFalse(matcher.matches("org/Foo", "run", "(J)V"));
+		assertFalse(matcher.matches("org/Foo", "run", "(II)V"));
+	}
+
+	@Test
+	public void should_ignore_entries_without_method_name() {
+		matcher.add("org/Foo", null, "");
+		matcher.add("org/Foo", " ", "");
+
+		assertTrue(matcher.isEmpty());
+	}
+
+	@Test
+	public void normalizeParam_should_strip_modifiers_annotations_and_names() {
+		assertEquals("String",
+				MethodSignatureMatcher.normalizeParam("final String"));
+		assertEquals("String", MethodSignatureMatcher
+				.normalizeParam("@Nullable(\"x\") String value"));
+		assertEquals("List[]", MethodSignatureMatcher
+				.normalizeParam("final List<String>... args"));
+		assertEquals("int[]", MethodSignatureMatcher.normalizeParam("int [ ]"));
+		assertEquals("?", MethodSignatureMatcher.normalizeParam("T"));
+	}
+
+	@Test
+	public void parseParams_should_split_on_separator() {
+		assertArrayEquals(new String[0],
+				MethodSignatureMatcher.parseParams(null));
+		assertArrayEquals(new String[0],
+				MethodSignatureMatcher.parseParams(" "));
+		assertArrayEquals(new String[] { "int", "Map" },
+				MethodSignatureMatcher.parseParams("int;Map<A, B>;"));
+	}
+
+	@Test
+	public void descriptorParams_should_return_simple_names() {
+		assertArrayEquals(
+				new String[] { "boolean", "byte", "char", "short", "int",
+						"long", "float", "double", "String[][]", "Entry" },
+				MethodSignatureMatcher.descriptorParams(
+						"(ZBCSIJFD[[Ljava/lang/String;Ljava/util/Map$Entry;)V"));
+	}
+
+	@Test
+	public void paramsMatch_should_compare_params_and_descriptor() {
+		assertTrue(MethodSignatureMatcher.paramsMatch("", "()V"));
+		assertTrue(MethodSignatureMatcher.paramsMatch("int;String",
+				"(ILjava/lang/String;)V"));
+		assertFalse(MethodSignatureMatcher.paramsMatch("int", "()V"));
+	}
+
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.test.diff.common.domain.ClassInfo;
+import org.jacoco.core.internal.analysis.ClassNameFilter;
+
+/**
+ * Immutable configuration of a coverage analysis: the code diff for
+ * incremental coverage, the class filter rules for full coverage and the type
+ * of the report. The class filter is compiled once when the context is
+ * created, so a context can be shared between any number of {@link Analyzer}
+ * instances and threads.
+ */
+public final class AnalysisContext {
+
+	/**
+	 * Context for a full analysis of all classes.
+	 */
+	public static final AnalysisContext DEFAULT = new AnalysisContext(null,
+			null, null);
+
+	private final List<ClassInfo> diffList;
+
+	private final List<String> filterRules;
+
+	private final CoverageBuilder.TypeEnum type;
+
+	private final ClassNameFilter classNameFilter;
+
+	/**
+	 * Creates a new context.
+	 *
+	 * @param diffList
+	 *            classes of the code diff or <code>null</code> for full
+	 *            coverage
+	 * @param filterRules
+	 *            alternating include and exclude expressions in Java notation
+	 *            which are applied for full coverage or <code>null</code>
+	 * @param type
+	 *            report type, may be <code>null</code>
+	 */
+	public AnalysisContext(final List<ClassInfo> diffList,
+			final List<String> filterRules,
+			final CoverageBuilder.TypeEnum type) {
+		this.diffList = copy(diffList);
+		this.filterRules = copy(filterRules);
+		this.type = type;
+		// 增量覆盖按差异类过滤，优先于全量过滤规则
+		this.classNameFilter = diffList != null
+				? ClassNameFilter.forDiff(this.diffList)
+				: ClassNameFilter.forRules(this.filterRules);
+	}
+
+	private AnalysisContext(final AnalysisContext base,
+			final ClassNameFilter classNameFilter) {
+		this.diffList = base.diffList;
+		this.filterRules = base.filterRules;
+		this.type = base.type;
+		this.classNameFilter = classNameFilter;
+	}
+
+	private static <T> List<T> copy(final List<T> list) {
+		if (list == null) {
+			return null;
+		}
+		return Collections.unmodifiableList(new ArrayList<T>(list));
+	}
+
+	/**
+	 * Creates a context for incremental coverage of the given diff.
+	 *
+	 * @param diffList
+	 *            classes of the code diff
+	 * @return new context
+	 */
+	public static AnalysisContext forDiff(final List<ClassInfo> diffList) {
+		return new AnalysisContext(diffList, null,
+				CoverageBuilder.TypeEnum.REPORT);
+	}
+
+	/**
+	 * Creates a context for full coverage restricted by the given rules.
+	 *
+	 * @param filterRules
+	 *            alternating include and exclude expressions in Java notation
+	 * @return new context
+	 */
+	public static AnalysisContext forRules(final List<String> filterRules) {
+		return new AnalysisContext(null, filterRules, null);
+	}
+
+	/**
+	 * Returns the classes of the code diff.
+	 *
+	 * @return unmodifiable diff list or <code>null</code> for full coverage
+	 */
+	public List<ClassInfo> getDiffList() {
+		return diffList;
+	}
+
+	/**
+	 * Returns the class filter rules for full coverage.
+	 *
+	 * @return unmodifiable list of alternating include and exclude
+	 *         expressions or <code>null</code>
+	 */
+	public List<String> getFilterRules() {
+		return filterRules;
+	}
+
+	/**
+	 * Returns the report type.
+	 *
+	 * @return report type or <code>null</code>
+	 */
+	public CoverageBuilder.TypeEnum getType() {
+		return type;
+	}
+
+	/**
+	 * Checks whether this context describes an incremental analysis.
+	 *
+	 * @return <code>true</code> if a diff list is set
+	 */
+	public boolean isDiff() {
+		return diffList != null;
+	}
+
+	/**
+	 * Creates a context which only analyzes the given classes, provided they
+	 * are selected by this context.
+	 *
+	 * @param classNames
+	 *            VM names of the classes to analyze
+	 * @return new context
+	 */
+	public AnalysisContext restrictTo(final Collection<String> classNames) {
+		return new AnalysisContext(this,
+				classNameFilter == null ? ClassNameFilter.forClasses(classNames)
+						: classNameFilter.restrict(classNames));
+	}
+
+	/**
+	 * @return precompiled class filter or <code>null</code> if all classes are
+	 *         analyzed
+	 */
+	ClassNameFilter getClassNameFilter() {
+		return classNameFilter;
+	}
+
+}
@@ -16,26 +16,34 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Objects;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Enumeration;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
-import com.test.diff.common.enums.DiffResultTypeEnum;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.internal.ContentTypeDetector;
 import org.jacoco.core.internal.InputStreams;
 import org.jacoco.core.internal.Pack200Streams;
+import org.jacoco.core.internal.analysis.AnalysisBuffers;
 import org.jacoco.core.internal.analysis.ClassAnalyzer;
 import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassNameFilter;
 import org.jacoco.core.internal.analysis.StringPool;
 import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.internal.instr.InstrSupport;
-import org.jacoco.core.runtime.WildcardMatcher;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
@@ -54,10 +62,32 @@ public class Analyzer {
 
 	private final ICoverageVisitor coverageVisitor;
 
-	private final StringPool stringPool;
+	private final Worker worker;
+
+	private final AnalysisContext context;
+
+	private final ClassFileCache cache;
+
+	/** content of the file which is currently read into the cache */
+	private ClassFileCache.Content recording;
+
+	/**
+	 * Maximum number of classes which are analyzed in parallel mode before
+	 * their results are passed to the coverage visitor. This bounds the memory
+	 * held by class definitions read ahead.
+	 */
+	private static final int MAX_PENDING_CLASSES = 256;
+
+	private Executor executor;
+
+	private Deque<PendingClass> pending;
+
+	private ThreadLocal<Worker> workers;
 
 	/**
-	 * Creates a new analyzer reporting to the given output.
+	 * Creates a new analyzer reporting to the given output. The diff and
+	 * filter configuration is taken from the static settings of
+	 * {@link CoverageBuilder} for the calling thread.
 	 *
 	 * @param executionData
 	 *            execution data
@@ -67,82 +97,131 @@ public class Analyzer {
 	 */
 	public Analyzer(final ExecutionDataStore executionData,
 			final ICoverageVisitor coverageVisitor) {
+		this(executionData, coverageVisitor, null);
+	}
+
+	/**
+	 * Creates a new analyzer reporting to the given output which selects the
+	 * analyzed classes according to the given context.
+	 *
+	 * @param executionData
+	 *            execution data
+	 * @param coverageVisitor
+	 *            the output instance that will coverage data for every analyzed
+	 *            class
+	 * @param context
+	 *            configuration of the analysis or <code>null</code> to use the
+	 *            static settings of {@link CoverageBuilder}
+	 */
+	public Analyzer(final ExecutionDataStore executionData,
+			final ICoverageVisitor coverageVisitor,
+			final AnalysisContext context) {
+		this(executionData, coverageVisitor, context, null);
+	}
+
+	/**
+	 * Creates a new analyzer reporting to the given output which selects the
+	 * analyzed classes according to the given context. Files which have been
+	 * read before and classes which have been analyzed before with the same
+	 * execution data are taken from the given cache.
+	 *
+	 * @param executionData
+	 *            execution data
+	 * @param coverageVisitor
+	 *            the output instance that will coverage data for every analyzed
+	 *            class
+	 * @param context
+	 *            configuration of the analysis or <code>null</code> to use the
+	 *            static settings of {@link CoverageBuilder}
+	 * @param cache
+	 *            cache shared with other analyzers or <code>null</code>
+	 */
+	public Analyzer(final ExecutionDataStore executionData,
+			final ICoverageVisitor coverageVisitor,
+			final AnalysisContext context, final ClassFileCache cache) {
 		this.executionData = executionData;
 		this.coverageVisitor = coverageVisitor;
-		this.stringPool = new StringPool();
+		this.worker = new Worker();
+		this.context = context;
+		this.cache = cache;
+	}
+
+	private ClassNameFilter getClassNameFilter() {
+		final AnalysisContext c = context != null ? context
+				: CoverageBuilder.currentContext();
+		return c.getClassNameFilter();
+	}
+
+	private static String fingerprint(final ClassNameFilter filter) {
+		return filter == null ? null : filter.getFingerprint();
 	}
 
 	/**
 	 * Creates an ASM class visitor for analysis.
 	 *
-	 * @param classid
-	 *            id of the class calculated with {@link CRC64}
-	 * @param className
-	 *            VM name of the class
+	 * @param coverage
+	 *            coverage node the analysis result is written to
+	 * @param filter
+	 *            class name filter of the analysis or <code>null</code>
+	 * @param w
+	 *            working structures of the current thread
 	 * @return ASM visitor to write class definition to
 	 */
-	private ClassVisitor createAnalyzingVisitor(final long classid,
-			final String className) {
-		final ExecutionData data = executionData.get(classid);
-		final boolean[] probes;
-		final boolean noMatch;
-		if (data == null) {
-			probes = null;
-			noMatch = executionData.contains(className);
-		} else {
-			probes = data.getProbes();
-			noMatch = false;
-		}
-		final ClassCoverageImpl coverage = new ClassCoverageImpl(className,
-				classid, noMatch);
+	private ClassVisitor createAnalyzingVisitor(
+			final ClassCoverageImpl coverage, final boolean[] probes,
+			final ClassNameFilter filter, final Worker w) {
 		final ClassAnalyzer analyzer = new ClassAnalyzer(coverage, probes,
-				stringPool) {
-			@Override
-			public void visitEnd() {
-				super.visitEnd();
-				coverageVisitor.visitCoverage(coverage);
-			}
-		};
-		return new ClassProbesAdapter(analyzer, false, coverage);
+				w.stringPool, w.buffers);
+		return new ClassProbesAdapter(analyzer, false, coverage, filter);
 	}
 
-	private void analyzeClass(final byte[] source) {
+	/**
+	 * Analyzes a single class definition. This method does not access any
+	 * mutable state of this instance except the given working structures and
+	 * can therefore be called concurrently with different workers. The filter
+	 * is resolved by the calling thread, as the static settings of
+	 * {@link CoverageBuilder} are bound to that thread.
+	 *
+	 * @return coverage of the class or <code>null</code> if the class is not
+	 *         analyzed
+	 */
+	private IClassCoverage analyzeClass(final byte[] source,
+			final ClassNameFilter filter, final Worker w) {
+		// 增量覆盖只统计新增或修改类，全量覆盖根据匹配和排除的表达式选择需要的类；
+		// 在解析类文件之前过滤，未选中的类不计算class id
+		if (filter != null
+				&& !filter.accept(InstrSupport.getClassName(source))) {
+			return null;
+		}
 		final long classId = CRC64.classId(source);
 		final ClassReader reader = InstrSupport.classReaderFor(source);
 		if ((reader.getAccess() & Opcodes.ACC_MODULE) != 0) {
-			return;
+			return null;
 		}
 		if ((reader.getAccess() & Opcodes.ACC_SYNTHETIC) != 0) {
-			return;
+			return null;
 		}
-		// 增量覆盖过滤类
-		if (!Objects.isNull(CoverageBuilder.getDiffList())) {
-			boolean flag = CoverageBuilder.getDiffList().stream()
-					// 删除的类直接过滤掉
-					.filter(classInfo -> classInfo
-							.getDiffType() != DiffResultTypeEnum.DEL)
-					.anyMatch(classInfo -> reader.getClassName()
-							.equals(classInfo.getAsmClassName()));
-			// 不是新增或修改类，不统计覆盖率
-			if (!flag) {
-				return;
-			}
-		} else { // 收集全量覆盖率时：根据匹配和排除的表达式，选择需要的类
-			if (!Objects.isNull(CoverageBuilder.getFilterRulesLocal())) {
-				boolean valid = CoverageBuilder.getFilterRulesLocal().stream()
-						.anyMatch(map -> map.get("includes")
-								.matches(reader.getClassName())
-								&& !map.get("excludes")
-										.matches(reader.getClassName()));
-				// 未匹配成功的，不统计覆盖率
-				if (!valid) {
-					return;
-				}
+		final String className = reader.getClassName();
+		final ExecutionData data = executionData.get(classId);
+		final boolean[] probes = data == null ? null : data.getProbes();
+		final boolean noMatch = data == null
+				&& executionData.contains(className);
+		ClassFileCache.ResultKey key = null;
+		if (cache != null) {
+			key = new ClassFileCache.ResultKey(classId, probes, noMatch,
+					fingerprint(filter));
+			final IClassCoverage cached = cache.getResult(key);
+			if (cached != null) {
+				return cached;
 			}
 		}
-		final ClassVisitor visitor = createAnalyzingVisitor(classId,
-				reader.getClassName());
-		reader.accept(visitor, 0);
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(className,
+				classId, noMatch);
+		reader.accept(createAnalyzingVisitor(coverage, probes, filter, w), 0);
+		if (key != null) {
+			cache.putResult(key, coverage);
+		}
+		return coverage;
 	}
 
 	/**
@@ -157,11 +236,84 @@ public class Analyzer {
 	 */
 	public void analyzeClass(final byte[] buffer, final String location)
 			throws IOException {
+		if (recording != null) {
+			recording.add(cache.putClass(buffer), location);
+		}
+		final ClassNameFilter filter = getClassNameFilter();
+		if (executor != null) {
+			submit(buffer, filter, location);
+			return;
+		}
+		final IClassCoverage coverage;
 		try {
-			analyzeClass(buffer);
+			coverage = analyzeClass(buffer, filter, worker);
 		} catch (final RuntimeException cause) {
 			throw analyzerError(location, cause);
 		}
+		if (coverage != null) {
+			coverageVisitor.visitCoverage(coverage);
+		}
+	}
+
+	private void submit(final byte[] buffer, final ClassNameFilter filter,
+			final String location) throws IOException {
+		final FutureTask<IClassCoverage> task = new FutureTask<IClassCoverage>(
+				new Callable<IClassCoverage>() {
+					public IClassCoverage call() {
+						return analyzeClass(buffer, filter, workers.get());
+					}
+				});
+		pending.addLast(new PendingClass(task, location));
+		executor.execute(task);
+		if (pending.size() > MAX_PENDING_CLASSES) {
+			complete(pending.removeFirst());
+		}
+	}
+
+	private void complete(final PendingClass p) throws IOException {
+		final IClassCoverage coverage;
+		try {
+			coverage = p.task.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(String
+					.format("Interrupted while analyzing %s.", p.location));
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw analyzerError(p.location, (Exception) cause);
+		}
+		if (coverage != null) {
+			coverageVisitor.visitCoverage(coverage);
+		}
+	}
+
+	/**
+	 * Working structures which are reused for all classes analyzed by the same
+	 * thread.
+	 */
+	private static final class Worker {
+
+		final StringPool stringPool = new StringPool();
+
+		final AnalysisBuffers buffers = new AnalysisBuffers();
+
+	}
+
+	private static final class PendingClass {
+
+		final FutureTask<IClassCoverage> task;
+
+		final String location;
+
+		PendingClass(final FutureTask<IClassCoverage> task,
+				final String location) {
+			this.task = task;
+			this.location = location;
+		}
+
 	}
 
 	/**
@@ -245,21 +397,132 @@ public class Analyzer {
 	 */
 	public int analyzeAll(final File file) throws IOException {
 		int count = 0;
+		final ClassNameFilter filter = getClassNameFilter();
 		if (file.isDirectory()) {
 			for (final File f : file.listFiles()) {
 				count += analyzeAll(f);
 			}
+		} else if (cache != null) {
+			count += analyzeCached(file, filter);
 		} else {
-			final InputStream in = new FileInputStream(file);
-			try {
-				count += analyzeAll(in, file.getPath());
-			} finally {
-				in.close();
-			}
+			count += analyzeFile(file, filter);
 		}
 		return count;
 	}
 
+	private int analyzeFile(final File file, final ClassNameFilter filter)
+			throws IOException {
+		if (filter != null && isZipFile(file)) {
+			return analyzeZipFile(file, filter);
+		}
+		return analyzeStream(file);
+	}
+
+	/**
+	 * Analyzes the classes of the given file from the cache if the file has
+	 * been read before, otherwise reads the file and records its classes.
+	 */
+	private int analyzeCached(final File file, final ClassNameFilter filter)
+			throws IOException {
+		final ClassFileCache.Content content = cache.getContent(file,
+				fingerprint(filter));
+		if (content != null) {
+			final byte[][] classes = getCachedClasses(content);
+			if (classes != null) {
+				for (int i = 0; i < classes.length; i++) {
+					analyzeClass(classes[i], content.locations[i]);
+				}
+				return content.count;
+			}
+		}
+		recording = new ClassFileCache.Content();
+		try {
+			final int count = analyzeFile(file, filter);
+			cache.putContent(file, fingerprint(filter),
+					recording.complete(count));
+			return count;
+		} finally {
+			recording = null;
+		}
+	}
+
+	/**
+	 * Takes all classes of the given content from the cache before any of
+	 * them is analyzed.
+	 *
+	 * @return class definitions or <code>null</code> if a class has been
+	 *         evicted since the content has been looked up, so the file has
+	 *         to be read again
+	 */
+	private byte[][] getCachedClasses(final ClassFileCache.Content content)
+			throws IOException {
+		final byte[][] classes = new byte[content.ids.length][];
+		for (int i = 0; i < classes.length; i++) {
+			classes[i] = cache.getClass(content.ids[i]);
+			if (classes[i] == null) {
+				return null;
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * Analyzes all class files contained in the given file or folder like
+	 * {@link #analyzeAll(File)}, but the class definitions are analyzed in
+	 * parallel by the given executor. Files and archive entries are still read
+	 * sequentially by the calling thread. The coverage visitor is only called
+	 * from the calling thread and receives the classes in the same order as
+	 * with {@link #analyzeAll(File)}, so the result does not depend on the
+	 * scheduling of the executor.
+	 *
+	 * @param file
+	 *            file or folder to look for class files
+	 * @param executor
+	 *            executor which runs the analysis of single classes, e.g. a
+	 *            {@link java.util.concurrent.ForkJoinPool}
+	 * @return number of class files found
+	 * @throws IOException
+	 *             if the file can't be read or a class can't be analyzed
+	 */
+	public int analyzeAll(final File file, final Executor executor)
+			throws IOException {
+		if (this.executor != null) {
+			throw new IllegalStateException("Parallel analysis in progress.");
+		}
+		this.executor = executor;
+		this.pending = new ArrayDeque<PendingClass>();
+		if (workers == null) {
+			workers = new ThreadLocal<Worker>() {
+				@Override
+				protected Worker initialValue() {
+					return new Worker();
+				}
+			};
+		}
+		try {
+			final int count = analyzeAll(file);
+			while (!pending.isEmpty()) {
+				complete(pending.removeFirst());
+			}
+			return count;
+		} finally {
+			for (final PendingClass p : pending) {
+				p.task.cancel(false);
+			}
+			this.executor = null;
+			this.pending = null;
+		}
+	}
+
+	private int analyzeStream(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			return analyzeAll(in, file.getPath());
+		} finally {
+			in.close();
+		}
+	}
+
 	/**
 	 * Analyzes all classes from the given class path. Directories containing
 	 * class files as well as archive files are considered.
@@ -287,15 +550,75 @@ public class Analyzer {
 
 	private int analyzeZip(final InputStream input, final String location)
 			throws IOException {
+		final ClassNameFilter filter = getClassNameFilter();
 		final ZipInputStream zip = new ZipInputStream(input);
 		ZipEntry entry;
 		int count = 0;
 		while ((entry = nextEntry(zip, location)) != null) {
+			if (filter != null && !filter.acceptPath(entry.getName())) {
+				// 过滤掉的类文件不读取内容，由下一次nextEntry跳过
+				count++;
+				continue;
+			}
 			count += analyzeAll(zip, location + "@" + entry.getName());
 		}
 		return count;
 	}
 
+	/**
+	 * Analyzes a ZIP file on disk through its central directory. In contrast
+	 * to {@link #analyzeZip(InputStream, String)} the content of entries
+	 * rejected by the filter is neither read nor inflated.
+	 */
+	private int analyzeZipFile(final File file, final ClassNameFilter filter)
+			throws IOException {
+		final String location = file.getPath();
+		final ZipFile zip;
+		try {
+			zip = new ZipFile(file);
+		} catch (final ZipException e) {
+			// fall back to streaming for archives without valid central
+			// directory
+			return analyzeStream(file);
+		}
+		try {
+			int count = 0;
+			final Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				final ZipEntry entry = entries.nextElement();
+				if (!filter.acceptPath(entry.getName())) {
+					count++;
+					continue;
+				}
+				final String entryLocation = location + "@" + entry.getName();
+				final InputStream in;
+				try {
+					in = zip.getInputStream(entry);
+				} catch (final IOException e) {
+					throw analyzerError(entryLocation, e);
+				}
+				try {
+					count += analyzeAll(in, entryLocation);
+				} finally {
+					in.close();
+				}
+			}
+			return count;
+		} finally {
+			zip.close();
+		}
+	}
+
+	private static boolean isZipFile(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			return new ContentTypeDetector(in)
+					.getType() == ContentTypeDetector.ZIPFILE;
+		} finally {
+			in.close();
+		}
+	}
+
 	private ZipEntry nextEntry(final ZipInputStream input,
 			final String location) throws IOException {
 		try {
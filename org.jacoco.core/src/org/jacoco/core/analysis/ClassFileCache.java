@@ -0,0 +1,388 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jacoco.core.internal.InputStreams;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.data.CRC64;
+
+/**
+ * Cache for class files and their analysis results which can be shared by any
+ * number of {@link Analyzer} instances, e.g. for all reports of a multi-module
+ * build. Class definitions are stored by their CRC64 id, so identical classes
+ * contained in different files are stored only once. For every analyzed file
+ * the ids of the contained classes are remembered, so files which did not
+ * change are not read again. Analysis results are reused if the class and its
+ * execution data are the same.
+ *
+ * <p>
+ * All tiers are limited and evict the least recently used entries. Class
+ * definitions evicted from memory are written to the optional cache directory
+ * and read from there when required again. Instances of this class are thread
+ * safe.
+ * </p>
+ */
+public class ClassFileCache {
+
+	/** Default limit of the memory used for class definitions. */
+	public static final long DEFAULT_MEMORY_LIMIT = 64L * 1024 * 1024;
+
+	/** Default maximum number of cached analysis results. */
+	public static final int DEFAULT_RESULT_LIMIT = 10000;
+
+	private static final int FILE_LIMIT = 10000;
+
+	private final long memoryLimit;
+
+	private final int resultLimit;
+
+	private final File directory;
+
+	private final LinkedHashMap<Long, byte[]> classes;
+
+	private final LinkedHashMap<FileKey, Content> files;
+
+	private final LinkedHashMap<ResultKey, ClassCoverageImpl> results;
+
+	private long memoryUsage;
+
+	/**
+	 * Creates a memory only cache with default limits.
+	 */
+	public ClassFileCache() {
+		this(DEFAULT_MEMORY_LIMIT, DEFAULT_RESULT_LIMIT, null);
+	}
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param memoryLimit
+	 *            maximum number of bytes of class definitions kept in memory
+	 * @param resultLimit
+	 *            maximum number of analysis results kept in memory
+	 * @param directory
+	 *            directory for class definitions evicted from memory or
+	 *            <code>null</code> if evicted definitions are discarded
+	 */
+	public ClassFileCache(final long memoryLimit, final int resultLimit,
+			final File directory) {
+		this.memoryLimit = memoryLimit;
+		this.resultLimit = resultLimit;
+		this.directory = directory;
+		this.classes = new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+		this.files = new LinkedHashMap<FileKey, Content>(16, 0.75f, true);
+		this.results = new LinkedHashMap<ResultKey, ClassCoverageImpl>(16,
+				0.75f, true);
+	}
+
+	/**
+	 * Removes all entries from memory. Class definitions written to the cache
+	 * directory are kept.
+	 */
+	public synchronized void clear() {
+		classes.clear();
+		files.clear();
+		results.clear();
+		memoryUsage = 0;
+	}
+
+	/**
+	 * @return number of bytes of class definitions currently kept in memory
+	 */
+	public synchronized long getMemoryUsage() {
+		return memoryUsage;
+	}
+
+	// === Class definitions ===
+
+	/**
+	 * Stores the given class definition.
+	 *
+	 * @return CRC64 id of the class definition
+	 */
+	synchronized long putClass(final byte[] bytes) throws IOException {
+		final long id = CRC64.classId(bytes);
+		if (classes.put(Long.valueOf(id), bytes) == null) {
+			memoryUsage += bytes.length;
+			evictClasses();
+		}
+		return id;
+	}
+
+	private void evictClasses() throws IOException {
+		final Iterator<Map.Entry<Long, byte[]>> i = classes.entrySet()
+				.iterator();
+		while (memoryUsage > memoryLimit && i.hasNext()) {
+			final Map.Entry<Long, byte[]> e = i.next();
+			if (directory != null) {
+				write(e.getKey().longValue(), e.getValue());
+			}
+			memoryUsage -= e.getValue().length;
+			i.remove();
+		}
+	}
+
+	/**
+	 * Returns the class definition with the given id.
+	 *
+	 * @return class definition or <code>null</code> if not available
+	 */
+	synchronized byte[] getClass(final long id) throws IOException {
+		final Long key = Long.valueOf(id);
+		byte[] bytes = classes.get(key);
+		if (bytes == null && directory != null) {
+			final File file = getFile(id);
+			if (file.isFile()) {
+				bytes = read(file);
+				classes.put(key, bytes);
+				memoryUsage += bytes.length;
+				evictClasses();
+			}
+		}
+		return bytes;
+	}
+
+	private boolean isAvailable(final long id) {
+		return classes.containsKey(Long.valueOf(id))
+				|| (directory != null && getFile(id).isFile());
+	}
+
+	private File getFile(final long id) {
+		return new File(directory, String.format("%016x.class",
+				Long.valueOf(id)));
+	}
+
+	private void write(final long id, final byte[] bytes) throws IOException {
+		final File file = getFile(id);
+		if (file.isFile()) {
+			return;
+		}
+		directory.mkdirs();
+		// Rename so that concurrent builds never see partial files
+		final File tmp = File.createTempFile("class", ".tmp", directory);
+		final OutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			tmp.delete();
+		}
+	}
+
+	private static byte[] read(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			return InputStreams.readFully(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	// === Files ===
+
+	/**
+	 * Returns the content recorded for the given file and filter.
+	 *
+	 * @param filter
+	 *            fingerprint of the filter which was used to skip archive
+	 *            entries or <code>null</code>
+	 * @return content or <code>null</code> if the file has not been recorded,
+	 *         has been modified or one of its classes is not available any
+	 *         more
+	 */
+	synchronized Content getContent(final File file, final String filter) {
+		final FileKey key = new FileKey(file, filter);
+		final Content content = files.get(key);
+		if (content == null) {
+			return null;
+		}
+		for (final long id : content.ids) {
+			if (!isAvailable(id)) {
+				files.remove(key);
+				return null;
+			}
+		}
+		return content;
+	}
+
+	synchronized void putContent(final File file, final String filter,
+			final Content content) {
+		files.put(new FileKey(file, filter), content);
+		final Iterator<FileKey> i = files.keySet().iterator();
+		while (files.size() > FILE_LIMIT) {
+			i.next();
+			i.remove();
+		}
+	}
+
+	// === Analysis results ===
+
+	/**
+	 * Returns a copy of the analysis result for the given key, so results
+	 * handed to different bundles never share mutable nodes.
+	 *
+	 * @return result or <code>null</code> if not available
+	 */
+	synchronized IClassCoverage getResult(final ResultKey key) {
+		final ClassCoverageImpl coverage = results.get(key);
+		return coverage == null ? null : coverage.copy();
+	}
+
+	/**
+	 * Stores a copy of the given analysis result.
+	 */
+	synchronized void putResult(final ResultKey key,
+			final ClassCoverageImpl coverage) {
+		results.put(key, coverage.copy());
+		final Iterator<ResultKey> i = results.keySet().iterator();
+		while (results.size() > resultLimit) {
+			i.next();
+			i.remove();
+		}
+	}
+
+	/**
+	 * Class definitions contained in a file in the order they have been read.
+	 */
+	static final class Content {
+
+		private final List<Long> idList = new ArrayList<Long>();
+
+		private final List<String> locationList = new ArrayList<String>();
+
+		long[] ids;
+
+		String[] locations;
+
+		int count;
+
+		void add(final long id, final String location) {
+			idList.add(Long.valueOf(id));
+			locationList.add(location);
+		}
+
+		Content complete(final int count) {
+			this.ids = new long[idList.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = idList.get(i).longValue();
+			}
+			this.locations = locationList.toArray(new String[0]);
+			this.count = count;
+			idList.clear();
+			locationList.clear();
+			return this;
+		}
+
+	}
+
+	private static final class FileKey {
+
+		private final String path;
+
+		private final long length;
+
+		private final long lastModified;
+
+		private final String filter;
+
+		FileKey(final File file, final String filter) {
+			this.path = file.getAbsolutePath();
+			this.length = file.length();
+			this.lastModified = file.lastModified();
+			this.filter = filter;
+		}
+
+		@Override
+		public int hashCode() {
+			return path.hashCode() ^ (int) length ^ (int) lastModified
+					^ (filter == null ? 0 : filter.hashCode());
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof FileKey)) {
+				return false;
+			}
+			final FileKey other = (FileKey) obj;
+			return path.equals(other.path) && length == other.length
+					&& lastModified == other.lastModified
+					&& equal(filter, other.filter);
+		}
+
+	}
+
+	private static boolean equal(final String a, final String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Identifies an analysis result by everything it depends on: the class
+	 * definition, its execution data and the fingerprint of the filter of the
+	 * analysis.
+	 */
+	static final class ResultKey {
+
+		private final long classId;
+
+		private final boolean[] probes;
+
+		private final boolean noMatch;
+
+		private final String filter;
+
+		private final int hash;
+
+		ResultKey(final long classId, final boolean[] probes,
+				final boolean noMatch, final String filter) {
+			this.classId = classId;
+			this.probes = probes == null ? null : probes.clone();
+			this.noMatch = noMatch;
+			this.filter = filter;
+			this.hash = (int) (classId ^ (classId >>> 32)) * 31
+					+ Arrays.hashCode(probes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof ResultKey)) {
+				return false;
+			}
+			final ResultKey other = (ResultKey) obj;
+			return classId == other.classId && noMatch == other.noMatch
+					&& equal(filter, other.filter)
+					&& Arrays.equals(probes, other.probes);
+		}
+
+	}
+
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.jacoco.core.data.ExecutionDataStore;
+
+/**
+ * {@link IClassCoverageLoader} which analyzes the requested classes again from
+ * class files, directories or archives. Only the requested classes are read
+ * and analyzed.
+ */
+public class ClassFileCoverageLoader implements IClassCoverageLoader {
+
+	private final ExecutionDataStore executionData;
+
+	private final AnalysisContext context;
+
+	private final Collection<File> classFiles;
+
+	/**
+	 * Creates a new loader.
+	 *
+	 * @param executionData
+	 *            execution data
+	 * @param context
+	 *            configuration of the analysis or <code>null</code> to
+	 *            analyze all classes
+	 * @param classFiles
+	 *            class files, directories or archives to search for classes
+	 */
+	public ClassFileCoverageLoader(final ExecutionDataStore executionData,
+			final AnalysisContext context, final Collection<File> classFiles) {
+		this.executionData = executionData;
+		this.context = context == null ? AnalysisContext.DEFAULT : context;
+		this.classFiles = new ArrayList<File>(classFiles);
+	}
+
+	public void load(final Collection<String> classNames,
+			final ICoverageVisitor visitor) throws IOException {
+		final Analyzer analyzer = new Analyzer(executionData, visitor,
+				context.restrictTo(classNames));
+		for (final File file : classFiles) {
+			analyzer.analyzeAll(file);
+		}
+	}
+
+}
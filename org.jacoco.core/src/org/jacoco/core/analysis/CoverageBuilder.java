@@ -39,22 +39,42 @@ public class CoverageBuilder implements ICoverageVisitor {
 
 	private final Map<String, ISourceFileCoverage> sourcefiles;
 
-	private static final ThreadLocal<List<ClassInfo>> diffLocal = new ThreadLocal<List<ClassInfo>>();
-
-	private static final ThreadLocal<TypeEnum> typeLocal = new ThreadLocal<TypeEnum>();
+	private final AnalysisContext context;
 
 	/**
-	 * 在做全量覆盖率时，会根据这个通配符表达式过滤不需要的类
+	 * 兼容旧的静态配置方式，新代码应使用 {@link AnalysisContext}
 	 */
-	private static final ThreadLocal<List<Map<String, WildcardMatcher>>> filterRulesLocal = new ThreadLocal<List<Map<String, WildcardMatcher>>>();
+	private static final ThreadLocal<AnalysisContext> contextLocal = new ThreadLocal<AnalysisContext>();
 
 	/**
 	 * Create a new builder.
 	 *
 	 */
 	public CoverageBuilder() {
+		this(null);
+	}
+
+	/**
+	 * Create a new builder for the given analysis.
+	 *
+	 * @param context
+	 *            configuration of the analysis or <code>null</code> to use the
+	 *            configuration of the current thread
+	 */
+	public CoverageBuilder(final AnalysisContext context) {
 		this.classes = new HashMap<String, IClassCoverage>();
 		this.sourcefiles = new HashMap<String, ISourceFileCoverage>();
+		this.context = context;
+	}
+
+	/**
+	 * Returns the configuration of the analysis this builder collects data
+	 * for.
+	 *
+	 * @return analysis context
+	 */
+	public AnalysisContext getContext() {
+		return context != null ? context : currentContext();
 	}
 
 	/**
@@ -140,15 +160,43 @@ public class CoverageBuilder implements ICoverageVisitor {
 		return sourcefile;
 	}
 
+	/**
+	 * @deprecated use {@link AnalysisContext} instead
+	 */
+	@Deprecated
 	public static void setDiffList(List<ClassInfo> diffList) {
-		diffLocal.set(diffList);
+		final AnalysisContext current = currentContext();
+		setContext(new AnalysisContext(diffList, current.getFilterRules(),
+				current.getType()));
 	}
 
+	/**
+	 * @deprecated use {@link AnalysisContext#getDiffList()} instead
+	 */
+	@Deprecated
 	public static List<ClassInfo> getDiffList() {
-		return diffLocal.get();
+		return currentContext().getDiffList();
 	}
 
+	/**
+	 * @deprecated use {@link AnalysisContext} instead
+	 */
+	@Deprecated
 	public static void setFilterRulesLocal(List<String> rules) {
+		final AnalysisContext current = currentContext();
+		setContext(new AnalysisContext(current.getDiffList(), rules,
+				current.getType()));
+	}
+
+	/**
+	 * @deprecated use {@link AnalysisContext#getFilterRules()} instead
+	 */
+	@Deprecated
+	public static List<Map<String, WildcardMatcher>> getFilterRulesLocal() {
+		final List<String> rules = currentContext().getFilterRules();
+		if (rules == null) {
+			return null;
+		}
 		List<Map<String, WildcardMatcher>> list = new ArrayList<Map<String, WildcardMatcher>>();
 		for (int i = 0; i < rules.size(); i++) {
 			Map<String, WildcardMatcher> map = new HashMap<String, WildcardMatcher>(
@@ -161,23 +209,48 @@ public class CoverageBuilder implements ICoverageVisitor {
 			map.put("excludes", excludes);
 			list.add(map);
 		}
-		filterRulesLocal.set(list);
+		return list;
 	}
 
 	private static String toVMName(final String srcName) {
 		return srcName.replace('.', '/');
 	}
 
-	public static List<Map<String, WildcardMatcher>> getFilterRulesLocal() {
-		return filterRulesLocal.get();
-	}
-
+	/**
+	 * @deprecated use {@link AnalysisContext} instead
+	 */
+	@Deprecated
 	public static void setType(TypeEnum type) {
-		CoverageBuilder.typeLocal.set(type);
+		final AnalysisContext current = currentContext();
+		setContext(new AnalysisContext(current.getDiffList(),
+				current.getFilterRules(), type));
 	}
 
+	/**
+	 * @deprecated use {@link AnalysisContext#getType()} instead
+	 */
+	@Deprecated
 	public static TypeEnum getType() {
-		return CoverageBuilder.typeLocal.get();
+		return currentContext().getType();
+	}
+
+	private static void setContext(final AnalysisContext context) {
+		if (context.getDiffList() == null && context.getFilterRules() == null
+				&& context.getType() == null) {
+			contextLocal.remove();
+		} else {
+			contextLocal.set(context);
+		}
+	}
+
+	/**
+	 * 当前线程通过静态方法设置的分析配置
+	 *
+	 * @return 分析配置，未设置时为 {@link AnalysisContext#DEFAULT}
+	 */
+	static AnalysisContext currentContext() {
+		final AnalysisContext context = contextLocal.get();
+		return context == null ? AnalysisContext.DEFAULT : context;
 	}
 
 	public enum TypeEnum {
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jacoco.core.internal.analysis.BundleCoverageImpl;
+import org.jacoco.core.internal.analysis.SourceFileCoverageImpl;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Compact alternative to {@link CoverageBuilder} for large analyses. Only the
+ * counters of every class and source file are kept, method and line details
+ * are dropped as soon as a class has been visited. Bundles created from the
+ * index calculate their counters from these summaries and load the details of
+ * a package through a {@link IClassCoverageLoader} only when its classes or
+ * source files are requested.
+ *
+ * <p>
+ * The index can be written to a stream and read back later, so reports can be
+ * created without analyzing all classes again. Once a bundle has been created
+ * or the index has been written no more classes can be added.
+ * </p>
+ */
+public class CoverageIndex implements ICoverageVisitor {
+
+	/** Magic number in header for file format identification. */
+	public static final char MAGIC_NUMBER = 0xC0C1;
+
+	/** File format version, will be incremented for each incompatible change. */
+	public static final char FORMAT_VERSION = 0x0001;
+
+	private final Map<String, CoverageSummary> classes;
+
+	private Map<String, SourceFileCoverageImpl> sourcefiles;
+
+	private Collection<CoverageSummary> sourceFileSummaries;
+
+	/**
+	 * Creates a new empty index.
+	 */
+	public CoverageIndex() {
+		this.classes = new HashMap<String, CoverageSummary>();
+		this.sourcefiles = new HashMap<String, SourceFileCoverageImpl>();
+	}
+
+	private CoverageIndex(final Map<String, CoverageSummary> classes,
+			final Collection<CoverageSummary> sourceFileSummaries) {
+		this.classes = classes;
+		this.sourceFileSummaries = sourceFileSummaries;
+	}
+
+	/**
+	 * Returns the VM names of all classes contained in this index.
+	 *
+	 * @return names of all classes
+	 */
+	public Collection<String> getClassNames() {
+		return Collections.unmodifiableCollection(classes.keySet());
+	}
+
+	/**
+	 * Creates a bundle from all classes contained in this index. Counters of
+	 * the bundle and its packages are available immediately, classes and
+	 * source files of a package are loaded with the given loader on first
+	 * access.
+	 *
+	 * @param name
+	 *            Name of the bundle
+	 * @param loader
+	 *            loader for the details of the classes
+	 * @return bundle containing all classes and source files
+	 */
+	public IBundleCoverage getBundle(final String name,
+			final IClassCoverageLoader loader) {
+		freeze();
+		final Map<String, List<CoverageSummary>> classesByPackage = groupByPackage(
+				classes.values());
+		final Map<String, List<CoverageSummary>> sourcesByPackage = groupByPackage(
+				sourceFileSummaries);
+		final Collection<IPackageCoverage> packages = new ArrayList<IPackageCoverage>();
+		for (final Map.Entry<String, List<CoverageSummary>> e : classesByPackage
+				.entrySet()) {
+			List<CoverageSummary> sources = sourcesByPackage.get(e.getKey());
+			if (sources == null) {
+				sources = Collections.emptyList();
+			}
+			packages.add(new LazyPackageCoverage(e.getKey(), e.getValue(),
+					sources, loader));
+		}
+		return new BundleCoverageImpl(name, packages);
+	}
+
+	private static Map<String, List<CoverageSummary>> groupByPackage(
+			final Collection<CoverageSummary> summaries) {
+		final Map<String, List<CoverageSummary>> map = new HashMap<String, List<CoverageSummary>>();
+		for (final CoverageSummary s : summaries) {
+			List<CoverageSummary> list = map.get(s.getPackageName());
+			if (list == null) {
+				list = new ArrayList<CoverageSummary>();
+				map.put(s.getPackageName(), list);
+			}
+			list.add(s);
+		}
+		return map;
+	}
+
+	/**
+	 * Writes the content of this index to the given stream.
+	 *
+	 * @param output
+	 *            stream to write the index to
+	 * @throws IOException
+	 *             if the stream can't be written
+	 */
+	public void write(final OutputStream output) throws IOException {
+		freeze();
+		final CompactDataOutput out = new CompactDataOutput(output);
+		out.writeChar(MAGIC_NUMBER);
+		out.writeChar(FORMAT_VERSION);
+		out.writeVarInt(classes.size());
+		for (final CoverageSummary c : classes.values()) {
+			c.write(out);
+		}
+		out.writeVarInt(sourceFileSummaries.size());
+		for (final CoverageSummary s : sourceFileSummaries) {
+			s.write(out);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads an index previously written with {@link #write(OutputStream)}.
+	 *
+	 * @param input
+	 *            stream to read the index from
+	 * @return index with the content of the stream
+	 * @throws IOException
+	 *             if the stream can't be read or has an invalid format
+	 */
+	public static CoverageIndex read(final InputStream input)
+			throws IOException {
+		final CompactDataInput in = new CompactDataInput(input);
+		if (in.readChar() != MAGIC_NUMBER) {
+			throw new IOException("Invalid coverage index file.");
+		}
+		final char version = in.readChar();
+		if (version != FORMAT_VERSION) {
+			throw new IOException(
+					String.format("Incompatible version %x.",
+							Integer.valueOf(version)));
+		}
+		final int classCount = in.readVarInt();
+		final Map<String, CoverageSummary> classes = new HashMap<String, CoverageSummary>(
+				classCount * 2);
+		for (int i = 0; i < classCount; i++) {
+			final CoverageSummary c = CoverageSummary.read(in);
+			classes.put(c.getName(), c);
+		}
+		final int sourceCount = in.readVarInt();
+		final Collection<CoverageSummary> sources = new ArrayList<CoverageSummary>(
+				sourceCount);
+		for (int i = 0; i < sourceCount; i++) {
+			sources.add(CoverageSummary.read(in));
+		}
+		return new CoverageIndex(classes, sources);
+	}
+
+	/**
+	 * Replaces the source files with their summaries, line details are not
+	 * required any more afterwards.
+	 */
+	private void freeze() {
+		if (sourcefiles == null) {
+			return;
+		}
+		final Collection<CoverageSummary> summaries = new ArrayList<CoverageSummary>(
+				sourcefiles.size());
+		for (final SourceFileCoverageImpl s : sourcefiles.values()) {
+			summaries.add(CoverageSummary.of(s));
+		}
+		sourceFileSummaries = summaries;
+		sourcefiles = null;
+	}
+
+	// === ICoverageVisitor ===
+
+	public void visitCoverage(final IClassCoverage coverage) {
+		if (sourcefiles == null) {
+			throw new IllegalStateException(
+					"Can't add classes to a completed index.");
+		}
+		final String name = coverage.getName();
+		final CoverageSummary dup = classes.put(name,
+				CoverageSummary.of(coverage));
+		if (dup != null) {
+			if (dup.getId() != coverage.getId()) {
+				throw new IllegalStateException(
+						"Can't add different class with same name: " + name);
+			}
+		} else {
+			final String source = coverage.getSourceFileName();
+			if (source != null) {
+				getSourceFile(source, coverage.getPackageName())
+						.increment(coverage);
+			}
+		}
+	}
+
+	private SourceFileCoverageImpl getSourceFile(final String filename,
+			final String packagename) {
+		final String key = packagename + '/' + filename;
+		SourceFileCoverageImpl sourcefile = sourcefiles.get(key);
+		if (sourcefile == null) {
+			sourcefile = new SourceFileCoverageImpl(filename, packagename);
+			sourcefiles.put(key, sourcefile);
+		}
+		return sourcefile;
+	}
+
+}
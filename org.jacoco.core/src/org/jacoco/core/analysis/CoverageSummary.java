@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.IOException;
+
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Counters of a class or source file without any method or line details, as
+ * stored in a {@link CoverageIndex}.
+ */
+class CoverageSummary extends CoverageNodeImpl {
+
+	private final String packageName;
+
+	private final long id;
+
+	private final String sourceFileName;
+
+	private final boolean noMatch;
+
+	private CoverageSummary(final ElementType elementType, final String name,
+			final String packageName, final long id,
+			final String sourceFileName, final boolean noMatch) {
+		super(elementType, name);
+		this.packageName = packageName;
+		this.id = id;
+		this.sourceFileName = sourceFileName;
+		this.noMatch = noMatch;
+	}
+
+	/**
+	 * Creates the summary of the given class.
+	 */
+	static CoverageSummary of(final IClassCoverage coverage) {
+		final CoverageSummary summary = new CoverageSummary(
+				ElementType.CLASS, coverage.getName(),
+				coverage.getPackageName(), coverage.getId(),
+				coverage.getSourceFileName(), coverage.isNoMatch());
+		summary.increment(coverage);
+		return summary;
+	}
+
+	/**
+	 * Creates the summary of the given source file.
+	 */
+	static CoverageSummary of(final ISourceFileCoverage coverage) {
+		final CoverageSummary summary = new CoverageSummary(
+				ElementType.SOURCEFILE, coverage.getName(),
+				coverage.getPackageName(), 0, null, false);
+		summary.increment(coverage);
+		return summary;
+	}
+
+	String getPackageName() {
+		return packageName;
+	}
+
+	long getId() {
+		return id;
+	}
+
+	String getSourceFileName() {
+		return sourceFileName;
+	}
+
+	boolean isNoMatch() {
+		return noMatch;
+	}
+
+	void write(final CompactDataOutput out) throws IOException {
+		out.writeBoolean(getElementType() == ElementType.CLASS);
+		out.writeUTF(getName());
+		out.writeUTF(packageName);
+		out.writeLong(id);
+		out.writeBoolean(sourceFileName != null);
+		if (sourceFileName != null) {
+			out.writeUTF(sourceFileName);
+		}
+		out.writeBoolean(noMatch);
+		writeCounter(out, instructionCounter);
+		writeCounter(out, branchCounter);
+		writeCounter(out, lineCounter);
+		writeCounter(out, complexityCounter);
+		writeCounter(out, methodCounter);
+		writeCounter(out, classCounter);
+	}
+
+	private static void writeCounter(final CompactDataOutput out,
+			final ICounter counter) throws IOException {
+		out.writeVarInt(counter.getMissedCount());
+		out.writeVarInt(counter.getCoveredCount());
+	}
+
+	static CoverageSummary read(final CompactDataInput in) throws IOException {
+		final ElementType elementType = in.readBoolean() ? ElementType.CLASS
+				: ElementType.SOURCEFILE;
+		final String name = in.readUTF();
+		final String packageName = in.readUTF();
+		final long id = in.readLong();
+		final String sourceFileName = in.readBoolean() ? in.readUTF() : null;
+		final boolean noMatch = in.readBoolean();
+		final CoverageSummary summary = new CoverageSummary(elementType, name,
+				packageName, id, sourceFileName, noMatch);
+		summary.instructionCounter = readCounter(in);
+		summary.branchCounter = readCounter(in);
+		summary.lineCounter = readCounter(in);
+		summary.complexityCounter = readCounter(in);
+		summary.methodCounter = readCounter(in);
+		summary.classCounter = readCounter(in);
+		return summary;
+	}
+
+	private static CounterImpl readCounter(final CompactDataInput in)
+			throws IOException {
+		final int missed = in.readVarInt();
+		return CounterImpl.getInstance(missed, in.readVarInt());
+	}
+
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Source of the detailed coverage of classes, which is used by bundles from a
+ * {@link CoverageIndex} to calculate method and line details on demand.
+ */
+public interface IClassCoverageLoader {
+
+	/**
+	 * Calculates the coverage of the given classes and reports it to the given
+	 * visitor. Classes which are not available are silently ignored.
+	 *
+	 * @param classNames
+	 *            VM names of the classes to load
+	 * @param visitor
+	 *            visitor to report the coverage of every class to
+	 * @throws IOException
+	 *             if the class definitions can't be read or analyzed
+	 */
+	void load(Collection<String> classNames, ICoverageVisitor visitor)
+			throws IOException;
+
+}
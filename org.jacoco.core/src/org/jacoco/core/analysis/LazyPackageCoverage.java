@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * {@link IPackageCoverage} whose counters are calculated from the summaries of
+ * a {@link CoverageIndex}. Classes and source files are only loaded when
+ * requested and are kept as long as memory is available.
+ */
+class LazyPackageCoverage extends CoverageNodeImpl
+		implements IPackageCoverage {
+
+	private final Collection<String> classNames;
+
+	private final IClassCoverageLoader loader;
+
+	private SoftReference<CoverageBuilder> details;
+
+	/**
+	 * Creates package node with counters calculated like for
+	 * {@link org.jacoco.core.internal.analysis.PackageCoverageImpl}.
+	 */
+	LazyPackageCoverage(final String name,
+			final Collection<CoverageSummary> classes,
+			final Collection<CoverageSummary> sourceFiles,
+			final IClassCoverageLoader loader) {
+		super(ElementType.PACKAGE, name);
+		this.classNames = new ArrayList<String>(classes.size());
+		this.loader = loader;
+		increment(sourceFiles);
+		for (final CoverageSummary c : classes) {
+			classNames.add(c.getName());
+			// Classes associated with a source file are already included in
+			// the source file summaries.
+			if (c.getSourceFileName() == null) {
+				increment(c);
+			}
+		}
+	}
+
+	private synchronized CoverageBuilder getDetails() {
+		CoverageBuilder builder = details == null ? null : details.get();
+		if (builder == null) {
+			builder = new CoverageBuilder(AnalysisContext.DEFAULT);
+			try {
+				loader.load(classNames, builder);
+			} catch (final IOException e) {
+				throw new IllegalStateException(String.format(
+						"Error while loading coverage of package %s.",
+						getName()), e);
+			}
+			details = new SoftReference<CoverageBuilder>(builder);
+		}
+		return builder;
+	}
+
+	// === IPackageCoverage implementation ===
+
+	public Collection<IClassCoverage> getClasses() {
+		return getDetails().getClasses();
+	}
+
+	public Collection<ISourceFileCoverage> getSourceFiles() {
+		return getDetails().getSourceFiles();
+	}
+
+}
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.analysis.ClassNameFilter;
+import org.jacoco.core.internal.instr.InstrSupport;
+
+/**
+ * Analyzes class files package by package, so only the coverage data of a
+ * single package has to be kept in memory at a time. All class files are first
+ * scanned with {@link #scan(File)}, which records the class files and archive
+ * entries of every package. Afterwards every package can be analyzed with
+ * {@link #analyzePackage(String)}, which only reads the recorded class files
+ * and archive entries of the package. Archives are opened once and kept open
+ * until the analyzer is closed.
+ */
+public class PackageAnalyzer implements Closeable {
+
+	private final ExecutionDataStore executionData;
+
+	private final AnalysisContext context;
+
+	private final Map<String, PackageEntry> packages;
+
+	private final Collection<IClassCoverage> noMatchClasses;
+
+	private final Map<File, ZipFile> archives;
+
+	private int classCount;
+
+	/**
+	 * Creates a new analyzer for the given execution data.
+	 *
+	 * @param executionData
+	 *            execution data
+	 * @param context
+	 *            configuration of the analysis or <code>null</code> to use the
+	 *            static settings of {@link CoverageBuilder}
+	 */
+	public PackageAnalyzer(final ExecutionDataStore executionData,
+			final AnalysisContext context) {
+		this.executionData = executionData;
+		this.context = context == null ? CoverageBuilder.currentContext()
+				: context;
+		this.packages = new TreeMap<String, PackageEntry>();
+		this.noMatchClasses = new ArrayList<IClassCoverage>();
+		this.archives = new HashMap<File, ZipFile>();
+	}
+
+	/**
+	 * Scans the given class file, directory or archive for classes. The class
+	 * definitions are not analyzed.
+	 *
+	 * @param file
+	 *            file or folder to look for class files
+	 * @return number of class files found
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public int scan(final File file) throws IOException {
+		return new Scanner().analyzeAll(file);
+	}
+
+	/**
+	 * @return number of classes found by all scans
+	 */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * @return VM names of all packages found by the scans in alphabetical
+	 *         order
+	 */
+	public Collection<String> getPackageNames() {
+		return packages.keySet();
+	}
+
+	/**
+	 * Analyzes the classes of the given package.
+	 *
+	 * @param name
+	 *            VM name of the package
+	 * @return coverage data of the package or <code>null</code> if the package
+	 *         does not contain classes relevant for code coverage
+	 * @throws IOException
+	 *             if the class files can't be read or analyzed
+	 */
+	public IPackageCoverage analyzePackage(final String name)
+			throws IOException {
+		final PackageEntry entry = packages.get(name);
+		if (entry == null) {
+			return null;
+		}
+		final CoverageBuilder builder = new CoverageBuilder(context);
+		final Analyzer analyzer = new Analyzer(executionData, builder,
+				context.restrictTo(entry.classNames));
+		for (final File file : entry.files) {
+			analyzer.analyzeAll(file);
+		}
+		for (final Map.Entry<File, Set<String>> e : entry.archiveEntries
+				.entrySet()) {
+			if (!entry.files.contains(e.getKey())) {
+				analyzeEntries(analyzer, e.getKey(), e.getValue());
+			}
+		}
+		noMatchClasses.addAll(builder.getNoMatchClasses());
+		final Collection<IPackageCoverage> result = builder.getBundle(name)
+				.getPackages();
+		return result.isEmpty() ? null : result.iterator().next();
+	}
+
+	private void analyzeEntries(final Analyzer analyzer, final File file,
+			final Collection<String> names) throws IOException {
+		final ZipFile zip = openArchive(file);
+		if (zip == null) {
+			analyzer.analyzeAll(file);
+			return;
+		}
+		final Collection<ZipEntry> zipEntries = new ArrayList<ZipEntry>();
+		for (final String name : names) {
+			final ZipEntry zipEntry = zip.getEntry(name);
+			if (zipEntry == null) {
+				// content differs from the central directory
+				analyzer.analyzeAll(file);
+				return;
+			}
+			zipEntries.add(zipEntry);
+		}
+		for (final ZipEntry zipEntry : zipEntries) {
+			final InputStream in = zip.getInputStream(zipEntry);
+			try {
+				analyzer.analyzeAll(in,
+						file.getPath() + "@" + zipEntry.getName());
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * @return the opened archive or <code>null</code> if the file has no
+	 *         valid central directory and has to be read as a stream
+	 */
+	private ZipFile openArchive(final File file) throws IOException {
+		if (archives.containsKey(file)) {
+			return archives.get(file);
+		}
+		ZipFile zip;
+		try {
+			zip = new ZipFile(file);
+		} catch (final ZipException e) {
+			zip = null;
+		}
+		archives.put(file, zip);
+		return zip;
+	}
+
+	/**
+	 * Closes all archives opened by {@link #analyzePackage(String)}.
+	 *
+	 * @throws IOException
+	 *             if an archive can't be closed
+	 */
+	public void close() throws IOException {
+		IOException error = null;
+		for (final ZipFile zip : archives.values()) {
+			if (zip == null) {
+				continue;
+			}
+			try {
+				zip.close();
+			} catch (final IOException e) {
+				error = e;
+			}
+		}
+		archives.clear();
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Returns all classes analyzed so far for which execution data does not
+	 * match.
+	 *
+	 * @see IClassCoverage#isNoMatch()
+	 * @return collection of classes with non-matching execution data
+	 */
+	public Collection<IClassCoverage> getNoMatchClasses() {
+		return noMatchClasses;
+	}
+
+	private static class PackageEntry {
+
+		final Set<String> classNames = new HashSet<String>();
+
+		/** files which are read completely */
+		final Set<File> files = new LinkedHashSet<File>();
+
+		/** names of the entries to read per archive */
+		final Map<File, Set<String>> archiveEntries = new LinkedHashMap<File, Set<String>>();
+
+		void addArchiveEntry(final File archive, final String name) {
+			Set<String> names = archiveEntries.get(archive);
+			if (names == null) {
+				names = new LinkedHashSet<String>();
+				archiveEntries.put(archive, names);
+			}
+			names.add(name);
+		}
+
+	}
+
+	/**
+	 * Records the names and locations of the class definitions instead of
+	 * analyzing them. Entries of nested, compressed or packed archives can't
+	 * be read directly, in this case the whole file is recorded.
+	 */
+	private class Scanner extends Analyzer {
+
+		private final ClassNameFilter filter;
+
+		private File file;
+
+		Scanner() {
+			super(executionData, null, context);
+			this.filter = context.getClassNameFilter();
+		}
+
+		@Override
+		public int analyzeAll(final File file) throws IOException {
+			if (!file.isDirectory()) {
+				this.file = file;
+			}
+			return super.analyzeAll(file);
+		}
+
+		@Override
+		public void analyzeClass(final byte[] buffer, final String location)
+				throws IOException {
+			final String name;
+			try {
+				name = InstrSupport.getClassName(buffer);
+			} catch (final RuntimeException e) {
+				final IOException ex = new IOException(
+						String.format("Error while analyzing %s.", location));
+				ex.initCause(e);
+				throw ex;
+			}
+			if (filter != null && !filter.accept(name)) {
+				return;
+			}
+			final int pos = name.lastIndexOf('/');
+			final String packageName = pos == -1 ? ""
+					: name.substring(0, pos);
+			PackageEntry entry = packages.get(packageName);
+			if (entry == null) {
+				entry = new PackageEntry();
+				packages.put(packageName, entry);
+			}
+			if (entry.classNames.add(name)) {
+				classCount++;
+			}
+			final String prefix = file.getPath() + "@";
+			if (location.startsWith(prefix)
+					&& location.indexOf('@', prefix.length()) == -1) {
+				entry.addArchiveEntry(file, location.substring(prefix.length()));
+			} else {
+				entry.files.add(file);
+			}
+		}
+
+	}
+
+}
@@ -16,12 +16,20 @@ import static java.lang.String.format;
 
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Objects;
+
+import org.jacoco.core.internal.data.ProbeBits;
 
 /**
  * Execution data for a single Java class. While instances are immutable care
  * has to be taken about the probe data array of type <code>boolean[]</code>
  * which can be modified.
+ *
+ * <p>
+ * For offline processing the probes can also be held packed into
+ * <code>long</code> words, e.g. when read from execution data files. Merging
+ * packed data works on whole words. The probes are unpacked on the first call
+ * of {@link #getProbes()} and are held as <code>boolean[]</code> afterwards.
+ * </p>
  */
 public final class ExecutionData {
 
@@ -29,7 +37,13 @@ public final class ExecutionData {
 
 	private final String name;
 
-	private final boolean[] probes;
+	private final int probeCount;
+
+	/** Probes, <code>null</code> while packed */
+	private volatile boolean[] probes;
+
+	/** Packed probes, <code>null</code> after unpacking */
+	private volatile long[] bits;
 
 	/**
 	 * 类探针对应的调用者标记
@@ -50,15 +64,36 @@ public final class ExecutionData {
 			final boolean[] probes) {
 		this.id = id;
 		this.name = name;
+		this.probeCount = probes.length;
 		this.probes = probes;
 	}
 
 	public ExecutionData(final long id, final String name,
 			final boolean[] probes, HashSet[] calledFlags) {
+		this(id, name, probes);
+		this.calledFlags = calledFlags;
+	}
+
+	/**
+	 * Creates a new {@link ExecutionData} object with the given packed probe
+	 * data. Probe <code>i</code> is stored in bit <code>i % 64</code> of word
+	 * <code>i / 64</code>.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name
+	 * @param bits
+	 *            packed probe data
+	 * @param probeCount
+	 *            probe count
+	 */
+	public ExecutionData(final long id, final String name, final long[] bits,
+			final int probeCount) {
 		this.id = id;
 		this.name = name;
-		this.probes = probes;
-		this.calledFlags = calledFlags;
+		this.probeCount = probeCount;
+		this.bits = bits;
 	}
 
 	/**
@@ -76,9 +111,17 @@ public final class ExecutionData {
 			final int probeCount) {
 		this.id = id;
 		this.name = name;
+		this.probeCount = probeCount;
 		this.probes = new boolean[probeCount];
 	}
 
+	/**
+	 * Returns the callers of every probe. At runtime the set of a probe is
+	 * only created with its first caller, so single elements may be
+	 * <code>null</code>.
+	 *
+	 * @return caller sets or <code>null</code> if no callers are recorded
+	 */
 	public HashSet[] getCalledFlags() {
 		return calledFlags;
 	}
@@ -113,22 +156,73 @@ public final class ExecutionData {
 	 * @return probe data
 	 */
 	public boolean[] getProbes() {
+		final boolean[] p = probes;
+		return p == null ? unpack() : p;
+	}
+
+	private synchronized boolean[] unpack() {
+		if (probes == null) {
+			probes = ProbeBits.unpack(bits, probeCount);
+			bits = null;
+		}
 		return probes;
 	}
 
+	/**
+	 * Returns a copy of the probes packed into <code>long</code> words. Probe
+	 * <code>i</code> is stored in bit <code>i % 64</code> of word
+	 * <code>i / 64</code>.
+	 *
+	 * @return packed probe data
+	 */
+	public long[] getProbeBits() {
+		final long[] b = bits;
+		return b == null ? ProbeBits.pack(getProbes()) : b.clone();
+	}
+
+	/**
+	 * Returns the packed probes if this object has not been unpacked yet. The
+	 * returned array must not be modified.
+	 *
+	 * @return packed probes or <code>null</code>
+	 */
+	long[] getPackedProbes() {
+		return bits;
+	}
+
+	/**
+	 * Returns the number of probes.
+	 *
+	 * @return probe count
+	 */
+	public int getProbeCount() {
+		return probeCount;
+	}
+
 	/**
 	 * Sets all probes to <code>false</code>.
 	 */
 	public void reset() {
-		Arrays.fill(probes, false);
-		if (Objects.isNull(calledFlags)) {
+		final long[] b = bits;
+		if (b != null) {
+			Arrays.fill(b, 0L);
+		} else {
+			Arrays.fill(probes, false);
+		}
+		final HashSet[] sets = calledFlags;
+		if (sets == null) {
 			return;
 		}
-		Arrays.stream(calledFlags).forEach(item -> {
-			if (!Objects.isNull(item)) {
-				item.clear();
+		if (Arrays.asList(sets).contains(null)) {
+			// Sets are created lazily, so the recorded ones can be dropped:
+			Arrays.fill(sets, null);
+		} else {
+			// Classes instrumented with earlier versions get all sets up front
+			// and hold the single sets, so they are cleared in place:
+			for (final HashSet set : sets) {
+				set.clear();
 			}
-		});
+		}
 	}
 
 	/**
@@ -137,7 +231,11 @@ public final class ExecutionData {
 	 * @return <code>true</code>, if at least one probe has been hit
 	 */
 	public boolean hasHits() {
-		for (final boolean p : probes) {
+		final long[] b = bits;
+		if (b != null) {
+			return ProbeBits.any(b);
+		}
+		for (final boolean p : getProbes()) {
 			if (p) {
 				return true;
 			}
@@ -189,17 +287,70 @@ public final class ExecutionData {
 	 */
 	public void merge(final ExecutionData other, final boolean flag) {
 		assertCompatibility(other.getId(), other.getName(),
-				other.getProbes().length);
-		final boolean[] otherData = other.getProbes();
-		final HashSet[] otherCalledFlags = other.getCalledFlags();
-		for (int i = 0; i < probes.length; i++) {
-			if (otherData[i]) {
-				probes[i] = flag;
+				other.getProbeCount());
+		final long[] thisBits = bits;
+		final long[] otherBits = other.bits;
+		if (thisBits != null) {
+			final long[] source = otherBits == null
+					? ProbeBits.pack(other.getProbes())
+					: otherBits;
+			if (flag) {
+				ProbeBits.or(thisBits, source);
+			} else {
+				ProbeBits.andNot(thisBits, source);
+			}
+		} else if (otherBits != null) {
+			ProbeBits.set(probes, otherBits, flag);
+		} else {
+			final boolean[] otherData = other.getProbes();
+			for (int i = 0; i < probeCount; i++) {
+				if (otherData[i]) {
+					probes[i] = flag;
+				}
 			}
-			if (calledFlags != null && otherCalledFlags != null
-					&& calledFlags[i] != null && otherCalledFlags[i] != null) {
+		}
+		final HashSet[] otherCalledFlags = other.getCalledFlags();
+		if (calledFlags != null && otherCalledFlags != null) {
+			for (int i = 0; i < probeCount; i++) {
+				if (otherCalledFlags[i] == null) {
+					continue;
+				}
 				// 每个探针对应的called flag 都要合并
-				calledFlags[i].addAll(otherCalledFlags[i]);
+				if (calledFlags[i] == null) {
+					calledFlags[i] = new HashSet(otherCalledFlags[i]);
+				} else {
+					calledFlags[i].addAll(otherCalledFlags[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keeps only the probes of this object which have also been executed in
+	 * the given execution data. I.e. the result is
+	 *
+	 * <pre>
+	 * A and B
+	 * </pre>
+	 *
+	 * The probe array of the other object is not modified.
+	 *
+	 * @param other
+	 *            execution data to intersect with
+	 */
+	public void intersect(final ExecutionData other) {
+		assertCompatibility(other.getId(), other.getName(),
+				other.getProbeCount());
+		final long[] thisBits = bits;
+		if (thisBits != null) {
+			final long[] otherBits = other.bits;
+			ProbeBits.and(thisBits, otherBits == null
+					? ProbeBits.pack(other.getProbes())
+					: otherBits);
+		} else {
+			final boolean[] otherData = other.getProbes();
+			for (int i = 0; i < probeCount; i++) {
+				probes[i] &= otherData[i];
 			}
 		}
 	}
@@ -230,7 +381,7 @@ public final class ExecutionData {
 					format("Different class names %s and %s for id %016x.",
 							this.name, name, Long.valueOf(id)));
 		}
-		if (this.probes.length != probecount) {
+		if (this.probeCount != probecount) {
 			throw new IllegalStateException(format(
 					"Incompatible execution data for class %s with id %016x.",
 					name, Long.valueOf(id)));
@@ -170,8 +170,9 @@ public class ExecutionDataReader {
 		}
 		final long id = in.readLong();
 		final String name = in.readUTF();
-		final boolean[] probes = in.readBooleanArray();
-		this.executionData = new ExecutionData(id, name, probes);
+		final int probeCount = in.readVarInt();
+		final long[] bits = in.readBits(probeCount);
+		this.executionData = new ExecutionData(id, name, bits, probeCount);
 		executionDataVisitor.visitClassExecution(this.executionData);
 	}
 
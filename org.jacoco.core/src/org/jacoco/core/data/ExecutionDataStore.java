@@ -12,7 +12,13 @@
  *******************************************************************************/
 package org.jacoco.core.data;
 
-import java.util.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jacoco.core.internal.data.LongHashMap;
 
 /**
  * In-memory data store for execution data. The data can be added through its
@@ -25,9 +31,10 @@ import java.util.*;
 public final class ExecutionDataStore
 		implements IExecutionDataVisitor, IProjectInfoVisitor {
 
-	private final Map<Long, ExecutionData> entries = new HashMap<Long, ExecutionData>();
+	private final LongHashMap<ExecutionData> entries = new LongHashMap<ExecutionData>();
 
-	private final Set<String> names = new HashSet<String>();
+	/** First entry added for every class name */
+	private final Map<String, ExecutionData> names = new HashMap<String, ExecutionData>();
 
 	private Set<ChainNode> calledChainSets = new HashSet<ChainNode>();
 
@@ -48,11 +55,11 @@ public final class ExecutionDataStore
 	 * @see ExecutionData#assertCompatibility(long, String, int)
 	 */
 	public void put(final ExecutionData data) throws IllegalStateException {
-		final Long id = Long.valueOf(data.getId());
+		final long id = data.getId();
 		final ExecutionData entry = entries.get(id);
 		if (entry == null) {
 			entries.put(id, data);
-			names.add(data.getName());
+			addName(data);
 		} else {
 			entry.merge(data);
 		}
@@ -73,8 +80,7 @@ public final class ExecutionDataStore
 	 */
 	public void subtract(final ExecutionData data)
 			throws IllegalStateException {
-		final Long id = Long.valueOf(data.getId());
-		final ExecutionData entry = entries.get(id);
+		final ExecutionData entry = entries.get(data.getId());
 		if (entry != null) {
 			entry.merge(data, false);
 		}
@@ -102,7 +108,20 @@ public final class ExecutionDataStore
 	 * @return execution data or <code>null</code>
 	 */
 	public ExecutionData get(final long id) {
-		return entries.get(Long.valueOf(id));
+		return entries.get(id);
+	}
+
+	/**
+	 * Returns the {@link ExecutionData} entry for the class with the given name
+	 * if it exists in this store. If there are several entries with the same
+	 * name, the entry added first is returned.
+	 *
+	 * @param name
+	 *            VM name
+	 * @return execution data or <code>null</code>
+	 */
+	public ExecutionData get(final String name) {
+		return names.get(name);
 	}
 
 	/**
@@ -115,7 +134,7 @@ public final class ExecutionDataStore
 	 *         contained.
 	 */
 	public boolean contains(final String name) {
-		return names.contains(name);
+		return names.containsKey(name);
 	}
 
 	/**
@@ -132,34 +151,60 @@ public final class ExecutionDataStore
 	 */
 	public ExecutionData get(final Long id, final String name,
 			final int probecount) {
-		ExecutionData entry = entries.get(id);
+		final long key = id.longValue();
+		ExecutionData entry = entries.get(key);
 		if (entry == null) {
-			entry = new ExecutionData(id.longValue(), name, probecount);
-			entries.put(id, entry);
-			names.add(name);
+			entry = new ExecutionData(key, name, probecount);
+			entries.put(key, entry);
+			addName(entry);
 		} else {
-			entry.assertCompatibility(id.longValue(), name, probecount);
+			entry.assertCompatibility(key, name, probecount);
 		}
 		return entry;
 	}
 
+	private void addName(final ExecutionData data) {
+		if (!names.containsKey(data.getName())) {
+			names.put(data.getName(), data);
+		}
+	}
+
 	/**
 	 * Resets all execution data probes, i.e. marks them as not executed. The
 	 * execution data objects itself are not removed.
 	 */
 	public void reset() {
-		for (final ExecutionData executionData : this.entries.values()) {
+		for (final ExecutionData executionData : entries.values()) {
 			executionData.reset();
 		}
 	}
 
+	/**
+	 * Removes the execution data of all classes with the given names from this
+	 * store.
+	 *
+	 * @param classNames
+	 *            VM names of the classes to remove
+	 */
+	public void remove(final Collection<String> classNames) {
+		final Collection<ExecutionData> contents = entries.values();
+		entries.clear();
+		names.clear();
+		for (final ExecutionData data : contents) {
+			if (!classNames.contains(data.getName())) {
+				entries.put(data.getId(), data);
+				addName(data);
+			}
+		}
+	}
+
 	/**
 	 * Returns a collection that represents current contents of the store.
 	 *
 	 * @return current contents
 	 */
 	public Collection<ExecutionData> getContents() {
-		return new ArrayList<ExecutionData>(entries.values());
+		return entries.values();
 	}
 
 	/**
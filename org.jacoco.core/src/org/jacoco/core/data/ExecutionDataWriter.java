@@ -111,7 +111,13 @@ public class ExecutionDataWriter implements ISessionInfoVisitor,
 				out.writeByte(BLOCK_EXECUTIONDATA);
 				out.writeLong(data.getId());
 				out.writeUTF(data.getName());
-				out.writeBooleanArray(data.getProbes());
+				final long[] bits = data.getPackedProbes();
+				if (bits == null) {
+					out.writeBooleanArray(data.getProbes());
+				} else {
+					out.writeVarInt(data.getProbeCount());
+					out.writeBits(bits, data.getProbeCount());
+				}
 				if (data.getCalledFlags() != null) {
 					// write set array
 					out.writeByte(BLOCK_CALLEDCHAINFLAG);
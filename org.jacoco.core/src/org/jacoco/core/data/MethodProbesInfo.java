@@ -15,6 +15,8 @@ package org.jacoco.core.data;
 import java.util.Objects;
 
 /**
+ * 方法的探针区间及指纹信息，同一个类中以方法名和描述符唯一标识
+ *
  * @author wl
  */
 public class MethodProbesInfo {
@@ -24,6 +26,7 @@ public class MethodProbesInfo {
 	private int endIndex;
 	private String methodUri;
 	private String desc;
+	private long fingerprint;
 
 	@Override
 	public boolean equals(Object o) {
@@ -32,12 +35,33 @@ public class MethodProbesInfo {
 		if (o == null || getClass() != o.getClass())
 			return false;
 		MethodProbesInfo that = (MethodProbesInfo) o;
-		return Objects.equals(methodName, that.methodName);
+		return Objects.equals(methodName, that.methodName)
+				&& Objects.equals(desc, that.desc);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(methodName);
+		return Objects.hash(methodName, desc);
+	}
+
+	/**
+	 * 方法在类中的唯一标识：方法名 + 描述符
+	 *
+	 * @param methodName
+	 *            方法名
+	 * @param desc
+	 *            方法描述符
+	 * @return 方法标识
+	 */
+	public static String key(final String methodName, final String desc) {
+		return methodName + desc;
+	}
+
+	/**
+	 * @return 方法使用的探针数量，没有探针时为 0
+	 */
+	public int getProbeCount() {
+		return endIndex - startIndex + 1;
 	}
 
 	public String getMethodName() {
@@ -79,4 +103,17 @@ public class MethodProbesInfo {
 	public void setDesc(String desc) {
 		this.desc = desc;
 	}
+
+	/**
+	 * 方法指令的指纹，不包含行号和栈帧信息，两个版本中指纹相同的方法探针布局相同
+	 *
+	 * @return 方法指纹
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(long fingerprint) {
+		this.fingerprint = fingerprint;
+	}
 }
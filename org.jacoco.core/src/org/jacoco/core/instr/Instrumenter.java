@@ -15,7 +15,14 @@ package org.jacoco.core.instr;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.zip.CRC32;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -29,24 +36,39 @@ import org.jacoco.core.internal.Pack200Streams;
 import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.internal.instr.ClassInstrumenter;
+import org.jacoco.core.internal.instr.DeferredClassInstrumenter;
 import org.jacoco.core.internal.instr.IProbeArrayStrategy;
 import org.jacoco.core.internal.instr.InstrSupport;
 import org.jacoco.core.internal.instr.ProbeArrayStrategyFactory;
 import org.jacoco.core.internal.instr.SignatureRemover;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.jacoco.core.runtime.ProbeSlab;
+import org.jacoco.core.runtime.RuntimeData;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
 
 /**
  * Several APIs to instrument Java class definitions for coverage tracing.
  */
 public class Instrumenter {
 
+	/**
+	 * Maximum number of archive entries which are instrumented in parallel
+	 * mode before they are written to the output. This bounds the memory held
+	 * by entries read ahead.
+	 */
+	private static final int MAX_PENDING_ENTRIES = 256;
+
 	private final IExecutionDataAccessorGenerator accessorGenerator;
 
 	private final SignatureRemover signatureRemover;
 
+	private int inlineSize;
+
+	private ProbeSlab probeSlab;
+
 	/**
 	 * Creates a new instance based on the given runtime.
 	 *
@@ -71,28 +93,178 @@ public class Instrumenter {
 		signatureRemover.setActive(flag);
 	}
 
+	/**
+	 * Sets the maximum bytecode size of methods inlined by the JIT compiler,
+	 * e.g. the value of <code>-XX:MaxInlineSize</code> or
+	 * <code>-XX:FreqInlineSize</code>. Methods which fit into this limit but
+	 * would exceed it after instrumentation get compact probes, which call a
+	 * synthetic method added to the class instead of accessing the probe
+	 * array directly. Classes created by
+	 * {@link #instrumentActivated(byte[], String)} always get regular probes,
+	 * as retransformation can't add the synthetic method. Default is
+	 * <code>0</code>, which disables compact probes.
+	 *
+	 * @param size
+	 *            maximum size in bytes or <code>0</code>
+	 */
+	public void setInlineSize(final int size) {
+		this.inlineSize = size;
+	}
+
+	/**
+	 * Sets the slab in which the probes of regular classes are stored. The
+	 * probe range of every instrumented class is reserved in the slab, so the
+	 * runtime given to this instrumenter must hand out the chunks of the same
+	 * slab, see {@link RuntimeData#setProbeSlab(ProbeSlab)}. Interfaces
+	 * always get a probe array of their own. Default is <code>null</code>,
+	 * which gives every class a probe array of its own.
+	 *
+	 * @param slab
+	 *            slab for the probes or <code>null</code>
+	 */
+	public void setProbeSlab(final ProbeSlab slab) {
+		this.probeSlab = slab;
+	}
+
 	private byte[] instrument(final byte[] source) {
+		return instrument(source, false);
+	}
+
+	private byte[] instrument(final byte[] source, final boolean activated) {
 		final long classId = CRC64.classId(source);
 		final ClassReader reader = InstrSupport.classReaderFor(source);
-		final ClassWriter writer = new ClassWriter(reader, 0) {
-			@Override
-			protected String getCommonSuperClass(final String type1,
-					final String type2) {
-				throw new IllegalStateException();
-			}
-		};
+		final ClassWriter writer = createWriter(reader);
 		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
-				.createFor(classId, reader, accessorGenerator);
+				.createFor(classId, reader, accessorGenerator, probeSlab);
 		// System.out.println(">>>> probeArrayStrategy name: "
 		// + strategy.getClass().getName() + " <<<<");
 		final int version = InstrSupport.getMajorVersion(reader);
+		final ClassVisitor target = activated
+				&& DeferredClassInstrumenter.isSupported(reader.getAccess())
+						? new DeferredClassInstrumenter(writer)
+						: writer;
 		final ClassVisitor visitor = new ClassProbesAdapter(
-				new ClassInstrumenter(strategy, writer),
+				new ClassInstrumenter(strategy, activated ? 0 : inlineSize,
+						target),
 				InstrSupport.needsFrames(version));
 		reader.accept(visitor, ClassReader.EXPAND_FRAMES);
 		return writer.toByteArray();
 	}
 
+	private byte[] prepare(final byte[] source, final boolean trampoline) {
+		final ClassReader reader = InstrSupport.classReaderFor(source);
+		if (!DeferredClassInstrumenter.isSupported(reader.getAccess())) {
+			return instrument(source);
+		}
+		final long classId = CRC64.classId(source);
+		if (trampoline) {
+			// The static initializer runs before the class can be activated,
+			// so it is taken from the fully instrumented version:
+			final ClassNode original = new ClassNode(
+					InstrSupport.ASM_API_VERSION);
+			reader.accept(original, 0);
+			final ClassReader activated = InstrSupport
+					.classReaderFor(instrument(source, true));
+			final ClassWriter writer = createWriter(activated);
+			activated.accept(new DeferredClassInstrumenter(original,
+					accessorGenerator, classId, writer), 0);
+			return writer.toByteArray();
+		}
+		final ClassWriter writer = createWriter(reader);
+		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
+				.createFor(classId, reader, accessorGenerator, probeSlab);
+		// Methods are not analyzed, so they can be copied unchanged
+		reader.accept(new DeferredClassInstrumenter(strategy, writer), 0);
+		return writer.toByteArray();
+	}
+
+	private static ClassWriter createWriter(final ClassReader reader) {
+		return new ClassWriter(reader, 0) {
+			@Override
+			protected String getCommonSuperClass(final String type1,
+					final String type2) {
+				throw new IllegalStateException();
+			}
+		};
+	}
+
+	/**
+	 * Creates a version of the given class with deferred instrumentation. Only
+	 * the static initializer of the class is instrumented. Before its original
+	 * code it notifies the runtime with the probe count
+	 * {@link InstrSupport#ACTIVATION_PROBECOUNT}. The runtime is then expected
+	 * to retransform the class with the version created by
+	 * {@link #instrumentActivated(byte[], String)} before it returns, so no
+	 * other method of the class runs uninstrumented. Classes which do not
+	 * support deferred instrumentation like interfaces are instrumented
+	 * immediately.
+	 *
+	 * @param buffer
+	 *            definition of the class
+	 * @param name
+	 *            a name used for exception messages
+	 * @return prepared or instrumented definition
+	 * @throws IOException
+	 *             if the class can't be instrumented
+	 */
+	public byte[] instrumentDeferred(final byte[] buffer, final String name)
+			throws IOException {
+		try {
+			return prepare(buffer, true);
+		} catch (final RuntimeException e) {
+			throw instrumentError(name, e);
+		}
+	}
+
+	/**
+	 * Creates a disabled version of the given class. The methods of the class
+	 * are not instrumented and coverage is not recorded, but the class
+	 * declares the same members as the version created by
+	 * {@link #instrumentActivated(byte[], String)}. This allows to switch
+	 * between both versions in both directions through retransformation.
+	 * Classes which do not support deferred instrumentation like interfaces
+	 * are instrumented immediately.
+	 *
+	 * @param buffer
+	 *            definition of the class
+	 * @param name
+	 *            a name used for exception messages
+	 * @return disabled or instrumented definition
+	 * @throws IOException
+	 *             if the class can't be instrumented
+	 */
+	public byte[] instrumentDisabled(final byte[] buffer, final String name)
+			throws IOException {
+		try {
+			return prepare(buffer, false);
+		} catch (final RuntimeException e) {
+			throw instrumentError(name, e);
+		}
+	}
+
+	/**
+	 * Creates a instrumented version of the given class which can replace the
+	 * version created by {@link #instrumentDeferred(byte[], String)} or
+	 * {@link #instrumentDisabled(byte[], String)} through retransformation,
+	 * i.e. it declares exactly the same members.
+	 *
+	 * @param buffer
+	 *            definition of the class
+	 * @param name
+	 *            a name used for exception messages
+	 * @return instrumented definition
+	 * @throws IOException
+	 *             if the class can't be instrumented
+	 */
+	public byte[] instrumentActivated(final byte[] buffer, final String name)
+			throws IOException {
+		try {
+			return instrument(buffer, true);
+		} catch (final RuntimeException e) {
+			throw instrumentError(name, e);
+		}
+	}
+
 	/**
 	 * Creates a instrumented version of the given class if possible.
 	 *
@@ -185,6 +357,39 @@ public class Instrumenter {
 	 */
 	public int instrumentAll(final InputStream input, final OutputStream output,
 			final String name) throws IOException {
+		return instrumentAll(input, output, name, null);
+	}
+
+	/**
+	 * Creates a instrumented version of the given resource like
+	 * {@link #instrumentAll(InputStream, OutputStream, String)}, but the class
+	 * files contained in archives are instrumented in parallel by the given
+	 * executor. Archive entries are still read sequentially by the calling
+	 * thread and written in their original order, so the output does not
+	 * depend on the scheduling of the executor. Nested archives are streamed
+	 * sequentially after all preceding entries, only their class files are
+	 * instrumented in parallel. The provided
+	 * {@link InputStream} and {@link OutputStream} instances are not closed by
+	 * this method.
+	 *
+	 * @param input
+	 *            stream to contents from
+	 * @param output
+	 *            stream to write the instrumented version of the contents
+	 * @param name
+	 *            a name used for exception messages
+	 * @param executor
+	 *            executor which instruments single class files, e.g. a
+	 *            {@link java.util.concurrent.ForkJoinPool}, or
+	 *            <code>null</code> to instrument all classes by the calling
+	 *            thread
+	 * @return number of instrumented classes
+	 * @throws IOException
+	 *             if reading data from the stream fails or a class can't be
+	 *             instrumented
+	 */
+	public int instrumentAll(final InputStream input, final OutputStream output,
+			final String name, final Executor executor) throws IOException {
 		final ContentTypeDetector detector;
 		try {
 			detector = new ContentTypeDetector(input);
@@ -196,11 +401,14 @@ public class Instrumenter {
 			instrument(detector.getInputStream(), output, name);
 			return 1;
 		case ContentTypeDetector.ZIPFILE:
-			return instrumentZip(detector.getInputStream(), output, name);
+			return instrumentZip(detector.getInputStream(), output, name,
+					executor);
 		case ContentTypeDetector.GZFILE:
-			return instrumentGzip(detector.getInputStream(), output, name);
+			return instrumentGzip(detector.getInputStream(), output, name,
+					executor);
 		case ContentTypeDetector.PACK200FILE:
-			return instrumentPack200(detector.getInputStream(), output, name);
+			return instrumentPack200(detector.getInputStream(), output, name,
+					executor);
 		default:
 			copy(detector.getInputStream(), output, name);
 			return 0;
@@ -208,54 +416,194 @@ public class Instrumenter {
 	}
 
 	private int instrumentZip(final InputStream input,
-			final OutputStream output, final String name) throws IOException {
+			final OutputStream output, final String name,
+			final Executor executor) throws IOException {
 		final ZipInputStream zipin = new ZipInputStream(input);
 		final ZipOutputStream zipout = new ZipOutputStream(output);
+		final Deque<PendingEntry> pending = new ArrayDeque<PendingEntry>();
 		ZipEntry entry;
 		int count = 0;
-		while ((entry = nextEntry(zipin, name)) != null) {
-			final String entryName = entry.getName();
-			if (signatureRemover.removeEntry(entryName)) {
-				continue;
-			}
+		try {
+			while ((entry = nextEntry(zipin, name)) != null) {
+				final String entryName = entry.getName();
+				if (signatureRemover.removeEntry(entryName)) {
+					continue;
+				}
 
-			final ZipEntry newEntry = new ZipEntry(entryName);
-			newEntry.setMethod(entry.getMethod());
-			switch (entry.getMethod()) {
-			case ZipEntry.DEFLATED:
-				zipout.putNextEntry(newEntry);
-				count += filterOrInstrument(zipin, zipout, name, entryName);
-				break;
-			case ZipEntry.STORED:
-				// Uncompressed entries must be processed in-memory to calculate
-				// mandatory entry size and CRC
-				final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-				count += filterOrInstrument(zipin, buffer, name, entryName);
-				final byte[] bytes = buffer.toByteArray();
-				newEntry.setSize(bytes.length);
-				newEntry.setCompressedSize(bytes.length);
-				newEntry.setCrc(crc(bytes));
-				zipout.putNextEntry(newEntry);
-				zipout.write(bytes);
-				break;
-			default:
-				throw new AssertionError(entry.getMethod());
+				final ZipEntry newEntry = new ZipEntry(entryName);
+				newEntry.setMethod(entry.getMethod());
+				if (executor == null) {
+					count += instrumentEntry(zipin, zipout, newEntry, name,
+							null);
+					continue;
+				}
+				final String location = name + "@" + entryName;
+				final ContentTypeDetector detector = detect(zipin, location);
+				final InputStream in = detector.getInputStream();
+				switch (detector.getType()) {
+				case ContentTypeDetector.CLASSFILE:
+					pending.addLast(submit(newEntry, readEntry(in, location),
+							location, executor));
+					count++;
+					break;
+				case ContentTypeDetector.UNKNOWN:
+					final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+					filterOrInstrument(in, buffer, name, entryName, null);
+					pending.addLast(new PendingEntry(newEntry, null,
+							buffer.toByteArray(), location));
+					break;
+				default:
+					// Nested archives are streamed directly to the output, so
+					// they are never held in memory as a whole
+					while (!pending.isEmpty()) {
+						write(zipout, pending.removeFirst());
+					}
+					count += instrumentEntry(in, zipout, newEntry, name,
+							executor);
+					break;
+				}
+				if (pending.size() > MAX_PENDING_ENTRIES) {
+					write(zipout, pending.removeFirst());
+				}
+			}
+			while (!pending.isEmpty()) {
+				write(zipout, pending.removeFirst());
+			}
+		} finally {
+			for (final PendingEntry p : pending) {
+				if (p.task != null) {
+					p.task.cancel(false);
+				}
 			}
-			zipout.closeEntry();
 		}
 		zipout.finish();
 		return count;
 	}
 
+	private int instrumentEntry(final InputStream in,
+			final ZipOutputStream zipout, final ZipEntry newEntry,
+			final String name, final Executor executor) throws IOException {
+		final String entryName = newEntry.getName();
+		final int count;
+		switch (newEntry.getMethod()) {
+		case ZipEntry.DEFLATED:
+			zipout.putNextEntry(newEntry);
+			count = filterOrInstrument(in, zipout, name, entryName, executor);
+			zipout.closeEntry();
+			break;
+		case ZipEntry.STORED:
+			// Uncompressed entries must be processed in-memory to calculate
+			// mandatory entry size and CRC
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			count = filterOrInstrument(in, buffer, name, entryName, executor);
+			writeEntry(zipout, newEntry, buffer.toByteArray());
+			break;
+		default:
+			throw new AssertionError(newEntry.getMethod());
+		}
+		return count;
+	}
+
+	private static void writeEntry(final ZipOutputStream zipout,
+			final ZipEntry newEntry, final byte[] bytes) throws IOException {
+		if (newEntry.getMethod() == ZipEntry.STORED) {
+			newEntry.setSize(bytes.length);
+			newEntry.setCompressedSize(bytes.length);
+			newEntry.setCrc(crc(bytes));
+		}
+		zipout.putNextEntry(newEntry);
+		zipout.write(bytes);
+		zipout.closeEntry();
+	}
+
 	private int filterOrInstrument(final InputStream in, final OutputStream out,
-			final String name, final String entryName) throws IOException {
+			final String name, final String entryName, final Executor executor)
+			throws IOException {
 		if (signatureRemover.filterEntry(entryName, in, out)) {
 			return 0;
 		} else {
-			return instrumentAll(in, out, name + "@" + entryName);
+			return instrumentAll(in, out, name + "@" + entryName, executor);
+		}
+	}
+
+	private ContentTypeDetector detect(final InputStream in,
+			final String location) throws IOException {
+		try {
+			return new ContentTypeDetector(in);
+		} catch (final IOException e) {
+			throw instrumentError(location, e);
+		}
+	}
+
+	private byte[] readEntry(final InputStream in, final String location)
+			throws IOException {
+		try {
+			return InputStreams.readFully(in);
+		} catch (final IOException e) {
+			throw instrumentError(location, e);
 		}
 	}
 
+	private PendingEntry submit(final ZipEntry newEntry, final byte[] bytes,
+			final String location, final Executor executor) {
+		final FutureTask<byte[]> task = new FutureTask<byte[]>(
+				new Callable<byte[]>() {
+					public byte[] call() throws IOException {
+						return instrument(bytes, location);
+					}
+				});
+		executor.execute(task);
+		return new PendingEntry(newEntry, task, null, location);
+	}
+
+	private void write(final ZipOutputStream zipout, final PendingEntry p)
+			throws IOException {
+		byte[] bytes = p.bytes;
+		if (p.task != null) {
+			try {
+				bytes = p.task.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(String.format(
+						"Interrupted while instrumenting %s.", p.location));
+			} catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				throw instrumentError(p.location, (Exception) cause);
+			}
+		}
+		writeEntry(zipout, p.entry, bytes);
+	}
+
+	/**
+	 * Archive entry which is instrumented asynchronously or has been
+	 * processed already.
+	 */
+	private static final class PendingEntry {
+
+		final ZipEntry entry;
+
+		final FutureTask<byte[]> task;
+
+		final byte[] bytes;
+
+		final String location;
+
+		PendingEntry(final ZipEntry entry, final FutureTask<byte[]> task,
+				final byte[] bytes, final String location) {
+			this.entry = entry;
+			this.task = task;
+			this.bytes = bytes;
+			this.location = location;
+		}
+
+	}
+
 	private static long crc(final byte[] data) {
 		final CRC32 crc = new CRC32();
 		crc.update(data);
@@ -272,7 +620,8 @@ public class Instrumenter {
 	}
 
 	private int instrumentGzip(final InputStream input,
-			final OutputStream output, final String name) throws IOException {
+			final OutputStream output, final String name,
+			final Executor executor) throws IOException {
 		final GZIPInputStream gzipInputStream;
 		try {
 			gzipInputStream = new GZIPInputStream(input);
@@ -280,13 +629,15 @@ public class Instrumenter {
 			throw instrumentError(name, e);
 		}
 		final GZIPOutputStream gzout = new GZIPOutputStream(output);
-		final int count = instrumentAll(gzipInputStream, gzout, name);
+		final int count = instrumentAll(gzipInputStream, gzout, name,
+				executor);
 		gzout.finish();
 		return count;
 	}
 
 	private int instrumentPack200(final InputStream input,
-			final OutputStream output, final String name) throws IOException {
+			final OutputStream output, final String name,
+			final Executor executor) throws IOException {
 		final InputStream unpackedInput;
 		try {
 			unpackedInput = Pack200Streams.unpack(input);
@@ -294,7 +645,8 @@ public class Instrumenter {
 			throw instrumentError(name, e);
 		}
 		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-		final int count = instrumentAll(unpackedInput, buffer, name);
+		final int count = instrumentAll(unpackedInput, buffer, name,
+				executor);
 		Pack200Streams.pack(buffer.toByteArray(), output);
 		return count;
 	}
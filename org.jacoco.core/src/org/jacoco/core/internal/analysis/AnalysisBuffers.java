@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import java.util.Map;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+/**
+ * Working structures for the analysis of methods which are reset and reused
+ * for every method instead of being allocated again. This includes the
+ * {@link Instruction} instances, the jump list and the filter output. An
+ * instance must only be used by one thread at a time, but can be shared by
+ * all {@link ClassAnalyzer}s which are executed sequentially on that thread.
+ */
+public final class AnalysisBuffers {
+
+	private final InstructionsBuilder builder;
+
+	private final MethodCoverageCalculator calculator;
+
+	private boolean inUse;
+
+	/**
+	 * Creates a new set of empty buffers.
+	 */
+	public AnalysisBuffers() {
+		this.builder = new InstructionsBuilder(null);
+		this.calculator = new MethodCoverageCalculator(null);
+	}
+
+	/**
+	 * Returns the builder for the next method. If the buffers are already
+	 * used by another method which is still being analyzed a new builder is
+	 * returned.
+	 */
+	InstructionsBuilder getInstructionsBuilder(final boolean[] probes) {
+		if (inUse) {
+			return new InstructionsBuilder(probes);
+		}
+		inUse = true;
+		builder.reset(probes);
+		return builder;
+	}
+
+	/**
+	 * Returns the calculator for the instructions of the given builder and
+	 * releases the builder.
+	 */
+	MethodCoverageCalculator getMethodCoverageCalculator(
+			final InstructionsBuilder source) {
+		final Map<AbstractInsnNode, Instruction> instructions = source
+				.getInstructions();
+		if (source != builder) {
+			return new MethodCoverageCalculator(instructions);
+		}
+		calculator.reset(instructions);
+		return calculator;
+	}
+
+	/**
+	 * Releases the buffers after the coverage of a method has been
+	 * calculated.
+	 */
+	void release(final InstructionsBuilder source) {
+		if (source == builder) {
+			inUse = false;
+		}
+	}
+
+}
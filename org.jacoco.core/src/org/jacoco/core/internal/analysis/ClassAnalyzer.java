@@ -37,6 +37,7 @@ public class ClassAnalyzer extends ClassProbesVisitor
 	private final ClassCoverageImpl coverage;
 	private final boolean[] probes;
 	private final StringPool stringPool;
+	private final AnalysisBuffers buffers;
 
 	private final Set<String> classAnnotations = new HashSet<String>();
 
@@ -58,9 +59,29 @@ public class ClassAnalyzer extends ClassProbesVisitor
 	 */
 	public ClassAnalyzer(final ClassCoverageImpl coverage,
 			final boolean[] probes, final StringPool stringPool) {
+		this(coverage, probes, stringPool, new AnalysisBuffers());
+	}
+
+	/**
+	 * Creates a new analyzer that builds coverage data for a class and reuses
+	 * the given working structures.
+	 *
+	 * @param coverage
+	 *            coverage node for the analyzed class data
+	 * @param probes
+	 *            execution data for this class or <code>null</code>
+	 * @param stringPool
+	 *            shared pool to minimize the number of {@link String} instances
+	 * @param buffers
+	 *            working structures of the current thread
+	 */
+	public ClassAnalyzer(final ClassCoverageImpl coverage,
+			final boolean[] probes, final StringPool stringPool,
+			final AnalysisBuffers buffers) {
 		this.coverage = coverage;
 		this.probes = probes;
 		this.stringPool = stringPool;
+		this.buffers = buffers;
 		this.filter = Filters.all();
 	}
 
@@ -97,16 +118,22 @@ public class ClassAnalyzer extends ClassProbesVisitor
 			final String[] exceptions) {
 		InstrSupport.assertNotInstrumented(name, coverage.getName());
 
-		final InstructionsBuilder builder = new InstructionsBuilder(probes);
+		final InstructionsBuilder builder = buffers
+				.getInstructionsBuilder(probes);
 
 		return new MethodAnalyzer(builder) {
 
 			@Override
 			public void accept(final MethodNode methodNode,
 					final MethodVisitor methodVisitor) {
-				super.accept(methodNode, methodVisitor);
-				addMethodCoverage(stringPool.get(name), stringPool.get(desc),
-						stringPool.get(signature), builder, methodNode);
+				try {
+					super.accept(methodNode, methodVisitor);
+					addMethodCoverage(stringPool.get(name),
+							stringPool.get(desc), stringPool.get(signature),
+							builder, methodNode);
+				} finally {
+					buffers.release(builder);
+				}
 			}
 		};
 	}
@@ -114,8 +141,8 @@ public class ClassAnalyzer extends ClassProbesVisitor
 	private void addMethodCoverage(final String name, final String desc,
 			final String signature, final InstructionsBuilder icc,
 			final MethodNode methodNode) {
-		final MethodCoverageCalculator mcc = new MethodCoverageCalculator(
-				icc.getInstructions());
+		final MethodCoverageCalculator mcc = buffers
+				.getMethodCoverageCalculator(icc);
 		filter.filter(methodNode, this, mcc);
 
 		final MethodCoverageImpl mc = new MethodCoverageImpl(name, desc,
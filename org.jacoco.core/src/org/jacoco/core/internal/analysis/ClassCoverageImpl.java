@@ -34,12 +34,31 @@ public class ClassCoverageImpl extends SourceNodeImpl
 
 	private List<MethodProbesInfo> methodProbesInfos = new ArrayList<>();
 
+	/**
+	 * 按方法名 + 描述符索引的探针信息，首次查询时创建
+	 */
+	private Map<String, MethodProbesInfo> methodProbesInfoMap;
+
 	public List<MethodProbesInfo> getMethodProbesInfos() {
 		return methodProbesInfos;
 	}
 
 	public void setMethodProbesInfos(List<MethodProbesInfo> methodProbesInfos) {
 		this.methodProbesInfos = methodProbesInfos;
+		this.methodProbesInfoMap = null;
+	}
+
+	public MethodProbesInfo getMethodProbesInfo(final String name,
+			final String desc) {
+		if (methodProbesInfoMap == null
+				|| methodProbesInfoMap.size() != methodProbesInfos.size()) {
+			methodProbesInfoMap = new HashMap<>();
+			for (final MethodProbesInfo info : methodProbesInfos) {
+				methodProbesInfoMap.put(MethodProbesInfo
+						.key(info.getMethodName(), info.getDesc()), info);
+			}
+		}
+		return methodProbesInfoMap.get(MethodProbesInfo.key(name, desc));
 	}
 
 	/**
@@ -67,6 +86,28 @@ public class ClassCoverageImpl extends SourceNodeImpl
 	 * @param method
 	 *            method data to add
 	 */
+	/**
+	 * Creates a deep copy of this node, which can be modified independently.
+	 *
+	 * @return copy of this node
+	 */
+	public ClassCoverageImpl copy() {
+		final ClassCoverageImpl copy = new ClassCoverageImpl(getName(), id,
+				noMatch);
+		copy.signature = signature;
+		copy.superName = superName;
+		copy.interfaces = interfaces == null ? null : interfaces.clone();
+		copy.sourceFileName = sourceFileName;
+		copy.methodProbesInfos = new ArrayList<>(methodProbesInfos);
+		for (final IMethodCoverage method : methods) {
+			final MethodCoverageImpl m = new MethodCoverageImpl(
+					method.getName(), method.getDesc(), method.getSignature());
+			m.increment(method);
+			copy.addMethod(m);
+		}
+		return copy;
+	}
+
 	public void addMethod(final IMethodCoverage method) {
 		this.methods.add(method);
 		increment(method);
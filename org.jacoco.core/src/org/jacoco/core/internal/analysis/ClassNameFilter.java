@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.test.diff.common.domain.ClassInfo;
+import com.test.diff.common.domain.MethodInfo;
+import com.test.diff.common.enums.DiffResultTypeEnum;
+import org.jacoco.core.runtime.CompiledWildcardMatcher;
+import org.jacoco.core.tools.MethodSignatureMatcher;
+
+/**
+ * Decides by VM name whether a class should be analyzed at all. The filter is
+ * either built from the classes of a code diff (incremental coverage) or from
+ * include/exclude rule pairs (full coverage). For a diff based filter only
+ * the added or modified methods of modified classes are analyzed. All data is
+ * prepared once, so checking a class or method does not depend on the size of
+ * the diff.
+ */
+public final class ClassNameFilter {
+
+	private static final String CLASS_FILE_SUFFIX = ".class";
+
+	private final Set<String> diffClasses;
+
+	private final Set<String> addedClasses;
+
+	private final MethodSignatureMatcher diffMethods;
+
+	private final CompiledWildcardMatcher[] includes;
+
+	private final CompiledWildcardMatcher[] excludes;
+
+	private final Set<String> restriction;
+
+	private final String fingerprint;
+
+	private ClassNameFilter(final Set<String> diffClasses,
+			final Set<String> addedClasses,
+			final MethodSignatureMatcher diffMethods,
+			final CompiledWildcardMatcher[] includes,
+			final CompiledWildcardMatcher[] excludes,
+			final Set<String> restriction, final String fingerprint) {
+		this.diffClasses = diffClasses;
+		this.addedClasses = addedClasses;
+		this.diffMethods = diffMethods;
+		this.includes = includes;
+		this.excludes = excludes;
+		this.restriction = restriction;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Creates a filter which accepts all added or modified classes of the
+	 * given diff.
+	 *
+	 * @param diffList
+	 *            diff result
+	 * @return filter or <code>null</code> if no diff is given
+	 */
+	public static ClassNameFilter forDiff(final Collection<ClassInfo> diffList) {
+		if (diffList == null) {
+			return null;
+		}
+		final Set<String> names = new HashSet<String>();
+		final Set<String> added = new HashSet<String>();
+		final Set<String> methods = new TreeSet<String>();
+		for (final ClassInfo classInfo : diffList) {
+			// deleted classes do not exist in the analyzed class files
+			if (classInfo.getDiffType() == DiffResultTypeEnum.DEL) {
+				continue;
+			}
+			names.add(classInfo.getAsmClassName());
+			if (classInfo.getDiffType() == DiffResultTypeEnum.ADD) {
+				added.add(classInfo.getAsmClassName());
+			}
+			if (classInfo.getMethodInfos() != null) {
+				for (final MethodInfo m : classInfo.getMethodInfos()) {
+					if (m.getDiffType() != DiffResultTypeEnum.DEL) {
+						methods.add(classInfo.getAsmClassName() + '.'
+								+ m.getMethodName() + '(' + m.getParams()
+								+ ')');
+					}
+				}
+			}
+		}
+		final String fingerprint = "diff " + sorted(names) + " added "
+				+ sorted(added) + " methods " + methods;
+		return new ClassNameFilter(names, added,
+				MethodSignatureMatcher.forDiff(diffList, false), null, null,
+				null, fingerprint);
+	}
+
+	/**
+	 * Creates a filter from include and exclude expressions. The list
+	 * alternately contains include and exclude expressions in Java notation. A
+	 * class is accepted if it is matched by the include expression but not by
+	 * the exclude expression of at least one pair.
+	 *
+	 * @param rules
+	 *            include/exclude pairs
+	 * @return filter or <code>null</code> if no rules are given
+	 */
+	public static ClassNameFilter forRules(final List<String> rules) {
+		if (rules == null) {
+			return null;
+		}
+		final int pairs = rules.size() / 2;
+		final CompiledWildcardMatcher[] includes = new CompiledWildcardMatcher[pairs];
+		final CompiledWildcardMatcher[] excludes = new CompiledWildcardMatcher[pairs];
+		for (int i = 0; i < pairs; i++) {
+			includes[i] = new CompiledWildcardMatcher(
+					toVMName(rules.get(2 * i)));
+			excludes[i] = new CompiledWildcardMatcher(
+					toVMName(rules.get(2 * i + 1)));
+		}
+		return new ClassNameFilter(null, null, null, includes, excludes, null,
+				"rules " + rules);
+	}
+
+	/**
+	 * Creates a filter which accepts exactly the given classes with all their
+	 * methods.
+	 *
+	 * @param classNames
+	 *            VM names of the accepted classes
+	 * @return new filter
+	 */
+	public static ClassNameFilter forClasses(
+			final Collection<String> classNames) {
+		final Set<String> names = new HashSet<String>(classNames);
+		return new ClassNameFilter(null, null, null, null, null, names,
+				"classes " + sorted(names));
+	}
+
+	/**
+	 * Creates a filter which only accepts the given classes in addition to the
+	 * criteria of this filter. Methods are filtered like with this filter.
+	 *
+	 * @param classNames
+	 *            VM names of the classes to restrict to
+	 * @return new filter
+	 */
+	public ClassNameFilter restrict(final Collection<String> classNames) {
+		final Set<String> names = new HashSet<String>(classNames);
+		if (restriction != null) {
+			names.retainAll(restriction);
+		}
+		return new ClassNameFilter(diffClasses, addedClasses, diffMethods,
+				includes, excludes, names,
+				fingerprint + " restricted to " + sorted(names));
+	}
+
+	private static Set<String> sorted(final Collection<String> names) {
+		return new TreeSet<String>(names);
+	}
+
+	/**
+	 * Returns a value which is equal for filters accepting the same classes
+	 * and methods because they were created from the same diff, rules or
+	 * class names. Unlike the filter itself the value can therefore be used
+	 * to identify cached analysis results across filter instances.
+	 *
+	 * @return fingerprint of the filter criteria
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	private static String toVMName(final String srcName) {
+		return srcName.replace('.', '/');
+	}
+
+	/**
+	 * Checks whether the class with the given name should be analyzed.
+	 *
+	 * @param className
+	 *            VM name of the class
+	 * @return <code>true</code> if the class should be analyzed
+	 */
+	public boolean accept(final String className) {
+		if (restriction != null && !restriction.contains(className)) {
+			return false;
+		}
+		if (diffClasses != null) {
+			return diffClasses.contains(className);
+		}
+		if (includes == null) {
+			return true;
+		}
+		for (int i = 0; i < includes.length; i++) {
+			if (includes[i].matches(className)
+					&& !excludes[i].matches(className)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether all methods of the given class are analyzed. This is the
+	 * case for filters based on rules and for classes added in the diff. For
+	 * modified classes only the added or modified methods are analyzed.
+	 *
+	 * @param className
+	 *            VM name of the class
+	 * @return <code>true</code> if {@link #acceptMethod(String, String, String)}
+	 *         does not need to be checked for the methods of the class
+	 */
+	public boolean acceptsAllMethods(final String className) {
+		return diffClasses == null || addedClasses.contains(className);
+	}
+
+	/**
+	 * Checks whether the given method should be analyzed.
+	 *
+	 * @param className
+	 *            VM name of the class
+	 * @param methodName
+	 *            name of the method
+	 * @param desc
+	 *            descriptor of the method
+	 * @return <code>true</code> if the method should be analyzed
+	 */
+	public boolean acceptMethod(final String className, final String methodName,
+			final String desc) {
+		return acceptsAllMethods(className)
+				|| diffMethods.matches(className, methodName, desc);
+	}
+
+	/**
+	 * Checks whether a resource with the given path may contain a class that
+	 * should be analyzed. This allows to skip class files in archives before
+	 * their content is read. As classes might be located
+	 * below a root folder (e.g. <code>BOOT-INF/classes/</code> or
+	 * <code>META-INF/versions/9/</code>) every sub-path is considered as a
+	 * potential class name. Resources which are not class files are always
+	 * accepted.
+	 *
+	 * @param path
+	 *            resource path with <code>/</code> as separator
+	 * @return <code>false</code> if the resource is a class file which is
+	 *         definitely not analyzed
+	 */
+	public boolean acceptPath(final String path) {
+		if (!path.endsWith(CLASS_FILE_SUFFIX)) {
+			return true;
+		}
+		final String name = path.substring(0,
+				path.length() - CLASS_FILE_SUFFIX.length());
+		int start = 0;
+		do {
+			if (accept(start == 0 ? name : name.substring(start))) {
+				return true;
+			}
+			start = name.indexOf('/', start) + 1;
+		} while (start > 0);
+		return false;
+	}
+
+}
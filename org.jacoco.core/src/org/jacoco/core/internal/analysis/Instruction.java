@@ -55,7 +55,7 @@ import org.jacoco.core.analysis.ICounter;
  */
 public class Instruction {
 
-	private final int line;
+	private int line;
 
 	private int branches;
 
@@ -77,6 +77,21 @@ public class Instruction {
 		this.coveredBranches = new BitSet();
 	}
 
+	/**
+	 * Resets this instance to the state of a new instruction at the given
+	 * line, so that it can be reused for the analysis of another method.
+	 *
+	 * @param line
+	 *            source line this instruction belongs to
+	 */
+	void reset(final int line) {
+		this.line = line;
+		this.branches = 0;
+		this.coveredBranches.clear();
+		this.predecessor = null;
+		this.predecessorBranch = 0;
+	}
+
 	/**
 	 * Adds a branch to this instruction which execution status is indirectly
 	 * derived from the execution status of the target instruction. In case the
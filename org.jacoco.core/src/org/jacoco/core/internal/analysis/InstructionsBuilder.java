@@ -13,6 +13,7 @@
 package org.jacoco.core.internal.analysis;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,12 +27,26 @@ import org.objectweb.asm.tree.AbstractInsnNode;
  * Stateful builder for the {@link Instruction}s of a method. All instructions
  * of a method must be added in their original sequence along with additional
  * information like line numbers. Afterwards the instructions can be obtained
- * with the <code>getInstructions()</code> method.
+ * with the <code>getInstructions()</code> method. With {@link #reset(boolean[])}
+ * the same instance can be used for subsequent methods, in this case the
+ * {@link Instruction} instances of the previous method are reused.
  */
 class InstructionsBuilder {
 
+	/**
+	 * Maximum number of {@link Instruction} instances kept for reuse, so that
+	 * a single huge method does not pin memory.
+	 */
+	private static final int MAX_POOLED_INSTRUCTIONS = 4096;
+
+	/**
+	 * Maximum size of the instruction map which is cleared for reuse. Larger
+	 * maps are replaced as clearing costs their full capacity.
+	 */
+	private static final int MAX_CLEARED_MAP_SIZE = 1024;
+
 	/** Probe array of the class the analyzed method belongs to. */
-	private final boolean[] probes;
+	private boolean[] probes;
 
 	/** The line which belong to subsequently added instructions. */
 	private int currentLine;
@@ -43,7 +58,7 @@ class InstructionsBuilder {
 	 * All instructions of a method mapped from the ASM node to the
 	 * corresponding {@link Instruction} instance.
 	 */
-	private final Map<AbstractInsnNode, Instruction> instructions;
+	private Map<AbstractInsnNode, Instruction> instructions;
 
 	/**
 	 * The labels which mark the subsequent instructions.
@@ -53,10 +68,24 @@ class InstructionsBuilder {
 	private final List<Label> currentLabel;
 
 	/**
-	 * List of all jumps within the control flow. We need to store jumps
-	 * temporarily as the target {@link Instruction} may not been known yet.
+	 * All jumps within the control flow. We need to store jumps temporarily as
+	 * the target {@link Instruction} may not been known yet. Jumps are stored
+	 * in parallel arrays which are reused for subsequent methods.
 	 */
-	private final List<Jump> jumps;
+	private Instruction[] jumpSources = new Instruction[16];
+
+	private Label[] jumpTargets = new Label[16];
+
+	private int[] jumpBranches = new int[16];
+
+	private int jumpCount;
+
+	/** Instances for reuse, the first <code>pooledUsed</code> are in use. */
+	private Instruction[] pooled = new Instruction[64];
+
+	private int pooledCount;
+
+	private int pooledUsed;
 
 	/**
 	 * Creates a new builder instance which can be used to analyze a single
@@ -72,7 +101,30 @@ class InstructionsBuilder {
 		this.currentInsn = null;
 		this.instructions = new HashMap<AbstractInsnNode, Instruction>();
 		this.currentLabel = new ArrayList<Label>(2);
-		this.jumps = new ArrayList<Jump>();
+	}
+
+	/**
+	 * Prepares this builder for the next method. All {@link Instruction}
+	 * instances and the map returned by the previous call of
+	 * {@link #getInstructions()} must not be used any more.
+	 *
+	 * @param probes
+	 *            probe array of the class the next method belongs to
+	 */
+	void reset(final boolean[] probes) {
+		this.probes = probes;
+		this.currentLine = ISourceNode.UNKNOWN_LINE;
+		this.currentInsn = null;
+		if (instructions.size() > MAX_CLEARED_MAP_SIZE) {
+			instructions = new HashMap<AbstractInsnNode, Instruction>();
+		} else {
+			instructions.clear();
+		}
+		currentLabel.clear();
+		Arrays.fill(jumpSources, 0, jumpCount, null);
+		Arrays.fill(jumpTargets, 0, jumpCount, null);
+		jumpCount = 0;
+		pooledUsed = 0;
 	}
 
 	/**
@@ -101,7 +153,7 @@ class InstructionsBuilder {
 	 * previous instruction unless specified otherwise.
 	 */
 	void addInstruction(final AbstractInsnNode node) {
-		final Instruction insn = new Instruction(currentLine);
+		final Instruction insn = newInstruction();
 		final int labelCount = currentLabel.size();
 		if (labelCount > 0) {
 			for (int i = labelCount; --i >= 0;) {
@@ -125,6 +177,23 @@ class InstructionsBuilder {
 		currentInsn = null;
 	}
 
+	private Instruction newInstruction() {
+		if (pooledUsed < pooledCount) {
+			final Instruction insn = pooled[pooledUsed++];
+			insn.reset(currentLine);
+			return insn;
+		}
+		final Instruction insn = new Instruction(currentLine);
+		if (pooledCount < MAX_POOLED_INSTRUCTIONS) {
+			if (pooledCount == pooled.length) {
+				pooled = Arrays.copyOf(pooled, pooledCount * 2);
+			}
+			pooled[pooledCount++] = insn;
+			pooledUsed++;
+		}
+		return insn;
+	}
+
 	/**
 	 * Adds a jump from the last added instruction.
 	 *
@@ -134,7 +203,16 @@ class InstructionsBuilder {
 	 *            unique branch number
 	 */
 	void addJump(final Label target, final int branch) {
-		jumps.add(new Jump(currentInsn, target, branch));
+		if (jumpCount == jumpSources.length) {
+			final int size = jumpCount * 2;
+			jumpSources = Arrays.copyOf(jumpSources, size);
+			jumpTargets = Arrays.copyOf(jumpTargets, size);
+			jumpBranches = Arrays.copyOf(jumpBranches, size);
+		}
+		jumpSources[jumpCount] = currentInsn;
+		jumpTargets[jumpCount] = target;
+		jumpBranches[jumpCount] = branch;
+		jumpCount++;
 	}
 
 	/**
@@ -159,29 +237,12 @@ class InstructionsBuilder {
 	 */
 	Map<AbstractInsnNode, Instruction> getInstructions() {
 		// Wire jumps:
-		for (final Jump j : jumps) {
-			j.wire();
+		for (int i = 0; i < jumpCount; i++) {
+			jumpSources[i].addBranch(
+					LabelInfo.getInstruction(jumpTargets[i]), jumpBranches[i]);
 		}
 
 		return instructions;
 	}
 
-	private static class Jump {
-
-		private final Instruction source;
-		private final Label target;
-		private final int branch;
-
-		Jump(final Instruction source, final Label target, final int branch) {
-			this.source = source;
-			this.target = target;
-			this.branch = branch;
-		}
-
-		void wire() {
-			source.addBranch(LabelInfo.getInstruction(target), branch);
-		}
-
-	}
-
 }
@@ -49,6 +49,29 @@ public abstract class LineImpl implements ILine {
 	 */
 	public static final LineImpl EMPTY = SINGLETONS[0][0][0][0];
 
+	/**
+	 * Returns an immutable line with the given counter values. For small
+	 * values shared instances are returned.
+	 *
+	 * @param im
+	 *            missed instructions
+	 * @param ic
+	 *            covered instructions
+	 * @param bm
+	 *            missed branches
+	 * @param bc
+	 *            covered branches
+	 * @return line instance
+	 */
+	static LineImpl getInstance(final int im, final int ic, final int bm,
+			final int bc) {
+		if (im <= SINGLETON_INS_LIMIT && ic <= SINGLETON_INS_LIMIT
+				&& bm <= SINGLETON_BRA_LIMIT && bc <= SINGLETON_BRA_LIMIT) {
+			return SINGLETONS[im][ic][bm][bc];
+		}
+		return new Fix(im, ic, bm, bc);
+	}
+
 	private static LineImpl getInstance(final CounterImpl instructions,
 			final CounterImpl branches) {
 		final int im = instructions.getMissedCount();
@@ -91,7 +114,8 @@ public abstract class LineImpl implements ILine {
 		@Override
 		public LineImpl increment(final ICounter instructions,
 				final ICounter branches) {
-			return getInstance(this.instructions.increment(instructions),
+			return LineImpl.getInstance(
+					this.instructions.increment(instructions),
 					this.branches.increment(branches));
 		}
 	}
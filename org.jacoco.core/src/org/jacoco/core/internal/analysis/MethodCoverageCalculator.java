@@ -31,9 +31,15 @@ import org.objectweb.asm.tree.AbstractInsnNode;
  */
 class MethodCoverageCalculator implements IFilterOutput {
 
-	private final Map<AbstractInsnNode, Instruction> instructions;
+	/**
+	 * Maximum size of collections which are cleared for reuse. Larger
+	 * collections are replaced as clearing costs their full capacity.
+	 */
+	private static final int MAX_CLEARED_SIZE = 1024;
+
+	private Map<AbstractInsnNode, Instruction> instructions;
 
-	private final Set<AbstractInsnNode> ignored;
+	private Set<AbstractInsnNode> ignored;
 
 	/**
 	 * Instructions that should be merged form disjoint sets. Coverage
@@ -46,9 +52,9 @@ class MethodCoverageCalculator implements IFilterOutput {
 	 *
 	 * This map stores reference (value) for elements of sets (key).
 	 */
-	private final Map<AbstractInsnNode, AbstractInsnNode> merged;
+	private Map<AbstractInsnNode, AbstractInsnNode> merged;
 
-	private final Map<AbstractInsnNode, Set<AbstractInsnNode>> replacements;
+	private Map<AbstractInsnNode, Set<AbstractInsnNode>> replacements;
 
 	MethodCoverageCalculator(
 			final Map<AbstractInsnNode, Instruction> instructions) {
@@ -58,6 +64,28 @@ class MethodCoverageCalculator implements IFilterOutput {
 		this.replacements = new HashMap<AbstractInsnNode, Set<AbstractInsnNode>>();
 	}
 
+	/**
+	 * Prepares this instance for the calculation of another method. All
+	 * filtering commands of the previous method are discarded.
+	 *
+	 * @param instructions
+	 *            instructions of the next method
+	 */
+	void reset(final Map<AbstractInsnNode, Instruction> instructions) {
+		this.instructions = instructions;
+		if (ignored.size() > MAX_CLEARED_SIZE) {
+			ignored = new HashSet<AbstractInsnNode>();
+		} else {
+			ignored.clear();
+		}
+		if (merged.size() > MAX_CLEARED_SIZE) {
+			merged = new HashMap<AbstractInsnNode, AbstractInsnNode>();
+		} else {
+			merged.clear();
+		}
+		replacements.clear();
+	}
+
 	/**
 	 * Applies all specified filtering commands and calculates the resulting
 	 * coverage.
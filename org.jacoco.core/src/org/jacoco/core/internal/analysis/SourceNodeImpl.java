@@ -18,11 +18,43 @@ import org.jacoco.core.analysis.ILine;
 import org.jacoco.core.analysis.ISourceNode;
 
 /**
- * Implementation of {@link ISourceNode}.
+ * Implementation of {@link ISourceNode}. The counters of all lines are stored
+ * in a single <code>int</code> array, {@link ILine} instances are only created
+ * on demand by {@link #getLine(int)}. As long as all line counters are small
+ * the four counters of a line are packed into a single <code>int</code>,
+ * otherwise every counter takes a separate slot.
  */
 public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 
-	private LineImpl[] lines;
+	/** Number of array slots per line in wide format */
+	private static final int STRIDE = 4;
+
+	/** Slot of the missed instructions */
+	private static final int IM = 0;
+
+	/** Slot of the covered instructions */
+	private static final int IC = 1;
+
+	/** Slot of the missed branches */
+	private static final int BM = 2;
+
+	/** Slot of the covered branches */
+	private static final int BC = 3;
+
+	/** Bits per counter in packed format */
+	private static final int PACKED_BITS = 8;
+
+	/** Max counter value in packed format */
+	private static final int PACKED_MAX = (1 << PACKED_BITS) - 1;
+
+	/**
+	 * Counters of all lines starting with {@link #offset}, either one packed
+	 * slot or {@link #STRIDE} slots per line
+	 */
+	private int[] lines;
+
+	/** whether {@link #lines} uses {@link #STRIDE} slots per line */
+	private boolean wide;
 
 	/** first line number in {@link #lines} */
 	private int offset;
@@ -38,6 +70,7 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 	public SourceNodeImpl(final ElementType elementType, final String name) {
 		super(elementType, name);
 		lines = null;
+		wide = false;
 		offset = UNKNOWN_LINE;
 	}
 
@@ -55,17 +88,18 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		if (first == UNKNOWN_LINE || last == UNKNOWN_LINE) {
 			return;
 		}
+		final int slots = wide ? STRIDE : 1;
 		if (lines == null) {
 			offset = first;
-			lines = new LineImpl[last - first + 1];
+			lines = new int[(last - first + 1) * slots];
 		} else {
 			final int newFirst = Math.min(getFirstLine(), first);
 			final int newLast = Math.max(getLastLine(), last);
-			final int newLength = newLast - newFirst + 1;
+			final int newLength = (newLast - newFirst + 1) * slots;
 			if (newLength > lines.length) {
-				final LineImpl[] newLines = new LineImpl[newLength];
-				System.arraycopy(lines, 0, newLines, offset - newFirst,
-						lines.length);
+				final int[] newLines = new int[newLength];
+				System.arraycopy(lines, 0, newLines,
+						(offset - newFirst) * slots, lines.length);
 				offset = newFirst;
 				lines = newLines;
 			}
@@ -92,11 +126,54 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		if (firstLine != UNKNOWN_LINE) {
 			final int lastLine = child.getLastLine();
 			ensureCapacity(firstLine, lastLine);
+			if (child instanceof SourceNodeImpl) {
+				incrementLines((SourceNodeImpl) child);
+				return;
+			}
 			for (int i = firstLine; i <= lastLine; i++) {
 				final ILine line = child.getLine(i);
-				incrementLine(line.getInstructionCounter(),
-						line.getBranchCounter(), i);
+				final ICounter instructions = line.getInstructionCounter();
+				final ICounter branches = line.getBranchCounter();
+				incrementLine(instructions.getMissedCount(),
+						instructions.getCoveredCount(),
+						branches.getMissedCount(), branches.getCoveredCount(),
+						i);
+			}
+		}
+	}
+
+	private void incrementLines(final SourceNodeImpl child) {
+		final int count = child.getLastLine() - child.offset + 1;
+		final int delta = child.offset - offset;
+		int lineMissed = 0;
+		int lineCovered = 0;
+		for (int i = 0; i < count; i++) {
+			final int im = child.get(i, IM);
+			final int ic = child.get(i, IC);
+			final int bm = child.get(i, BM);
+			final int bc = child.get(i, BC);
+			if ((im | ic | bm | bc) == 0) {
+				continue;
+			}
+			final int idx = i + delta;
+			if (im + ic > 0) {
+				final int oldCovered = get(idx, IC);
+				final int oldTotal = get(idx, IM) + oldCovered;
+				if (ic == 0) {
+					if (oldTotal == 0) {
+						lineMissed++;
+					}
+				} else if (oldTotal == 0) {
+					lineCovered++;
+				} else if (oldCovered == 0) {
+					lineMissed--;
+					lineCovered++;
+				}
 			}
+			add(idx, im, ic, bm, bc);
+		}
+		if (lineMissed != 0 || lineCovered != 0) {
+			lineCounter = lineCounter.increment(lineMissed, lineCovered);
 		}
 	}
 
@@ -115,23 +192,25 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 	public void increment(final ICounter instructions, final ICounter branches,
 			final int line) {
 		if (line != UNKNOWN_LINE) {
-			incrementLine(instructions, branches, line);
+			incrementLine(instructions.getMissedCount(),
+					instructions.getCoveredCount(), branches.getMissedCount(),
+					branches.getCoveredCount(), line);
 		}
 		instructionCounter = instructionCounter.increment(instructions);
 		branchCounter = branchCounter.increment(branches);
 	}
 
-	private void incrementLine(final ICounter instructions,
-			final ICounter branches, final int line) {
+	private void incrementLine(final int im, final int ic, final int bm,
+			final int bc, final int line) {
 		ensureCapacity(line, line);
-		final LineImpl l = getLine(line);
-		final int oldTotal = l.getInstructionCounter().getTotalCount();
-		final int oldCovered = l.getInstructionCounter().getCoveredCount();
-		lines[line - offset] = l.increment(instructions, branches);
+		final int idx = line - offset;
+		final int oldCovered = get(idx, IC);
+		final int oldTotal = get(idx, IM) + oldCovered;
+		add(idx, im, ic, bm, bc);
 
 		// Increment line counter:
-		if (instructions.getTotalCount() > 0) {
-			if (instructions.getCoveredCount() == 0) {
+		if (im + ic > 0) {
+			if (ic == 0) {
 				if (oldTotal == 0) {
 					lineCounter = lineCounter
 							.increment(CounterImpl.COUNTER_1_0);
@@ -149,6 +228,53 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		}
 	}
 
+	/**
+	 * Returns a single counter value of the line with the given index.
+	 */
+	private int get(final int idx, final int slot) {
+		if (wide) {
+			return lines[idx * STRIDE + slot];
+		}
+		return (lines[idx] >>> (slot * PACKED_BITS)) & PACKED_MAX;
+	}
+
+	/**
+	 * Adds the given counter values to the line with the given index. Switches
+	 * to wide format if a value exceeds the range of the packed format.
+	 */
+	private void add(final int idx, final int im, final int ic, final int bm,
+			final int bc) {
+		if (!wide) {
+			final int v = lines[idx];
+			final int nim = (v & PACKED_MAX) + im;
+			final int nic = ((v >>> PACKED_BITS) & PACKED_MAX) + ic;
+			final int nbm = ((v >>> 2 * PACKED_BITS) & PACKED_MAX) + bm;
+			final int nbc = (v >>> 3 * PACKED_BITS) + bc;
+			if (((nim | nic | nbm | nbc) & ~PACKED_MAX) == 0) {
+				lines[idx] = nim | nic << PACKED_BITS
+						| nbm << 2 * PACKED_BITS | nbc << 3 * PACKED_BITS;
+				return;
+			}
+			widen();
+		}
+		final int pos = idx * STRIDE;
+		lines[pos + IM] += im;
+		lines[pos + IC] += ic;
+		lines[pos + BM] += bm;
+		lines[pos + BC] += bc;
+	}
+
+	private void widen() {
+		final int[] newLines = new int[lines.length * STRIDE];
+		for (int i = 0; i < lines.length; i++) {
+			for (int slot = 0; slot < STRIDE; slot++) {
+				newLines[i * STRIDE + slot] = get(i, slot);
+			}
+		}
+		lines = newLines;
+		wide = true;
+	}
+
 	// === ISourceNode implementation ===
 
 	public int getFirstLine() {
@@ -156,15 +282,19 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 	}
 
 	public int getLastLine() {
-		return lines == null ? UNKNOWN_LINE : (offset + lines.length - 1);
+		if (lines == null) {
+			return UNKNOWN_LINE;
+		}
+		return offset + (wide ? lines.length / STRIDE : lines.length) - 1;
 	}
 
 	public LineImpl getLine(final int nr) {
 		if (lines == null || nr < getFirstLine() || nr > getLastLine()) {
 			return LineImpl.EMPTY;
 		}
-		final LineImpl line = lines[nr - offset];
-		return line == null ? LineImpl.EMPTY : line;
+		final int idx = nr - offset;
+		return LineImpl.getInstance(get(idx, IM), get(idx, IC), get(idx, BM),
+				get(idx, BC));
 	}
 
 }
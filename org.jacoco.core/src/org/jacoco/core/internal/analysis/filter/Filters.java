@@ -12,10 +12,22 @@
  *******************************************************************************/
 package org.jacoco.core.internal.analysis.filter;
 
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 
 /**
- * Filter that combines other filters.
+ * Filter that combines other filters. Facts which decide whether a filter can
+ * match at all are calculated once: whether the class was compiled by Kotlin
+ * once per class and the set of opcodes once per method. Filters are only
+ * invoked for methods they can match, so for example Kotlin filters are
+ * skipped for Java classes and string switch filters for methods without
+ * switch instructions.
+ *
+ * <p>
+ * Instances created by {@link #all()} must only be used for a single class at
+ * a time, as some filters keep state per class.
+ * </p>
  */
 public final class Filters implements IFilter {
 
@@ -24,7 +36,14 @@ public final class Filters implements IFilter {
 	 */
 	public static final IFilter NONE = new Filters();
 
-	private final IFilter[] filters;
+	private final Entry[] entries;
+
+	/** opcodes of the current method, one bit per opcode */
+	private final long[] opcodes = new long[4];
+
+	private IFilterContext kotlinContext;
+
+	private boolean kotlin;
 
 	/**
 	 * Creates filter that combines all other filters.
@@ -32,32 +51,113 @@ public final class Filters implements IFilter {
 	 * @return filter that combines all other filters
 	 */
 	public static IFilter all() {
-		return new Filters(new EnumFilter(), new SyntheticFilter(),
-				new BridgeFilter(), new SynchronizedFilter(),
-				new TryWithResourcesJavac11Filter(),
-				new TryWithResourcesJavacFilter(),
-				new TryWithResourcesEcjFilter(), new FinallyFilter(),
-				new PrivateEmptyNoArgConstructorFilter(), new AssertFilter(),
-				new StringSwitchJavacFilter(), new StringSwitchFilter(),
-				new EnumEmptyConstructorFilter(), new RecordsFilter(),
-				new AnnotationGeneratedFilter(), new KotlinGeneratedFilter(),
-				new KotlinLateinitFilter(), new KotlinWhenFilter(),
-				new KotlinWhenStringFilter(),
-				new KotlinUnsafeCastOperatorFilter(),
-				new KotlinNotNullOperatorFilter(),
-				new KotlinDefaultArgumentsFilter(), new KotlinInlineFilter(),
-				new KotlinCoroutineFilter(), new KotlinDefaultMethodsFilter());
-	}
-
-	private Filters(final IFilter... filters) {
-		this.filters = filters;
+		return new Filters(new Entry(new EnumFilter()),
+				new Entry(new SyntheticFilter()),
+				new Entry(new BridgeFilter()),
+				new Entry(new SynchronizedFilter(), Opcodes.MONITOREXIT),
+				new Entry(new TryWithResourcesJavac11Filter(), Opcodes.ATHROW),
+				new Entry(new TryWithResourcesJavacFilter(), Opcodes.ATHROW),
+				new Entry(new TryWithResourcesEcjFilter(), Opcodes.ATHROW),
+				new Entry(new FinallyFilter(), Opcodes.ATHROW),
+				new Entry(new PrivateEmptyNoArgConstructorFilter()),
+				new Entry(new AssertFilter(), Opcodes.GETSTATIC,
+						Opcodes.PUTSTATIC),
+				new Entry(new StringSwitchJavacFilter(), Opcodes.LOOKUPSWITCH,
+						Opcodes.TABLESWITCH),
+				new Entry(new StringSwitchFilter(), Opcodes.LOOKUPSWITCH,
+						Opcodes.TABLESWITCH),
+				new Entry(new EnumEmptyConstructorFilter()),
+				new Entry(new RecordsFilter()),
+				new Entry(new AnnotationGeneratedFilter()),
+				kotlin(new Entry(new KotlinGeneratedFilter())),
+				kotlin(new Entry(new KotlinLateinitFilter(),
+						Opcodes.IFNONNULL)),
+				kotlin(new Entry(new KotlinWhenFilter(), Opcodes.ATHROW)),
+				kotlin(new Entry(new KotlinWhenStringFilter(),
+						Opcodes.LOOKUPSWITCH, Opcodes.TABLESWITCH)),
+				kotlin(new Entry(new KotlinUnsafeCastOperatorFilter(),
+						Opcodes.IFNONNULL)),
+				kotlin(new Entry(new KotlinNotNullOperatorFilter(),
+						Opcodes.IFNONNULL)),
+				kotlin(new Entry(new KotlinDefaultArgumentsFilter())),
+				kotlin(new Entry(new KotlinInlineFilter())),
+				kotlin(new Entry(new KotlinCoroutineFilter())),
+				kotlin(new Entry(new KotlinDefaultMethodsFilter())));
+	}
+
+	private static Entry kotlin(final Entry entry) {
+		entry.kotlinOnly = true;
+		return entry;
+	}
+
+	private Filters(final Entry... entries) {
+		this.entries = entries;
 	}
 
 	public void filter(final MethodNode methodNode,
 			final IFilterContext context, final IFilterOutput output) {
-		for (final IFilter filter : filters) {
-			filter.filter(methodNode, context, output);
+		boolean scanned = false;
+		for (final Entry entry : entries) {
+			if (entry.kotlinOnly && !isKotlinClass(context)) {
+				continue;
+			}
+			if (entry.opcodes != null) {
+				if (!scanned) {
+					scanOpcodes(methodNode);
+					scanned = true;
+				}
+				if (!containsAny(entry.opcodes)) {
+					continue;
+				}
+			}
+			entry.filter.filter(methodNode, context, output);
+		}
+	}
+
+	private boolean isKotlinClass(final IFilterContext context) {
+		if (kotlinContext != context) {
+			kotlinContext = context;
+			final String source = context.getSourceFileName();
+			kotlin = KotlinGeneratedFilter.isKotlinClass(context)
+					|| (source != null && source.endsWith(".kt"));
 		}
+		return kotlin;
+	}
+
+	private void scanOpcodes(final MethodNode methodNode) {
+		opcodes[0] = opcodes[1] = opcodes[2] = opcodes[3] = 0;
+		for (final AbstractInsnNode i : methodNode.instructions) {
+			final int opcode = i.getOpcode();
+			if (opcode >= 0) {
+				opcodes[opcode >>> 6] |= 1L << opcode;
+			}
+		}
+	}
+
+	private boolean containsAny(final int[] required) {
+		for (final int opcode : required) {
+			if ((opcodes[opcode >>> 6] & (1L << opcode)) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static class Entry {
+
+		final IFilter filter;
+
+		/** at least one of these opcodes is required or <code>null</code> */
+		final int[] opcodes;
+
+		/** only applicable to classes compiled by Kotlin */
+		boolean kotlinOnly;
+
+		Entry(final IFilter filter, final int... opcodes) {
+			this.filter = filter;
+			this.opcodes = opcodes.length == 0 ? null : opcodes;
+		}
+
 	}
 
 }
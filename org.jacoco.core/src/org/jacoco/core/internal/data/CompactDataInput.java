@@ -74,6 +74,31 @@ public class CompactDataInput extends DataInputStream {
 		return value;
 	}
 
+	/**
+	 * Reads a boolean array written by
+	 * {@link CompactDataOutput#writeBooleanArray(boolean[])} after its length
+	 * has been read with {@link #readVarInt()}. The values are returned packed
+	 * into words as described in {@link ProbeBits}.
+	 *
+	 * @param length
+	 *            number of boolean values
+	 * @return packed boolean values
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public long[] readBits(final int length) throws IOException {
+		final long[] bits = new long[ProbeBits.words(length)];
+		final int bytes = (length + 7) >>> 3;
+		for (int i = 0; i < bytes; i++) {
+			bits[i >>> 3] |= (long) readUnsignedByte() << ((i & 7) << 3);
+		}
+		if ((length & 63) != 0) {
+			// Ignore padding bits of the last byte:
+			bits[bits.length - 1] &= (1L << (length & 63)) - 1;
+		}
+		return bits;
+	}
+
 	public HashSet[] readSetArray() throws IOException {
 		final HashSet<String>[] sets = new HashSet[readVarInt()];
 		for (int i = 0; i < sets.length; i++) {
@@ -86,12 +86,37 @@ public class CompactDataOutput extends DataOutputStream {
 		}
 	}
 
+	/**
+	 * Writes the boolean values packed into the given words in the format of
+	 * {@link #writeBooleanArray(boolean[])} without the length, which has to
+	 * be written with {@link #writeVarInt(int)} before.
+	 *
+	 * @param bits
+	 *            packed boolean values as described in {@link ProbeBits}
+	 * @param length
+	 *            number of boolean values
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public void writeBits(final long[] bits, final int length)
+			throws IOException {
+		final int bytes = (length + 7) >>> 3;
+		for (int i = 0; i < bytes; i++) {
+			writeByte((int) (bits[i >>> 3] >>> ((i & 7) << 3)));
+		}
+	}
+
 	public void writeSetArray(final HashSet[] sets) throws IOException {
 		// int count = 1;
 		writeVarInt(sets.length);
 		for (Set set : sets) {
 			// System.out.println("send ----" + count);
 			// count++;
+			if (set == null) {
+				// 探针没有被调用过，写入空集合
+				writeUTF("next");
+				continue;
+			}
 			Iterator iterator = set.iterator();
 			while (iterator.hasNext()) {
 				Object object = iterator.next();
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Map with primitive <code>long</code> keys which does not box keys for
+ * lookups. Keys are stored in an open addressing table with linear probing,
+ * values are stored in insertion order. Single entries can't be removed, only
+ * the whole map can be cleared. <code>null</code> values are not supported.
+ * A instance of this class is not thread safe.
+ *
+ * @param <V>
+ *            type of the values
+ */
+public final class LongHashMap<V> {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** Keys of the hash table */
+	private long[] keys;
+
+	/** Index of the value plus one for every slot, 0 for empty slots */
+	private int[] slots;
+
+	/** Values in insertion order */
+	private Object[] values;
+
+	private int size;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public LongHashMap() {
+		keys = new long[INITIAL_CAPACITY];
+		slots = new int[INITIAL_CAPACITY];
+		values = new Object[INITIAL_CAPACITY / 2];
+	}
+
+	/**
+	 * Returns the value for the given key.
+	 *
+	 * @param key
+	 *            key to look up
+	 * @return value or <code>null</code> if there is no entry for the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(final long key) {
+		final int mask = slots.length - 1;
+		int i = hash(key) & mask;
+		int slot;
+		while ((slot = slots[i]) != 0) {
+			if (keys[i] == key) {
+				return (V) values[slot - 1];
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the value for the given key.
+	 *
+	 * @param key
+	 *            key of the entry
+	 * @param value
+	 *            new value, must not be <code>null</code>
+	 * @return previous value or <code>null</code> if there was no entry for
+	 *         the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(final long key, final V value) {
+		final int mask = slots.length - 1;
+		int i = hash(key) & mask;
+		int slot;
+		while ((slot = slots[i]) != 0) {
+			if (keys[i] == key) {
+				final V previous = (V) values[slot - 1];
+				values[slot - 1] = value;
+				return previous;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		slots[i] = size + 1;
+		values[size++] = value;
+		if (size == values.length) {
+			grow();
+		}
+		return null;
+	}
+
+	/**
+	 * Removes all entries. The capacity of the map is kept.
+	 */
+	public void clear() {
+		Arrays.fill(slots, 0);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a new list of all values in the order the entries have been
+	 * added.
+	 *
+	 * @return values of all entries
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		final List<V> list = new ArrayList<V>(size);
+		for (int i = 0; i < size; i++) {
+			list.add((V) values[i]);
+		}
+		return list;
+	}
+
+	/**
+	 * Doubles the capacity so that the table is at most half full.
+	 */
+	private void grow() {
+		final long[] oldKeys = keys;
+		final int[] oldSlots = slots;
+		keys = new long[oldKeys.length * 2];
+		slots = new int[oldSlots.length * 2];
+		final int mask = slots.length - 1;
+		for (int j = 0; j < oldSlots.length; j++) {
+			if (oldSlots[j] != 0) {
+				int i = hash(oldKeys[j]) & mask;
+				while (slots[i] != 0) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				slots[i] = oldSlots[j];
+			}
+		}
+		final Object[] newValues = new Object[values.length * 2];
+		System.arraycopy(values, 0, newValues, 0, size);
+		values = newValues;
+	}
+
+	private static int hash(final long key) {
+		// Mix all bits as keys like small counters are not well distributed
+		long h = key * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		return (int) (h ^ (h >>> 16));
+	}
+
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.data;
+
+/**
+ * Operations on probes packed into <code>long</code> words. Probe
+ * <code>i</code> is stored in bit <code>i % 64</code> of word
+ * <code>i / 64</code>, which is the same bit order as the packed boolean
+ * arrays of the execution data file format. Unused bits of the last word are
+ * always zero.
+ */
+public final class ProbeBits {
+
+	private ProbeBits() {
+		// no instances
+	}
+
+	/**
+	 * Returns the number of words required for the given number of probes.
+	 *
+	 * @param probeCount
+	 *            number of probes
+	 * @return number of words
+	 */
+	public static int words(final int probeCount) {
+		return (probeCount + 63) >>> 6;
+	}
+
+	/**
+	 * Packs the given probes into words.
+	 *
+	 * @param probes
+	 *            probes to pack
+	 * @return new word array
+	 */
+	public static long[] pack(final boolean[] probes) {
+		final long[] bits = new long[words(probes.length)];
+		for (int i = 0; i < probes.length; i++) {
+			if (probes[i]) {
+				bits[i >>> 6] |= 1L << i;
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Unpacks the given words into a new probe array.
+	 *
+	 * @param bits
+	 *            packed probes
+	 * @param probeCount
+	 *            number of probes
+	 * @return new probe array
+	 */
+	public static boolean[] unpack(final long[] bits, final int probeCount) {
+		final boolean[] probes = new boolean[probeCount];
+		set(probes, bits, true);
+		return probes;
+	}
+
+	/**
+	 * Sets all probes in the given array to <code>flag</code> for which the
+	 * corresponding bit is set.
+	 *
+	 * @param probes
+	 *            probes to modify
+	 * @param bits
+	 *            packed probes to apply
+	 * @param flag
+	 *            value for the probes
+	 */
+	public static void set(final boolean[] probes, final long[] bits,
+			final boolean flag) {
+		for (int w = 0; w < bits.length; w++) {
+			long word = bits[w];
+			while (word != 0) {
+				probes[(w << 6) + Long.numberOfTrailingZeros(word)] = flag;
+				word &= word - 1;
+			}
+		}
+	}
+
+	/**
+	 * Adds all probes of <code>source</code> to <code>target</code>, i.e.
+	 * computes <code>target or source</code>.
+	 *
+	 * @param target
+	 *            packed probes to modify
+	 * @param source
+	 *            packed probes of the same length
+	 */
+	public static void or(final long[] target, final long[] source) {
+		for (int i = 0; i < target.length; i++) {
+			target[i] |= source[i];
+		}
+	}
+
+	/**
+	 * Removes all probes of <code>source</code> from <code>target</code>, i.e.
+	 * computes <code>target and not source</code>.
+	 *
+	 * @param target
+	 *            packed probes to modify
+	 * @param source
+	 *            packed probes of the same length
+	 */
+	public static void andNot(final long[] target, final long[] source) {
+		for (int i = 0; i < target.length; i++) {
+			target[i] &= ~source[i];
+		}
+	}
+
+	/**
+	 * Keeps only the probes of <code>target</code> which are also contained
+	 * in <code>source</code>, i.e. computes <code>target and source</code>.
+	 *
+	 * @param target
+	 *            packed probes to modify
+	 * @param source
+	 *            packed probes of the same length
+	 */
+	public static void and(final long[] target, final long[] source) {
+		for (int i = 0; i < target.length; i++) {
+			target[i] &= source[i];
+		}
+	}
+
+	/**
+	 * Checks whether any probe is set.
+	 *
+	 * @param bits
+	 *            packed probes
+	 * @return <code>true</code> if at least one bit is set
+	 */
+	public static boolean any(final long[] bits) {
+		for (final long word : bits) {
+			if (word != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -12,23 +12,14 @@
  *******************************************************************************/
 package org.jacoco.core.internal.flow;
 
-import com.test.diff.common.domain.ClassInfo;
-import com.test.diff.common.domain.MethodInfo;
-import com.test.diff.common.enums.DiffResultTypeEnum;
-import org.jacoco.core.analysis.CoverageBuilder;
-import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.data.MethodProbesInfo;
 import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassNameFilter;
 import org.jacoco.core.internal.instr.InstrSupport;
-import org.jacoco.core.tools.MethodUriAdapter;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.commons.AnalyzerAdapter;
 
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
-
 /**
  * A {@link org.objectweb.asm.ClassVisitor} that calculates probes for every
  * method.
@@ -51,6 +42,10 @@ public class ClassProbesAdapter extends ClassVisitor
 
 	private ClassCoverageImpl coverage;
 
+	private final ClassNameFilter filter;
+
+	private ClassNameFilter methodFilter;
+
 	/**
 	 * Creates a new adapter that delegates to the given visitor.
 	 *
@@ -61,17 +56,36 @@ public class ClassProbesAdapter extends ClassVisitor
 	 */
 	public ClassProbesAdapter(final ClassProbesVisitor cv,
 			final boolean trackFrames) {
-		super(InstrSupport.ASM_API_VERSION, cv);
-		this.cv = cv;
-		this.trackFrames = trackFrames;
+		this(cv, trackFrames, null, null);
 	}
 
 	public ClassProbesAdapter(final ClassProbesVisitor cv,
 			final boolean trackFrames, ClassCoverageImpl coverage) {
+		this(cv, trackFrames, coverage, null);
+	}
+
+	/**
+	 * Creates a new adapter that delegates to the given visitor and records
+	 * the probe range of every analyzed method.
+	 *
+	 * @param cv
+	 *            instance to delegate to
+	 * @param trackFrames
+	 *            if <code>true</code> stackmap frames are tracked and provided
+	 * @param coverage
+	 *            coverage node to add method probe information to
+	 * @param filter
+	 *            optional filter, methods not accepted by the filter are
+	 *            visited with an empty visitor to keep probe ids reproducible
+	 */
+	public ClassProbesAdapter(final ClassProbesVisitor cv,
+			final boolean trackFrames, final ClassCoverageImpl coverage,
+			final ClassNameFilter filter) {
 		super(InstrSupport.ASM_API_VERSION, cv);
 		this.cv = cv;
 		this.trackFrames = trackFrames;
 		this.coverage = coverage;
+		this.filter = filter;
 	}
 
 	@Override
@@ -79,6 +93,10 @@ public class ClassProbesAdapter extends ClassVisitor
 			final String signature, final String superName,
 			final String[] interfaces) {
 		this.name = name;
+		// 增量覆盖时每个类只解析一次差异信息：新增类统计所有方法，修改类只统计修改|新增的方法
+		this.methodFilter = filter == null || filter.acceptsAllMethods(name)
+				? null
+				: filter;
 		super.visit(version, access, name, signature, superName, interfaces);
 	}
 
@@ -87,64 +105,24 @@ public class ClassProbesAdapter extends ClassVisitor
 			final String desc, final String signature,
 			final String[] exceptions) {
 		final MethodProbesVisitor methodProbes;
-		final MethodProbesVisitor mv = cv.visitMethod(access, name, desc,
-				signature, exceptions);
+		final MethodProbesInfo info;
+		final MethodProbesVisitor mv;
+		if (methodFilter != null
+				&& !methodFilter.acceptMethod(this.name, name, desc)) {
+			// 增量覆盖，方法不是新增|修改 过滤掉，不创建方法分析器也不记录方法探针信息
+			InstrSupport.assertNotInstrumented(name, this.name);
+			mv = null;
+		} else {
+			mv = cv.visitMethod(access, name, desc, signature, exceptions);
+		}
 		if (mv == null) {
 			// We need to visit the method in any case, otherwise probe ids
 			// are not reproducible
 			methodProbes = EMPTY_METHOD_PROBES_VISITOR;
+			info = null;
 		} else {
-			// System.out.println("className: " + this.name + " methodName: "
-			// + name + " start count: " + counter);
-			if (this.coverage != null) {
-				MethodProbesInfo info = new MethodProbesInfo();
-				info.setMethodName(name);
-				info.setStartIndex(counter);
-				info.setMethodUri(this.name + "." + name + desc);
-				info.setDesc(desc);
-				this.coverage.getMethodProbesInfos().add(info);
-			}
-			// 增量覆盖方法过滤;只统计修改过|新增的方法
-			if (!Objects.isNull(CoverageBuilder.getDiffList())) {
-				boolean flag = CoverageBuilder.getDiffList().stream()
-						.filter(classInfo -> classInfo
-								.getDiffType() != DiffResultTypeEnum.DEL)
-						.filter(classInfo -> this.name
-								.equals(classInfo.getAsmClassName()))
-						.anyMatch(classInfo -> {
-							// 如果是新增类,直接返回true
-							if (classInfo
-									.getDiffType() == DiffResultTypeEnum.ADD) {
-								return true;
-							}
-							boolean b = classInfo.getMethodInfos().stream()
-									// 过滤掉删除的方法
-									.filter(methodInfo -> methodInfo
-											.getDiffType() != DiffResultTypeEnum.DEL)
-									// 过滤掉不是同一方法名
-									.filter(methodInfo -> methodInfo
-											.getMethodName()
-											.equalsIgnoreCase(name))
-									// 检查参数是否一致
-									.anyMatch(methodInfo -> MethodUriAdapter
-											.checkParamsIn(
-													methodInfo.getParams(),
-													desc));
-							return b;
-						});
-				if (flag) {
-					methodProbes = mv;
-				}
-				// 增量覆盖，方法不是新增|修改 过滤掉
-				else {
-					methodProbes = EMPTY_METHOD_PROBES_VISITOR;
-				}
-			}
-			// 全量或者切割方法探针时
-			else {
-				methodProbes = mv;
-			}
-			// methodProbes = mv;
+			methodProbes = mv;
+			info = createMethodProbesInfo(name, desc);
 		}
 		return new MethodSanitizer(null, access, name, desc, signature,
 				exceptions) {
@@ -152,10 +130,16 @@ public class ClassProbesAdapter extends ClassVisitor
 			@Override
 			public void visitEnd() {
 				super.visitEnd();
+				if (info != null) {
+					info.setFingerprint(MethodFingerprint.compute(this));
+				}
 				LabelFlowAnalyzer.markLabels(this);
 				final MethodProbesAdapter probesAdapter = new MethodProbesAdapter(
-						methodProbes, ClassProbesAdapter.this, coverage);
-				if (trackFrames) {
+						methodProbes, ClassProbesAdapter.this, info);
+				// The frame state is only tracked for methods where probes
+				// require new frames, all other frames are patched by the
+				// probe inserter
+				if (trackFrames && LabelFlowAnalyzer.hasBranchProbes(this)) {
 					final AnalyzerAdapter analyzer = new AnalyzerAdapter(
 							ClassProbesAdapter.this.name, access, name, desc,
 							probesAdapter);
@@ -168,6 +152,20 @@ public class ClassProbesAdapter extends ClassVisitor
 		};
 	}
 
+	private MethodProbesInfo createMethodProbesInfo(final String name,
+			final String desc) {
+		if (coverage == null) {
+			return null;
+		}
+		final MethodProbesInfo info = new MethodProbesInfo();
+		info.setMethodName(name);
+		info.setStartIndex(counter);
+		info.setMethodUri(this.name + "." + name + desc);
+		info.setDesc(desc);
+		coverage.getMethodProbesInfos().add(info);
+		return info;
+	}
+
 	@Override
 	public void visitEnd() {
 		cv.visitTotalProbeCount(counter);
@@ -12,12 +12,19 @@
  *******************************************************************************/
 package org.jacoco.core.internal.flow;
 
+import java.util.List;
+
 import org.jacoco.core.internal.instr.InstrSupport;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
 
 /**
  * Method visitor to collect flow related information about the {@link Label}s
@@ -42,6 +49,60 @@ public final class LabelFlowAnalyzer extends MethodVisitor {
 		method.instructions.accept(lfa);
 	}
 
+	/**
+	 * Checks whether probes will be inserted for jump or switch instructions of
+	 * the given method. Only such probes require stackmap frames for the
+	 * inserted code, for all other methods the existing frames can be updated
+	 * without tracking the frame state of every instruction. The labels of the
+	 * method must have been marked with {@link #markLabels(MethodNode)}
+	 * before.
+	 *
+	 * @param method
+	 *            Method with marked labels
+	 * @return <code>true</code> if frames are required for inserted probes
+	 */
+	public static boolean hasBranchProbes(final MethodNode method) {
+		for (AbstractInsnNode node = method.instructions
+				.getFirst(); node != null; node = node.getNext()) {
+			switch (node.getType()) {
+			case AbstractInsnNode.JUMP_INSN:
+				if (isMultiTarget(((JumpInsnNode) node).label)) {
+					return true;
+				}
+				break;
+			case AbstractInsnNode.TABLESWITCH_INSN:
+				final TableSwitchInsnNode table = (TableSwitchInsnNode) node;
+				if (isMultiTarget(table.dflt) || isMultiTarget(table.labels)) {
+					return true;
+				}
+				break;
+			case AbstractInsnNode.LOOKUPSWITCH_INSN:
+				final LookupSwitchInsnNode lookup = (LookupSwitchInsnNode) node;
+				if (isMultiTarget(lookup.dflt)
+						|| isMultiTarget(lookup.labels)) {
+					return true;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isMultiTarget(final LabelNode node) {
+		return LabelInfo.isMultiTarget(node.getLabel());
+	}
+
+	private static boolean isMultiTarget(final List<LabelNode> nodes) {
+		for (final LabelNode node : nodes) {
+			if (isMultiTarget(node)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * <code>true</code> if the current instruction is a potential successor of
 	 * the previous instruction. Accessible for testing.
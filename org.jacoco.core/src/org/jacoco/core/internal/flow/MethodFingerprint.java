@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.flow;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * Calculates a 64 bit fingerprint of the instructions of a method. Line
+ * numbers, frames and local variable names are not included, so the
+ * fingerprint does not change if only code outside the method is modified.
+ * Jump targets are identified by the number of real instructions before them,
+ * so line number and frame nodes don't affect their identity either.
+ */
+final class MethodFingerprint {
+
+	private static final long OFFSET = 0xcbf29ce484222325L;
+
+	private static final long PRIME = 0x100000001b3L;
+
+	private final Map<LabelNode, Integer> labels = new IdentityHashMap<LabelNode, Integer>();
+
+	private long hash = OFFSET;
+
+	/**
+	 * Calculates the fingerprint of the given method.
+	 *
+	 * @param method
+	 *            method to calculate the fingerprint for
+	 * @return fingerprint of the method
+	 */
+	static long compute(final MethodNode method) {
+		final MethodFingerprint fingerprint = new MethodFingerprint();
+		int position = 0;
+		for (final AbstractInsnNode i : method.instructions) {
+			if (i.getType() == AbstractInsnNode.LABEL) {
+				fingerprint.labels.put((LabelNode) i, Integer.valueOf(position));
+			} else if (i.getOpcode() >= 0) {
+				position++;
+			}
+		}
+		for (final AbstractInsnNode i : method.instructions) {
+			fingerprint.updateInsn(i);
+		}
+		for (final TryCatchBlockNode t : method.tryCatchBlocks) {
+			fingerprint.update(t.start);
+			fingerprint.update(t.end);
+			fingerprint.update(t.handler);
+			fingerprint.update(t.type);
+		}
+		return fingerprint.hash;
+	}
+
+	private void updateInsn(final AbstractInsnNode node) {
+		switch (node.getType()) {
+		case AbstractInsnNode.LABEL:
+		case AbstractInsnNode.LINE:
+		case AbstractInsnNode.FRAME:
+			return;
+		case AbstractInsnNode.INT_INSN:
+			update(((IntInsnNode) node).operand);
+			break;
+		case AbstractInsnNode.VAR_INSN:
+			update(((VarInsnNode) node).var);
+			break;
+		case AbstractInsnNode.TYPE_INSN:
+			update(((TypeInsnNode) node).desc);
+			break;
+		case AbstractInsnNode.FIELD_INSN:
+			final FieldInsnNode f = (FieldInsnNode) node;
+			update(f.owner);
+			update(f.name);
+			update(f.desc);
+			break;
+		case AbstractInsnNode.METHOD_INSN:
+			final MethodInsnNode m = (MethodInsnNode) node;
+			update(m.owner);
+			update(m.name);
+			update(m.desc);
+			break;
+		case AbstractInsnNode.INVOKE_DYNAMIC_INSN:
+			final InvokeDynamicInsnNode d = (InvokeDynamicInsnNode) node;
+			update(d.name);
+			update(d.desc);
+			update(d.bsm);
+			for (final Object arg : d.bsmArgs) {
+				update(arg);
+			}
+			break;
+		case AbstractInsnNode.JUMP_INSN:
+			update(((JumpInsnNode) node).label);
+			break;
+		case AbstractInsnNode.LDC_INSN:
+			update(((LdcInsnNode) node).cst);
+			break;
+		case AbstractInsnNode.IINC_INSN:
+			final IincInsnNode iinc = (IincInsnNode) node;
+			update(iinc.var);
+			update(iinc.incr);
+			break;
+		case AbstractInsnNode.TABLESWITCH_INSN:
+			final TableSwitchInsnNode t = (TableSwitchInsnNode) node;
+			update(t.min);
+			update(t.max);
+			update(t.dflt);
+			update(t.labels);
+			break;
+		case AbstractInsnNode.LOOKUPSWITCH_INSN:
+			final LookupSwitchInsnNode l = (LookupSwitchInsnNode) node;
+			for (final Integer key : l.keys) {
+				update(key.intValue());
+			}
+			update(l.dflt);
+			update(l.labels);
+			break;
+		case AbstractInsnNode.MULTIANEWARRAY_INSN:
+			final MultiANewArrayInsnNode a = (MultiANewArrayInsnNode) node;
+			update(a.desc);
+			update(a.dims);
+			break;
+		default:
+			break;
+		}
+		update(node.getOpcode());
+	}
+
+	private void update(final List<LabelNode> targets) {
+		for (final LabelNode label : targets) {
+			update(label);
+		}
+	}
+
+	/**
+	 * Labels are identified by the number of real instructions before them.
+	 */
+	private void update(final LabelNode label) {
+		update(labels.get(label).intValue());
+	}
+
+	private void update(final Object value) {
+		if (value == null) {
+			update(0);
+		} else if (value instanceof Handle) {
+			final Handle h = (Handle) value;
+			update(h.getTag());
+			update(h.getOwner());
+			update(h.getName());
+			update(h.getDesc());
+		} else {
+			update(value.getClass().getName().hashCode());
+			update(value.toString().hashCode());
+		}
+	}
+
+	private void update(final String value) {
+		update(value == null ? 0 : value.hashCode());
+	}
+
+	private void update(final int value) {
+		hash = (hash ^ value) * PRIME;
+	}
+
+}
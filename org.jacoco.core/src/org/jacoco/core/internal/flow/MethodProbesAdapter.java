@@ -15,7 +15,7 @@ package org.jacoco.core.internal.flow;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.data.MethodProbesInfo;
 import org.jacoco.core.internal.instr.InstrSupport;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
@@ -36,7 +36,7 @@ public final class MethodProbesAdapter extends MethodVisitor {
 
 	private final Map<Label, Label> tryCatchProbeLabels;
 
-	private ClassCoverageImpl coverage;
+	private MethodProbesInfo info;
 
 	/**
 	 * Create a new adapter instance.
@@ -54,14 +54,25 @@ public final class MethodProbesAdapter extends MethodVisitor {
 		this.tryCatchProbeLabels = new HashMap<Label, Label>();
 	}
 
+	/**
+	 * Create a new adapter instance which records the last probe id of the
+	 * method.
+	 *
+	 * @param probesVisitor
+	 *            visitor to delegate to
+	 * @param idGenerator
+	 *            generator for unique probe ids
+	 * @param info
+	 *            optional probe information of the method, the end index is
+	 *            set when the method has been visited
+	 */
 	public MethodProbesAdapter(final MethodProbesVisitor probesVisitor,
-			final IProbeIdGenerator idGenerator,
-			final ClassCoverageImpl coverage) {
+			final IProbeIdGenerator idGenerator, final MethodProbesInfo info) {
 		super(InstrSupport.ASM_API_VERSION, probesVisitor);
 		this.probesVisitor = probesVisitor;
 		this.idGenerator = idGenerator;
 		this.tryCatchProbeLabels = new HashMap<Label, Label>();
-		this.coverage = coverage;
+		this.info = info;
 	}
 
 	/**
@@ -128,10 +139,8 @@ public final class MethodProbesAdapter extends MethodVisitor {
 	@Override
 	public void visitEnd() {
 		super.visitEnd();
-		if (this.coverage != null) {
-			this.coverage.getMethodProbesInfos()
-					.get(this.coverage.getMethodProbesInfos().size() - 1)
-					.setEndIndex(idGenerator.getCurrentId());
+		if (info != null) {
+			info.setEndIndex(idGenerator.getCurrentId());
 		}
 		// System.out.println("end count: " + idGenerator.getCurrentId());
 	}
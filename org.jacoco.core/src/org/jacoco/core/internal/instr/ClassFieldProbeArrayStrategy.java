@@ -56,19 +56,24 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 	public void callChainHandleMethod(final MethodVisitor mv,
 			final String uri) {
-		mv.visitLdcInsn(uri);
-		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-				InstrSupport.CHAIN_HANDLE_CLASSNAME,
-				InstrSupport.ADD_CHAIN_NODE_METHOD_NAME,
-				InstrSupport.ADD_CHAIN_NODE_METHOD_DESC, false);
+		InstrSupport.invokeChainHandle(mv,
+				InstrSupport.ADD_CHAIN_NODE_METHOD_NAME, uri);
 	}
 
 	public void SetCalledNodeMethod(final MethodVisitor mv, final String uri) {
-		mv.visitLdcInsn(uri);
-		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-				InstrSupport.CHAIN_HANDLE_CLASSNAME,
-				InstrSupport.SET_CALLED_NODE_METHOD_NAME,
-				InstrSupport.SET_CALLED_NODE_METHOD_DESC, false);
+		InstrSupport.invokeChainHandle(mv,
+				InstrSupport.SET_CALLED_NODE_METHOD_NAME, uri);
+	}
+
+	public int getProbeOffset() {
+		return 0;
+	}
+
+	public int loadCalledFlags(final MethodVisitor mv, final int variable) {
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
+				InstrSupport.INITSETMETHOD_NAME,
+				InstrSupport.INITSETMETHOD_DESC, false);
+		return 1;
 	}
 
 	public int storeInstance(final MethodVisitor mv, final boolean clinit,
@@ -114,9 +119,10 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 		// [$jacocoSet_ref]
 		mv.visitFieldInsn(Opcodes.GETSTATIC, className,
-				InstrSupport.SET_DATA_FIELD_NAME, "[Ljava/util/HashSet;");
+				InstrSupport.SET_DATA_FIELD_NAME,
+				InstrSupport.SET_DATA_FIELD_DESC);
 
-		// [$jacocoSet_ref, $jacocoSer_ref]
+		// [$jacocoSet_ref, $jacocoSet_ref]
 		mv.visitInsn(Opcodes.DUP);
 
 		// [$jacocoSet_ref]
@@ -125,61 +131,13 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 		mv.visitInsn(Opcodes.POP);// []
 
-		// [runtimeData_ref]
-		mv.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/UnknownError",
-				"$jacocoAccess", "Ljava/lang/Object;");
-
-		// 强转类型 [RuntimeData_obj]
-		mv.visitTypeInsn(Opcodes.CHECKCAST,
-				"org/jacoco/core/runtime/RuntimeData");
-
-		// [runtimeData_ref, 3]
-		mv.visitInsn(Opcodes.ICONST_3);
-
-		// [runtimeData_ref, array_ref]
-		mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
-
-		// set classId
-		mv.visitInsn(Opcodes.DUP);// [runtimeData_ref, array_ref, array_ref]
-		mv.visitInsn(Opcodes.ICONST_0); // [runtimeData_ref, array_ref,
-										// array_ref, 0]
-		mv.visitLdcInsn(Long.valueOf(classId)); // [runtimeData_ref, array_ref,
-												// array_ref, 0, long_top,
-												// long_end]
-		mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Long", "valueOf",
-				"(J)Ljava/lang/Long;", false);// [runtimeData_ref, array_ref,
-												// long]
-		mv.visitInsn(Opcodes.AASTORE); // [runtimeData_ref, array_ref]
-
-		// set className
-		mv.visitInsn(Opcodes.DUP);// [runtimeData_ref, array_ref, array_ref]
-		mv.visitInsn(Opcodes.ICONST_1);
-		mv.visitLdcInsn(className);
-		mv.visitInsn(Opcodes.AASTORE);
-
-		// set probeCount
-		mv.visitInsn(Opcodes.DUP);
-		mv.visitInsn(Opcodes.ICONST_2);
-		InstrSupport.push(mv, probeCount);
-		mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf",
-				"(I)Ljava/lang/Integer;", false);
-		mv.visitInsn(Opcodes.AASTORE); // [runtimeData_ref, array_ref]
-
-		// [array_ref, runtimeData_ref, array_ref]
-		mv.visitInsn(Opcodes.DUP_X1);
-
-		// [array_ref, int] int是equals返回的结果
-		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
-				"org/jacoco/core/runtime/RuntimeData", "generateCalledSetArray",
-				"(Ljava/lang/Object;)Z", false);
-		mv.visitInsn(Opcodes.POP);// [array_ref]
-
-		// set array_ref = Set[]
-		mv.visitInsn(Opcodes.ICONST_0); // [array_ref, 0]
-		mv.visitInsn(Opcodes.AALOAD); // [obj_array_ref]
+		// 通过探针数组获取调用者集合，不依赖具体的runtime实现 [probes_ref]
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
+				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
+				false);
 
-		// 强转类型 [set_array_ref]
-		mv.visitTypeInsn(Opcodes.CHECKCAST, "[Ljava/util/HashSet;");
+		// [set_array_ref]
+		final int size = genGetCalledFlags(mv, probeCount);
 
 		// [set_array_ref, set_array_ref]
 		mv.visitInsn(Opcodes.DUP);
@@ -189,18 +147,34 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 				InstrSupport.SET_DATA_FIELD_NAME,
 				InstrSupport.SET_DATA_FIELD_DESC);
 
-		// Return the class' probe array:
+		// Return the class' caller sets:
 		if (withFrames) {
 			mv.visitFrame(Opcodes.F_NEW, 0, FRAME_LOCALS_EMPTY, 1,
 					new Object[] { InstrSupport.SET_DATA_FIELD_DESC });
 		}
 		mv.visitLabel(alreadyInitialized);
-		// []
 		mv.visitInsn(Opcodes.ARETURN);
 
-		mv.visitMaxs(Math.max(6, 2), 0); // Maximum local stack size is 2
+		mv.visitMaxs(Math.max(size, 2), 0);
 		mv.visitEnd();
+	}
 
+	/**
+	 * Generates the code which replaces the probe array on the operand stack
+	 * with the caller sets of the class.
+	 *
+	 * @param mv
+	 *            generator to emit code to
+	 * @param probeCount
+	 *            total number of probes of the class
+	 * @return maximum stack size required by the generated code
+	 */
+	int genGetCalledFlags(final MethodVisitor mv, final int probeCount) {
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+				InstrSupport.CHAIN_HANDLE_CLASSNAME,
+				InstrSupport.GET_CALLED_FLAGS_METHOD_NAME,
+				InstrSupport.GET_CALLED_FLAGS_METHOD_DESC, false);
+		return 1;
 	}
 
 	private void createDataField(final ClassVisitor cv) {
@@ -12,11 +12,16 @@
  *******************************************************************************/
 package org.jacoco.core.internal.instr;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.jacoco.core.internal.flow.ClassProbesVisitor;
 import org.jacoco.core.internal.flow.MethodProbesVisitor;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
 
 /**
  * Adapter that instruments a class for coverage tracing.
@@ -25,8 +30,15 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 
 	private final IProbeArrayStrategy probeArrayStrategy;
 
+	private final int inlineSize;
+
 	private String className;
 
+	private boolean isInterface;
+
+	/** Uris of the methods with compact probes in order of their index */
+	private final List<String> compactMethods = new ArrayList<String>();
+
 	/**
 	 * Emits a instrumented version of this class to the given class visitor.
 	 *
@@ -38,8 +50,29 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 	 */
 	public ClassInstrumenter(final IProbeArrayStrategy probeArrayStrategy,
 			final ClassVisitor cv) {
+		this(probeArrayStrategy, 0, cv);
+	}
+
+	/**
+	 * Emits a instrumented version of this class to the given class visitor.
+	 * Methods which fit into the given inlining limit of the JIT compiler but
+	 * would exceed it after instrumentation get compact probes, which call a
+	 * hit method added to the class.
+	 *
+	 * @param probeArrayStrategy
+	 *            this strategy will be used to access the probe array
+	 * @param inlineSize
+	 *            maximum bytecode size of methods inlined by the JIT compiler
+	 *            or 0 to insert all probes in regular form
+	 * @param cv
+	 *            next delegate in the visitor chain will receive the
+	 *            instrumented class
+	 */
+	public ClassInstrumenter(final IProbeArrayStrategy probeArrayStrategy,
+			final int inlineSize, final ClassVisitor cv) {
 		super(cv);
 		this.probeArrayStrategy = probeArrayStrategy;
+		this.inlineSize = inlineSize;
 	}
 
 	@Override
@@ -47,6 +80,7 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 			final String signature, final String superName,
 			final String[] interfaces) {
 		this.className = name;
+		this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
 		super.visit(version, access, name, signature, superName, interfaces);
 	}
 
@@ -74,15 +108,91 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 		final ProbeInserter probeVariableInserter = new ProbeInserter(access,
 				name, desc, frameEliminator, probeArrayStrategy);
 		// set uri
-		probeVariableInserter.setUri(className + "." + name + desc);
+		final String uri = className + "." + name + desc;
+		probeVariableInserter.setUri(uri);
 		probeVariableInserter.setClassName(className);
+		// Constructors and initializers have no chain handling, interfaces
+		// can't declare private static methods before Java 9
+		if (inlineSize == 0 || isInterface || name.charAt(0) == '<') {
+			return new MethodInstrumenter(probeVariableInserter,
+					probeVariableInserter);
+		}
 		return new MethodInstrumenter(probeVariableInserter,
-				probeVariableInserter);
+				probeVariableInserter) {
+			@Override
+			public void accept(final MethodNode methodNode,
+					final MethodVisitor methodVisitor) {
+				if (CodeSizeEstimator.exceedsInlineSize(methodNode,
+						inlineSize)) {
+					probeVariableInserter.setCompact(compactMethods.size());
+					compactMethods.add(uri);
+				}
+				super.accept(methodNode, methodVisitor);
+			}
+		};
 	}
 
 	@Override
 	public void visitTotalProbeCount(final int count) {
 		probeArrayStrategy.addMembers(cv, count);
+		if (!compactMethods.isEmpty()) {
+			createHitMethod();
+			for (int i = 0; i < compactMethods.size(); i++) {
+				final String uri = compactMethods.get(i);
+				createChainHookMethod(InstrSupport.ENTERMETHOD_PREFIX + i,
+						InstrSupport.ADD_CHAIN_NODE_METHOD_NAME, uri);
+				createChainHookMethod(InstrSupport.EXITMETHOD_PREFIX + i,
+						InstrSupport.SET_CALLED_NODE_METHOD_NAME, uri);
+			}
+		}
+	}
+
+	/**
+	 * Creates a method called by the entry or the exits of a method with
+	 * compact probes. It calls the given chain hook with the uri of the
+	 * method, so the call site needs no constant pool entry for the uri.
+	 */
+	private void createChainHookMethod(final String name, final String hook,
+			final String uri) {
+		final MethodVisitor mv = cv.visitMethod(InstrSupport.INITMETHOD_ACC,
+				name, InstrSupport.CHAINHOOKMETHOD_DESC, null, null);
+		mv.visitCode();
+		InstrSupport.invokeChainHandle(mv, hook, uri);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(1, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * Creates the method called by compact probes. It sets the probe and
+	 * updates the caller set exactly like a regular probe.
+	 */
+	private void createHitMethod() {
+		final MethodVisitor mv = cv.visitMethod(InstrSupport.INITMETHOD_ACC,
+				InstrSupport.HITMETHOD_NAME, InstrSupport.HITMETHOD_DESC, null,
+				null);
+		mv.visitCode();
+		final int size = probeArrayStrategy.storeInstance(mv, false, 1);
+
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitVarInsn(Opcodes.ILOAD, 0);
+		final int offset = probeArrayStrategy.getProbeOffset();
+		if (offset != 0) {
+			InstrSupport.push(mv, offset);
+			mv.visitInsn(Opcodes.IADD);
+		}
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.BASTORE);
+
+		probeArrayStrategy.loadCalledFlags(mv, 1);
+		mv.visitVarInsn(Opcodes.ILOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+				InstrSupport.CHAIN_HANDLE_CLASSNAME,
+				InstrSupport.SET_CALLED_FLAG_METHOD_NAME,
+				InstrSupport.SET_CALLED_FLAG_METHOD_DESC, false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(Math.max(size, 3), 2);
+		mv.visitEnd();
 	}
 
 }
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import org.jacoco.core.internal.flow.LabelInfo;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * Estimates the bytecode size of methods before and after instrumentation.
+ * The JIT compiler only inlines methods up to a certain bytecode size, the
+ * estimate is used to decide whether probes have to be inserted in a compact
+ * form to keep small methods below this limit. All estimates are upper bounds
+ * as the exact size depends on the constant pool and the probe ids.
+ */
+final class CodeSizeEstimator {
+
+	/** Call of the chain hook at method entry and before every exit */
+	private static final int CHAIN_HOOK_SIZE = 6;
+
+	/** Retrieval of the probe array into a local variable */
+	private static final int STORE_INSTANCE_SIZE = 5;
+
+	/** Probe which sets the array slot and updates the caller set */
+	private static final int PROBE_SIZE = 17;
+
+	private CodeSizeEstimator() {
+		// no instances
+	}
+
+	/**
+	 * Checks whether the given method fits into the inlining limit before
+	 * instrumentation but not after regular instrumentation. The labels of
+	 * the method must already be marked with probe information.
+	 *
+	 * @param method
+	 *            method to check
+	 * @param limit
+	 *            maximum bytecode size of inlined methods
+	 * @return <code>true</code> if probes should be inserted in compact form
+	 */
+	static boolean exceedsInlineSize(final MethodNode method,
+			final int limit) {
+		final int size = codeSize(method);
+		return size <= limit && instrumentedSize(method, size) > limit;
+	}
+
+	/**
+	 * Estimates the size of the given method after regular instrumentation.
+	 *
+	 * @param method
+	 *            method with marked labels
+	 * @param codeSize
+	 *            size of the original code
+	 * @return estimated size
+	 */
+	static int instrumentedSize(final MethodNode method, final int codeSize) {
+		return codeSize + CHAIN_HOOK_SIZE + STORE_INSTANCE_SIZE
+				+ probeCount(method) * PROBE_SIZE
+				+ exitCount(method) * CHAIN_HOOK_SIZE
+				// Variables behind the probe array might need wide access
+				+ method.maxLocals;
+	}
+
+	/**
+	 * Calculates the size of the original code of the given method.
+	 *
+	 * @param method
+	 *            method to calculate
+	 * @return code size in bytes
+	 */
+	static int codeSize(final MethodNode method) {
+		int size = 0;
+		for (AbstractInsnNode node = method.instructions
+				.getFirst(); node != null; node = node.getNext()) {
+			size += insnSize(node, size);
+		}
+		return size;
+	}
+
+	private static int insnSize(final AbstractInsnNode node,
+			final int offset) {
+		final int opcode = node.getOpcode();
+		switch (node.getType()) {
+		case AbstractInsnNode.LABEL:
+		case AbstractInsnNode.LINE:
+		case AbstractInsnNode.FRAME:
+			return 0;
+		case AbstractInsnNode.INSN:
+			return 1;
+		case AbstractInsnNode.INT_INSN:
+			return opcode == Opcodes.SIPUSH ? 3 : 2;
+		case AbstractInsnNode.VAR_INSN:
+			// Opcodes like ILOAD_0 are used for the first four variables
+			return ((VarInsnNode) node).var < 4 ? 1 : 2;
+		case AbstractInsnNode.LDC_INSN:
+			final Object cst = ((LdcInsnNode) node).cst;
+			return cst instanceof Long || cst instanceof Double ? 3 : 2;
+		case AbstractInsnNode.IINC_INSN:
+			return 3;
+		case AbstractInsnNode.METHOD_INSN:
+			return opcode == Opcodes.INVOKEINTERFACE ? 5 : 3;
+		case AbstractInsnNode.INVOKE_DYNAMIC_INSN:
+			return 5;
+		case AbstractInsnNode.MULTIANEWARRAY_INSN:
+			return 4;
+		case AbstractInsnNode.TABLESWITCH_INSN:
+			return switchPadding(offset)
+					+ 12 + 4 * ((TableSwitchInsnNode) node).labels.size();
+		case AbstractInsnNode.LOOKUPSWITCH_INSN:
+			return switchPadding(offset)
+					+ 8 + 8 * ((LookupSwitchInsnNode) node).keys.size();
+		default:
+			// Type, field and jump instructions
+			return 3;
+		}
+	}
+
+	private static int switchPadding(final int offset) {
+		return 1 + (3 - offset % 4);
+	}
+
+	/**
+	 * Counts the locations where probes might be inserted.
+	 */
+	private static int probeCount(final MethodNode method) {
+		int count = 0;
+		for (AbstractInsnNode node = method.instructions
+				.getFirst(); node != null; node = node.getNext()) {
+			switch (node.getType()) {
+			case AbstractInsnNode.LABEL:
+				if (LabelInfo.needsProbe(((LabelNode) node).getLabel())) {
+					count++;
+				}
+				break;
+			case AbstractInsnNode.JUMP_INSN:
+				if (LabelInfo.isMultiTarget(
+						((JumpInsnNode) node).label.getLabel())) {
+					count++;
+				}
+				break;
+			case AbstractInsnNode.TABLESWITCH_INSN:
+				count += 1 + ((TableSwitchInsnNode) node).labels.size();
+				break;
+			case AbstractInsnNode.LOOKUPSWITCH_INSN:
+				count += 1 + ((LookupSwitchInsnNode) node).labels.size();
+				break;
+			default:
+				if (isExit(node.getOpcode())) {
+					count++;
+				}
+				break;
+			}
+		}
+		return count;
+	}
+
+	private static int exitCount(final MethodNode method) {
+		int count = 0;
+		for (AbstractInsnNode node = method.instructions
+				.getFirst(); node != null; node = node.getNext()) {
+			if (isExit(node.getOpcode())) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean isExit(final int opcode) {
+		switch (opcode) {
+		case Opcodes.IRETURN:
+		case Opcodes.LRETURN:
+		case Opcodes.FRETURN:
+		case Opcodes.DRETURN:
+		case Opcodes.ARETURN:
+		case Opcodes.RETURN:
+		case Opcodes.ATHROW:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+}
@@ -21,15 +21,16 @@ import org.objectweb.asm.Opcodes;
 
 /**
  * This strategy for Java 11+ class files uses {@link ConstantDynamic} to hold
- * the probe array and adds bootstrap method requesting the probe array from the
- * runtime.
+ * the probe array and the caller sets. A single bootstrap method requests the
+ * probe array from the runtime and resolves the caller sets by the probe
+ * array. Classes and interfaces get no additional fields.
  */
 public class CondyProbeArrayStrategy implements IProbeArrayStrategy {
 
 	/**
 	 * Descriptor of the bootstrap method.
 	 */
-	public static final String B_DESC = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)[Z";
+	public static final String B_DESC = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;";
 
 	private final String className;
 
@@ -50,15 +51,29 @@ public class CondyProbeArrayStrategy implements IProbeArrayStrategy {
 
 	public int storeInstance(final MethodVisitor mv, final boolean clinit,
 			final int variable) {
+		loadConstant(mv, InstrSupport.DATAFIELD_NAME);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, InstrSupport.DATAFIELD_DESC);
+		mv.visitVarInsn(Opcodes.ASTORE, variable);
+		return 1;
+	}
+
+	public int getProbeOffset() {
+		return 0;
+	}
+
+	public int loadCalledFlags(final MethodVisitor mv, final int variable) {
+		loadConstant(mv, InstrSupport.SET_DATA_FIELD_NAME);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, InstrSupport.SET_DATA_FIELD_DESC);
+		return 1;
+	}
+
+	private void loadConstant(final MethodVisitor mv, final String name) {
 		final Handle bootstrapMethod = new Handle(Opcodes.H_INVOKESTATIC,
 				className, InstrSupport.INITMETHOD_NAME, B_DESC, isInterface);
 		// As a workaround for https://bugs.openjdk.java.net/browse/JDK-8216970
 		// constant should have type Object
-		mv.visitLdcInsn(new ConstantDynamic(InstrSupport.DATAFIELD_NAME,
-				"Ljava/lang/Object;", bootstrapMethod));
-		mv.visitTypeInsn(Opcodes.CHECKCAST, "[Z");
-		mv.visitVarInsn(Opcodes.ASTORE, variable);
-		return 1;
+		mv.visitLdcInsn(new ConstantDynamic(name, "Ljava/lang/Object;",
+				bootstrapMethod));
 	}
 
 	public void addMembers(final ClassVisitor cv, final int probeCount) {
@@ -66,19 +81,35 @@ public class CondyProbeArrayStrategy implements IProbeArrayStrategy {
 				InstrSupport.INITMETHOD_NAME, B_DESC, null, null);
 		final int maxStack = accessorGenerator.generateDataAccessor(classId,
 				className, probeCount, mv);
+
+		// Stack[0]: [Z
+
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+
+		// Stack[1]: Ljava/lang/String;
+		// Stack[0]: [Z
+
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+				InstrSupport.CHAIN_HANDLE_CLASSNAME,
+				InstrSupport.GET_CONSTANT_METHOD_NAME,
+				InstrSupport.GET_CONSTANT_METHOD_DESC, false);
+
+		// Stack[0]: Ljava/lang/Object;
+
 		mv.visitInsn(Opcodes.ARETURN);
-		mv.visitMaxs(maxStack, 3);
+		mv.visitMaxs(Math.max(maxStack, 2), 3);
 		mv.visitEnd();
 	}
 
-	@Override
-	public void callChainHandleMethod(MethodVisitor mv, String uri) {
-
+	public void callChainHandleMethod(final MethodVisitor mv,
+			final String uri) {
+		InstrSupport.invokeChainHandle(mv,
+				InstrSupport.ADD_CHAIN_NODE_METHOD_NAME, uri);
 	}
 
-	@Override
-	public void SetCalledNodeMethod(MethodVisitor mv, String uri) {
-
+	public void SetCalledNodeMethod(final MethodVisitor mv, final String uri) {
+		InstrSupport.invokeChainHandle(mv,
+				InstrSupport.SET_CALLED_NODE_METHOD_NAME, uri);
 	}
 
 }
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Adapter for classes with deferred instrumentation. A class is first loaded
+ * in a prepared version which is derived from the fully instrumented version:
+ * the static initializer keeps its probes and additionally calls a trampoline
+ * first, all other methods are replaced with their original code. The
+ * trampoline signals the activation of the class to the runtime, which then
+ * replaces the class with the fully instrumented version by retransformation
+ * before the static initializer continues.
+ *
+ * As retransformation must not add or remove members, both versions declare
+ * the same members. Both versions declare a static initializer, if the
+ * original class has none a synthetic one is added. Without accessor the
+ * prepared version is a disabled version of the class which can be switched
+ * with the instrumented version in both directions.
+ */
+public class DeferredClassInstrumenter extends ClassVisitor {
+
+	private final IProbeArrayStrategy probeArrayStrategy;
+
+	private final Map<String, MethodNode> originalMethods;
+
+	private final IExecutionDataAccessorGenerator accessorGenerator;
+
+	private final long classId;
+
+	private String className;
+
+	private boolean hasClinit;
+
+	private DeferredClassInstrumenter(
+			final IProbeArrayStrategy probeArrayStrategy,
+			final ClassNode original,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final long classId, final ClassVisitor cv) {
+		super(InstrSupport.ASM_API_VERSION, cv);
+		this.probeArrayStrategy = probeArrayStrategy;
+		this.accessorGenerator = accessorGenerator;
+		this.classId = classId;
+		if (original == null) {
+			originalMethods = null;
+		} else {
+			originalMethods = new HashMap<String, MethodNode>();
+			for (final MethodNode m : original.methods) {
+				originalMethods.put(m.name + m.desc, m);
+			}
+		}
+	}
+
+	/**
+	 * Emits the prepared version of a class with the trampoline to the given
+	 * class visitor. In this mode the adapter must receive the fully
+	 * instrumented version of the class.
+	 *
+	 * @param original
+	 *            original definition of the class, provides the code of all
+	 *            methods except the static initializer
+	 * @param accessorGenerator
+	 *            accessor to the coverage runtime
+	 * @param classId
+	 *            class identifier
+	 * @param cv
+	 *            next delegate in the visitor chain will receive the prepared
+	 *            class
+	 */
+	public DeferredClassInstrumenter(final ClassNode original,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final long classId, final ClassVisitor cv) {
+		this(null, original, accessorGenerator, classId, cv);
+	}
+
+	/**
+	 * Emits the disabled version of a class to the given class visitor. All
+	 * methods are copied unchanged, the members of the probe array strategy
+	 * are added.
+	 *
+	 * @param probeArrayStrategy
+	 *            strategy used for the fully instrumented version of the class
+	 * @param cv
+	 *            next delegate in the visitor chain will receive the disabled
+	 *            class
+	 */
+	public DeferredClassInstrumenter(
+			final IProbeArrayStrategy probeArrayStrategy,
+			final ClassVisitor cv) {
+		this(probeArrayStrategy, null, null, 0, cv);
+	}
+
+	/**
+	 * Adds the synthetic static initializer to the fully instrumented version
+	 * of this class if required. In this mode the adapter must receive the
+	 * output of {@link ClassInstrumenter}.
+	 *
+	 * @param cv
+	 *            next delegate in the visitor chain will receive the
+	 *            instrumented class
+	 */
+	public DeferredClassInstrumenter(final ClassVisitor cv) {
+		this(null, null, null, 0, cv);
+	}
+
+	/**
+	 * Checks whether instrumentation can be deferred for the given class.
+	 * Interfaces are not supported as their probe array strategies depend on
+	 * the static initializer.
+	 *
+	 * @param access
+	 *            access flags of the class
+	 * @return <code>true</code> if instrumentation can be deferred
+	 */
+	public static boolean isSupported(final int access) {
+		return (access & (Opcodes.ACC_INTERFACE | Opcodes.ACC_MODULE)) == 0;
+	}
+
+	@Override
+	public void visit(final int version, final int access, final String name,
+			final String signature, final String superName,
+			final String[] interfaces) {
+		this.className = name;
+		super.visit(version, access, name, signature, superName, interfaces);
+	}
+
+	@Override
+	public FieldVisitor visitField(final int access, final String name,
+			final String desc, final String signature, final Object value) {
+		if (probeArrayStrategy != null) {
+			InstrSupport.assertNotInstrumented(name, className);
+		}
+		return super.visitField(access, name, desc, signature, value);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(final int access, final String name,
+			final String desc, final String signature,
+			final String[] exceptions) {
+		if (!InstrSupport.CLINIT_NAME.equals(name)) {
+			if (probeArrayStrategy != null) {
+				InstrSupport.assertNotInstrumented(name, className);
+			}
+			final MethodNode original = originalMethods == null ? null
+					: originalMethods.get(name + desc);
+			if (original != null) {
+				// Methods added by the probe array strategy are kept
+				original.accept(cv);
+				return null;
+			}
+			return super.visitMethod(access, name, desc, signature,
+					exceptions);
+		}
+		hasClinit = true;
+		final MethodVisitor mv = super.visitMethod(access, name, desc,
+				signature, exceptions);
+		if (accessorGenerator == null || mv == null) {
+			return mv;
+		}
+		return new MethodVisitor(InstrSupport.ASM_API_VERSION, mv) {
+			private int trampolineStackSize;
+
+			@Override
+			public void visitCode() {
+				super.visitCode();
+				trampolineStackSize = addTrampoline(mv);
+			}
+
+			@Override
+			public void visitMaxs(final int maxStack, final int maxLocals) {
+				super.visitMaxs(Math.max(maxStack, trampolineStackSize),
+						maxLocals);
+			}
+		};
+	}
+
+	@Override
+	public void visitEnd() {
+		if (probeArrayStrategy != null) {
+			// The probe count is only known after analyzing the control flow
+			// of all methods, it is not required as the added methods are
+			// replaced on retransformation.
+			probeArrayStrategy.addMembers(cv, 0);
+		}
+		if (!hasClinit) {
+			final MethodVisitor mv = cv.visitMethod(InstrSupport.CLINIT_ACC,
+					InstrSupport.CLINIT_NAME, InstrSupport.CLINIT_DESC, null,
+					null);
+			mv.visitCode();
+			mv.visitInsn(Opcodes.RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+		super.visitEnd();
+	}
+
+	private int addTrampoline(final MethodVisitor mv) {
+		final int size = accessorGenerator.generateDataAccessor(classId,
+				className, InstrSupport.ACTIVATION_PROBECOUNT, mv);
+		mv.visitInsn(Opcodes.POP);
+		return size;
+	}
+
+}
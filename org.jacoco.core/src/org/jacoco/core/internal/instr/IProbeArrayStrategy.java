@@ -35,6 +35,28 @@ public interface IProbeArrayStrategy {
 	 */
 	int storeInstance(MethodVisitor mv, boolean clinit, int variable);
 
+	/**
+	 * Returns the index of the first probe of the class in the probe array.
+	 * The array is shared with other classes if the index is not
+	 * <code>0</code>.
+	 *
+	 * @return index of probe <code>0</code> in the probe array
+	 */
+	int getProbeOffset();
+
+	/**
+	 * Creates code that pushes the caller sets of the class
+	 * (<code>HashSet[]</code>) on the operand stack. Only called for methods
+	 * with chain handling after the probe array has been stored.
+	 *
+	 * @param mv
+	 *            visitor to create code
+	 * @param variable
+	 *            variable index of the probe array
+	 * @return maximum stack size required by the generated code
+	 */
+	int loadCalledFlags(MethodVisitor mv, int variable);
+
 	/**
 	 * Adds additional class members required by this strategy. This method is
 	 * called after all original members of the class has been processed.
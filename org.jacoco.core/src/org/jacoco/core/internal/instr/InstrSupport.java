@@ -111,7 +111,7 @@ public final class InstrSupport {
 
 	public static final String SET_CALLED_FLAG_METHOD_NAME = "setCalledFlags";
 
-	public static final String SET_CALLED_FLAG_METHOD_DESC = "(Ljava/util/HashSet;)V";
+	public static final String SET_CALLED_FLAG_METHOD_DESC = "([Ljava/util/HashSet;I)V";
 
 	public static final String ADD_CHAIN_NODE_METHOD_NAME = "addChainNode";
 
@@ -121,6 +121,25 @@ public final class InstrSupport {
 
 	public static final String SET_CALLED_NODE_METHOD_DESC = "(Ljava/lang/String;)V";
 
+	/**
+	 * 根据探针数组获取调用者集合的方法
+	 */
+	public static final String GET_CALLED_FLAGS_METHOD_NAME = "getCalledFlags";
+
+	public static final String GET_CALLED_FLAGS_METHOD_DESC = "([Z)[Ljava/util/HashSet;";
+
+	/**
+	 * 根据探针块、类标识和探针数量获取调用者集合的方法
+	 */
+	public static final String GET_SLAB_CALLED_FLAGS_METHOD_DESC = "([ZJI)[Ljava/util/HashSet;";
+
+	/**
+	 * 根据常量名称返回探针数组或者调用者集合的方法，由condy的引导方法调用
+	 */
+	public static final String GET_CONSTANT_METHOD_NAME = "getConstant";
+
+	public static final String GET_CONSTANT_METHOD_DESC = "([ZLjava/lang/String;)Ljava/lang/Object;";
+
 	/**
 	 * Descriptor of the initialization method.
 	 */
@@ -132,6 +151,44 @@ public final class InstrSupport {
 	public static final int INITMETHOD_ACC = Opcodes.ACC_SYNTHETIC
 			| Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC;
 
+	/**
+	 * Name of the method which sets a probe and updates its caller set. It is
+	 * called by compact probes to keep small methods below the inlining limit
+	 * of the JIT compiler.
+	 */
+	public static final String HITMETHOD_NAME = "$jacocoHit";
+
+	/**
+	 * Descriptor of the hit method, the argument is the probe id.
+	 */
+	public static final String HITMETHOD_DESC = "(I)V";
+
+	/**
+	 * Name prefix of the methods which call the chain hook at the entry of a
+	 * method with compact probes. The index of the method within the class is
+	 * appended.
+	 */
+	public static final String ENTERMETHOD_PREFIX = "$jacocoEnter$";
+
+	/**
+	 * Name prefix of the methods which call the chain hook at the exits of a
+	 * method with compact probes. The index of the method within the class is
+	 * appended.
+	 */
+	public static final String EXITMETHOD_PREFIX = "$jacocoExit$";
+
+	/**
+	 * Descriptor of the chain hook methods of methods with compact probes.
+	 */
+	public static final String CHAINHOOKMETHOD_DESC = "()V";
+
+	/**
+	 * Probe count passed to the runtime by the trampoline of classes with
+	 * deferred instrumentation to signal that the class has been activated.
+	 * No probe array is requested in this case.
+	 */
+	public static final int ACTIVATION_PROBECOUNT = -1;
+
 	/**
 	 * Name of the interface initialization method.
 	 *
@@ -225,6 +282,88 @@ public final class InstrSupport {
 		b[7] = (byte) majorVersion;
 	}
 
+	/**
+	 * Reads the VM name of the class from the given class file bytes. Only the
+	 * constant pool is scanned, no {@link ClassReader} is created. This allows
+	 * cheap filtering of class files before they are parsed.
+	 *
+	 * @param b
+	 *            bytes of class
+	 * @return VM name of the class
+	 * @throws IllegalArgumentException
+	 *             if the constant pool contains unknown entries
+	 */
+	public static String getClassName(final byte[] b) {
+		final int count = readUnsignedShort(b, 8);
+		final int[] offsets = new int[count];
+		int offset = 10;
+		for (int i = 1; i < count; i++) {
+			offsets[i] = offset + 1;
+			switch (b[offset]) {
+			case 1: // Utf8
+				offset += 3 + readUnsignedShort(b, offset + 1);
+				break;
+			case 5: // Long
+			case 6: // Double
+				offset += 9;
+				i++;
+				break;
+			case 7: // Class
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				offset += 3;
+				break;
+			case 15: // MethodHandle
+				offset += 4;
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				offset += 5;
+				break;
+			default:
+				throw new IllegalArgumentException(
+						format("Unknown constant pool tag %s.",
+								Integer.valueOf(b[offset])));
+			}
+		}
+		// access_flags, this_class
+		final int classIndex = readUnsignedShort(b, offset + 2);
+		final int utf8 = offsets[readUnsignedShort(b, offsets[classIndex])];
+		return readUtf8(b, utf8 + 2, readUnsignedShort(b, utf8));
+	}
+
+	private static int readUnsignedShort(final byte[] b, final int offset) {
+		return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+	}
+
+	private static String readUtf8(final byte[] b, int offset,
+			final int length) {
+		final int end = offset + length;
+		final char[] chars = new char[length];
+		int len = 0;
+		while (offset < end) {
+			final int c = b[offset++];
+			if ((c & 0x80) == 0) {
+				chars[len++] = (char) (c & 0x7F);
+			} else if ((c & 0xE0) == 0xC0) {
+				chars[len++] = (char) (((c & 0x1F) << 6)
+						+ (b[offset++] & 0x3F));
+			} else {
+				chars[len++] = (char) (((c & 0xF) << 12)
+						+ ((b[offset++] & 0x3F) << 6) + (b[offset++] & 0x3F));
+			}
+		}
+		return new String(chars, 0, len);
+	}
+
 	/**
 	 * Gets major version number from given {@link ClassReader}.
 	 *
@@ -297,6 +436,25 @@ public final class InstrSupport {
 		}
 	}
 
+	/**
+	 * Generates the call of a chain handling method of
+	 * {@link #CHAIN_HANDLE_CLASSNAME} with the given method uri.
+	 *
+	 * @param mv
+	 *            visitor to emit the instructions
+	 * @param name
+	 *            name of the chain handling method, e.g.
+	 *            {@link #ADD_CHAIN_NODE_METHOD_NAME}
+	 * @param uri
+	 *            unique identifier of the instrumented method
+	 */
+	public static void invokeChainHandle(final MethodVisitor mv,
+			final String name, final String uri) {
+		mv.visitLdcInsn(uri);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, CHAIN_HANDLE_CLASSNAME, name,
+				"(Ljava/lang/String;)V", false);
+	}
+
 	/**
 	 * Creates a {@link ClassReader} instance for given bytes of class even if
 	 * its version not yet supported by ASM.
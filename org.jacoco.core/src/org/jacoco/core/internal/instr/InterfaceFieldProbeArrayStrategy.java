@@ -21,7 +21,9 @@ import org.objectweb.asm.Opcodes;
 /**
  * This strategy for Java 8 interfaces adds a static method requesting the probe
  * array from the runtime, a static field to hold the probe array and adds code
- * for its initialization into interface initialization method.
+ * for its initialization into interface initialization method. The caller sets
+ * are resolved once in the interface initialization method as well and kept in
+ * a second static field.
  */
 class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
@@ -31,6 +33,12 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 	private static final Object[] FRAME_STACK_ARRZ = new Object[] {
 			InstrSupport.DATAFIELD_DESC };
 
+	/**
+	 * Frame stack with a single array of caller sets.
+	 */
+	private static final Object[] FRAME_STACK_SETS = new Object[] {
+			InstrSupport.SET_DATA_FIELD_DESC };
+
 	/**
 	 * Empty frame locals.
 	 */
@@ -70,8 +78,13 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 			// Stack[0]: [Z
 
+			mv.visitInsn(Opcodes.DUP);
 			mv.visitVarInsn(Opcodes.ASTORE, variable);
 
+			// Stack[0]: [Z
+
+			storeCalledFlags(mv);
+
 			seenClinit = true;
 			return Math.max(maxStack, 2);
 		} else {
@@ -85,20 +98,49 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 	public void addMembers(final ClassVisitor cv, final int probeCount) {
 		createDataField(cv);
+		createSetDataField(cv);
 		createInitMethod(cv, probeCount);
+		createSetInitMethod(cv);
 		if (!seenClinit) {
 			createClinitMethod(cv, probeCount);
 		}
 	}
 
-	@Override
-	public void callChainHandleMethod(MethodVisitor mv, String uri) {
+	public void callChainHandleMethod(final MethodVisitor mv,
+			final String uri) {
+		InstrSupport.invokeChainHandle(mv,
+				InstrSupport.ADD_CHAIN_NODE_METHOD_NAME, uri);
+	}
 
+	public void SetCalledNodeMethod(final MethodVisitor mv, final String uri) {
+		InstrSupport.invokeChainHandle(mv,
+				InstrSupport.SET_CALLED_NODE_METHOD_NAME, uri);
 	}
 
-	@Override
-	public void SetCalledNodeMethod(MethodVisitor mv, String uri) {
+	public int getProbeOffset() {
+		return 0;
+	}
+
+	public int loadCalledFlags(final MethodVisitor mv, final int variable) {
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
+				InstrSupport.INITSETMETHOD_NAME,
+				InstrSupport.INITSETMETHOD_DESC, true);
+		return 1;
+	}
 
+	/**
+	 * Resolves the caller sets for the probe array on the stack and stores
+	 * them in the static field. Interface fields are final, so this is only
+	 * valid in the interface initialization method.
+	 */
+	private void storeCalledFlags(final MethodVisitor mv) {
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+				InstrSupport.CHAIN_HANDLE_CLASSNAME,
+				InstrSupport.GET_CALLED_FLAGS_METHOD_NAME,
+				InstrSupport.GET_CALLED_FLAGS_METHOD_DESC, false);
+		mv.visitFieldInsn(Opcodes.PUTSTATIC, className,
+				InstrSupport.SET_DATA_FIELD_NAME,
+				InstrSupport.SET_DATA_FIELD_DESC);
 	}
 
 	private void createDataField(final ClassVisitor cv) {
@@ -107,6 +149,55 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 				null);
 	}
 
+	private void createSetDataField(final ClassVisitor cv) {
+		cv.visitField(InstrSupport.DATAFIELD_INTF_ACC,
+				InstrSupport.SET_DATA_FIELD_NAME,
+				InstrSupport.SET_DATA_FIELD_DESC, null, null);
+	}
+
+	private void createSetInitMethod(final ClassVisitor cv) {
+		final MethodVisitor mv = cv.visitMethod(InstrSupport.INITMETHOD_ACC,
+				InstrSupport.INITSETMETHOD_NAME,
+				InstrSupport.INITSETMETHOD_DESC, null, null);
+		mv.visitCode();
+
+		// Load the value of the static set field:
+		mv.visitFieldInsn(Opcodes.GETSTATIC, className,
+				InstrSupport.SET_DATA_FIELD_NAME,
+				InstrSupport.SET_DATA_FIELD_DESC);
+		mv.visitInsn(Opcodes.DUP);
+
+		// Stack[1]: [Ljava/util/HashSet;
+		// Stack[0]: [Ljava/util/HashSet;
+
+		// Skip the lookup when the interface is initialized:
+		final Label alreadyInitialized = new Label();
+		mv.visitJumpInsn(Opcodes.IFNONNULL, alreadyInitialized);
+
+		// Stack[0]: [Ljava/util/HashSet;
+
+		// Only code executed during the interface initialization gets here:
+		mv.visitInsn(Opcodes.POP);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
+				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
+				true);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+				InstrSupport.CHAIN_HANDLE_CLASSNAME,
+				InstrSupport.GET_CALLED_FLAGS_METHOD_NAME,
+				InstrSupport.GET_CALLED_FLAGS_METHOD_DESC, false);
+
+		// Stack[0]: [Ljava/util/HashSet;
+
+		// Return the interface' caller sets:
+		mv.visitFrame(Opcodes.F_NEW, 0, FRAME_LOCALS_EMPTY, 1,
+				FRAME_STACK_SETS);
+		mv.visitLabel(alreadyInitialized);
+		mv.visitInsn(Opcodes.ARETURN);
+
+		mv.visitMaxs(2, 0); // Maximum local stack size is 2
+		mv.visitEnd();
+	}
+
 	private void createInitMethod(final ClassVisitor cv, final int probeCount) {
 		final MethodVisitor mv = cv.visitMethod(InstrSupport.INITMETHOD_ACC,
 				InstrSupport.INITMETHOD_NAME, InstrSupport.INITMETHOD_DESC,
@@ -154,12 +245,17 @@ class InterfaceFieldProbeArrayStrategy implements IProbeArrayStrategy {
 
 		// Stack[0]: [Z
 
+		mv.visitInsn(Opcodes.DUP);
 		mv.visitFieldInsn(Opcodes.PUTSTATIC, className,
 				InstrSupport.DATAFIELD_NAME, InstrSupport.DATAFIELD_DESC);
 
+		// Stack[0]: [Z
+
+		storeCalledFlags(mv);
+
 		mv.visitInsn(Opcodes.RETURN);
 
-		mv.visitMaxs(maxStack, 0);
+		mv.visitMaxs(Math.max(maxStack, 2), 0);
 		mv.visitEnd();
 	}
 
@@ -51,14 +51,24 @@ class LocalProbeArrayStrategy implements IProbeArrayStrategy {
 		// nothing to do
 	}
 
-	@Override
-	public void callChainHandleMethod(MethodVisitor mv, String uri) {
+	public void callChainHandleMethod(final MethodVisitor mv,
+			final String uri) {
+		InstrSupport.invokeChainHandle(mv,
+				InstrSupport.ADD_CHAIN_NODE_METHOD_NAME, uri);
+	}
 
+	public void SetCalledNodeMethod(final MethodVisitor mv, final String uri) {
+		InstrSupport.invokeChainHandle(mv,
+				InstrSupport.SET_CALLED_NODE_METHOD_NAME, uri);
 	}
 
-	@Override
-	public void SetCalledNodeMethod(MethodVisitor mv, String uri) {
+	public int getProbeOffset() {
+		return 0;
+	}
 
+	public int loadCalledFlags(final MethodVisitor mv, final int variable) {
+		// Only static initializers use this strategy, they record no callers:
+		throw new UnsupportedOperationException();
 	}
 
 }
@@ -26,6 +26,14 @@ class NoneProbeArrayStrategy implements IProbeArrayStrategy {
 		throw new UnsupportedOperationException();
 	}
 
+	public int getProbeOffset() {
+		return 0;
+	}
+
+	public int loadCalledFlags(final MethodVisitor mv, final int variable) {
+		throw new UnsupportedOperationException();
+	}
+
 	public void addMembers(final ClassVisitor delegate, final int probeCount) {
 		// nothing to do
 	}
@@ -14,6 +14,7 @@ package org.jacoco.core.internal.instr;
 
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.jacoco.core.runtime.ProbeSlab;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 
@@ -42,6 +43,32 @@ public final class ProbeArrayStrategyFactory {
 	public static IProbeArrayStrategy createFor(final long classId,
 			final ClassReader reader,
 			final IExecutionDataAccessorGenerator accessorGenerator) {
+		return createFor(classId, reader, accessorGenerator, null);
+	}
+
+	/**
+	 * Creates a suitable strategy instance for the class described by the given
+	 * reader. If a slab is given the probes of regular classes are stored in
+	 * a range of the slab reserved for the class. Interfaces always get a
+	 * probe array of their own. Created instance must be used only to process
+	 * a class or interface for which it has been created and must be used only
+	 * once.
+	 *
+	 * @param classId
+	 *            class identifier
+	 * @param reader
+	 *            reader to get information about the class
+	 * @param accessorGenerator
+	 *            accessor to the coverage runtime
+	 * @param slab
+	 *            slab to reserve the probes of regular classes in or
+	 *            <code>null</code>
+	 * @return strategy instance
+	 */
+	public static IProbeArrayStrategy createFor(final long classId,
+			final ClassReader reader,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final ProbeSlab slab) {
 
 		final String className = reader.getClassName();
 		final int version = InstrSupport.getMajorVersion(reader);
@@ -63,6 +90,12 @@ public final class ProbeArrayStrategyFactory {
 						counter.getCount(), accessorGenerator);
 			}
 		} else {
+			if (slab != null) {
+				final int offset = slab.reserve(classId, className,
+						getProbeCounter(reader).getCount());
+				return new SlabProbeArrayStrategy(className, classId, offset,
+						InstrSupport.needsFrames(version), accessorGenerator);
+			}
 			if (version >= Opcodes.V11) {
 				return new CondyProbeArrayStrategy(className, false, classId,
 						accessorGenerator);
@@ -49,6 +49,15 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 
 	private boolean isNotAddChain;
 
+	/**
+	 * <code>true</code> if probes call the hit method of the class instead of
+	 * accessing the probe array from a local variable.
+	 */
+	private boolean compact;
+
+	/** Index of the chain hook methods of this method in compact mode */
+	private int compactIndex;
+
 	/**
 	 * Creates a new {@link ProbeInserter}.
 	 *
@@ -95,8 +104,39 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 		this.className = className;
 	}
 
+	/**
+	 * Inserts all probes of this method as calls to the hit method of the
+	 * class, which sets the probe and updates the caller set. The chain hooks
+	 * at the entry and the exits of the method call the chain hook methods of
+	 * the class with the given index. This keeps the code of small methods
+	 * below the inlining limit of the JIT compiler. No local variable is added
+	 * in this mode. Must be called before the code of the method is visited
+	 * and only for methods with chain handling.
+	 *
+	 * @param index
+	 *            index of the chain hook methods of this method
+	 */
+	void setCompact(final int index) {
+		this.compact = true;
+		this.compactIndex = index;
+	}
+
+	private void invokeChainHook(final String prefix) {
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
+				prefix + compactIndex, InstrSupport.CHAINHOOKMETHOD_DESC,
+				false);
+	}
+
 	public void insertProbe(final int id) {
 
+		if (compact) {
+			InstrSupport.push(mv, id);
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
+					InstrSupport.HITMETHOD_NAME, InstrSupport.HITMETHOD_DESC,
+					false);
+			return;
+		}
+
 		// For a probe we set the corresponding position in the boolean[] array
 		// to true.
 
@@ -104,7 +144,7 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 
 		// Stack[0]: [Z
 
-		InstrSupport.push(mv, id);
+		InstrSupport.push(mv, arrayStrategy.getProbeOffset() + id);
 
 		// Stack[1]: I
 		// Stack[0]: [Z
@@ -126,15 +166,7 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 		if (isNotAddChain) {
 			return;
 		}
-		// mv.visitVarInsn(Opcodes.ALOAD, variable - 1); //
-		// 因为我把$jacocoFlagSets变量存储在variable-1
-		// 这个slot位置
-		/**
-		 * 不使用上面那种从局部变量表中读取了 因为在压入变量表的时候，容易出现问题，所以直接通过调用jacocoSetInit方法获取set[]
-		 */
-		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
-				InstrSupport.INITSETMETHOD_NAME,
-				InstrSupport.INITSETMETHOD_DESC, false);
+		arrayStrategy.loadCalledFlags(mv, variable);
 
 		// Stack[0]: [Ljava/util/HashSet
 
@@ -143,10 +175,6 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 		// Stack[1]: I
 		// Stack[0]: [Ljava/util/HashSet
 
-		mv.visitInsn(Opcodes.AALOAD);
-
-		// Stack[0]: Ljava/util/HashSet
-
 		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
 				InstrSupport.CHAIN_HANDLE_CLASSNAME,
 				InstrSupport.SET_CALLED_FLAG_METHOD_NAME,
@@ -157,11 +185,16 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 	@Override
 	public void visitCode() {
 		// 构造函数过滤掉
-		if (!isNotAddChain) {
-			// 插入调用链路相关代码
-			arrayStrategy.callChainHandleMethod(mv, uri);
+		if (compact) {
+			invokeChainHook(InstrSupport.ENTERMETHOD_PREFIX);
+		} else {
+			if (!isNotAddChain) {
+				// 插入调用链路相关代码
+				arrayStrategy.callChainHandleMethod(mv, uri);
+			}
+			accessorStackSize = arrayStrategy.storeInstance(mv, clinit,
+					variable);
 		}
-		accessorStackSize = arrayStrategy.storeInstance(mv, clinit, variable);
 		/**
 		 * 为了处理init方法中不添加set数组，暂时这么处理一下看看
 		 */
@@ -184,9 +217,10 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 		case Opcodes.ARETURN:
 		case Opcodes.RETURN:
 		case Opcodes.ATHROW:
-			// 构造函数过滤掉
-			if (!isNotAddChain) {
-				// 插入调用链路相关代码
+			if (compact) {
+				invokeChainHook(InstrSupport.EXITMETHOD_PREFIX);
+			} else if (!isNotAddChain) {
+				// 构造函数过滤掉，插入调用链路相关代码
 				arrayStrategy.SetCalledNodeMethod(mv, uri);
 			}
 			super.visitInsn(opcode);
@@ -223,6 +257,11 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 
 	@Override
 	public void visitMaxs(final int maxStack, final int maxLocals) {
+		if (compact) {
+			// Probes and chain hooks push a single value only
+			mv.visitMaxs(maxStack + 1, maxLocals);
+			return;
+		}
 		// Max stack size of the probe code is 3 which can add to the
 		// original stack size depending on the probe locations. The accessor
 		// stack size is an absolute maximum, as the accessor code is inserted
@@ -232,7 +271,7 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 	}
 
 	private int map(final int var) {
-		if (var < variable) {
+		if (compact || var < variable) {
 			return var;
 		} else {
 			return var + 1;
@@ -248,6 +287,11 @@ class ProbeInserter extends MethodVisitor implements IProbeInserter {
 					"ClassReader.accept() should be called with EXPAND_FRAMES flag");
 		}
 
+		if (compact) {
+			mv.visitFrame(type, nLocal, local, nStack, stack);
+			return;
+		}
+
 		final Object[] newLocal = new Object[Math.max(nLocal, variable) + 1];
 		int idx = 0; // Arrays index for existing locals
 		int newIdx = 0; // Array index for new locals
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * The strategy for regular classes whose probes are stored in a chunk of a
+ * {@link org.jacoco.core.runtime.ProbeSlab}. Like
+ * {@link ClassFieldProbeArrayStrategy} it adds a static field and a static
+ * initialization method, but the field holds the chunk which is shared with
+ * other classes. Probes are stored at the offset reserved for the class.
+ */
+class SlabProbeArrayStrategy extends ClassFieldProbeArrayStrategy {
+
+	private final long classId;
+
+	private final int offset;
+
+	SlabProbeArrayStrategy(final String className, final long classId,
+			final int offset, final boolean withFrames,
+			final IExecutionDataAccessorGenerator accessorGenerator) {
+		super(className, classId, withFrames, accessorGenerator);
+		this.classId = classId;
+		this.offset = offset;
+	}
+
+	@Override
+	public int getProbeOffset() {
+		return offset;
+	}
+
+	@Override
+	int genGetCalledFlags(final MethodVisitor mv, final int probeCount) {
+		// The chunk can't identify the class, so its id is passed along:
+		mv.visitLdcInsn(Long.valueOf(classId));
+		InstrSupport.push(mv, probeCount);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+				InstrSupport.CHAIN_HANDLE_CLASSNAME,
+				InstrSupport.GET_CALLED_FLAGS_METHOD_NAME,
+				InstrSupport.GET_SLAB_CALLED_FLAGS_METHOD_DESC, false);
+		return 4;
+	}
+
+}
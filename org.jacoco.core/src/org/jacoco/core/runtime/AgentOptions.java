@@ -183,6 +183,69 @@ public final class AgentOptions {
 	 */
 	public static final String CLASSDUMPDIR = "classdumpdir";
 
+	/**
+	 * Specifies whether the dumped class files are written to one ZIP archive
+	 * per JVM in the dump directory instead of separate files. Default is
+	 * <code>false</code>.
+	 */
+	public static final String CLASSDUMPARCHIVE = "classdumparchive";
+
+	/**
+	 * Specifies a directory where the agent caches instrumented classes across
+	 * JVM runs. The location is specified as a relative path to the working
+	 * directory. Default is <code>null</code> (no cache).
+	 */
+	public static final String CLASSCACHEDIR = "classcachedir";
+
+	/**
+	 * Specifies the maximum size of the class cache directory in megabytes.
+	 * Default is defined by {@link #DEFAULT_CLASSCACHESIZE}.
+	 */
+	public static final String CLASSCACHESIZE = "classcachesize";
+
+	/**
+	 * Default value for the "classcachesize" agent option.
+	 */
+	public static final int DEFAULT_CLASSCACHESIZE = 256;
+
+	/**
+	 * Specifies whether the instrumentation of classes is deferred until they
+	 * are initialized for the first time. Classes are then loaded with a
+	 * trampoline only and fully instrumented through retransformation. Default
+	 * is <code>false</code>.
+	 */
+	public static final String LAZY = "lazy";
+
+	/**
+	 * Specifies the maximum bytecode size of methods inlined by the JIT
+	 * compiler. Methods which would exceed this size only because of the
+	 * instrumentation get compact probes. Default is <code>0</code> (all
+	 * methods get regular probes).
+	 */
+	public static final String INLINESIZE = "inlinesize";
+
+	/**
+	 * Specifies whether coverage recording can be turned on and off at
+	 * runtime via JMX or the TCP protocol. Classes are then loaded in a form
+	 * which can be switched through retransformation. Default is
+	 * <code>false</code>.
+	 */
+	public static final String RETRANSFORM = "retransform";
+
+	/**
+	 * Specifies whether the probes of regular classes are stored in a few large
+	 * shared arrays instead of a separate array per class. This reduces the
+	 * number of objects on the heap for applications with many classes.
+	 * Default is <code>false</code>.
+	 */
+	public static final String PROBESLAB = "probeslab";
+
+	/**
+	 * Specifies whether coverage is recorded from the start if it can be
+	 * turned on and off at runtime. Default is <code>true</code>.
+	 */
+	public static final String ENABLED = "enabled";
+
 	/**
 	 * Specifies whether the agent should expose functionality via JMX under the
 	 * name "org.jacoco:type=Runtime". Default is <code>false</code>.
@@ -196,7 +259,9 @@ public final class AgentOptions {
 	private static final Collection<String> VALID_OPTIONS = Arrays.asList(
 			DESTFILE, APPEND, INCLUDES, EXCLUDES, EXCLCLASSLOADER,
 			INCLBOOTSTRAPCLASSES, INCLNOLOCATIONCLASSES, SESSIONID, DUMPONEXIT,
-			OUTPUT, ADDRESS, PORT, CLASSDUMPDIR, JMX, BRANCHNAME, COMMITID);
+			OUTPUT, ADDRESS, PORT, CLASSDUMPDIR, CLASSDUMPARCHIVE, CLASSCACHEDIR,
+			CLASSCACHESIZE, LAZY, INLINESIZE, RETRANSFORM, PROBESLAB, ENABLED,
+			JMX, BRANCHNAME, COMMITID);
 
 	private final Map<String, String> options;
 
@@ -542,6 +607,168 @@ public final class AgentOptions {
 		setOption(CLASSDUMPDIR, location);
 	}
 
+	/**
+	 * Returns whether dumped class files are written to a single ZIP archive.
+	 *
+	 * @return <code>true</code>, when class files are dumped to an archive
+	 */
+	public boolean getClassDumpArchive() {
+		return getOption(CLASSDUMPARCHIVE, false);
+	}
+
+	/**
+	 * Sets whether dumped class files are written to a single ZIP archive.
+	 *
+	 * @param archive
+	 *            <code>true</code> if class files should be dumped to an
+	 *            archive
+	 */
+	public void setClassDumpArchive(final boolean archive) {
+		setOption(CLASSDUMPARCHIVE, archive);
+	}
+
+	/**
+	 * Returns the location of the directory where instrumented classes are
+	 * cached.
+	 *
+	 * @return cache location or <code>null</code> (no cache)
+	 */
+	public String getClassCacheDir() {
+		return getOption(CLASSCACHEDIR, null);
+	}
+
+	/**
+	 * Sets the directory where instrumented classes are cached.
+	 *
+	 * @param location
+	 *            cache location or <code>null</code> (no cache)
+	 */
+	public void setClassCacheDir(final String location) {
+		setOption(CLASSCACHEDIR, location);
+	}
+
+	/**
+	 * Returns the maximum size of the class cache directory.
+	 *
+	 * @return maximum size in megabytes
+	 */
+	public int getClassCacheSize() {
+		return getOption(CLASSCACHESIZE, DEFAULT_CLASSCACHESIZE);
+	}
+
+	/**
+	 * Sets the maximum size of the class cache directory.
+	 *
+	 * @param size
+	 *            maximum size in megabytes
+	 */
+	public void setClassCacheSize(final int size) {
+		setOption(CLASSCACHESIZE, size);
+	}
+
+	/**
+	 * Returns whether the instrumentation of classes is deferred until they
+	 * are initialized.
+	 *
+	 * @return <code>true</code>, when instrumentation is deferred
+	 */
+	public boolean getLazy() {
+		return getOption(LAZY, false);
+	}
+
+	/**
+	 * Sets whether the instrumentation of classes should be deferred until
+	 * they are initialized.
+	 *
+	 * @param lazy
+	 *            <code>true</code> if instrumentation should be deferred
+	 */
+	public void setLazy(final boolean lazy) {
+		setOption(LAZY, lazy);
+	}
+
+	/**
+	 * Returns the maximum bytecode size of methods inlined by the JIT
+	 * compiler.
+	 *
+	 * @return maximum size in bytes or <code>0</code> if disabled
+	 */
+	public int getInlineSize() {
+		return getOption(INLINESIZE, 0);
+	}
+
+	/**
+	 * Sets the maximum bytecode size of methods inlined by the JIT compiler
+	 * which should be kept for instrumented methods.
+	 *
+	 * @param size
+	 *            maximum size in bytes or <code>0</code> to disable
+	 */
+	public void setInlineSize(final int size) {
+		setOption(INLINESIZE, size);
+	}
+
+	/**
+	 * Returns whether coverage recording can be turned on and off at runtime.
+	 *
+	 * @return <code>true</code>, when classes can be retransformed
+	 */
+	public boolean getRetransform() {
+		return getOption(RETRANSFORM, false);
+	}
+
+	/**
+	 * Sets whether coverage recording can be turned on and off at runtime.
+	 *
+	 * @param retransform
+	 *            <code>true</code> if classes should be loaded in a form which
+	 *            can be switched through retransformation
+	 */
+	public void setRetransform(final boolean retransform) {
+		setOption(RETRANSFORM, retransform);
+	}
+
+	/**
+	 * Returns whether the probes of regular classes are stored in shared
+	 * arrays.
+	 *
+	 * @return <code>true</code>, when probes are stored in shared arrays
+	 */
+	public boolean getProbeSlab() {
+		return getOption(PROBESLAB, false);
+	}
+
+	/**
+	 * Sets whether the probes of regular classes are stored in shared arrays.
+	 *
+	 * @param probeSlab
+	 *            <code>true</code> if probes should be stored in shared arrays
+	 */
+	public void setProbeSlab(final boolean probeSlab) {
+		setOption(PROBESLAB, probeSlab);
+	}
+
+	/**
+	 * Returns whether coverage is recorded from the start if it can be turned
+	 * on and off at runtime.
+	 *
+	 * @return <code>true</code>, when coverage is initially recorded
+	 */
+	public boolean getEnabled() {
+		return getOption(ENABLED, true);
+	}
+
+	/**
+	 * Sets whether coverage is recorded from the start if it can be turned on
+	 * and off at runtime.
+	 *
+	 * @param enabled
+	 *            <code>true</code> if coverage should initially be recorded
+	 */
+	public void setEnabled(final boolean enabled) {
+		setOption(ENABLED, enabled);
+	}
+
 	/**
 	 * Returns whether the agent exposes functionality via JMX.
 	 *
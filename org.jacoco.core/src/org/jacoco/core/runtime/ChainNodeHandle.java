@@ -13,10 +13,17 @@
 package org.jacoco.core.runtime;
 
 import org.jacoco.core.data.ChainNode;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.internal.instr.InstrSupport;
 
+import java.lang.ref.WeakReference;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class ChainNodeHandle {
@@ -29,6 +36,17 @@ public class ChainNodeHandle {
 	private static final ThreadLocal<ChainNode> calledNode = new ThreadLocal<>();
 	private static final ThreadLocal<ChainNode> tailNode = new ThreadLocal<>();
 
+	/**
+	 * 按探针数组查找类的执行数据，每个类只在初始化时查找一次调用者集合。数组没有重写equals和
+	 * hashCode，所以按对象身份比较；键和值都是弱引用，不会阻止已丢弃的执行数据被回收
+	 */
+	private static final Map<boolean[], WeakReference<ExecutionData>> executionData = new WeakHashMap<>();
+
+	/**
+	 * 按块数组查找探针块，块由多个类共享，所以调用者集合按类标识查找
+	 */
+	private static final Map<boolean[], WeakReference<ProbeSlab>> slabs = new WeakHashMap<>();
+
 	public static void addChainNode(String uri) {
 		// System.out.println(">>>> add chain node, uri: " + uri + " <<<<");
 		ChainNode currentNode = new ChainNode();
@@ -94,18 +112,271 @@ public class ChainNodeHandle {
 
 	}
 
+	/**
+	 * Records the caller of the current method in the given set. Called by
+	 * classes instrumented with earlier versions.
+	 *
+	 * @param set
+	 *            caller set of the executed probe
+	 */
 	public static void setCalledFlags(HashSet set) {
 		setCalledFlagsLock.lock();
 		try {
-			if (Objects.isNull(tailNode.get())
-					|| Objects.isNull(tailNode.get().getCalledNode())
-					|| Objects.isNull(tailNode.get().getCalledNode().getUri())
-					|| tailNode.get().getCalledNode().getUri().equals("")) {
+			final String uri = getCallerUri();
+			if (uri == null) {
 				return;
 			}
-			set.add(tailNode.get().getCalledNode().getUri());
+			set.add(uri);
 		} finally {
 			setCalledFlagsLock.unlock();
 		}
 	}
+
+	/**
+	 * Records the caller of the current method for the given probe. The set of
+	 * the probe is created with the first caller, so probes which are never
+	 * executed within a call chain don't allocate any set.
+	 *
+	 * @param sets
+	 *            caller sets of the class
+	 * @param probe
+	 *            index of the executed probe
+	 */
+	public static void setCalledFlags(final HashSet[] sets, final int probe) {
+		setCalledFlagsLock.lock();
+		try {
+			final String uri = getCallerUri();
+			if (uri == null) {
+				return;
+			}
+			HashSet set = sets[probe];
+			if (set == null) {
+				set = new HashSet();
+				sets[probe] = set;
+			}
+			set.add(uri);
+		} finally {
+			setCalledFlagsLock.unlock();
+		}
+	}
+
+	private static String getCallerUri() {
+		if (Objects.isNull(tailNode.get())
+				|| Objects.isNull(tailNode.get().getCalledNode())
+				|| Objects.isNull(tailNode.get().getCalledNode().getUri())
+				|| tailNode.get().getCalledNode().getUri().equals("")) {
+			return null;
+		}
+		return tailNode.get().getCalledNode().getUri();
+	}
+
+	/**
+	 * Returns the caller sets of the class with the given probe array. The
+	 * array is created with the first access, the sets of the single probes
+	 * with their first caller. For probe arrays which have not been
+	 * handed out by a {@link RuntimeData} instance new sets are returned which
+	 * are not recorded. Instrumented classes call this method once and keep
+	 * the result, it must not be called for every executed probe.
+	 *
+	 * @param probes
+	 *            probe array of the class
+	 * @return caller set for every probe of the class
+	 */
+	public static HashSet[] getCalledFlags(final boolean[] probes) {
+		synchronized (executionData) {
+			final WeakReference<ExecutionData> ref = executionData.get(probes);
+			final ExecutionData data = ref == null ? null : ref.get();
+			if (data == null) {
+				return new HashSet[probes.length];
+			}
+			return getCalledFlags(data);
+		}
+	}
+
+	/**
+	 * Returns the caller sets of a class whose probes are stored in a chunk of
+	 * a {@link ProbeSlab}. The array is created with the first access, the
+	 * sets of the single probes with their first caller. For chunks which have
+	 * not been handed out by a {@link ProbeSlab} new sets are returned which
+	 * are not recorded. Instrumented classes call this method once and keep
+	 * the result.
+	 *
+	 * @param chunk
+	 *            chunk containing the probes of the class
+	 * @param classId
+	 *            class identifier
+	 * @param probeCount
+	 *            probe count of the class
+	 * @return caller set for every probe of the class
+	 */
+	public static HashSet[] getCalledFlags(final boolean[] chunk,
+			final long classId, final int probeCount) {
+		final ProbeSlab slab;
+		synchronized (executionData) {
+			final WeakReference<ProbeSlab> ref = slabs.get(chunk);
+			slab = ref == null ? null : ref.get();
+		}
+		final HashSet[] calledFlags = slab == null ? null
+				: slab.getCalledFlags(classId);
+		return calledFlags == null ? new HashSet[probeCount] : calledFlags;
+	}
+
+	/**
+	 * Returns the value of a dynamic constant of an instrumented class. The
+	 * constant {@link InstrSupport#DATAFIELD_NAME} is the probe array itself,
+	 * any other constant the caller sets of the class.
+	 *
+	 * @param probes
+	 *            probe array of the class
+	 * @param name
+	 *            name of the dynamic constant
+	 * @return probe array or caller sets
+	 */
+	public static Object getConstant(final boolean[] probes,
+			final String name) {
+		if (InstrSupport.DATAFIELD_NAME.equals(name)) {
+			return probes;
+		}
+		return getCalledFlags(probes);
+	}
+
+	/**
+	 * Returns the caller sets of the given execution data and creates them if
+	 * required.
+	 *
+	 * @param data
+	 *            execution data of a class
+	 * @return caller set for every probe of the class
+	 */
+	static HashSet[] getCalledFlags(final ExecutionData data) {
+		synchronized (executionData) {
+			HashSet[] calledFlags = data.getCalledFlags();
+			if (calledFlags == null) {
+				calledFlags = new HashSet[data.getProbes().length];
+				data.setCalledFlags(calledFlags);
+			}
+			return calledFlags;
+		}
+	}
+
+	/**
+	 * Returns the caller sets of the given execution data with a set for every
+	 * probe. Classes instrumented with earlier versions load the set of a probe
+	 * and pass it to {@link #setCalledFlags(HashSet)}, so no element may be
+	 * <code>null</code>.
+	 *
+	 * @param data
+	 *            execution data of a class
+	 * @return caller set for every probe of the class
+	 */
+	static HashSet[] getFilledCalledFlags(final ExecutionData data) {
+		synchronized (executionData) {
+			final HashSet[] calledFlags = getCalledFlags(data);
+			setCalledFlagsLock.lock();
+			try {
+				for (int i = 0; i < calledFlags.length; i++) {
+					if (calledFlags[i] == null) {
+						calledFlags[i] = new HashSet();
+					}
+				}
+			} finally {
+				setCalledFlagsLock.unlock();
+			}
+			return calledFlags;
+		}
+	}
+
+	/**
+	 * Makes the caller sets of the given execution data available by its probe
+	 * array.
+	 *
+	 * @param data
+	 *            execution data of a class
+	 */
+	static void register(final ExecutionData data) {
+		synchronized (executionData) {
+			executionData.put(data.getProbes(),
+					new WeakReference<ExecutionData>(data));
+		}
+	}
+
+	/**
+	 * Makes the caller sets of the classes in the given chunk available by the
+	 * chunk array.
+	 *
+	 * @param slab
+	 *            slab the chunk belongs to
+	 * @param chunk
+	 *            chunk of the slab
+	 */
+	static void register(final ProbeSlab slab, final boolean[] chunk) {
+		synchronized (executionData) {
+			slabs.put(chunk, new WeakReference<ProbeSlab>(slab));
+		}
+	}
+
+	/**
+	 * Returns a copy of the recorded call chains.
+	 *
+	 * @return recorded call chains
+	 */
+	static Set<ChainNode> getChains() {
+		addChainLock.lock();
+		try {
+			return new HashSet<>(chainsSet);
+		} finally {
+			addChainLock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the recorded call chains which pass through one of the given
+	 * classes.
+	 *
+	 * @param classNames
+	 *            VM names of the classes
+	 * @return removed call chains
+	 */
+	static Set<ChainNode> removeChains(final Collection<String> classNames) {
+		final Set<ChainNode> removed = new HashSet<>();
+		addChainLock.lock();
+		try {
+			final Iterator<ChainNode> chains = chainsSet.iterator();
+			while (chains.hasNext()) {
+				final ChainNode chain = chains.next();
+				if (passes(chain, classNames)) {
+					removed.add(chain);
+					chains.remove();
+				}
+			}
+		} finally {
+			addChainLock.unlock();
+		}
+		return removed;
+	}
+
+	private static boolean passes(final ChainNode chain,
+			final Collection<String> classNames) {
+		for (ChainNode node = chain; node != null; node = node.getPreNode()) {
+			// The URI of a method is the VM class name, a dot and the method:
+			final String uri = node.getUri();
+			final int dot = uri.indexOf('.');
+			if (dot > 0 && classNames.contains(uri.substring(0, dot))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the given execution data from the lookup by probe array.
+	 *
+	 * @param data
+	 *            execution data of a class
+	 */
+	static void unregister(final ExecutionData data) {
+		synchronized (executionData) {
+			executionData.remove(data.getProbes());
+		}
+	}
 }
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Wildcard matcher with the same semantics as {@link WildcardMatcher} which
+ * compiles the expressions into lookup structures: Expressions without
+ * wildcards are kept in a hash set, pure prefix (<code>abc*</code>) and pure
+ * suffix (<code>*abc</code>) expressions are stored in character tries. Only
+ * expressions with other wildcard combinations are matched with a regular
+ * expression. This makes matching cost independent from the number of
+ * expressions for typical include and exclude lists of package names.
+ */
+public final class CompiledWildcardMatcher {
+
+	private final boolean matchAll;
+
+	private final Set<String> exact;
+
+	private final Trie prefixes;
+
+	private final Trie suffixes;
+
+	private final WildcardMatcher others;
+
+	/**
+	 * Creates a new matcher with the given expression.
+	 *
+	 * @param expression
+	 *            wildcard expressions, multiple expressions can be separated
+	 *            with a colon (:)
+	 */
+	public CompiledWildcardMatcher(final String expression) {
+		boolean all = false;
+		final Set<String> exactSet = new HashSet<String>();
+		final Trie prefixTrie = new Trie();
+		final Trie suffixTrie = new Trie();
+		final StringBuilder remaining = new StringBuilder();
+		for (final String part : expression.split("\\:")) {
+			final int wildcards = count(part, '*') + count(part, '?');
+			if (wildcards == 0) {
+				exactSet.add(part);
+			} else if (part.length() == 1 && wildcards == 1
+					&& part.charAt(0) == '*') {
+				all = true;
+			} else if (wildcards == 1 && part.charAt(part.length() - 1) == '*') {
+				prefixTrie.add(part, 0, part.length() - 1, false);
+			} else if (wildcards == 1 && part.charAt(0) == '*') {
+				suffixTrie.add(part, 1, part.length(), true);
+			} else {
+				if (remaining.length() > 0) {
+					remaining.append(':');
+				}
+				remaining.append(part);
+			}
+		}
+		this.matchAll = all;
+		this.exact = exactSet;
+		this.prefixes = prefixTrie.isEmpty() ? null : prefixTrie;
+		this.suffixes = suffixTrie.isEmpty() ? null : suffixTrie;
+		this.others = remaining.length() == 0 ? null
+				: new WildcardMatcher(remaining.toString());
+	}
+
+	private static int count(final String s, final char c) {
+		int count = 0;
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) == c) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Matches the given string against the expressions of this matcher.
+	 *
+	 * @param s
+	 *            string to test
+	 * @return <code>true</code>, if the expression matches
+	 */
+	public boolean matches(final String s) {
+		if (matchAll || exact.contains(s)) {
+			return true;
+		}
+		if (prefixes != null && prefixes.matchesPrefixOf(s)) {
+			return true;
+		}
+		if (suffixes != null && suffixes.matchesSuffixOf(s)) {
+			return true;
+		}
+		return others != null && others.matches(s);
+	}
+
+	/**
+	 * Character trie where every node may be marked as the end of an added
+	 * key. Children are kept in sorted arrays for compact storage.
+	 */
+	private static final class Trie {
+
+		private static final char[] NO_KEYS = new char[0];
+
+		private static final Trie[] NO_CHILDREN = new Trie[0];
+
+		private char[] keys = NO_KEYS;
+
+		private Trie[] children = NO_CHILDREN;
+
+		private boolean terminal;
+
+		boolean isEmpty() {
+			return !terminal && keys.length == 0;
+		}
+
+		void add(final String s, final int start, final int end,
+				final boolean reverse) {
+			Trie node = this;
+			for (int i = 0; i < end - start; i++) {
+				node = node.getOrCreate(
+						s.charAt(reverse ? end - 1 - i : start + i));
+			}
+			node.terminal = true;
+		}
+
+		private Trie getOrCreate(final char c) {
+			final int idx = Arrays.binarySearch(keys, c);
+			if (idx >= 0) {
+				return children[idx];
+			}
+			final int pos = -idx - 1;
+			final Trie child = new Trie();
+			final char[] newKeys = new char[keys.length + 1];
+			final Trie[] newChildren = new Trie[keys.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, pos);
+			System.arraycopy(children, 0, newChildren, 0, pos);
+			newKeys[pos] = c;
+			newChildren[pos] = child;
+			System.arraycopy(keys, pos, newKeys, pos + 1, keys.length - pos);
+			System.arraycopy(children, pos, newChildren, pos + 1,
+					keys.length - pos);
+			keys = newKeys;
+			children = newChildren;
+			return child;
+		}
+
+		private Trie get(final char c) {
+			final int idx = Arrays.binarySearch(keys, c);
+			return idx >= 0 ? children[idx] : null;
+		}
+
+		boolean matchesPrefixOf(final String s) {
+			Trie node = this;
+			for (int i = 0; !node.terminal; i++) {
+				if (i == s.length() || (node = node.get(s.charAt(i))) == null) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean matchesSuffixOf(final String s) {
+			Trie node = this;
+			for (int i = s.length() - 1; !node.terminal; i--) {
+				if (i < 0 || (node = node.get(s.charAt(i))) == null) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
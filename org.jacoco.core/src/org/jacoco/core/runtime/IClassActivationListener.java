@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+/**
+ * Callback for classes with deferred instrumentation which are initialized for
+ * the first time.
+ *
+ * @see org.jacoco.core.instr.Instrumenter#instrumentDeferred(byte[], String)
+ */
+public interface IClassActivationListener {
+
+	/**
+	 * Called from the static initializer of a class with deferred
+	 * instrumentation. The implementation is expected to replace the class
+	 * with its fully instrumented version.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name of the class
+	 */
+	void classActivated(long id, String name);
+
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+/**
+ * Switch to turn the instrumentation of an application on and off while it is
+ * running, e.g. by retransformation of the loaded classes.
+ *
+ * @see RuntimeData#setCoverageSwitch(ICoverageSwitch)
+ */
+public interface ICoverageSwitch {
+
+	/**
+	 * Turns coverage recording on or off. If coverage is turned off the
+	 * execution data of the affected classes is removed.
+	 *
+	 * @param enabled
+	 *            <code>true</code> to instrument the classes of the
+	 *            application
+	 */
+	void setEnabled(boolean enabled);
+
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import java.io.IOException;
+
+/**
+ * Interface for the command to turn coverage recording of a runtime on or off.
+ * Kept separate from {@link IRemoteCommandVisitor} so that existing
+ * implementations of that interface remain valid.
+ */
+public interface IRemoteCoverageCommandVisitor {
+
+	/**
+	 * Requests to turn coverage recording on or off. This is only supported
+	 * by agents which allow retransformation of classes. The runtime answers
+	 * with the coverage state and a confirmation.
+	 *
+	 * @param enabled
+	 *            <code>true</code> if coverage should be recorded
+	 * @throws IOException
+	 *             in case of problems with the remote connection
+	 */
+	void visitCoverageCommand(boolean enabled) throws IOException;
+
+}
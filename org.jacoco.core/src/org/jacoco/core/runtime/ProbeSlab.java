@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.internal.data.LongHashMap;
+
+/**
+ * Shared storage for the probes of many classes. Instead of a separate
+ * <code>boolean[]</code> per class the probes of a class are a range of a large
+ * chunk array. The range is reserved when the class is instrumented, so the
+ * instrumented code stores its probes at a constant offset into the chunk.
+ * Dumps copy the ranges of all initialized classes chunk by chunk and a reset
+ * clears whole chunks. All methods are thread safe.
+ *
+ * @see org.jacoco.core.instr.Instrumenter#setProbeSlab(ProbeSlab)
+ * @see RuntimeData#setProbeSlab(ProbeSlab)
+ */
+public class ProbeSlab {
+
+	/**
+	 * Default number of probes per chunk. Probe indices within such a chunk
+	 * fit into a <code>SIPUSH</code> instruction, so the instrumented code
+	 * needs no constant pool entries for them.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = Short.MAX_VALUE + 1;
+
+	private final int chunkSize;
+
+	private final List<boolean[]> chunks;
+
+	/** Ranges in the order of reservation, i.e. in chunk order */
+	private final List<Range> ranges;
+
+	private final LongHashMap<Range> rangesById;
+
+	private boolean[] current;
+
+	private int position;
+
+	/**
+	 * Creates a new slab with chunks of {@link #DEFAULT_CHUNK_SIZE} probes.
+	 */
+	public ProbeSlab() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a new slab with the given chunk size. Classes with more probes
+	 * get a chunk of their own.
+	 *
+	 * @param chunkSize
+	 *            number of probes per chunk
+	 */
+	public ProbeSlab(final int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException(
+					"Chunk size must be positive: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+		this.chunks = new ArrayList<boolean[]>();
+		this.ranges = new ArrayList<Range>();
+		this.rangesById = new LongHashMap<Range>();
+	}
+
+	/**
+	 * Reserves the probe range of the given class. Reserving the same class
+	 * again returns the same offset, so a class can be instrumented several
+	 * times, e.g. for retransformation.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name of the class
+	 * @param probeCount
+	 *            probe count of the class
+	 * @return offset of the first probe of the class in its chunk
+	 * @throws IllegalStateException
+	 *             if the class has been reserved with a different name or
+	 *             probe count
+	 */
+	public synchronized int reserve(final long id, final String name,
+			final int probeCount) {
+		Range range = rangesById.get(id);
+		if (range != null) {
+			if (!range.name.equals(name) || range.probeCount != probeCount) {
+				throw new IllegalStateException(String.format(
+						"Different class %s with same id %016x already reserved.",
+						name, Long.valueOf(id)));
+			}
+			return range.offset;
+		}
+		final boolean[] chunk;
+		final int offset;
+		if (probeCount > chunkSize) {
+			chunk = newChunk(probeCount);
+			offset = 0;
+		} else {
+			if (current == null || position + probeCount > current.length) {
+				current = newChunk(chunkSize);
+				position = 0;
+			}
+			chunk = current;
+			offset = position;
+			position += probeCount;
+		}
+		range = new Range(id, name, probeCount, chunk, offset);
+		ranges.add(range);
+		rangesById.put(id, range);
+		return offset;
+	}
+
+	private boolean[] newChunk(final int size) {
+		final boolean[] chunk = new boolean[size];
+		chunks.add(chunk);
+		ChainNodeHandle.register(this, chunk);
+		return chunk;
+	}
+
+	/**
+	 * Returns the chunk of the given class and marks the class as initialized,
+	 * so its probes are included in dumps.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name of the class
+	 * @param probeCount
+	 *            probe count of the class
+	 * @return chunk containing the probes of the class or <code>null</code> if
+	 *         no range has been reserved for the class
+	 */
+	public synchronized boolean[] activate(final long id, final String name,
+			final int probeCount) {
+		final Range range = rangesById.get(id);
+		if (range == null || !range.name.equals(name)
+				|| range.probeCount != probeCount) {
+			return null;
+		}
+		range.active = true;
+		return range.chunk;
+	}
+
+	/**
+	 * Returns the caller sets of the given class. The array is created with
+	 * the first access, the sets of the single probes with their first caller.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @return caller sets or <code>null</code> if no range has been reserved
+	 *         for the class
+	 */
+	synchronized HashSet[] getCalledFlags(final long id) {
+		final Range range = rangesById.get(id);
+		if (range == null) {
+			return null;
+		}
+		if (range.calledFlags == null) {
+			range.calledFlags = new HashSet[range.probeCount];
+		}
+		return range.calledFlags;
+	}
+
+	/**
+	 * Emits the probes of all initialized classes to the given visitor. Every
+	 * class is emitted as a new {@link ExecutionData} instance with a copy of
+	 * its probe range.
+	 *
+	 * @param visitor
+	 *            visitor to emit the execution data to
+	 */
+	public synchronized void accept(final IExecutionDataVisitor visitor) {
+		for (final Range range : ranges) {
+			if (range.active) {
+				visitor.visitClassExecution(range.copy());
+			}
+		}
+	}
+
+	/**
+	 * Sets all probes of all chunks to <code>false</code> and drops all
+	 * recorded callers.
+	 */
+	public synchronized void reset() {
+		for (final boolean[] chunk : chunks) {
+			Arrays.fill(chunk, false);
+		}
+		for (final Range range : ranges) {
+			range.resetCalledFlags();
+		}
+	}
+
+	/**
+	 * Clears the probes and callers of the classes with the given names and
+	 * excludes them from dumps until they are initialized again. The ranges
+	 * stay reserved, as the instrumented classes still refer to them. The
+	 * classes with hits are emitted to the given visitor before, their caller
+	 * sets are handed over and not cleared.
+	 *
+	 * @param names
+	 *            VM names of the classes
+	 * @param visitor
+	 *            visitor to emit the execution data of the released classes to
+	 */
+	public synchronized void release(final Collection<String> names,
+			final IExecutionDataVisitor visitor) {
+		for (final Range range : ranges) {
+			if (range.active && names.contains(range.name)) {
+				final ExecutionData data = range.copy();
+				if (data.hasHits()) {
+					visitor.visitClassExecution(data);
+				}
+				Arrays.fill(range.chunk, range.offset,
+						range.offset + range.probeCount, false);
+				range.calledFlags = null;
+				range.active = false;
+			}
+		}
+	}
+
+	/**
+	 * @return number of chunks allocated so far
+	 */
+	public synchronized int getChunkCount() {
+		return chunks.size();
+	}
+
+	private static class Range {
+
+		final long id;
+
+		final String name;
+
+		final int probeCount;
+
+		final boolean[] chunk;
+
+		final int offset;
+
+		boolean active;
+
+		HashSet[] calledFlags;
+
+		Range(final long id, final String name, final int probeCount,
+				final boolean[] chunk, final int offset) {
+			this.id = id;
+			this.name = name;
+			this.probeCount = probeCount;
+			this.chunk = chunk;
+			this.offset = offset;
+		}
+
+		ExecutionData copy() {
+			final boolean[] probes = new boolean[probeCount];
+			System.arraycopy(chunk, offset, probes, 0, probeCount);
+			return new ExecutionData(id, name, probes, calledFlags);
+		}
+
+		void resetCalledFlags() {
+			if (calledFlags != null) {
+				// The instrumented class keeps the array itself:
+				Arrays.fill(calledFlags, null);
+			}
+		}
+
+	}
+
+}
@@ -24,6 +24,8 @@ public class RemoteControlReader extends ExecutionDataReader {
 
 	private IRemoteCommandVisitor remoteCommandVisitor;
 
+	private boolean coverageSwitched;
+
 	/**
 	 * Create a new read based on the given input stream.
 	 *
@@ -42,6 +44,12 @@ public class RemoteControlReader extends ExecutionDataReader {
 		case RemoteControlWriter.BLOCK_CMDDUMP:
 			readDumpCommand();
 			return true;
+		case RemoteControlWriter.BLOCK_CMDCOVERAGE:
+			readCoverageCommand();
+			return true;
+		case RemoteControlWriter.BLOCK_COVERAGESTATE:
+			coverageSwitched = in.readBoolean();
+			return true;
 		case RemoteControlWriter.BLOCK_CMDOK:
 			return false;
 		default:
@@ -50,7 +58,8 @@ public class RemoteControlReader extends ExecutionDataReader {
 	}
 
 	/**
-	 * Sets an listener for agent commands.
+	 * Sets an listener for agent commands. The listener also receives coverage
+	 * commands if it implements {@link IRemoteCoverageCommandVisitor}.
 	 *
 	 * @param visitor
 	 *            visitor to retrieve agent commands
@@ -59,6 +68,16 @@ public class RemoteControlReader extends ExecutionDataReader {
 		this.remoteCommandVisitor = visitor;
 	}
 
+	/**
+	 * Returns the outcome of the last coverage command answered by the
+	 * runtime.
+	 *
+	 * @return <code>true</code> if coverage has been switched
+	 */
+	public boolean isCoverageSwitched() {
+		return coverageSwitched;
+	}
+
 	private void readDumpCommand() throws IOException {
 		if (remoteCommandVisitor == null) {
 			throw new IOException("No remote command visitor.");
@@ -68,4 +87,13 @@ public class RemoteControlReader extends ExecutionDataReader {
 		remoteCommandVisitor.visitDumpCommand(dump, reset);
 	}
 
+	private void readCoverageCommand() throws IOException {
+		if (!(remoteCommandVisitor instanceof IRemoteCoverageCommandVisitor)) {
+			throw new IOException("No remote coverage command visitor.");
+		}
+		final boolean enabled = in.readBoolean();
+		((IRemoteCoverageCommandVisitor) remoteCommandVisitor)
+				.visitCoverageCommand(enabled);
+	}
+
 }
@@ -21,7 +21,7 @@ import org.jacoco.core.data.ExecutionDataWriter;
  * {@link ExecutionDataWriter} with commands added for runtime remote control.
  */
 public class RemoteControlWriter extends ExecutionDataWriter
-		implements IRemoteCommandVisitor {
+		implements IRemoteCommandVisitor, IRemoteCoverageCommandVisitor {
 
 	/** Block identifier to confirm successful command execution. */
 	public static final byte BLOCK_CMDOK = 0x20;
@@ -29,6 +29,12 @@ public class RemoteControlWriter extends ExecutionDataWriter
 	/** Block identifier for dump command */
 	public static final byte BLOCK_CMDDUMP = 0x40;
 
+	/** Block identifier for coverage command */
+	public static final byte BLOCK_CMDCOVERAGE = 0x41;
+
+	/** Block identifier for the answer to a coverage command */
+	public static final byte BLOCK_COVERAGESTATE = 0x42;
+
 	/**
 	 * Creates a new writer based on the given output stream.
 	 *
@@ -52,6 +58,19 @@ public class RemoteControlWriter extends ExecutionDataWriter
 		out.writeByte(RemoteControlWriter.BLOCK_CMDOK);
 	}
 
+	/**
+	 * Answers a coverage command with the outcome of the switch.
+	 *
+	 * @param switched
+	 *            <code>false</code> if the runtime can't switch coverage
+	 * @throws IOException
+	 *             in case of problems with the remote connection
+	 */
+	public void sendCoverageState(final boolean switched) throws IOException {
+		out.writeByte(RemoteControlWriter.BLOCK_COVERAGESTATE);
+		out.writeBoolean(switched);
+	}
+
 	public void visitDumpCommand(final boolean dump, final boolean reset)
 			throws IOException {
 		out.writeByte(RemoteControlWriter.BLOCK_CMDDUMP);
@@ -59,4 +78,10 @@ public class RemoteControlWriter extends ExecutionDataWriter
 		out.writeBoolean(reset);
 	}
 
+	public void visitCoverageCommand(final boolean enabled)
+			throws IOException {
+		out.writeByte(RemoteControlWriter.BLOCK_CMDCOVERAGE);
+		out.writeBoolean(enabled);
+	}
+
 }
@@ -18,7 +18,9 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Container for runtime execution and meta data. All access to the runtime data
@@ -29,15 +31,29 @@ public class RuntimeData {
 	/** store for execution data */
 	protected final ExecutionDataStore store;
 
+	/** execution data of released classes which has not been reset yet */
+	private ExecutionDataStore released;
+
+	/** call chains of released classes which have not been reset yet */
+	private final Set<ChainNode> releasedChains;
+
 	private long startTimeStamp;
 
 	private String sessionId;
 
+	private volatile IClassActivationListener activationListener;
+
+	private volatile ICoverageSwitch coverageSwitch;
+
+	private volatile ProbeSlab probeSlab;
+
 	/**
 	 * Creates a new runtime.
 	 */
 	public RuntimeData() {
 		store = new ExecutionDataStore();
+		released = new ExecutionDataStore();
+		releasedChains = new HashSet<ChainNode>();
 		sessionId = "<none>";
 		startTimeStamp = System.currentTimeMillis();
 		this.store.setCalledChainSets(ChainNodeHandle.chainsSet);
@@ -61,6 +77,68 @@ public class RuntimeData {
 		sessionId = id;
 	}
 
+	/**
+	 * Sets the listener which is notified when a class with deferred
+	 * instrumentation is initialized. Without a listener such classes are
+	 * never instrumented.
+	 *
+	 * @param listener
+	 *            listener or <code>null</code>
+	 */
+	public void setActivationListener(
+			final IClassActivationListener listener) {
+		activationListener = listener;
+	}
+
+	/**
+	 * Sets the switch which turns coverage recording on and off at runtime.
+	 *
+	 * @param coverageSwitch
+	 *            switch or <code>null</code> if coverage is always recorded
+	 */
+	public void setCoverageSwitch(final ICoverageSwitch coverageSwitch) {
+		this.coverageSwitch = coverageSwitch;
+	}
+
+	/**
+	 * Sets the slab which holds the probes of the classes instrumented with the
+	 * same slab, see
+	 * {@link org.jacoco.core.instr.Instrumenter#setProbeSlab(ProbeSlab)}. The
+	 * probes of these classes are not kept in the execution data store but
+	 * copied from the slab with every dump.
+	 *
+	 * @param slab
+	 *            slab or <code>null</code>
+	 */
+	public void setProbeSlab(final ProbeSlab slab) {
+		this.probeSlab = slab;
+	}
+
+	/**
+	 * @return slab for the probes or <code>null</code>
+	 * @see #setProbeSlab(ProbeSlab)
+	 */
+	public ProbeSlab getProbeSlab() {
+		return probeSlab;
+	}
+
+	/**
+	 * Turns coverage recording on or off through the switch set with
+	 * {@link #setCoverageSwitch(ICoverageSwitch)}.
+	 *
+	 * @param enabled
+	 *            <code>true</code> to record coverage
+	 * @return <code>false</code> if coverage can't be switched at runtime
+	 */
+	public boolean setCoverageEnabled(final boolean enabled) {
+		final ICoverageSwitch s = coverageSwitch;
+		if (s == null) {
+			return false;
+		}
+		s.setEnabled(enabled);
+		return true;
+	}
+
 	/**
 	 * Get the current a session identifier for this runtime.
 	 *
@@ -90,6 +168,11 @@ public class RuntimeData {
 					System.currentTimeMillis());
 			sessionInfoVisitor.visitSessionInfo(info);
 			store.accept(executionDataVisitor);
+			released.accept(executionDataVisitor);
+			final ProbeSlab slab = probeSlab;
+			if (slab != null) {
+				slab.accept(executionDataVisitor);
+			}
 			if (reset) {
 				reset();
 			}
@@ -112,25 +195,82 @@ public class RuntimeData {
 					System.currentTimeMillis());
 			sessionInfoVisitor.visitSessionInfo(info);
 			// 写入项目信息
-			store.outputProjectInfo(projectInfoVisitor);
+			outputProjectInfo(projectInfoVisitor);
 			store.accept(executionDataVisitor);
+			released.accept(executionDataVisitor);
+			final ProbeSlab slab = probeSlab;
+			if (slab != null) {
+				slab.accept(executionDataVisitor);
+			}
 			if (reset) {
 				reset();
 			}
 		}
 	}
 
+	private void outputProjectInfo(final IProjectInfoVisitor visitor) {
+		if (releasedChains.isEmpty()) {
+			store.outputProjectInfo(visitor);
+			return;
+		}
+		final Set<ChainNode> chains = ChainNodeHandle.getChains();
+		chains.addAll(releasedChains);
+		visitor.visitProjectInfo(store.getBranchName(), store.getCommitId());
+		visitor.visitCalledChainData(chains);
+	}
+
 	/**
-	 * Resets all coverage information.
+	 * Resets all coverage information, including the data kept for released
+	 * classes.
 	 */
 	public final void reset() {
 		synchronized (store) {
 			ChainNodeHandle.chainsSet.clear();
 			store.reset();
+			released = new ExecutionDataStore();
+			releasedChains.clear();
+			final ProbeSlab slab = probeSlab;
+			if (slab != null) {
+				slab.reset();
+			}
 			startTimeStamp = System.currentTimeMillis();
 		}
 	}
 
+	/**
+	 * Removes the execution data of the classes with the given names, e.g.
+	 * after coverage recording has been turned off for these classes, so their
+	 * probe arrays and caller sets can be garbage collected once the classes
+	 * drop their references. The call chains passing through these classes are
+	 * removed as well. Data recorded so far is not lost: the execution data of
+	 * the classes with hits and their call chains are still emitted by
+	 * {@link #collect(IExecutionDataVisitor, ISessionInfoVisitor, boolean)}
+	 * until the next {@link #reset()}. Classes which hold their probe array in
+	 * a dynamic constant, i.e. class files of version 11 and above without a
+	 * probe slab, can't drop it and should not be released.
+	 *
+	 * @param names
+	 *            VM names of the classes
+	 */
+	public final void release(final Collection<String> names) {
+		synchronized (store) {
+			releasedChains.addAll(ChainNodeHandle.removeChains(names));
+			for (final ExecutionData data : store.getContents()) {
+				if (names.contains(data.getName())) {
+					ChainNodeHandle.unregister(data);
+					if (data.hasHits()) {
+						released.put(data);
+					}
+				}
+			}
+			store.remove(names);
+			final ProbeSlab slab = probeSlab;
+			if (slab != null) {
+				slab.release(names, released);
+			}
+		}
+	}
+
 	/**
 	 * Returns the coverage data for the class with the given identifier. If
 	 * there is no data available under the given id a new entry is created.
@@ -147,7 +287,9 @@ public class RuntimeData {
 	public ExecutionData getExecutionData(final Long id, final String name,
 			final int probecount) {
 		synchronized (store) {
-			return store.get(id, name, probecount);
+			final ExecutionData data = store.get(id, name, probecount);
+			ChainNodeHandle.register(data);
+			return data;
 		}
 	}
 
@@ -168,6 +310,13 @@ public class RuntimeData {
 	 * <li>args[0]: probe array (<code>boolean[]</code>)
 	 * </ul>
 	 *
+	 * If the probe count is {@link InstrSupport#ACTIVATION_PROBECOUNT} the
+	 * class has deferred instrumentation and is initialized. The activation
+	 * listener is notified and <code>null</code> is returned, no execution
+	 * data is created for the class. For classes with a range in the slab set
+	 * with {@link #setProbeSlab(ProbeSlab)} the chunk holding the range is
+	 * returned.
+	 *
 	 * @param args
 	 *            parameter array of length 3
 	 */
@@ -175,6 +324,23 @@ public class RuntimeData {
 		final Long classid = (Long) args[0];
 		final String name = (String) args[1];
 		final int probecount = ((Integer) args[2]).intValue();
+		if (probecount == InstrSupport.ACTIVATION_PROBECOUNT) {
+			final IClassActivationListener listener = activationListener;
+			if (listener != null) {
+				listener.classActivated(classid.longValue(), name);
+			}
+			args[0] = null;
+			return;
+		}
+		final ProbeSlab slab = probeSlab;
+		if (slab != null) {
+			final boolean[] chunk = slab.activate(classid.longValue(), name,
+					probecount);
+			if (chunk != null) {
+				args[0] = chunk;
+				return;
+			}
+		}
 		args[0] = getExecutionData(classid, name, probecount).getProbes();
 	}
 
@@ -207,21 +373,21 @@ public class RuntimeData {
 		return super.equals(args);
 	}
 
+	/**
+	 * Retrieves the caller sets for a given class, only called by classes
+	 * instrumented with earlier versions. As their code accesses the sets
+	 * directly, all sets are created with this call. The parameters are the
+	 * same as for {@link #getProbes(Object[])}.
+	 *
+	 * @param args
+	 *            parameter array of length 3
+	 */
 	public void getCalledSets(final Object[] args) {
 		final Long classid = (Long) args[0];
 		final String name = (String) args[1];
 		final int probecount = ((Integer) args[2]).intValue();
 		ExecutionData exec = getExecutionData(classid, name, probecount);
-		if (exec.getCalledFlags() != null) {
-			args[0] = exec.getCalledFlags();
-			return;
-		}
-		HashSet[] calledFlags = new HashSet[probecount];
-		for (int i = 0, len = calledFlags.length; i < len; i++) {
-			calledFlags[i] = new HashSet();
-		}
-		exec.setCalledFlags(calledFlags);
-		args[0] = calledFlags;
+		args[0] = ChainNodeHandle.getFilledCalledFlags(exec);
 	}
 
 	/**
@@ -98,22 +98,14 @@ public class ChainDenoiseHandle {
 
 	private static boolean[] findProbes(String className,
 			ExecutionDataStore store) {
-		for (ExecutionData data : store.getContents()) {
-			if (className.equals(data.getName())) {
-				return data.getProbes();
-			}
-		}
-		return new boolean[0];
+		ExecutionData data = store.get(className);
+		return data == null ? new boolean[0] : data.getProbes();
 	}
 
 	private static Set<String>[] findSets(String className,
 			ExecutionDataStore store) {
-		for (ExecutionData data : store.getContents()) {
-			if (className.equals(data.getName())) {
-				return data.getCalledFlags();
-			}
-		}
-		return null;
+		ExecutionData data = store.get(className);
+		return data == null ? null : data.getCalledFlags();
 	}
 
 	private static boolean findCalledNode(ChainNode funcChains,
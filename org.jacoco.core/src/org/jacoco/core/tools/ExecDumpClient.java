@@ -136,6 +136,59 @@ public class ExecDumpClient {
 		return loader;
 	}
 
+	/**
+	 * Requests the given end-point to turn coverage recording on or off.
+	 *
+	 * @param address
+	 *            IP-Address to connect to
+	 * @param port
+	 *            port to connect to
+	 * @param enabled
+	 *            <code>true</code> if coverage should be recorded
+	 * @return <code>false</code> if the agent can't switch coverage, as it
+	 *         has been started without option <code>retransform</code>
+	 * @throws IOException
+	 *             in case the command can not be sent
+	 */
+	public boolean switchCoverage(final String address, final int port,
+			final boolean enabled) throws IOException {
+		return switchCoverage(InetAddress.getByName(address), port, enabled);
+	}
+
+	/**
+	 * Requests the given end-point to turn coverage recording on or off.
+	 *
+	 * @param address
+	 *            host name or IP-Address to connect to
+	 * @param port
+	 *            port to connect to
+	 * @param enabled
+	 *            <code>true</code> if coverage should be recorded
+	 * @return <code>false</code> if the agent can't switch coverage, as it
+	 *         has been started without option <code>retransform</code>
+	 * @throws IOException
+	 *             in case the command can not be sent
+	 */
+	public boolean switchCoverage(final InetAddress address, final int port,
+			final boolean enabled) throws IOException {
+		final Socket socket = tryConnect(address, port);
+		try {
+			final RemoteControlWriter remoteWriter = new RemoteControlWriter(
+					socket.getOutputStream());
+			final RemoteControlReader remoteReader = new RemoteControlReader(
+					socket.getInputStream());
+
+			remoteWriter.visitCoverageCommand(enabled);
+
+			if (!remoteReader.read()) {
+				throw new IOException("Socket closed unexpectedly.");
+			}
+			return remoteReader.isCoverageSwitched();
+		} finally {
+			socket.close();
+		}
+	}
+
 	private Socket tryConnect(final InetAddress address, final int port)
 			throws IOException {
 		int count = 0;
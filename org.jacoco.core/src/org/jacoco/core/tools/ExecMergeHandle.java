@@ -19,7 +19,7 @@ import com.test.diff.common.enums.HttpCodeEnum;
 import com.test.diff.common.util.CollectionUtil;
 import com.test.diff.common.util.HttpUtil;
 import com.test.diff.common.util.JacksonUtil;
-import org.apache.commons.lang3.StringUtils;
+import org.jacoco.core.analysis.AnalysisContext;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.IClassCoverage;
@@ -134,7 +134,10 @@ public class ExecMergeHandle {
 		// delete diff class asm name
 		List<String> diffDelClassNames = new ArrayList<String>();
 		// all diff class asm name
-		List<String> diffClassNames = new ArrayList<String>();
+		Set<String> diffClassNames = new HashSet<String>();
+		// modified or deleted methods of all diff classes
+		MethodSignatureMatcher diffMethods = MethodSignatureMatcher
+				.forDiff(diffClasses, true);
 		for (ClassInfo classInfo : diffClasses) {
 			diffClassNames.add(classInfo.getAsmClassName());
 			if (classInfo.getDiffType() == DiffResultTypeEnum.MODIFY) {
@@ -192,40 +195,44 @@ public class ExecMergeHandle {
 				out.println(className + ": 未找到匹配的探针数据!");
 				continue;
 			}
+			boolean[] newProbes = getTargetDataProbes(
+					newExec.getExecutionDataStore(), className);
+			boolean[] oldProbes = getTargetDataProbes(
+					oldExec.getExecutionDataStore(), className);
+			Set[] newSets = getTargetCalledFlags(
+					newExec.getExecutionDataStore(), className);
+			Set[] oldSets = getTargetCalledFlags(
+					oldExec.getExecutionDataStore(), className);
 			// 开始遍历老版本中修改类的探针数据，对未修改方法的探针数据进行合并
 			for (MethodProbesInfo oldInfo : oldCoverage
 					.getMethodProbesInfos()) {
 				// 修改类中，如果方法未修改或者未删除，就合并探针数据
-				if (!isContainsMethod(diffMethodInfos, oldInfo.getMethodName(),
+				if (!diffMethods.matches(className, oldInfo.getMethodName(),
 						oldInfo.getDesc())) {
-					MethodProbesInfo newInfo = getNewMPI(
-							newCoverage.getMethodProbesInfos(),
-							oldInfo.getMethodName());
-					int length = newInfo.getEndIndex() - newInfo.getStartIndex()
-							+ 1;
+					// 按方法名 + 描述符查找，避免重载方法取错探针区间
+					MethodProbesInfo newInfo = newCoverage.getMethodProbesInfo(
+							oldInfo.getMethodName(), oldInfo.getDesc());
+					if (newInfo == null || newInfo.getProbeCount() != oldInfo
+							.getProbeCount()
+							|| newInfo.getFingerprint() != oldInfo
+									.getFingerprint()) {
+						// 指令不一致时探针无法一一对应，不合并
+						out.println(oldInfo.getMethodUri() + ": 方法指令不一致，跳过探针合并");
+						continue;
+					}
+					int length = newInfo.getProbeCount();
 					int newStartIndex = newInfo.getStartIndex();
 					int oldStartIndex = oldInfo.getStartIndex();
-					boolean[] newProbes = getTargetDataProbes(
-							newExec.getExecutionDataStore(), className);
-					boolean[] oldProbes = getTargetDataProbes(
-							oldExec.getExecutionDataStore(), className);
-					Set[] newSets = getTargetCalledFlags(
-							newExec.getExecutionDataStore(), className);
-					Set[] oldSets = getTargetCalledFlags(
-							oldExec.getExecutionDataStore(), className);
 					if (Objects.isNull(oldProbes)) {
 						// ignore
 						continue;
-					} else if (Objects.isNull(newProbes)
-							&& !Objects.isNull(oldProbes)) {
+					} else if (Objects.isNull(newProbes)) {
 						// new exec modify class not init
 						// get probes size
 						int newProbesSize = 0;
 						for (MethodProbesInfo info : newCoverage
 								.getMethodProbesInfos()) {
-							int len = info.getEndIndex() - info.getStartIndex()
-									+ 1;
-							newProbesSize += len;
+							newProbesSize += info.getProbeCount();
 						}
 						newProbes = new boolean[newProbesSize];
 						newSets = new HashSet[newProbes.length];
@@ -272,63 +279,14 @@ public class ExecMergeHandle {
 
 	private boolean[] getTargetDataProbes(ExecutionDataStore executionDataStore,
 			String className) {
-		Iterator<ExecutionData> iterator = executionDataStore.getContents()
-				.iterator();
-		while (iterator.hasNext()) {
-			ExecutionData data = iterator.next();
-			if (className.equals(data.getName())) {
-				return data.getProbes();
-			}
-		}
-		return null;
+		ExecutionData data = executionDataStore.get(className);
+		return data == null ? null : data.getProbes();
 	}
 
 	private Set[] getTargetCalledFlags(ExecutionDataStore executionDataStore,
 			String className) {
-		Iterator<ExecutionData> iterator = executionDataStore.getContents()
-				.iterator();
-		while (iterator.hasNext()) {
-			ExecutionData data = iterator.next();
-			if (className.equals(data.getName())) {
-				return data.getCalledFlags();
-			}
-		}
-		return null;
-	}
-
-	private MethodProbesInfo getNewMPI(List<MethodProbesInfo> infos,
-			String methodName) {
-		for (MethodProbesInfo info : infos) {
-			if (methodName.equals(info.getMethodName())) {
-				return info;
-			}
-		}
-		return null;
-	}
-
-	/**
-	 * 匹配方法是否存在列表中
-	 *
-	 * @param methodInfos
-	 *            方法列表
-	 * @param methodName
-	 *            方法名
-	 * @param desc
-	 *            asm方法参数信息
-	 * @return
-	 */
-	private boolean isContainsMethod(List<MethodInfo> methodInfos,
-			String methodName, String desc) {
-		for (MethodInfo methodInfo : methodInfos) {
-			if (StringUtils.isNotBlank(methodInfo.getMethodName())
-					&& methodInfo.getMethodName().equals(methodName)
-					&& MethodUriAdapter.checkParamsIn(methodInfo.getParams(),
-							desc)) {
-				return true;
-
-			}
-		}
-		return false;
+		ExecutionData data = executionDataStore.get(className);
+		return data == null ? null : data.getCalledFlags();
 	}
 
 	private List<MethodInfo> getDiffMethods(List<ClassInfo> classInfos,
@@ -354,8 +312,11 @@ public class ExecMergeHandle {
 	private Map<String, IClassCoverage> classAnalysis(ExecutionDataStore data,
 			List<File> classFiles) throws IOException {
 
-		final CoverageBuilder builder = new CoverageBuilder();
-		final Analyzer analyzer = new Analyzer(data, builder);
+		// 合并需要所有方法的探针区间，不能使用当前线程的增量过滤配置
+		final CoverageBuilder builder = new CoverageBuilder(
+				AnalysisContext.DEFAULT);
+		final Analyzer analyzer = new Analyzer(data, builder,
+				AnalysisContext.DEFAULT);
 		for (final File f : classFiles) {
 			analyzer.analyzeAll(f);
 		}
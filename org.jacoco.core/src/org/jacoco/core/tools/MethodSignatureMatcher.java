@@ -0,0 +1,463 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.test.diff.common.domain.ClassInfo;
+import com.test.diff.common.domain.MethodInfo;
+import com.test.diff.common.enums.DiffResultTypeEnum;
+
+/**
+ * Precompiled lookup for the methods listed in a code diff. Every diff entry
+ * is parsed once into a normalized signature made of the VM class name, the
+ * method name and the erased simple names of its parameter types. Methods
+ * seen in class files are then matched by their descriptor with a single hash
+ * lookup instead of string splitting per comparison.
+ * <p>
+ * Parameter types are compared by their simple name only, as the diff does
+ * not carry fully qualified names: <code>java.util.Map.Entry&lt;K, V&gt;</code>
+ * and <code>Ljava/util/Map$Entry;</code> both normalize to <code>Entry</code>.
+ * Type variables like <code>T</code> match any reference type of the same
+ * array dimension as their erasure is not known from source.
+ */
+public final class MethodSignatureMatcher {
+
+	private static final char PARAMS_SEPARATOR = ';';
+
+	private static final String TYPE_VARIABLE = "?";
+
+	private final Set<String> signatures = new HashSet<String>();
+
+	/** signatures with type variables by class, method name and arity */
+	private final Map<String, List<String[]>> genericSignatures = new HashMap<String, List<String[]>>();
+
+	/**
+	 * Creates a new empty matcher.
+	 */
+	public MethodSignatureMatcher() {
+		// nothing to do
+	}
+
+	/**
+	 * Creates a matcher for all methods of the given diff classes.
+	 *
+	 * @param classInfos
+	 *            diff result, may be <code>null</code>
+	 * @param includeDeleted
+	 *            if <code>false</code> deleted classes and methods are not
+	 *            added to the matcher
+	 * @return new matcher
+	 */
+	public static MethodSignatureMatcher forDiff(
+			final Collection<ClassInfo> classInfos,
+			final boolean includeDeleted) {
+		final MethodSignatureMatcher matcher = new MethodSignatureMatcher();
+		if (classInfos == null) {
+			return matcher;
+		}
+		for (final ClassInfo classInfo : classInfos) {
+			if (!includeDeleted
+					&& classInfo.getDiffType() == DiffResultTypeEnum.DEL) {
+				continue;
+			}
+			matcher.addAll(classInfo.getAsmClassName(),
+					classInfo.getMethodInfos(), includeDeleted);
+		}
+		return matcher;
+	}
+
+	/**
+	 * Adds all given diff methods of a class.
+	 *
+	 * @param className
+	 *            VM name of the class
+	 * @param methodInfos
+	 *            diff methods of the class, may be <code>null</code>
+	 * @param includeDeleted
+	 *            if <code>false</code> deleted methods are skipped
+	 */
+	public void addAll(final String className,
+			final Collection<MethodInfo> methodInfos,
+			final boolean includeDeleted) {
+		if (methodInfos == null) {
+			return;
+		}
+		for (final MethodInfo methodInfo : methodInfos) {
+			if (!includeDeleted
+					&& methodInfo.getDiffType() == DiffResultTypeEnum.DEL) {
+				continue;
+			}
+			add(className, methodInfo.getMethodName(), methodInfo.getParams());
+		}
+	}
+
+	/**
+	 * Adds a single method in diff notation.
+	 *
+	 * @param className
+	 *            VM name of the class
+	 * @param methodName
+	 *            method name, entries without name are ignored
+	 * @param params
+	 *            source level parameter types separated by <code>;</code>
+	 */
+	public void add(final String className, final String methodName,
+			final String params) {
+		if (className == null || methodName == null
+				|| methodName.trim().length() == 0) {
+			return;
+		}
+		final String[] types = parseParams(params);
+		boolean generic = false;
+		for (final String type : types) {
+			generic |= type.startsWith(TYPE_VARIABLE);
+		}
+		if (generic) {
+			final String key = arityKey(className, methodName, types.length);
+			List<String[]> list = genericSignatures.get(key);
+			if (list == null) {
+				list = new ArrayList<String[]>(1);
+				genericSignatures.put(key, list);
+			}
+			list.add(types);
+		} else {
+			signatures.add(signatureKey(className, methodName, types));
+		}
+	}
+
+	/**
+	 * Checks whether the given method is contained in the diff.
+	 *
+	 * @param className
+	 *            VM name of the class
+	 * @param methodName
+	 *            method name
+	 * @param desc
+	 *            method descriptor
+	 * @return <code>true</code> if the method is contained
+	 */
+	public boolean matches(final String className, final String methodName,
+			final String desc) {
+		final String[] types = descriptorParams(desc);
+		if (signatures.contains(signatureKey(className, methodName, types))) {
+			return true;
+		}
+		if (genericSignatures.isEmpty()) {
+			return false;
+		}
+		final List<String[]> candidates = genericSignatures
+				.get(arityKey(className, methodName, types.length));
+		if (candidates != null) {
+			for (final String[] candidate : candidates) {
+				if (paramsMatch(candidate, types)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if no method has been added
+	 */
+	public boolean isEmpty() {
+		return signatures.isEmpty() && genericSignatures.isEmpty();
+	}
+
+	/**
+	 * Checks whether diff parameters match a method descriptor.
+	 *
+	 * @param params
+	 *            source level parameter types separated by <code>;</code>
+	 * @param desc
+	 *            method descriptor
+	 * @return <code>true</code> if arity and all parameter types match
+	 */
+	public static boolean paramsMatch(final String params, final String desc) {
+		return paramsMatch(parseParams(params), descriptorParams(desc));
+	}
+
+	private static boolean paramsMatch(final String[] diffTypes,
+			final String[] descTypes) {
+		if (diffTypes.length != descTypes.length) {
+			return false;
+		}
+		for (int i = 0; i < diffTypes.length; i++) {
+			if (!typeMatches(diffTypes[i], descTypes[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean typeMatches(final String diffType,
+			final String descType) {
+		if (!diffType.startsWith(TYPE_VARIABLE)) {
+			return diffType.equals(descType);
+		}
+		final String dims = diffType.substring(TYPE_VARIABLE.length());
+		final int base = descType.length() - dims.length();
+		return base > 0 && descType.endsWith(dims)
+				&& descType.indexOf('[') == (dims.length() == 0 ? -1 : base)
+				&& !isPrimitive(descType.substring(0, base));
+	}
+
+	private static String signatureKey(final String className,
+			final String methodName, final String[] types) {
+		final StringBuilder key = new StringBuilder(className.length()
+				+ methodName.length() + 16 * types.length + 3);
+		key.append(className).append('.').append(methodName).append('(');
+		for (int i = 0; i < types.length; i++) {
+			if (i > 0) {
+				key.append(',');
+			}
+			key.append(types[i]);
+		}
+		return key.append(')').toString();
+	}
+
+	private static String arityKey(final String className,
+			final String methodName, final int arity) {
+		return className + '.' + methodName + '/' + arity;
+	}
+
+	// === diff side ===
+
+	/**
+	 * Parses diff parameters into normalized simple type names.
+	 *
+	 * @param params
+	 *            source level parameter types separated by <code>;</code>
+	 * @return normalized simple names
+	 */
+	static String[] parseParams(final String params) {
+		if (params == null || params.trim().length() == 0) {
+			return new String[0];
+		}
+		final List<String> types = new ArrayList<String>();
+		int start = 0;
+		int depth = 0;
+		for (int i = 0; i <= params.length(); i++) {
+			final char c = i < params.length() ? params.charAt(i)
+					: PARAMS_SEPARATOR;
+			if (c == '<') {
+				depth++;
+			} else if (c == '>') {
+				depth--;
+			} else if (c == PARAMS_SEPARATOR && depth <= 0) {
+				final String type = params.substring(start, i);
+				if (type.trim().length() > 0) {
+					types.add(normalizeParam(type));
+				}
+				start = i + 1;
+				depth = 0;
+			}
+		}
+		return types.toArray(new String[types.size()]);
+	}
+
+	/**
+	 * Normalizes a single source level parameter declaration to the erased
+	 * simple name of its type, e.g. <code>final List&lt;String&gt;... args</code>
+	 * becomes <code>List[]</code>.
+	 *
+	 * @param param
+	 *            parameter type, optionally with modifiers, annotations and
+	 *            name
+	 * @return normalized simple name
+	 */
+	static String normalizeParam(final String param) {
+		final StringBuilder type = new StringBuilder(param.length());
+		int depth = 0;
+		int dims = 0;
+		final int length = param.length();
+		int i = 0;
+		while (i < length) {
+			final char c = param.charAt(i);
+			if (depth > 0) {
+				if (c == '<') {
+					depth++;
+				} else if (c == '>') {
+					depth--;
+				}
+				i++;
+			} else if (c == '<') {
+				depth++;
+				i++;
+			} else if (c == '@') {
+				i = skipAnnotation(param, i + 1);
+			} else if (c == '[') {
+				dims++;
+				i++;
+			} else if (param.startsWith("...", i)) {
+				dims++;
+				i += 3;
+			} else if (Character.isWhitespace(c)) {
+				i++;
+				// A second identifier after the type is the parameter name
+				if (isIdentifierAhead(param, i) && type.length() > 0
+						&& !isModifier(type)) {
+					break;
+				}
+				if (isModifier(type)) {
+					type.setLength(0);
+				}
+			} else {
+				if (c != ']') {
+					type.append(c);
+				}
+				i++;
+			}
+		}
+		String name = type.toString();
+		name = name.substring(
+				Math.max(name.lastIndexOf('.'), name.lastIndexOf('$')) + 1);
+		if (isTypeVariable(name)) {
+			name = TYPE_VARIABLE;
+		}
+		final StringBuilder result = new StringBuilder(name);
+		for (int d = 0; d < dims; d++) {
+			result.append("[]");
+		}
+		return result.toString();
+	}
+
+	private static int skipAnnotation(final String s, int i) {
+		while (i < s.length() && (Character.isJavaIdentifierPart(s.charAt(i))
+				|| s.charAt(i) == '.')) {
+			i++;
+		}
+		if (i < s.length() && s.charAt(i) == '(') {
+			int depth = 0;
+			for (; i < s.length(); i++) {
+				if (s.charAt(i) == '(') {
+					depth++;
+				} else if (s.charAt(i) == ')' && --depth == 0) {
+					return i + 1;
+				}
+			}
+		}
+		return i;
+	}
+
+	private static boolean isIdentifierAhead(final String s, int i) {
+		while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+			i++;
+		}
+		return i < s.length() && Character.isJavaIdentifierStart(s.charAt(i));
+	}
+
+	private static boolean isModifier(final CharSequence type) {
+		return "final".contentEquals(type);
+	}
+
+	private static boolean isTypeVariable(final String name) {
+		if (name.length() == 0 || !Character.isUpperCase(name.charAt(0))) {
+			return false;
+		}
+		for (int i = 1; i < name.length(); i++) {
+			if (!Character.isDigit(name.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// === class file side ===
+
+	/**
+	 * Extracts the erased simple names of the parameter types from a method
+	 * descriptor without creating ASM type objects.
+	 *
+	 * @param desc
+	 *            method descriptor
+	 * @return simple names of the parameter types
+	 */
+	static String[] descriptorParams(final String desc) {
+		final List<String> types = new ArrayList<String>(4);
+		int i = 1;
+		while (desc.charAt(i) != ')') {
+			int dims = 0;
+			while (desc.charAt(i) == '[') {
+				dims++;
+				i++;
+			}
+			final String name;
+			if (desc.charAt(i) == 'L') {
+				final int end = desc.indexOf(';', i);
+				int start = i + 1;
+				for (int j = end - 1; j > i; j--) {
+					final char c = desc.charAt(j);
+					if (c == '/' || c == '$') {
+						start = j + 1;
+						break;
+					}
+				}
+				name = desc.substring(start, end);
+				i = end + 1;
+			} else {
+				name = primitiveName(desc.charAt(i));
+				i++;
+			}
+			if (dims == 0) {
+				types.add(name);
+			} else {
+				final StringBuilder b = new StringBuilder(name);
+				for (int d = 0; d < dims; d++) {
+					b.append("[]");
+				}
+				types.add(b.toString());
+			}
+		}
+		return types.toArray(new String[types.size()]);
+	}
+
+	private static String primitiveName(final char c) {
+		switch (c) {
+		case 'Z':
+			return "boolean";
+		case 'B':
+			return "byte";
+		case 'C':
+			return "char";
+		case 'S':
+			return "short";
+		case 'I':
+			return "int";
+		case 'J':
+			return "long";
+		case 'F':
+			return "float";
+		case 'D':
+			return "double";
+		default:
+			throw new IllegalArgumentException(
+					"Invalid descriptor type: " + c);
+		}
+	}
+
+	private static boolean isPrimitive(final String name) {
+		return "boolean".equals(name) || "byte".equals(name)
+				|| "char".equals(name) || "short".equals(name)
+				|| "int".equals(name) || "long".equals(name)
+				|| "float".equals(name) || "double".equals(name);
+	}
+
+}
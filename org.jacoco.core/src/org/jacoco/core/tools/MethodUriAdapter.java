@@ -14,7 +14,6 @@ package org.jacoco.core.tools;
 
 import com.test.diff.common.domain.MethodInfo;
 import org.apache.commons.lang3.StringUtils;
-import org.objectweb.asm.Type;
 
 /**
  * @author wl
@@ -88,40 +87,16 @@ public class MethodUriAdapter {
 	}
 
 	/**
-	 * 参数匹配，方法实现来自
-	 * https://gitee.com/Dray/jacoco/blob/master/org.jacoco.core/src/org/jacoco/core/internal/diff/CodeDiffUtil.java
+	 * 参数匹配，参数类型统一由 {@link MethodSignatureMatcher} 解析和比较
 	 *
 	 * @param params
+	 *            差异方法参数，以 <code>;</code> 分隔
 	 * @param desc
-	 * @return
+	 *            asm方法描述符
+	 * @return 参数个数和类型是否全部匹配
+	 * @see MethodSignatureMatcher#paramsMatch(String, String)
 	 */
 	public static boolean checkParamsIn(String params, String desc) {
-		// 解析ASM获取的参数
-		Type[] argumentTypes = Type.getArgumentTypes(desc);
-		// 说明是无参数的方法，匹配成功
-		if (params.length() == 0 && argumentTypes.length == 0) {
-			return Boolean.TRUE;
-		}
-		// 切割符号来自：com/test/diff/services/internal/JavaFileCodeComparator.MethodVisitor#visit方法中定义
-		String[] diffParams = params.split(";");
-		// 只有参数数量完全相等才做下一次比较，Type格式：I C Ljava/lang/String;
-		if (diffParams.length > 0
-				&& argumentTypes.length == diffParams.length) {
-			for (int i = 0; i < argumentTypes.length; i++) {
-				// 去掉包名只保留最后一位匹配,getClassName格式： int java/lang/String
-				String[] args = argumentTypes[i].getClassName().split("\\.");
-				String arg = args[args.length - 1];
-				// 如果参数是内部类类型，再截取下
-				if (arg.contains("$")) {
-					arg = arg.split("\\$")[arg.split("\\$").length - 1];
-				}
-				if (!diffParams[i].contains(arg)) {
-					return Boolean.FALSE;
-				}
-			}
-			// 只有个数和类型全匹配到才算匹配
-			return Boolean.TRUE;
-		}
-		return Boolean.FALSE;
+		return MethodSignatureMatcher.paramsMatch(params, desc);
 	}
 }
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.ISourceFileCoverage;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.PackageCoverageImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BufferedBundleVisitor}.
+ */
+public class BufferedBundleVisitorTest implements IReportGroupVisitor {
+
+	private List<IBundleCoverage> bundles;
+
+	private ISourceFileLocator locator;
+
+	@Before
+	public void setup() {
+		bundles = new ArrayList<IBundleCoverage>();
+		locator = new MultiSourceFileLocator(4);
+	}
+
+	@Test
+	public void visitBundle_should_emit_complete_bundle_at_end()
+			throws IOException {
+		final IReportBundleVisitor visitor = BufferedBundleVisitor
+				.visitBundle(this, "bundle", locator);
+		final IPackageCoverage p1 = createPackage("p1");
+		final IPackageCoverage p2 = createPackage("p2");
+		visitor.visitPackage(p1);
+		visitor.visitPackage(p2);
+		assertEquals(0, bundles.size());
+
+		visitor.visitEnd();
+
+		assertEquals(1, bundles.size());
+		final IBundleCoverage bundle = bundles.get(0);
+		assertEquals("bundle", bundle.getName());
+		assertEquals(Arrays.asList(p1, p2),
+				new ArrayList<IPackageCoverage>(bundle.getPackages()));
+		assertEquals(2, bundle.getInstructionCounter().getTotalCount());
+		assertEquals(2, bundle.getInstructionCounter().getCoveredCount());
+	}
+
+	@Test
+	public void visitBundle_should_use_streaming_visitor() throws IOException {
+		final IReportBundleVisitor expected = new BufferedBundleVisitor(
+				"bundle") {
+			@Override
+			protected void handleBundle(final IBundleCoverage bundle) {
+			}
+		};
+		final IStreamingReportGroupVisitor streaming = new IStreamingReportGroupVisitor() {
+
+			public void visitBundle(final IBundleCoverage bundle,
+					final ISourceFileLocator locator) {
+			}
+
+			public IReportBundleVisitor visitBundle(final String name,
+					final ISourceFileLocator locator) {
+				return expected;
+			}
+
+			public IReportGroupVisitor visitGroup(final String name) {
+				return null;
+			}
+		};
+
+		assertSame(expected,
+				BufferedBundleVisitor.visitBundle(streaming, "bundle", locator));
+	}
+
+	private IPackageCoverage createPackage(final String name) {
+		final ClassCoverageImpl c = new ClassCoverageImpl(name + "/Foo", 1,
+				false);
+		c.increment(CounterImpl.getInstance(0, 1), CounterImpl.COUNTER_0_0,
+				1);
+		return new PackageCoverageImpl(name,
+				Collections.<IClassCoverage> singletonList(c),
+				Collections.<ISourceFileCoverage> emptyList());
+	}
+
+	// === IReportGroupVisitor ===
+
+	public void visitBundle(final IBundleCoverage bundle,
+			final ISourceFileLocator locator) {
+		assertSame(this.locator, locator);
+		bundles.add(bundle);
+	}
+
+	public IReportGroupVisitor visitGroup(final String name) {
+		throw new AssertionError();
+	}
+
+}
@@ -23,10 +23,13 @@ import java.util.Collections;
 import java.util.List;
 
 import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.ISourceFileCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.internal.analysis.BundleCoverageImpl;
+import org.jacoco.core.internal.analysis.PackageCoverageImpl;
 import org.junit.Test;
 
 /**
@@ -63,7 +66,8 @@ public class MultiReportVisitorTest {
 
 	}
 
-	private static class MockGroupVisitor implements IReportGroupVisitor {
+	private static class MockGroupVisitor
+			implements IStreamingReportGroupVisitor {
 
 		private final String name;
 
@@ -78,6 +82,24 @@ public class MultiReportVisitorTest {
 			children.add(new MockGroupVisitor(bundle.getName()));
 		}
 
+		public IReportBundleVisitor visitBundle(String name,
+				ISourceFileLocator locator) throws IOException {
+			final MockGroupVisitor child = new MockGroupVisitor(name);
+			children.add(child);
+			return new IReportBundleVisitor() {
+
+				public void visitPackage(IPackageCoverage packageCoverage)
+						throws IOException {
+					child.children.add(
+							new MockGroupVisitor(packageCoverage.getName()));
+				}
+
+				public void visitEnd() throws IOException {
+					child.children.add(new MockGroupVisitor("end"));
+				}
+			};
+		}
+
 		public IReportGroupVisitor visitGroup(String name) throws IOException {
 			MockGroupVisitor child = new MockGroupVisitor(name);
 			children.add(child);
@@ -95,7 +117,13 @@ public class MultiReportVisitorTest {
 		return new BundleCoverageImpl(name, packages);
 	}
 
-	private static final String MOCK_REPORT = "Report[g1[b1[], b2[]], g2[]]";
+	private IPackageCoverage createPackage(String name) {
+		return new PackageCoverageImpl(name,
+				Collections.<IClassCoverage> emptyList(),
+				Collections.<ISourceFileCoverage> emptyList());
+	}
+
+	private static final String MOCK_REPORT = "Report[g1[b1[], b2[]], g2[], g3[b3[p1[], p2[], end[]]]]";
 
 	private void createMockReport(IReportVisitor visitor) throws IOException {
 		final List<SessionInfo> sessions = Collections.emptyList();
@@ -105,6 +133,11 @@ public class MultiReportVisitorTest {
 		g1.visitBundle(createBundle("b1"), null);
 		g1.visitBundle(createBundle("b2"), null);
 		visitor.visitGroup("g2");
+		IReportBundleVisitor b3 = ((IStreamingReportGroupVisitor) visitor
+				.visitGroup("g3")).visitBundle("b3", null);
+		b3.visitPackage(createPackage("p1"));
+		b3.visitPackage(createPackage("p2"));
+		b3.visitEnd();
 		visitor.visitEnd();
 	}
 
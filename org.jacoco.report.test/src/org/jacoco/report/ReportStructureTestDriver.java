@@ -146,4 +146,20 @@ public class ReportStructureTestDriver {
 		groupVisitor.visitBundle(bundleCoverage, sourceFileLocator);
 	}
 
+	public void sendPackages(IReportVisitor reportVisitor) throws IOException {
+		reportVisitor.visitInfo(sessions, executionData);
+		sendPackages((IReportGroupVisitor) reportVisitor);
+		reportVisitor.visitEnd();
+	}
+
+	public void sendPackages(IReportGroupVisitor groupVisitor)
+			throws IOException {
+		final IReportBundleVisitor bundleVisitor = ((IStreamingReportGroupVisitor) groupVisitor)
+				.visitBundle(bundleCoverage.getName(), sourceFileLocator);
+		for (IPackageCoverage p : bundleCoverage.getPackages()) {
+			bundleVisitor.visitPackage(p);
+		}
+		bundleVisitor.visitEnd();
+	}
+
 }
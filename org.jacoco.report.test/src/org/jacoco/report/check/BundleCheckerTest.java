@@ -14,6 +14,7 @@ package org.jacoco.report.check;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -31,6 +32,7 @@ import org.jacoco.core.internal.analysis.MethodCoverageImpl;
 import org.jacoco.core.internal.analysis.PackageCoverageImpl;
 import org.jacoco.core.internal.analysis.SourceFileCoverageImpl;
 import org.jacoco.report.ILanguageNames;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.JavaNames;
 import org.junit.Before;
 import org.junit.Test;
@@ -60,6 +62,34 @@ public class BundleCheckerTest implements IViolationsOutput {
 				"Rule violated for bundle Test: instructions covered ratio is 0.50, but expected minimum is 0.75");
 	}
 
+	@Test
+	public void testBundleLimitOfEmittedPackages() throws IOException {
+		addRule(ElementType.BUNDLE);
+		final BundleChecker checker = new BundleChecker(rules, names, this);
+		final IReportBundleVisitor visitor = checker
+				.createBundleChecker("Test");
+		for (final IPackageCoverage p : createBundle().getPackages()) {
+			visitor.visitPackage(p);
+		}
+		assertEquals(0, messages.size());
+		visitor.visitEnd();
+		assertMessage(
+				"Rule violated for bundle Test: instructions covered ratio is 0.50, but expected minimum is 0.75");
+	}
+
+	@Test
+	public void testPackageLimitOfEmittedPackages() throws IOException {
+		addRule(ElementType.PACKAGE);
+		final BundleChecker checker = new BundleChecker(rules, names, this);
+		final IReportBundleVisitor visitor = checker
+				.createBundleChecker("Test");
+		for (final IPackageCoverage p : createBundle().getPackages()) {
+			visitor.visitPackage(p);
+		}
+		assertMessage(
+				"Rule violated for package org.jacoco.example: instructions covered ratio is 0.50, but expected minimum is 0.75");
+	}
+
 	@Test
 	public void testPackageLimit() {
 		addRule(ElementType.PACKAGE);
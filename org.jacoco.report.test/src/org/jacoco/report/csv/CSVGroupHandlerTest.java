@@ -54,6 +54,16 @@ public class CSVGroupHandlerTest {
 		assertEquals("no more lines expected", null, reader.readLine());
 	}
 
+	@Test
+	public void testVisitBundlePackages() throws Exception {
+		driver.sendPackages(handler);
+		final BufferedReader reader = getResultReader();
+		reader.readLine();
+		assertEquals("bundle,org.jacoco.example,FooClass,10,15,1,2,0,3,1,2,0,1",
+				reader.readLine());
+		assertEquals("no more lines expected", null, reader.readLine());
+	}
+
 	@Test
 	public void testVisitGroup() throws Exception {
 		driver.sendGroup(handler);
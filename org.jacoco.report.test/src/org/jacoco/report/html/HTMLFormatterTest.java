@@ -80,6 +80,18 @@ public class HTMLFormatterTest {
 		output.assertNoFile("bundle/empty/Empty.java.html");
 	}
 
+	@Test
+	public void testStructureWithEmittedPackages() throws IOException {
+		driver.sendPackages(formatter.createVisitor(output));
+		output.assertFile("index.html");
+
+		output.assertFile("org.jacoco.example/index.html");
+		output.assertFile("org.jacoco.example/index.source.html");
+		output.assertFile("org.jacoco.example/FooClass.html");
+		output.assertFile("org.jacoco.example/FooClass.java.html");
+		output.assertNoFile("empty/index.html");
+	}
+
 	@Test
 	public void testStructureWithBundleOnly() throws IOException {
 		driver.sendBundle(formatter.createVisitor(output));
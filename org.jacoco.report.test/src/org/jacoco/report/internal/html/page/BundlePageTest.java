@@ -75,6 +75,48 @@ public class BundlePageTest extends PageTestBase {
 				support.findStr(doc, "count(/html/body/table[1]/tbody/tr)"));
 	}
 
+	@Test
+	public void should_render_emitted_packages() throws Exception {
+		final ClassCoverageImpl classCoverage = new ClassCoverageImpl(
+				"example/Class", 0, false);
+		final MethodCoverageImpl methodCoverage = new MethodCoverageImpl("m",
+				"()V", null);
+		methodCoverage.increment(CounterImpl.COUNTER_1_0,
+				CounterImpl.COUNTER_0_0, 42);
+		classCoverage.addMethod(methodCoverage);
+
+		final BundlePage page = new BundlePage("bundle", null, null,
+				rootFolder, context);
+		page.visitPackage(new PackageCoverageImpl("example",
+				Collections.<IClassCoverage> singleton(classCoverage),
+				Collections.<ISourceFileCoverage> emptySet()));
+		page.visitPackage(new PackageCoverageImpl("empty",
+				Collections.<IClassCoverage> emptySet(),
+				Collections.<ISourceFileCoverage> emptySet()));
+		page.visitEnd();
+
+		final Document doc = support.parse(output.getFile("index.html"));
+		assertEquals("example/index.html", support.findStr(doc,
+				"/html/body/table[1]/tbody/tr[1]/td[1]/a/@href"));
+		assertEquals("example", support.findStr(doc,
+				"/html/body/table[1]/tbody/tr[1]/td[1]/a"));
+		assertEquals("1",
+				support.findStr(doc, "count(/html/body/table[1]/tbody/tr)"));
+		output.assertFile("example/index.html");
+	}
+
+	@Test
+	public void should_render_message_when_no_packages_emitted()
+			throws Exception {
+		final BundlePage page = new BundlePage("bundle", null, null,
+				rootFolder, context);
+		page.visitEnd();
+
+		final Document doc = support.parse(output.getFile("index.html"));
+		assertEquals("No class files specified.",
+				support.findStr(doc, "/html/body/p"));
+	}
+
 	@Test
 	public void should_render_message_when_no_class_files_specified()
 			throws Exception {
@@ -129,6 +129,17 @@ public class XMLFormatterTest {
 		assertPathMatches("1", "report/counter[@type='CLASS']/@covered");
 	}
 
+	@Test
+	public void testStructureWithEmittedPackages() throws Exception {
+		driver.sendBundle(formatter.createVisitor(output));
+		final MemoryOutput packagesOutput = new MemoryOutput();
+		driver.sendPackages(formatter.createVisitor(packagesOutput));
+		packagesOutput.assertClosed();
+
+		assertEquals(output.toString("UTF-8"),
+				packagesOutput.toString("UTF-8"));
+	}
+
 	@Test
 	public void testStructureWithBundleOnly() throws Exception {
 		final IReportVisitor visitor = formatter.createVisitor(output);
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.jacoco.core.analysis.CoverageNodeImpl;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+
+/**
+ * Bundle visitor which collects all emitted packages and hands over the
+ * complete bundle at the end. Used for visitors which do not implement
+ * {@link IStreamingReportGroupVisitor}.
+ */
+public abstract class BufferedBundleVisitor implements IReportBundleVisitor {
+
+	private final String name;
+
+	private final Collection<IPackageCoverage> packages;
+
+	/**
+	 * Creates a new visitor for a bundle with the given name.
+	 *
+	 * @param name
+	 *            name of the bundle
+	 */
+	protected BufferedBundleVisitor(final String name) {
+		this.name = name;
+		this.packages = new ArrayList<IPackageCoverage>();
+	}
+
+	public void visitPackage(final IPackageCoverage packageCoverage) {
+		packages.add(packageCoverage);
+	}
+
+	public void visitEnd() throws IOException {
+		handleBundle(new Bundle(name, packages));
+	}
+
+	/**
+	 * Called with the complete bundle after all packages have been emitted.
+	 *
+	 * @param bundle
+	 *            bundle containing all emitted packages
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	protected abstract void handleBundle(IBundleCoverage bundle)
+			throws IOException;
+
+	/**
+	 * Adds a bundle to the given visitor whose packages are emitted one by one.
+	 * If the visitor does not implement {@link IStreamingReportGroupVisitor}
+	 * the packages are collected and the complete bundle is added when the
+	 * returned visitor is ended.
+	 *
+	 * @param visitor
+	 *            visitor to add the bundle to
+	 * @param name
+	 *            name of the bundle
+	 * @param locator
+	 *            source locator for this bundle
+	 * @return visitor for the packages of the bundle
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	public static IReportBundleVisitor visitBundle(
+			final IReportGroupVisitor visitor, final String name,
+			final ISourceFileLocator locator) throws IOException {
+		if (visitor instanceof IStreamingReportGroupVisitor) {
+			return ((IStreamingReportGroupVisitor) visitor).visitBundle(name,
+					locator);
+		}
+		return new BufferedBundleVisitor(name) {
+			@Override
+			protected void handleBundle(final IBundleCoverage bundle)
+					throws IOException {
+				visitor.visitBundle(bundle, locator);
+			}
+		};
+	}
+
+	private static class Bundle extends CoverageNodeImpl
+			implements IBundleCoverage {
+
+		private final Collection<IPackageCoverage> packages;
+
+		Bundle(final String name, final Collection<IPackageCoverage> packages) {
+			super(ElementType.BUNDLE, name);
+			this.packages = packages;
+			increment(packages);
+		}
+
+		public Collection<IPackageCoverage> getPackages() {
+			return packages;
+		}
+
+	}
+
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report;
+
+import java.io.IOException;
+
+import org.jacoco.core.analysis.IPackageCoverage;
+
+/**
+ * Output interface for a bundle which is emitted package by package. Report
+ * formatters write every package when it is emitted and calculate the bundle
+ * totals from the packages, so the caller does not have to keep the coverage
+ * data of the whole bundle in memory.
+ *
+ * @see IStreamingReportGroupVisitor#visitBundle(String, ISourceFileLocator)
+ */
+public interface IReportBundleVisitor {
+
+	/**
+	 * Adds the given package to the bundle. Every package must be emitted at
+	 * most once.
+	 *
+	 * @param packageCoverage
+	 *            coverage data of the package
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	void visitPackage(IPackageCoverage packageCoverage) throws IOException;
+
+	/**
+	 * Has to be called after all packages of the bundle have been emitted.
+	 *
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	void visitEnd() throws IOException;
+
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2021 Mountainminds GmbH & Co. KG and Contributors
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.report;
+
+import java.io.IOException;
+
+/**
+ * Optional extension of {@link IReportGroupVisitor} for visitors which can
+ * receive the packages of a bundle one by one. Callers check whether a visitor
+ * implements this interface and otherwise emit complete bundles, e.g. with
+ * {@link BufferedBundleVisitor#visitBundle(IReportGroupVisitor, String, ISourceFileLocator)}.
+ *
+ * In addition to the constraints of {@link IReportGroupVisitor} a bundle
+ * created with {@link #visitBundle(String, ISourceFileLocator)} has to be
+ * completed before this or any parent visitor can be used again.
+ */
+public interface IStreamingReportGroupVisitor extends IReportGroupVisitor {
+
+	/**
+	 * Called to add a bundle to the report whose packages are emitted one by
+	 * one to the returned visitor. The counters of the bundle are calculated
+	 * from the emitted packages.
+	 *
+	 * @param name
+	 *            name of the bundle
+	 * @param locator
+	 *            source locator for this bundle
+	 * @return visitor for the packages of the bundle
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	IReportBundleVisitor visitBundle(String name, ISourceFileLocator locator)
+			throws IOException;
+
+}
@@ -18,6 +18,7 @@ import java.util.Collection;
 import java.util.List;
 
 import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 
@@ -56,7 +57,7 @@ public class MultiReportVisitor extends MultiGroupVisitor
 
 }
 
-class MultiGroupVisitor implements IReportGroupVisitor {
+class MultiGroupVisitor implements IStreamingReportGroupVisitor {
 
 	private final List<? extends IReportGroupVisitor> visitors;
 
@@ -71,6 +72,29 @@ class MultiGroupVisitor implements IReportGroupVisitor {
 		}
 	}
 
+	public IReportBundleVisitor visitBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		final List<IReportBundleVisitor> children = new ArrayList<IReportBundleVisitor>();
+		for (final IReportGroupVisitor v : visitors) {
+			children.add(BufferedBundleVisitor.visitBundle(v, name, locator));
+		}
+		return new IReportBundleVisitor() {
+
+			public void visitPackage(final IPackageCoverage packageCoverage)
+					throws IOException {
+				for (final IReportBundleVisitor v : children) {
+					v.visitPackage(packageCoverage);
+				}
+			}
+
+			public void visitEnd() throws IOException {
+				for (final IReportBundleVisitor v : children) {
+					v.visitEnd();
+				}
+			}
+		};
+	}
+
 	public IReportGroupVisitor visitGroup(final String name)
 			throws IOException {
 		final List<IReportGroupVisitor> children = new ArrayList<IReportGroupVisitor>();
@@ -15,13 +15,16 @@ package org.jacoco.report.check;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
 import org.jacoco.core.analysis.IMethodCoverage;
 import org.jacoco.core.analysis.IPackageCoverage;
 import org.jacoco.core.analysis.ISourceFileCoverage;
 import org.jacoco.report.ILanguageNames;
+import org.jacoco.report.IReportBundleVisitor;
 
 /**
  * Internal class to check a list of rules against a {@link IBundleCoverage}
@@ -88,6 +91,28 @@ class BundleChecker {
 		}
 	}
 
+	/**
+	 * Creates a visitor which checks every emitted package immediately. The
+	 * bundle rules are checked against the totals of all packages at the end.
+	 */
+	public IReportBundleVisitor createBundleChecker(final String name) {
+		final CoverageNodeImpl total = new CoverageNodeImpl(
+				ElementType.BUNDLE, name);
+		return new IReportBundleVisitor() {
+
+			public void visitPackage(final IPackageCoverage packageCoverage) {
+				total.increment(packageCoverage);
+				if (traversePackages) {
+					check(packageCoverage);
+				}
+			}
+
+			public void visitEnd() {
+				checkRules(total, bundleRules, "bundle", name);
+			}
+		};
+	}
+
 	private void check(final IPackageCoverage packageCoverage) {
 		final String name = names.getPackageName(packageCoverage.getName());
 		checkRules(packageCoverage, packageRules, "package", name);
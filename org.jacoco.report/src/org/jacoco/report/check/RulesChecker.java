@@ -21,9 +21,11 @@ import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.report.ILanguageNames;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 import org.jacoco.report.JavaNames;
 
 /**
@@ -74,7 +76,8 @@ public class RulesChecker {
 	public IReportVisitor createVisitor(final IViolationsOutput output) {
 		final BundleChecker bundleChecker = new BundleChecker(rules,
 				languageNames, output);
-		return new IReportVisitor() {
+		class Visitor
+				implements IReportVisitor, IStreamingReportGroupVisitor {
 
 			public IReportGroupVisitor visitGroup(final String name)
 					throws IOException {
@@ -86,6 +89,11 @@ public class RulesChecker {
 				bundleChecker.checkBundle(bundle);
 			}
 
+			public IReportBundleVisitor visitBundle(final String name,
+					final ISourceFileLocator locator) throws IOException {
+				return bundleChecker.createBundleChecker(name);
+			}
+
 			public void visitInfo(final List<SessionInfo> sessionInfos,
 					final Collection<ExecutionData> executionData)
 					throws IOException {
@@ -93,7 +101,8 @@ public class RulesChecker {
 
 			public void visitEnd() throws IOException {
 			}
-		};
+		}
+		return new Visitor();
 	}
 
 }
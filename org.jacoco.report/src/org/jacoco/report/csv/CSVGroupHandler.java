@@ -17,13 +17,15 @@ import java.io.IOException;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 
 /**
  * Report visitor that handles coverage information for groups.
  */
-class CSVGroupHandler implements IReportGroupVisitor {
+class CSVGroupHandler implements IStreamingReportGroupVisitor {
 
 	private final ClassRowWriter writer;
 
@@ -43,11 +45,32 @@ class CSVGroupHandler implements IReportGroupVisitor {
 			final ISourceFileLocator locator) throws IOException {
 		final String name = appendName(bundle.getName());
 		for (final IPackageCoverage p : bundle.getPackages()) {
-			final String packageName = p.getName();
-			for (final IClassCoverage c : p.getClasses()) {
-				if (c.containsCode()) {
-					writer.writeRow(name, packageName, c);
-				}
+			writePackage(name, p);
+		}
+	}
+
+	public IReportBundleVisitor visitBundle(final String bundleName,
+			final ISourceFileLocator locator) throws IOException {
+		final String name = appendName(bundleName);
+		return new IReportBundleVisitor() {
+
+			public void visitPackage(final IPackageCoverage packageCoverage)
+					throws IOException {
+				writePackage(name, packageCoverage);
+			}
+
+			public void visitEnd() throws IOException {
+				// Bundle totals are not written to CSV reports
+			}
+		};
+	}
+
+	private void writePackage(final String bundleName,
+			final IPackageCoverage p) throws IOException {
+		final String packageName = p.getName();
+		for (final IClassCoverage c : p.getClasses()) {
+			if (c.containsCode()) {
+				writer.writeRow(bundleName, packageName, c);
 			}
 		}
 	}
@@ -23,9 +23,11 @@ import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.report.ILanguageNames;
 import org.jacoco.report.IMultiReportOutput;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 import org.jacoco.report.JavaNames;
 import org.jacoco.report.internal.ReportOutputFolder;
 import org.jacoco.report.internal.html.HTMLGroupVisitor;
@@ -191,7 +193,8 @@ public class HTMLFormatter implements IHTMLReportContext {
 		resources = new Resources(root);
 		resources.copyResources();
 		index = new ElementIndex(root);
-		return new IReportVisitor() {
+		class RootVisitor
+				implements IReportVisitor, IStreamingReportGroupVisitor {
 
 			private List<SessionInfo> sessionInfos;
 			private Collection<ExecutionData> executionData;
@@ -213,6 +216,14 @@ public class HTMLFormatter implements IHTMLReportContext {
 				page.render();
 			}
 
+			public IReportBundleVisitor visitBundle(final String name,
+					final ISourceFileLocator locator) throws IOException {
+				final BundlePage page = new BundlePage(name, null, locator,
+						root, HTMLFormatter.this);
+				createSessionsPage(page);
+				return page;
+			}
+
 			public IReportGroupVisitor visitGroup(final String name)
 					throws IOException {
 				groupHandler = new HTMLGroupVisitor(null, root,
@@ -234,6 +245,7 @@ public class HTMLFormatter implements IHTMLReportContext {
 				sessionsPage.render();
 				output.close();
 			}
-		};
+		}
+		return new RootVisitor();
 	}
 }
@@ -17,14 +17,19 @@ import java.io.IOException;
 import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.BufferedBundleVisitor;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 
 /**
  * Internal base visitor to calculate group counter summaries for hierarchical
  * reports.
  */
-public abstract class AbstractGroupVisitor implements IReportGroupVisitor {
+public abstract class AbstractGroupVisitor
+		implements IStreamingReportGroupVisitor {
 
 	/** coverage node for this group to total counters */
 	protected final CoverageNodeImpl total;
@@ -61,6 +66,49 @@ public abstract class AbstractGroupVisitor implements IReportGroupVisitor {
 	protected abstract void handleBundle(IBundleCoverage bundle,
 			ISourceFileLocator locator) throws IOException;
 
+	public final IReportBundleVisitor visitBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		finalizeLastChild();
+		final IReportBundleVisitor handler = handleBundle(name, locator);
+		return new IReportBundleVisitor() {
+
+			public void visitPackage(final IPackageCoverage packageCoverage)
+					throws IOException {
+				total.increment(packageCoverage);
+				handler.visitPackage(packageCoverage);
+			}
+
+			public void visitEnd() throws IOException {
+				handler.visitEnd();
+			}
+		};
+	}
+
+	/**
+	 * Called to handle a bundle which is emitted package by package in a
+	 * specific way. The default implementation collects all packages and
+	 * passes the complete bundle to
+	 * {@link #handleBundle(IBundleCoverage, ISourceFileLocator)}.
+	 *
+	 * @param name
+	 *            name of the bundle
+	 * @param locator
+	 *            source locator
+	 * @return visitor for the packages of the bundle
+	 * @throws IOException
+	 *             if the report can't be written
+	 */
+	protected IReportBundleVisitor handleBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		return new BufferedBundleVisitor(name) {
+			@Override
+			protected void handleBundle(final IBundleCoverage bundle)
+					throws IOException {
+				AbstractGroupVisitor.this.handleBundle(bundle, locator);
+			}
+		};
+	}
+
 	public final IReportGroupVisitor visitGroup(final String name)
 			throws IOException {
 		finalizeLastChild();
@@ -16,6 +16,7 @@ import java.io.IOException;
 
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.internal.AbstractGroupVisitor;
 import org.jacoco.report.internal.ReportOutputFolder;
@@ -74,6 +75,15 @@ public class HTMLGroupVisitor extends AbstractGroupVisitor {
 		page.addItem(bundlepage);
 	}
 
+	@Override
+	protected IReportBundleVisitor handleBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		final BundlePage bundlepage = new BundlePage(name, page, locator,
+				folder.subFolder(name), context);
+		page.addItem(bundlepage);
+		return bundlepage;
+	}
+
 	@Override
 	protected AbstractGroupVisitor handleGroup(final String name)
 			throws IOException {
@@ -14,9 +14,12 @@ package org.jacoco.report.internal.html.page;
 
 import java.io.IOException;
 
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
 import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.ISourceFileLocator;
 import org.jacoco.report.internal.ReportOutputFolder;
 import org.jacoco.report.internal.html.HTMLElement;
@@ -24,14 +27,23 @@ import org.jacoco.report.internal.html.IHTMLReportContext;
 
 /**
  * Page showing coverage information for a bundle. The page contains a table
- * with all packages of the bundle.
+ * with all packages of the bundle. The packages are either taken from a
+ * complete bundle or emitted one by one through the
+ * {@link IReportBundleVisitor} interface, in which case the page is rendered
+ * with {@link #visitEnd()}.
  */
-public class BundlePage extends TablePage<ICoverageNode> {
+public class BundlePage extends TablePage<ICoverageNode>
+		implements IReportBundleVisitor {
 
 	private final ISourceFileLocator locator;
 
+	/** totals of the emitted packages, <code>null</code> for full bundles */
+	private final CoverageNodeImpl total;
+
 	private IBundleCoverage bundle;
 
+	private boolean empty = true;
+
 	/**
 	 * Creates a new visitor in the given context.
 	 *
@@ -52,29 +64,80 @@ public class BundlePage extends TablePage<ICoverageNode> {
 		super(bundle.getPlainCopy(), parent, folder, context);
 		this.bundle = bundle;
 		this.locator = locator;
+		this.total = null;
+	}
+
+	/**
+	 * Creates a new visitor in the given context for a bundle whose packages
+	 * are emitted with {@link #visitPackage(IPackageCoverage)}.
+	 *
+	 * @param name
+	 *            name of the bundle
+	 * @param parent
+	 *            optional hierarchical parent
+	 * @param locator
+	 *            source locator
+	 * @param folder
+	 *            base folder for this bundle
+	 * @param context
+	 *            settings context
+	 */
+	public BundlePage(final String name, final ReportPage parent,
+			final ISourceFileLocator locator, final ReportOutputFolder folder,
+			final IHTMLReportContext context) {
+		this(new CoverageNodeImpl(ElementType.BUNDLE, name), parent, locator,
+				folder, context);
+	}
+
+	private BundlePage(final CoverageNodeImpl total, final ReportPage parent,
+			final ISourceFileLocator locator, final ReportOutputFolder folder,
+			final IHTMLReportContext context) {
+		super(total, parent, folder, context);
+		this.bundle = null;
+		this.locator = locator;
+		this.total = total;
 	}
 
 	@Override
 	public void render() throws IOException {
-		renderPackages();
+		if (bundle != null) {
+			for (final IPackageCoverage p : bundle.getPackages()) {
+				renderPackage(p);
+			}
+			// Don't keep the bundle structure in memory
+			bundle = null;
+		}
 		super.render();
-		// Don't keep the bundle structure in memory
-		bundle = null;
 	}
 
-	private void renderPackages() throws IOException {
-		for (final IPackageCoverage p : bundle.getPackages()) {
-			if (!p.containsCode()) {
-				continue;
-			}
-			final String packagename = p.getName();
-			final String foldername = packagename.length() == 0 ? "default"
-					: packagename.replace('/', '.');
-			final PackagePage page = new PackagePage(p, this, locator,
-					folder.subFolder(foldername), context);
-			page.render();
-			addItem(page);
+	/**
+	 * Renders the page of the given package immediately. Only a summary of the
+	 * package is kept for the table of this page.
+	 */
+	private void renderPackage(final IPackageCoverage p) throws IOException {
+		empty = false;
+		if (!p.containsCode()) {
+			return;
 		}
+		final String packagename = p.getName();
+		final String foldername = packagename.length() == 0 ? "default"
+				: packagename.replace('/', '.');
+		final PackagePage page = new PackagePage(p, this, locator,
+				folder.subFolder(foldername), context);
+		page.render();
+		addItem(new PageItem(page));
+	}
+
+	// === IReportBundleVisitor ===
+
+	public void visitPackage(final IPackageCoverage packageCoverage)
+			throws IOException {
+		total.increment(packageCoverage);
+		renderPackage(packageCoverage);
+	}
+
+	public void visitEnd() throws IOException {
+		render();
 	}
 
 	@Override
@@ -89,9 +152,9 @@ public class BundlePage extends TablePage<ICoverageNode> {
 
 	@Override
 	protected void content(HTMLElement body) throws IOException {
-		if (bundle.getPackages().isEmpty()) {
+		if (empty) {
 			body.p().text("No class files specified.");
-		} else if (!bundle.containsCode()) {
+		} else if (!getNode().containsCode()) {
 			body.p().text(
 					"None of the analyzed classes contain code relevant for code coverage.");
 		} else {
@@ -14,16 +14,19 @@ package org.jacoco.report.internal.xml;
 
 import java.io.IOException;
 
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.ICounter;
 import org.jacoco.core.analysis.ICoverageNode;
 import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
 import org.jacoco.core.analysis.ILine;
 import org.jacoco.core.analysis.IMethodCoverage;
 import org.jacoco.core.analysis.IPackageCoverage;
 import org.jacoco.core.analysis.ISourceFileCoverage;
 import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.report.IReportBundleVisitor;
 
 /**
  * Serializes coverage data as XML fragments.
@@ -48,6 +51,33 @@ public final class XMLCoverageWriter {
 		writeCounters(bundle, element);
 	}
 
+	/**
+	 * Creates a visitor which writes every emitted package to the given
+	 * element and the counters of the bundle totaled from all packages at the
+	 * end.
+	 *
+	 * @param element
+	 *            container element for the bundle data
+	 * @return visitor for the packages of the bundle
+	 */
+	public static IReportBundleVisitor createBundleWriter(
+			final ReportElement element) {
+		final CoverageNodeImpl total = new CoverageNodeImpl(
+				ElementType.BUNDLE, "");
+		return new IReportBundleVisitor() {
+
+			public void visitPackage(final IPackageCoverage packageCoverage)
+					throws IOException {
+				total.increment(packageCoverage);
+				writePackage(packageCoverage, element);
+			}
+
+			public void visitEnd() throws IOException {
+				writeCounters(total, element);
+			}
+		};
+	}
+
 	private static void writePackage(final IPackageCoverage p,
 			final ReportElement parent) throws IOException {
 		final ReportElement element = parent.packageElement(p.getName());
@@ -20,9 +20,11 @@ import java.util.List;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 import org.jacoco.report.internal.xml.ReportElement;
 import org.jacoco.report.internal.xml.XMLCoverageWriter;
 import org.jacoco.report.internal.xml.XMLGroupVisitor;
@@ -55,7 +57,8 @@ public class XMLFormatter {
 	 */
 	public IReportVisitor createVisitor(final OutputStream output)
 			throws IOException {
-		class RootVisitor implements IReportVisitor {
+		class RootVisitor
+				implements IReportVisitor, IStreamingReportGroupVisitor {
 
 			private ReportElement report;
 			private List<SessionInfo> sessionInfos;
@@ -73,6 +76,12 @@ public class XMLFormatter {
 				XMLCoverageWriter.writeBundle(bundle, report);
 			}
 
+			public IReportBundleVisitor visitBundle(final String name,
+					final ISourceFileLocator locator) throws IOException {
+				createRootElement(name);
+				return XMLCoverageWriter.createBundleWriter(report);
+			}
+
 			public IReportGroupVisitor visitGroup(final String name)
 					throws IOException {
 				createRootElement(name);